@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import opennlp.tools.ml.BeamSearch;
 import opennlp.tools.ml.EventTrainer;
@@ -30,6 +31,7 @@ import opennlp.tools.ml.TrainerFactory.TrainerType;
 import opennlp.tools.ml.model.Event;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.SequenceClassificationModel;
+import opennlp.tools.util.BatchProcessor;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.Sequence;
 import opennlp.tools.util.SequenceValidator;
@@ -39,19 +41,22 @@ import opennlp.tools.util.TrainingParameters;
 /**
  * The class represents a maximum-entropy-based chunker.  Such a chunker can be used to
  * find flat structures based on sequence inputs such as noun phrases or named entities.
+ * <p>
+ * Instances are thread-safe and can be shared between threads, the feature context
+ * generator and the last decoded sequence are held per thread.
  */
 public class ChunkerME implements Chunker {
 
   public static final int DEFAULT_BEAM_SIZE = 10;
 
-  private Sequence bestSequence;
+  private final ThreadLocal<Sequence> bestSequence = new ThreadLocal<>();
 
   /**
    * The model used to assign chunk tags to a sequence of tokens.
    */
   protected SequenceClassificationModel<String> model;
 
-  private ChunkerContextGenerator contextGenerator;
+  private final ThreadLocal<ChunkerContextGenerator> contextGenerators;
   private SequenceValidator<String> sequenceValidator;
 
   /**
@@ -71,7 +76,7 @@ public class ChunkerME implements Chunker {
       ChunkerContextGenerator contextGenerator) {
 
     this.sequenceValidator = sequenceValidator;
-    this.contextGenerator = contextGenerator;
+    this.contextGenerators = ThreadLocal.withInitial(() -> contextGenerator);
 
     if (model.getChunkerSequenceModel() != null) {
       this.model = model.getChunkerSequenceModel();
@@ -94,7 +99,8 @@ public class ChunkerME implements Chunker {
   @Deprecated
   private ChunkerME(ChunkerModel model, int beamSize) {
 
-    contextGenerator = model.getFactory().getContextGenerator();
+    ChunkerFactory factory = model.getFactory();
+    contextGenerators = ThreadLocal.withInitial(factory::getContextGenerator);
     sequenceValidator = model.getFactory().getSequenceValidator();
 
     if (model.getChunkerSequenceModel() != null) {
@@ -117,11 +123,56 @@ public class ChunkerME implements Chunker {
   }
 
   public String[] chunk(String[] toks, String[] tags) {
-    bestSequence = model.bestSequence(toks, new Object[] {tags}, contextGenerator, sequenceValidator);
-    List<String> c = bestSequence.getOutcomes();
+    Sequence sequence = model.bestSequence(toks, new Object[] {tags}, contextGenerators.get(),
+        sequenceValidator);
+    bestSequence.set(sequence);
+    List<String> c = sequence.getOutcomes();
     return c.toArray(new String[c.size()]);
   }
 
+  /**
+   * Chunks a batch of sentences. The sentences are chunked one after another with
+   * {@link #chunk(String[], String[])}, the contexts are not generated and evaluated in
+   * one pass over the batch because they depend on the previously assigned chunk tags.
+   * Contexts which repeat across the batch are evaluated once if the model enables the
+   * context cache with the {@link BeamSearch#CACHE_SIZE_PARAMETER} parameter.
+   *
+   * @param toks the tokens of each sentence
+   * @param tags the pos tags of each sentence
+   *
+   * @return the chunk tags of each sentence
+   */
+  public String[][] chunk(String[][] toks, String[][] tags) {
+    return chunk(toks, tags, null);
+  }
+
+  /**
+   * Chunks a batch of sentences. The batch is split into partitions which are chunked
+   * in parallel on the executor by this chunker.
+   *
+   * @param toks the tokens of each sentence
+   * @param tags the pos tags of each sentence
+   * @param executor the executor to chunk the partitions on, or null to chunk the
+   *     batch in the calling thread
+   *
+   * @return the chunk tags of each sentence
+   */
+  public String[][] chunk(String[][] toks, String[][] tags, Executor executor) {
+    if (toks.length != tags.length) {
+      throw new IllegalArgumentException("The number of token and tag sentences must be equal!");
+    }
+
+    String[][] chunks = new String[toks.length][];
+
+    BatchProcessor.process(toks.length, executor, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        chunks[i] = chunk(toks[i], tags[i]);
+      }
+    });
+
+    return chunks;
+  }
+
   public Span[] chunkAsSpans(String[] toks, String[] tags) {
     String[] preds = chunk(toks, tags);
     return ChunkSample.phrasesAsSpanList(toks, tags, preds);
@@ -129,12 +180,12 @@ public class ChunkerME implements Chunker {
 
   public Sequence[] topKSequences(String[] sentence, String[] tags) {
     return model.bestSequences(DEFAULT_BEAM_SIZE, sentence,
-        new Object[] { tags }, contextGenerator, sequenceValidator);
+        new Object[] { tags }, contextGenerators.get(), sequenceValidator);
   }
 
   public Sequence[] topKSequences(String[] sentence, String[] tags, double minSequenceScore) {
     return model.bestSequences(DEFAULT_BEAM_SIZE, sentence, new Object[] { tags }, minSequenceScore,
-        contextGenerator, sequenceValidator);
+        contextGenerators.get(), sequenceValidator);
   }
 
   /**
@@ -146,7 +197,7 @@ public class ChunkerME implements Chunker {
    * @param probs An array used to hold the probabilities of the last decoded sequence.
    */
   public void probs(double[] probs) {
-    bestSequence.getProbs(probs);
+    bestSequence.get().getProbs(probs);
   }
 
   /**
@@ -156,7 +207,7 @@ public class ChunkerME implements Chunker {
    *     when it was last called.
    */
   public double[] probs() {
-    return bestSequence.getProbs();
+    return bestSequence.get().getProbs();
   }
 
   public static ChunkerModel train(String lang, ObjectStream<ChunkSample> in,
@@ -171,6 +222,11 @@ public class ChunkerME implements Chunker {
 
     Map<String, String> manifestInfoEntries = new HashMap<>();
 
+    String cacheSizeString = mlParams.getSettings().get(BeamSearch.CACHE_SIZE_PARAMETER);
+    if (cacheSizeString != null) {
+      manifestInfoEntries.put(BeamSearch.CACHE_SIZE_PARAMETER, cacheSizeString);
+    }
+
     TrainerType trainerType = TrainerFactory.getTrainerType(mlParams);
 
 
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Properties;
 
@@ -79,6 +80,14 @@ public class ChunkerModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public ChunkerModel(Path modelPath) throws IOException, InvalidFormatException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public ChunkerModel(Path modelPath, boolean loadLazily) throws IOException, InvalidFormatException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public ChunkerModel(URL modelURL) throws IOException, InvalidFormatException {
     super(COMPONENT_NAME, modelURL);
   }
@@ -117,7 +126,8 @@ public class ChunkerModel extends BaseModel {
         beamSize = Integer.parseInt(beamSizeString);
       }
 
-      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(CHUNKER_MODEL_ENTRY_NAME));
+      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(CHUNKER_MODEL_ENTRY_NAME),
+          getContextCache());
     }
     else if (artifactMap.get(CHUNKER_MODEL_ENTRY_NAME) instanceof SequenceClassificationModel) {
       return (SequenceClassificationModel) artifactMap.get(CHUNKER_MODEL_ENTRY_NAME);
@@ -41,6 +41,8 @@ import opennlp.tools.cmdline.languagemodel.NGramLanguageModelTool;
 import opennlp.tools.cmdline.lemmatizer.LemmatizerEvaluatorTool;
 import opennlp.tools.cmdline.lemmatizer.LemmatizerMETool;
 import opennlp.tools.cmdline.lemmatizer.LemmatizerTrainerTool;
+import opennlp.tools.cmdline.model.ModelPrunerTool;
+import opennlp.tools.cmdline.model.ModelQuantizerTool;
 import opennlp.tools.cmdline.namefind.CensusDictionaryCreatorTool;
 import opennlp.tools.cmdline.namefind.TokenNameFinderConverterTool;
 import opennlp.tools.cmdline.namefind.TokenNameFinderCrossValidatorTool;
@@ -152,6 +154,10 @@ public final class CLI {
     // Language Model
     tools.add(new NGramLanguageModelTool());
 
+    // Models
+    tools.add(new ModelQuantizerTool());
+    tools.add(new ModelPrunerTool());
+
     for (CmdLineTool tool : tools) {
       toolLookupMap.put(tool.getName(), tool);
     }
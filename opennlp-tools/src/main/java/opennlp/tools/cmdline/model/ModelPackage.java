@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.cmdline.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import opennlp.tools.chunker.ChunkSampleStream;
+import opennlp.tools.chunker.ChunkerEvaluator;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.NameSampleDataStream;
+import opennlp.tools.namefind.TokenNameFinderEvaluator;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.ParseSampleStream;
+import opennlp.tools.parser.ParserEvaluator;
+import opennlp.tools.parser.ParserFactory;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.postag.POSEvaluator;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.postag.WordTagSampleStream;
+import opennlp.tools.util.InvalidFormatException;
+import opennlp.tools.util.MarkableFileInputStreamFactory;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.model.BaseModel;
+import opennlp.tools.util.model.GenericModelSerializer;
+import opennlp.tools.util.model.ModelUtil;
+
+/**
+ * A model package, e.g. of a name finder, pos tagger or parser, whose maxent models
+ * can be rewritten by the model tools.
+ * <p>
+ * The maxent models are the entries with the model extension, they are rewritten in
+ * the packages which are nested in the package as well, e.g. the pos tagger of a parser.
+ * All other entries, and models which are written by a custom serializer, are copied
+ * unchanged.
+ */
+final class ModelPackage {
+
+  private static final byte[] ZIP_MAGIC = new byte[] {'P', 'K', 3, 4};
+
+  private static final String MANIFEST_ENTRY = "manifest.properties";
+
+  private static final String COMPONENT_NAME_PROPERTY = "Component-Name";
+
+  private static final String SERIALIZER_CLASS_NAME_PREFIX = "serializer-class-";
+
+  private static final String MODEL_EXTENSION = ".model";
+
+  private final byte[] bytes;
+
+  private ModelPackage(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  private static boolean isZip(byte[] bytes) {
+    return bytes.length >= ZIP_MAGIC.length
+        && Arrays.equals(Arrays.copyOf(bytes, ZIP_MAGIC.length), ZIP_MAGIC);
+  }
+
+  /**
+   * Checks if a file is a model package, otherwise it is expected to be a maxent model.
+   */
+  static boolean isModelPackage(File file) throws IOException {
+    byte[] magic = new byte[ZIP_MAGIC.length];
+    try (InputStream in = new FileInputStream(file)) {
+      int length = 0;
+      int read;
+      while (length < magic.length && (read = in.read(magic, length, magic.length - length)) > 0) {
+        length += read;
+      }
+      return length == magic.length && Arrays.equals(magic, ZIP_MAGIC);
+    }
+  }
+
+  static ModelPackage read(File file) throws IOException {
+    return new ModelPackage(Files.readAllBytes(file.toPath()));
+  }
+
+  void write(File file) throws IOException {
+    Files.write(file.toPath(), bytes);
+  }
+
+  /**
+   * Retrieves the size of the package in bytes.
+   */
+  int size() {
+    return bytes.length;
+  }
+
+  /**
+   * Creates a package whose maxent models are replaced by the transformed models.
+   *
+   * @param transformation transforms a maxent model of the package
+   *
+   * @return the new package
+   */
+  ModelPackage transform(UnaryOperator<AbstractModel> transformation) throws IOException {
+    return new ModelPackage(transform(bytes, transformation));
+  }
+
+  private static byte[] transform(byte[] bytes, UnaryOperator<AbstractModel> transformation)
+      throws IOException {
+    Properties manifest = readManifest(bytes);
+    GenericModelSerializer serializer = new GenericModelSerializer();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+
+    try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(bytes));
+         ZipOutputStream zipOut = new ZipOutputStream(out)) {
+      ZipEntry entry;
+      while ((entry = zipIn.getNextEntry()) != null) {
+        byte[] entryBytes = ModelUtil.read(zipIn);
+
+        zipOut.putNextEntry(new ZipEntry(entry.getName()));
+        if (entry.getName().endsWith(MODEL_EXTENSION)
+            && manifest.getProperty(SERIALIZER_CLASS_NAME_PREFIX + entry.getName()) == null) {
+          AbstractModel model = serializer.create(new ByteArrayInputStream(entryBytes));
+          serializer.serialize(transformation.apply(model), zipOut);
+        }
+        else if (isZip(entryBytes)) {
+          zipOut.write(transform(entryBytes, transformation));
+        }
+        else {
+          zipOut.write(entryBytes);
+        }
+        zipOut.closeEntry();
+      }
+    }
+
+    return out.toByteArray();
+  }
+
+  private static Properties readManifest(byte[] bytes) throws IOException {
+    try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+      ZipEntry entry;
+      while ((entry = zipIn.getNextEntry()) != null) {
+        if (MANIFEST_ENTRY.equals(entry.getName())) {
+          Properties manifest = new Properties();
+          manifest.load(zipIn);
+          return manifest;
+        }
+      }
+    }
+    throw new InvalidFormatException("The model package does not contain a manifest");
+  }
+
+  /**
+   * Loads the package as the model of its component.
+   *
+   * @return the model
+   *
+   * @throws InvalidFormatException if the component can not be evaluated by the model tools
+   */
+  BaseModel load() throws IOException {
+    String componentName = readManifest(bytes).getProperty(COMPONENT_NAME_PROPERTY);
+    InputStream in = new ByteArrayInputStream(bytes);
+
+    switch (componentName == null ? "" : componentName) {
+      case "NameFinderME":
+        return new TokenNameFinderModel(in);
+      case "POSTaggerME":
+        return new POSModel(in);
+      case "ChunkerME":
+        return new ChunkerModel(in);
+      case "Parser":
+        return new ParserModel(in);
+      default:
+        throw new InvalidFormatException("The model tools can not evaluate " + componentName
+            + " models, only name finder, pos tagger, chunker and parser models.");
+    }
+  }
+
+  /**
+   * Retrieves the name of the score which {@link #evaluate(BaseModel, File, Charset)} computes.
+   */
+  static String getScoreName(BaseModel model) {
+    return model instanceof POSModel ? "Word accuracy" : "F-Measure";
+  }
+
+  /**
+   * Evaluates a model with the evaluator of its component.
+   *
+   * @param model the model, loaded by {@link #load()}
+   * @param data the test samples, in the OpenNLP format of the component
+   * @param encoding the encoding of the samples
+   *
+   * @return the word accuracy of a pos tagger, otherwise the f-measure
+   */
+  static double evaluate(BaseModel model, File data, Charset encoding) throws IOException {
+    try (ObjectStream<String> lines = new PlainTextByLineStream(
+        new MarkableFileInputStreamFactory(data), encoding)) {
+
+      if (model instanceof TokenNameFinderModel) {
+        TokenNameFinderEvaluator evaluator = new TokenNameFinderEvaluator(
+            new NameFinderME((TokenNameFinderModel) model));
+        evaluator.evaluate(new NameSampleDataStream(lines));
+        return evaluator.getFMeasure().getFMeasure();
+      }
+      else if (model instanceof POSModel) {
+        POSEvaluator evaluator = new POSEvaluator(new POSTaggerME((POSModel) model));
+        evaluator.evaluate(new WordTagSampleStream(lines));
+        return evaluator.getWordAccuracy();
+      }
+      else if (model instanceof ChunkerModel) {
+        ChunkerEvaluator evaluator = new ChunkerEvaluator(new ChunkerME((ChunkerModel) model));
+        evaluator.evaluate(new ChunkSampleStream(lines));
+        return evaluator.getFMeasure().getFMeasure();
+      }
+      else if (model instanceof ParserModel) {
+        ParserEvaluator evaluator = new ParserEvaluator(ParserFactory.create((ParserModel) model));
+        evaluator.evaluate(new ParseSampleStream(lines));
+        return evaluator.getFMeasure().getFMeasure();
+      }
+    }
+
+    throw new IllegalArgumentException("Unsupported model: " + model.getClass().getName());
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.cmdline.model;
+
+import java.io.File;
+import java.io.IOException;
+
+import opennlp.tools.cmdline.ArgumentParser.OptionalParameter;
+import opennlp.tools.cmdline.ArgumentParser.ParameterDescription;
+import opennlp.tools.cmdline.BasicCmdLineTool;
+import opennlp.tools.cmdline.CmdLineUtil;
+import opennlp.tools.cmdline.TerminateToolException;
+import opennlp.tools.cmdline.params.EncodingParameter;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.Context;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.FileEventStream;
+import opennlp.tools.ml.model.GenericModelReader;
+import opennlp.tools.ml.model.GenericModelWriter;
+import opennlp.tools.ml.model.ModelComparison;
+import opennlp.tools.ml.model.ModelPruner;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * Removes the parameters with a small magnitude from a model and reports the size,
+ * the load time and, if evaluation events are given, the accuracy of both models.
+ * <p>
+ * A model package, e.g. of a name finder, pos tagger or parser, is pruned as a whole:
+ * all its maxent models are pruned and, if test samples are given, both packages are
+ * evaluated with the evaluator of their component.
+ */
+public class ModelPrunerTool extends BasicCmdLineTool {
+
+  interface Params extends EncodingParameter {
+
+    @ParameterDescription(valueName = "modelFile",
+        description = "the model to prune, a maxent model or a model package.")
+    File getModel();
+
+    @ParameterDescription(valueName = "outputModelFile", description = "the pruned model.")
+    File getOutput();
+
+    @ParameterDescription(valueName = "num",
+        description = "the smallest magnitude of the parameters which are kept.")
+    @OptionalParameter(defaultValue = "0")
+    String getThreshold();
+
+    @ParameterDescription(valueName = "num",
+        description = "the number of the largest parameters which are kept per outcome.")
+    @OptionalParameter
+    Integer getMaxParametersPerOutcome();
+
+    @ParameterDescription(valueName = "dataFile",
+        description = "evaluation events, one event per line, to measure the accuracy, or for "
+        + "a model package test samples in the OpenNLP format of its component.")
+    @OptionalParameter
+    File getData();
+  }
+
+  public String getShortDescription() {
+    return "removes the parameters with a small magnitude from a model";
+  }
+
+  public String getHelp() {
+    return getBasicHelp(Params.class);
+  }
+
+  private static AbstractModel readModel(File file) {
+    try {
+      return new GenericModelReader(file).getModel();
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the model " + file + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  public void run(String[] args) {
+    Params params = validateAndParseParams(args, Params.class);
+
+    CmdLineUtil.checkInputFile("model", params.getModel());
+    CmdLineUtil.checkOutputFile("pruned model", params.getOutput());
+    if (params.getData() != null) {
+      CmdLineUtil.checkInputFile("evaluation data", params.getData());
+    }
+
+    ModelPruner pruner;
+    try {
+      pruner = new ModelPruner(Double.parseDouble(params.getThreshold()),
+          params.getMaxParametersPerOutcome() != null
+          ? params.getMaxParametersPerOutcome() : Integer.MAX_VALUE);
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, "Invalid pruning parameters: " + e.getMessage());
+    }
+
+    boolean isModelPackage;
+    try {
+      isModelPackage = ModelPackage.isModelPackage(params.getModel());
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the model: " + e.getMessage(), e);
+    }
+
+    if (isModelPackage) {
+      prunePackage(params, pruner);
+      return;
+    }
+
+    AbstractModel model = readModel(params.getModel());
+
+    AbstractModel prunedModel;
+    try {
+      prunedModel = pruner.prune(model);
+      new GenericModelWriter(prunedModel, params.getOutput()).persist();
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, e.getMessage(), e);
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while writing the pruned model: "
+          + e.getMessage(), e);
+    }
+
+    // both models are loaded again to measure the load times, the first
+    // load above also included the class loading and warm up
+    long start = System.nanoTime();
+    model = readModel(params.getModel());
+    long loadTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    prunedModel = readModel(params.getOutput());
+    long prunedLoadTime = System.nanoTime() - start;
+
+    System.out.println("Parameters: " + ModelPruner.getNumParameters(model) + " -> "
+        + ModelPruner.getNumParameters(prunedModel));
+    System.out.println("Predicates: " + ((Context[]) model.getDataStructures()[0]).length
+        + " -> " + ((Context[]) prunedModel.getDataStructures()[0]).length);
+    System.out.println("Model size: " + params.getModel().length() + " bytes -> "
+        + params.getOutput().length() + " bytes");
+    System.out.println("Load time: " + loadTime / 1000000 + " ms -> "
+        + prunedLoadTime / 1000000 + " ms");
+
+    if (params.getData() != null) {
+      ModelComparison comparison = new ModelComparison(model, prunedModel);
+      try (ObjectStream<Event> events = new FileEventStream(params.getData().getPath(),
+          params.getEncoding().name())) {
+        comparison.evaluate(events);
+      }
+      catch (IOException e) {
+        throw new TerminateToolException(-1, "IO error while reading the evaluation data: "
+            + e.getMessage(), e);
+      }
+
+      System.out.println("Accuracy: " + comparison.getReferenceAccuracy() + " -> "
+          + comparison.getAccuracy() + " (loss " + comparison.getAccuracyLoss() + ")");
+      System.out.println("Agreement: " + comparison.getAgreement());
+    }
+  }
+
+  private static BaseModel loadPackage(ModelPackage modelPackage) {
+    try {
+      return modelPackage.load();
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while loading the model: " + e.getMessage(), e);
+    }
+  }
+
+  private static void prunePackage(Params params, ModelPruner pruner) {
+    long[] numParameters = new long[2];
+
+    ModelPackage modelPackage;
+    ModelPackage prunedPackage;
+    try {
+      modelPackage = ModelPackage.read(params.getModel());
+      prunedPackage = modelPackage.transform(model -> {
+        AbstractModel prunedModel = pruner.prune(model);
+        numParameters[0] += ModelPruner.getNumParameters(model);
+        numParameters[1] += ModelPruner.getNumParameters(prunedModel);
+        return prunedModel;
+      });
+      prunedPackage.write(params.getOutput());
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, e.getMessage(), e);
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while pruning the model: " + e.getMessage(), e);
+    }
+
+    System.out.println("Parameters: " + numParameters[0] + " -> " + numParameters[1]);
+    System.out.println("Model size: " + modelPackage.size() + " bytes -> "
+        + prunedPackage.size() + " bytes");
+
+    if (params.getData() != null) {
+      // the packages are loaded twice, the first load includes the class loading and warm up
+      loadPackage(modelPackage);
+
+      long start = System.nanoTime();
+      BaseModel model = loadPackage(modelPackage);
+      long loadTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      BaseModel prunedModel = loadPackage(prunedPackage);
+      long prunedLoadTime = System.nanoTime() - start;
+
+      System.out.println("Load time: " + loadTime / 1000000 + " ms -> "
+          + prunedLoadTime / 1000000 + " ms");
+
+      double score;
+      double prunedScore;
+      try {
+        score = ModelPackage.evaluate(model, params.getData(), params.getEncoding());
+        prunedScore = ModelPackage.evaluate(prunedModel, params.getData(), params.getEncoding());
+      }
+      catch (IOException e) {
+        throw new TerminateToolException(-1, "IO error while reading the evaluation data: "
+            + e.getMessage(), e);
+      }
+
+      System.out.println(ModelPackage.getScoreName(model) + ": " + score + " -> " + prunedScore
+          + " (loss " + (score - prunedScore) + ")");
+    }
+  }
+}
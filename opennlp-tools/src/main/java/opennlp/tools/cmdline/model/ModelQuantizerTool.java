@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.cmdline.model;
+
+import java.io.File;
+import java.io.IOException;
+
+import opennlp.tools.cmdline.ArgumentParser.OptionalParameter;
+import opennlp.tools.cmdline.ArgumentParser.ParameterDescription;
+import opennlp.tools.cmdline.BasicCmdLineTool;
+import opennlp.tools.cmdline.CmdLineUtil;
+import opennlp.tools.cmdline.TerminateToolException;
+import opennlp.tools.cmdline.params.EncodingParameter;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.FileEventStream;
+import opennlp.tools.ml.model.GenericModelReader;
+import opennlp.tools.ml.model.ModelComparison;
+import opennlp.tools.ml.model.Quantization;
+import opennlp.tools.ml.model.QuantizedModelWriter;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * Quantizes a model and measures the loss of accuracy on a file with evaluation
+ * events, optionally the quantized model is written.
+ * <p>
+ * A model package, e.g. of a name finder or parser, is quantized as a whole: all its
+ * maxent models are quantized and the loss is measured with the evaluator of its
+ * component on test samples.
+ */
+public class ModelQuantizerTool extends BasicCmdLineTool {
+
+  interface Params extends EncodingParameter {
+
+    @ParameterDescription(valueName = "modelFile",
+        description = "the full precision model, a maxent model or a model package.")
+    File getModel();
+
+    @ParameterDescription(valueName = "dataFile",
+        description = "the evaluation events, one event per line, or for a model package "
+        + "the test samples in the OpenNLP format of its component.")
+    File getData();
+
+    @ParameterDescription(valueName = "FLOAT16|INT8|INT8_SHARED_SCALE",
+        description = "the representation of the quantized parameters.")
+    @OptionalParameter(defaultValue = "INT8")
+    String getQuantization();
+
+    @ParameterDescription(valueName = "outputModelFile",
+        description = "the quantized model, it is only written if specified.")
+    @OptionalParameter
+    File getOutput();
+  }
+
+  public String getShortDescription() {
+    return "quantizes a model and measures the loss of accuracy";
+  }
+
+  public String getHelp() {
+    return getBasicHelp(Params.class);
+  }
+
+  public void run(String[] args) {
+    Params params = validateAndParseParams(args, Params.class);
+
+    CmdLineUtil.checkInputFile("model", params.getModel());
+    CmdLineUtil.checkInputFile("evaluation data", params.getData());
+    if (params.getOutput() != null) {
+      CmdLineUtil.checkOutputFile("quantized model", params.getOutput());
+    }
+
+    Quantization quantization;
+    try {
+      quantization = Quantization.valueOf(params.getQuantization());
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, "Unknown quantization: " + params.getQuantization());
+    }
+
+    boolean isModelPackage;
+    try {
+      isModelPackage = ModelPackage.isModelPackage(params.getModel());
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the model: " + e.getMessage(), e);
+    }
+
+    if (isModelPackage) {
+      quantizePackage(params, quantization);
+      return;
+    }
+
+    AbstractModel model;
+    try {
+      model = new GenericModelReader(params.getModel()).getModel();
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the model: " + e.getMessage(), e);
+    }
+
+    AbstractModel quantizedModel;
+    try {
+      quantizedModel = quantization.quantize(model);
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, e.getMessage(), e);
+    }
+
+    ModelComparison comparison = new ModelComparison(model, quantizedModel);
+    try (ObjectStream<Event> events = new FileEventStream(params.getData().getPath(),
+        params.getEncoding().name())) {
+      comparison.evaluate(events);
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the evaluation data: "
+          + e.getMessage(), e);
+    }
+
+    System.out.println("Events: " + comparison.getNumEvents());
+    System.out.println("Full precision accuracy: " + comparison.getReferenceAccuracy());
+    System.out.println(quantization + " accuracy: " + comparison.getAccuracy());
+    System.out.println("Accuracy loss: " + comparison.getAccuracyLoss());
+    System.out.println("Agreement: " + comparison.getAgreement());
+    System.out.println("Max. probability difference: " + comparison.getMaxProbabilityDifference());
+
+    if (params.getOutput() != null) {
+      try {
+        new QuantizedModelWriter(model, quantization, params.getOutput()).persist();
+      }
+      catch (IOException e) {
+        throw new TerminateToolException(-1, "IO error while writing the quantized model: "
+            + e.getMessage(), e);
+      }
+
+      System.out.println("Wrote quantized model to " + params.getOutput() + " ("
+          + params.getOutput().length() + " bytes, full precision model "
+          + params.getModel().length() + " bytes)");
+    }
+  }
+
+  private static void quantizePackage(Params params, Quantization quantization) {
+    ModelPackage modelPackage;
+    ModelPackage quantizedPackage;
+    try {
+      modelPackage = ModelPackage.read(params.getModel());
+      quantizedPackage = modelPackage.transform(quantization::quantize);
+    }
+    catch (IllegalArgumentException e) {
+      throw new TerminateToolException(1, e.getMessage(), e);
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while reading the model: " + e.getMessage(), e);
+    }
+
+    try {
+      BaseModel model = modelPackage.load();
+      double score = ModelPackage.evaluate(model, params.getData(), params.getEncoding());
+      double quantizedScore = ModelPackage.evaluate(quantizedPackage.load(), params.getData(),
+          params.getEncoding());
+
+      System.out.println("Full precision " + ModelPackage.getScoreName(model) + ": " + score);
+      System.out.println(quantization + " " + ModelPackage.getScoreName(model) + ": "
+          + quantizedScore);
+      System.out.println("Loss: " + (score - quantizedScore));
+    }
+    catch (IOException e) {
+      throw new TerminateToolException(-1, "IO error while evaluating the model: "
+          + e.getMessage(), e);
+    }
+
+    if (params.getOutput() != null) {
+      try {
+        quantizedPackage.write(params.getOutput());
+      }
+      catch (IOException e) {
+        throw new TerminateToolException(-1, "IO error while writing the quantized model: "
+            + e.getMessage(), e);
+      }
+
+      System.out.println("Wrote quantized model to " + params.getOutput() + " ("
+          + quantizedPackage.size() + " bytes, full precision model "
+          + modelPackage.size() + " bytes)");
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 
 import opennlp.tools.ml.model.AbstractModel;
@@ -53,6 +54,14 @@ public class DoccatModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public DoccatModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public DoccatModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public DoccatModel(URL modelURL) throws IOException {
     super(COMPONENT_NAME, modelURL);
   }
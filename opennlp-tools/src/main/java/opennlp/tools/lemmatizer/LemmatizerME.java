@@ -213,6 +213,11 @@ public class LemmatizerME implements Lemmatizer {
 
     Map<String, String> manifestInfoEntries = new HashMap<>();
 
+    String cacheSizeString = trainParams.getSettings().get(BeamSearch.CACHE_SIZE_PARAMETER);
+    if (cacheSizeString != null) {
+      manifestInfoEntries.put(BeamSearch.CACHE_SIZE_PARAMETER, cacheSizeString);
+    }
+
     TrainerType trainerType = TrainerFactory.getTrainerType(trainParams);
 
     MaxentModel lemmatizerModel = null;
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Properties;
 
@@ -77,6 +78,14 @@ public class LemmatizerModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public LemmatizerModel(Path modelPath) throws IOException, InvalidFormatException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public LemmatizerModel(Path modelPath, boolean loadLazily) throws IOException, InvalidFormatException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public LemmatizerModel(URL modelURL) throws IOException, InvalidFormatException {
     super(COMPONENT_NAME, modelURL);
   }
@@ -102,7 +111,8 @@ public class LemmatizerModel extends BaseModel {
         beamSize = Integer.parseInt(beamSizeString);
       }
 
-      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(LEMMATIZER_MODEL_ENTRY_NAME));
+      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(LEMMATIZER_MODEL_ENTRY_NAME),
+          getContextCache());
     }
     else if (artifactMap.get(LEMMATIZER_MODEL_ENTRY_NAME) instanceof SequenceClassificationModel) {
       return (SequenceClassificationModel) artifactMap.get(LEMMATIZER_MODEL_ENTRY_NAME);
@@ -35,6 +35,8 @@ public abstract class AbstractEventTrainer extends AbstractTrainer implements Ev
   public static final String DATA_INDEXER_ONE_PASS_VALUE = "OnePass";
   public static final String DATA_INDEXER_TWO_PASS_VALUE = "TwoPass";
   public static final String DATA_INDEXER_ONE_PASS_REAL_VALUE = "OnePassRealValue";
+  public static final String DATA_INDEXER_PARALLEL_VALUE = "Parallel";
+  public static final String DATA_INDEXER_MAPPED_VALUE = "Mapped";
 
   public AbstractEventTrainer() {
   }
@@ -74,7 +76,7 @@ public abstract class AbstractEventTrainer extends AbstractTrainer implements Ev
       throw new InsufficientTrainingDataException("Training data must contain more than one outcome");
     }
 
-    MaxentModel model = doTrain(indexer);
+    MaxentModel model = enableFeatureHashing(doTrain(indexer));
     addToReport(AbstractTrainer.TRAINER_TYPE_PARAM, EventTrainer.EVENT_VALUE);
     return model;
   }
@@ -86,7 +88,7 @@ public abstract class AbstractEventTrainer extends AbstractTrainer implements Ev
     }
 
     HashSumEventStream hses = new HashSumEventStream(events);
-    DataIndexer indexer = getDataIndexer(hses);
+    DataIndexer indexer = getDataIndexer(hashFeatures(hses));
 
     addToReport("Training-Eventhash", hses.calculateHashSum().toString(16));
     return train(indexer);
@@ -21,6 +21,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.FeatureHasher;
+import opennlp.tools.ml.model.FeatureHashingEventStream;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.TrainingParameters;
 
 public abstract class AbstractTrainer {
@@ -38,6 +44,12 @@ public abstract class AbstractTrainer {
   public static final String VERBOSE_PARAM = "PrintMessages";
   public static final boolean VERBOSE_DEFAULT = true;
 
+  /**
+   * The number of bits of the buckets the features are hashed into, see {@link FeatureHasher}.
+   * Features are not hashed if the parameter is not set.
+   */
+  public static final String FEATURE_HASHING_BITS_PARAM = "FeatureHashingBits";
+
   protected TrainingParameters trainingParameters;
   protected Map<String,String> reportMap;
 
@@ -83,6 +95,11 @@ public abstract class AbstractTrainer {
     try {
       trainingParameters.getIntParameter(CUTOFF_PARAM, CUTOFF_DEFAULT);
       trainingParameters.getIntParameter(ITERATIONS_PARAM, ITERATIONS_DEFAULT);
+
+      int featureHashingBits = trainingParameters.getIntParameter(FEATURE_HASHING_BITS_PARAM, 0);
+      if (featureHashingBits < 0 || featureHashingBits > FeatureHasher.MAX_BITS) {
+        return false;
+      }
     } catch (NumberFormatException e) {
       return false;
     }
@@ -90,6 +107,49 @@ public abstract class AbstractTrainer {
     return true;
   }
 
+  /**
+   * Retrieves the hasher of the features.
+   *
+   * @return the hasher or null if the features are not hashed
+   */
+  protected FeatureHasher getFeatureHasher() {
+    int bits = trainingParameters.getIntParameter(FEATURE_HASHING_BITS_PARAM, 0);
+    return bits > 0 ? new FeatureHasher(bits) : null;
+  }
+
+  /**
+   * Hashes the features of the events if feature hashing is enabled.
+   *
+   * @param events the events
+   *
+   * @return the events with hashed features or the events as they are
+   */
+  protected ObjectStream<Event> hashFeatures(ObjectStream<Event> events) {
+    FeatureHasher hasher = getFeatureHasher();
+    return hasher != null ? new FeatureHashingEventStream(events, hasher) : events;
+  }
+
+  /**
+   * Switches a trained model to hashed features if feature hashing is enabled, the
+   * number of bits is added to the report to end up in the manifest of a model package.
+   *
+   * @param model the model which was trained on hashed features
+   *
+   * @return the model
+   */
+  protected MaxentModel enableFeatureHashing(MaxentModel model) {
+    FeatureHasher hasher = getFeatureHasher();
+    if (hasher != null) {
+      if (!(model instanceof AbstractModel)) {
+        throw new IllegalStateException("Feature hashing is not supported by " + model.getClass());
+      }
+
+      ((AbstractModel) model).enableFeatureHashing(hasher);
+      addToReport(FeatureHasher.MANIFEST_PROPERTY, Integer.toString(hasher.getBits()));
+    }
+    return model;
+  }
+
 /**
    * Use the TrainingParameters directly...
    * @param key
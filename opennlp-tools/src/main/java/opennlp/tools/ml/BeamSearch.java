@@ -17,21 +17,26 @@
 
 package opennlp.tools.ml;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
-
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.SequenceClassificationModel;
 import opennlp.tools.util.BeamSearchContextGenerator;
-import opennlp.tools.util.Cache;
 import opennlp.tools.util.Sequence;
 import opennlp.tools.util.SequenceValidator;
 
 /**
  * Performs k-best search over sequence.  This is based on the description in
  * Ratnaparkhi (1998), PhD diss, Univ. of Pennsylvania.
+ * <p>
+ * Instances are thread-safe, the per search state is kept in scratch space which is
+ * confined to the searching thread and reused by its subsequent searches. Concurrent
+ * searches must use context generators and sequence validators which are thread-safe
+ * or confined to the calling thread.
+ * <p>
+ * If the model supports hashed predicates and the context generator supports
+ * {@link BeamSearchContextGenerator#getContextHashes}, the contexts are evaluated as
+ * hashes in a reused {@link FeatureHashBuffer} and no feature strings are created.
+ * Otherwise, and if the contexts are cached, the feature strings are evaluated.
  *
  * @see Sequence
  * @see SequenceValidator
@@ -41,13 +46,19 @@ public class BeamSearch<T> implements SequenceClassificationModel<T> {
 
   public static final String BEAM_SIZE_PARAMETER = "BeamSize";
 
+  /**
+   * Model parameter for the number of contexts which are kept in the {@link ContextCache}
+   * shared by all beam searches of a model. Caching is disabled if it is not set.
+   */
+  public static final String CACHE_SIZE_PARAMETER = "BeamCacheSize";
+
   private static final Object[] EMPTY_ADDITIONAL_CONTEXT = new Object[0];
 
   protected int size;
   protected MaxentModel model;
 
-  private double[] probs;
-  private Cache<String[], double[]> contextsCache;
+  private final ThreadLocal<Lattice> lattices = ThreadLocal.withInitial(Lattice::new);
+  private ContextCache contextsCache;
   private static final int zeroLog = -100000;
 
   /**
@@ -61,15 +72,23 @@ public class BeamSearch<T> implements SequenceClassificationModel<T> {
   }
 
   public BeamSearch(int size, MaxentModel model, int cacheSize) {
+    this(size, model, cacheSize > 0 ? new ContextCache(cacheSize) : null);
+  }
+
+  /**
+   * Creates new search object which uses the provided cache for the
+   * outcome probabilities of the model.
+   *
+   * @param size The size of the beam (k).
+   * @param model the model for assigning probabilities to the sequence outcomes.
+   * @param contextsCache the cache, which can be shared with other beam searches
+   *     of the same model, or null to disable caching.
+   */
+  public BeamSearch(int size, MaxentModel model, ContextCache contextsCache) {
 
     this.size = size;
     this.model = model;
-
-    if (cacheSize > 0) {
-      contextsCache = new Cache<>(cacheSize);
-    }
-
-    this.probs = new double[model.getNumOutcomes()];
+    this.contextsCache = contextsCache;
   }
 
   /**
@@ -86,79 +105,90 @@ public class BeamSearch<T> implements SequenceClassificationModel<T> {
       Object[] additionalContext, double minSequenceScore,
       BeamSearchContextGenerator<T> cg, SequenceValidator<T> validator) {
 
-    Queue<Sequence> prev = new PriorityQueue<>(size);
-    Queue<Sequence> next = new PriorityQueue<>(size);
-    Queue<Sequence> tmp;
-    prev.add(new Sequence());
-
     if (additionalContext == null) {
       additionalContext = EMPTY_ADDITIONAL_CONTEXT;
     }
 
+    if (numSequences <= 0) {
+      return new Sequence[0];
+    }
+
+    if (sequence.length == 0) {
+      return new Sequence[] {new Sequence()};
+    }
+
+    int numOutcomes = model.getNumOutcomes();
+    Lattice lattice = lattices.get();
+    lattice.init(sequence.length, Math.max(size, numSequences), size, numOutcomes);
+
+    // the search starts with the empty hypothesis
+    int beamCount = 1;
+    lattice.scores[0] = 0d;
+
+    // the hashes are used until the context generator declines them
+    boolean hashed = contextsCache == null && model.supportsHashedPredicates();
+
     for (int i = 0; i < sequence.length; i++) {
-      int sz = Math.min(size, prev.size());
+      int numCandidates = 0;
+
+      for (int h = 0; h < Math.min(size, beamCount); h++) {
+        String[] outcomes = lattice.priorOutcomes(i, h, model);
+
+        if (hashed) {
+          lattice.features.clear();
+          hashed = cg.getContextHashes(lattice.features, i, sequence, outcomes, additionalContext);
+        }
 
-      for (int sc = 0; prev.size() > 0 && sc < sz; sc++) {
-        Sequence top = prev.remove();
-        List<String> tmpOutcomes = top.getOutcomes();
-        String[] outcomes = tmpOutcomes.toArray(new String[tmpOutcomes.size()]);
-        String[] contexts = cg.getContext(i, sequence, outcomes, additionalContext);
         double[] scores;
-        if (contextsCache != null) {
-          scores = contextsCache.get(contexts);
-          if (scores == null) {
-            scores = model.eval(contexts, probs);
-            contextsCache.put(contexts,scores);
-          }
+        if (hashed) {
+          scores = model.eval(lattice.features, lattice.modelProbs);
         }
         else {
-          scores = model.eval(contexts, probs);
+          String[] contexts = cg.getContext(i, sequence, outcomes, additionalContext);
+          if (contextsCache != null) {
+            scores = contextsCache.get(contexts);
+            if (scores == null) {
+              scores = model.eval(contexts, lattice.modelProbs);
+              contextsCache.put(contexts, scores);
+            }
+          }
+          else {
+            scores = model.eval(contexts, lattice.modelProbs);
+          }
         }
 
-        double[] temp_scores = new double[scores.length];
-        System.arraycopy(scores, 0, temp_scores, 0, scores.length);
-
-        Arrays.sort(temp_scores);
-
-        double min = temp_scores[Math.max(0,scores.length - size)];
+        double min = lattice.kthLargest(scores, size);
 
         for (int p = 0; p < scores.length; p++) {
           if (scores[p] < min)
             continue; //only advance first "size" outcomes
-          String out = model.getOutcome(p);
-          if (validator.validSequence(i, sequence, outcomes, out)) {
-            Sequence ns = new Sequence(top, out, scores[p]);
-            if (ns.getScore() > minSequenceScore) {
-              next.add(ns);
-            }
+          if (validator.validSequence(i, sequence, outcomes, model.getOutcome(p))) {
+            numCandidates = lattice.addCandidate(numCandidates, h, p, scores[p], minSequenceScore);
           }
         }
 
-        if (next.size() == 0) { //if no advanced sequences, advance all valid
+        if (numCandidates == 0) { //if no advanced sequences, advance all valid
           for (int p = 0; p < scores.length; p++) {
-            String out = model.getOutcome(p);
-            if (validator.validSequence(i, sequence, outcomes, out)) {
-              Sequence ns = new Sequence(top, out, scores[p]);
-              if (ns.getScore() > minSequenceScore) {
-                next.add(ns);
-              }
+            if (validator.validSequence(i, sequence, outcomes, model.getOutcome(p))) {
+              numCandidates = lattice.addCandidate(numCandidates, h, p, scores[p], minSequenceScore);
             }
           }
         }
       }
 
-      //    make prev = next; and re-init next (we reuse existing prev set once we clear it)
-      prev.clear();
-      tmp = prev;
-      prev = next;
-      next = tmp;
+      // only the best "size" hypotheses are expanded in the next step
+      beamCount = lattice.advance(i, numCandidates,
+          i == sequence.length - 1 ? numSequences : size);
+
+      if (beamCount == 0) {
+        return new Sequence[0];
+      }
     }
 
-    int numSeq = Math.min(numSequences, prev.size());
-    Sequence[] topSequences = new Sequence[numSeq];
+    Sequence[] topSequences = new Sequence[beamCount];
 
-    for (int seqIndex = 0; seqIndex < numSeq; seqIndex++) {
-      topSequences[seqIndex] = prev.remove();
+    for (int seqIndex = 0; seqIndex < beamCount; seqIndex++) {
+      topSequences[seqIndex] = lattice.sequence(sequence.length, seqIndex, model);
     }
 
     return topSequences;
@@ -179,6 +209,15 @@ public class BeamSearch<T> implements SequenceClassificationModel<T> {
       return null;
   }
 
+  /**
+   * Retrieves the cache for the outcome probabilities of the model.
+   *
+   * @return the cache or null if caching is disabled
+   */
+  public ContextCache getContextsCache() {
+    return contextsCache;
+  }
+
   @Override
   public String[] getOutcomes() {
     String[] outcomes = new String[model.getNumOutcomes()];
@@ -189,4 +228,163 @@ public class BeamSearch<T> implements SequenceClassificationModel<T> {
 
     return outcomes;
   }
+
+  /**
+   * The hypotheses of a search, each step of the search stores the selected
+   * outcome indices and probabilities together with a pointer to the hypothesis
+   * of the previous step they extend. The arrays are reused between searches,
+   * {@link Sequence} objects are only created for the final result.
+   */
+  private static final class Lattice {
+
+    private int width;
+
+    /** Buffer for the outcome probabilities computed by the model. */
+    private double[] modelProbs = new double[0];
+
+    /** Buffer for the hashes of a context. */
+    private final FeatureHashBuffer features = new FeatureHashBuffer();
+
+    /** Previous hypothesis of each hypothesis, indexed by step * width + hypothesis. */
+    private int[] parents = new int[0];
+    private int[] outcomes = new int[0];
+    private double[] probs = new double[0];
+
+    /** Scores of the hypotheses of the current step, best first. */
+    private double[] scores = new double[0];
+    private double[] nextScores = new double[0];
+
+    private int[] candidateParents = new int[0];
+    private int[] candidateOutcomes = new int[0];
+    private double[] candidateProbs = new double[0];
+    private double[] candidateScores = new double[0];
+
+    /** Candidates which are selected for the next step, best first. */
+    private int[] selected = new int[0];
+
+    private double[] topScores = new double[0];
+
+    void init(int numSteps, int width, int beamSize, int numOutcomes) {
+      this.width = width;
+
+      if (modelProbs.length != numOutcomes) {
+        modelProbs = new double[numOutcomes];
+      }
+
+      if (parents.length < numSteps * width) {
+        parents = new int[numSteps * width];
+        outcomes = new int[numSteps * width];
+        probs = new double[numSteps * width];
+      }
+
+      if (scores.length < width) {
+        scores = new double[width];
+        nextScores = new double[width];
+        selected = new int[width];
+      }
+
+      if (candidateParents.length < beamSize * numOutcomes) {
+        candidateParents = new int[beamSize * numOutcomes];
+        candidateOutcomes = new int[beamSize * numOutcomes];
+        candidateProbs = new double[beamSize * numOutcomes];
+        candidateScores = new double[beamSize * numOutcomes];
+      }
+
+      if (topScores.length < beamSize) {
+        topScores = new double[beamSize];
+      }
+    }
+
+    /**
+     * Computes the k-th largest value by keeping the largest values seen
+     * so far in a small sorted buffer, the values are not modified.
+     */
+    double kthLargest(double[] values, int k) {
+      int count = 0;
+      for (double value : values) {
+        if (count < k || value > topScores[count - 1]) {
+          int i = count < k ? count++ : count - 1;
+          for (; i > 0 && topScores[i - 1] < value; i--) {
+            topScores[i] = topScores[i - 1];
+          }
+          topScores[i] = value;
+        }
+      }
+      return topScores[count - 1];
+    }
+
+    int addCandidate(int numCandidates, int parent, int outcome, double prob,
+        double minSequenceScore) {
+      double score = scores[parent] + Math.log(prob);
+      if (score > minSequenceScore) {
+        candidateParents[numCandidates] = parent;
+        candidateOutcomes[numCandidates] = outcome;
+        candidateProbs[numCandidates] = prob;
+        candidateScores[numCandidates] = score;
+        return numCandidates + 1;
+      }
+      return numCandidates;
+    }
+
+    /**
+     * Selects the best candidates as the hypotheses of the step. Candidates with equal
+     * scores are kept in the order they were added.
+     *
+     * @return the number of hypotheses
+     */
+    int advance(int step, int numCandidates, int maxHypotheses) {
+      int count = 0;
+      for (int c = 0; c < numCandidates; c++) {
+        double score = candidateScores[c];
+        if (count < maxHypotheses || score > candidateScores[selected[count - 1]]) {
+          int i = count < maxHypotheses ? count++ : count - 1;
+          for (; i > 0 && candidateScores[selected[i - 1]] < score; i--) {
+            selected[i] = selected[i - 1];
+          }
+          selected[i] = c;
+        }
+      }
+
+      int offset = step * width;
+      for (int i = 0; i < count; i++) {
+        int c = selected[i];
+        parents[offset + i] = candidateParents[c];
+        outcomes[offset + i] = candidateOutcomes[c];
+        probs[offset + i] = candidateProbs[c];
+        nextScores[i] = candidateScores[c];
+      }
+
+      double[] tmp = scores;
+      scores = nextScores;
+      nextScores = tmp;
+
+      return count;
+    }
+
+    /**
+     * Retrieves the outcomes of a hypothesis of the previous step.
+     */
+    String[] priorOutcomes(int step, int hypothesis, MaxentModel model) {
+      String[] names = new String[step];
+      for (int i = step - 1; i >= 0; i--) {
+        names[i] = model.getOutcome(outcomes[i * width + hypothesis]);
+        hypothesis = parents[i * width + hypothesis];
+      }
+      return names;
+    }
+
+    Sequence sequence(int numSteps, int hypothesis, MaxentModel model) {
+      int[] path = new int[numSteps];
+      for (int i = numSteps - 1; i >= 0; i--) {
+        path[i] = i * width + hypothesis;
+        hypothesis = parents[i * width + hypothesis];
+      }
+
+      Sequence sequence = new Sequence();
+      for (int index : path) {
+        sequence.add(model.getOutcome(outcomes[index]), probs[index]);
+      }
+      return sequence;
+    }
+  }
 }
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache for the outcome probabilities of a model which
+ * is keyed on the contents of the feature context.
+ * <p>
+ * The cache is split into independently locked segments, each segment evicts its
+ * least recently used entry once it is full. One instance can be shared by all
+ * {@link BeamSearch} instances which use the same model, even across threads.
+ */
+public class ContextCache {
+
+  private static final int MAX_SEGMENTS = 16;
+
+  /**
+   * Minimal number of entries per segment, small caches are not split.
+   */
+  private static final int MIN_SEGMENT_CAPACITY = 64;
+
+  private static final class Key {
+
+    private final String[] context;
+    private final int hash;
+
+    Key(String[] context) {
+      this.context = context;
+      this.hash = Arrays.hashCode(context);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+
+      if (obj instanceof Key) {
+        Key key = (Key) obj;
+        return hash == key.hash && Arrays.equals(context, key.context);
+      }
+
+      return false;
+    }
+  }
+
+  private final class Segment extends LinkedHashMap<Key, double[]> {
+
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private final Segment[] segments;
+
+  private final int capacity;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Initializes the cache.
+   *
+   * @param capacity the maximum number of contexts which are cached
+   */
+  public ContextCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+
+    this.capacity = capacity;
+
+    int numSegments = 1;
+    while (numSegments < MAX_SEGMENTS && numSegments * 2 * MIN_SEGMENT_CAPACITY <= capacity) {
+      numSegments *= 2;
+    }
+
+    segments = new Segment[numSegments];
+
+    for (int i = 0; i < numSegments; i++) {
+      // distribute the remainder so the segments add up to the capacity
+      segments[i] = new Segment(capacity / numSegments + (i < capacity % numSegments ? 1 : 0));
+    }
+  }
+
+  private Segment segmentFor(Key key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+  }
+
+  /**
+   * Retrieves the cached outcome probabilities for a context.
+   *
+   * @param context the feature context
+   *
+   * @return the probabilities or null if the context is not cached.
+   *     The returned array is shared and must not be modified.
+   */
+  public double[] get(String[] context) {
+    Key key = new Key(context);
+    Segment segment = segmentFor(key);
+
+    double[] probs;
+    synchronized (segment) {
+      probs = segment.get(key);
+    }
+
+    if (probs != null) {
+      hits.increment();
+    }
+    else {
+      misses.increment();
+    }
+
+    return probs;
+  }
+
+  /**
+   * Caches the outcome probabilities of a context. The context and the
+   * probabilities are copied, the passed arrays can be reused by the caller.
+   *
+   * @param context the feature context
+   * @param probs the outcome probabilities
+   */
+  public void put(String[] context, double[] probs) {
+    Key key = new Key(context.clone());
+    Segment segment = segmentFor(key);
+    double[] value = probs.clone();
+
+    synchronized (segment) {
+      segment.put(key, value);
+    }
+  }
+
+  /**
+   * Removes all entries from the cache, the counters are not reset.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * @return the maximum number of contexts which are cached
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of currently cached contexts
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of lookups which found a cached context
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups which did not find a cached context
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of contexts which were evicted to stay within the capacity
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ContextCache[size=" + size() + ", capacity=" + capacity + ", hits=" + getHitCount()
+        + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+  }
+}
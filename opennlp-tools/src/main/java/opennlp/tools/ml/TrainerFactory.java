@@ -24,7 +24,9 @@ import java.util.Map;
 
 import opennlp.tools.ml.maxent.GISTrainer;
 import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.maxent.sgd.SGDTrainer;
 import opennlp.tools.ml.naivebayes.NaiveBayesTrainer;
+import opennlp.tools.ml.naivebayes.ParallelNaiveBayesTrainer;
 import opennlp.tools.ml.perceptron.PerceptronTrainer;
 import opennlp.tools.ml.perceptron.SimplePerceptronSequenceTrainer;
 import opennlp.tools.util.TrainingParameters;
@@ -46,10 +48,12 @@ public class TrainerFactory {
     Map<String, Class> _trainers = new HashMap<>();
     _trainers.put(GISTrainer.MAXENT_VALUE, GISTrainer.class);
     _trainers.put(QNTrainer.MAXENT_QN_VALUE, QNTrainer.class);
+    _trainers.put(SGDTrainer.MAXENT_SGD_VALUE, SGDTrainer.class);
     _trainers.put(PerceptronTrainer.PERCEPTRON_VALUE, PerceptronTrainer.class);
     _trainers.put(SimplePerceptronSequenceTrainer.PERCEPTRON_SEQUENCE_VALUE,
         SimplePerceptronSequenceTrainer.class);
     _trainers.put(NaiveBayesTrainer.NAIVE_BAYES_VALUE, NaiveBayesTrainer.class);
+    _trainers.put(ParallelNaiveBayesTrainer.NAIVE_BAYES_PARALLEL_VALUE, ParallelNaiveBayesTrainer.class);
 
     BUILTIN_TRAINERS = Collections.unmodifiableMap(_trainers);
   }
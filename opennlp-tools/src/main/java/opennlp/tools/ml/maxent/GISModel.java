@@ -17,9 +17,12 @@
 
 package opennlp.tools.ml.maxent;
 
+import java.util.Arrays;
+
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.Context;
 import opennlp.tools.ml.model.EvalParameters;
+import opennlp.tools.ml.model.PredicateIndex;
 import opennlp.tools.ml.model.Prior;
 import opennlp.tools.ml.model.UniformPrior;
 
@@ -64,6 +67,24 @@ public final class GISModel extends AbstractModel {
     modelType = ModelType.Maxent;
   }
 
+  /**
+   * Creates a new model with a uniform prior from an existing predicate index
+   * and parameters.
+   *
+   * @param predicateIndex
+   *          The index of the predicates used in this model.
+   * @param outcomeNames
+   *          The names of the outcomes this model predicts.
+   * @param evalParams
+   *          The parameters of the model.
+   */
+  public GISModel(PredicateIndex predicateIndex, String[] outcomeNames, EvalParameters evalParams) {
+    super(predicateIndex, outcomeNames, evalParams);
+    this.prior = new UniformPrior();
+    prior.setLabels(outcomeNames, null);
+    modelType = ModelType.Maxent;
+  }
+
   /**
    * Use this model to evaluate a context and return an array of the likelihood
    * of each outcome given that context.
@@ -103,15 +124,46 @@ public final class GISModel extends AbstractModel {
    *         method getOutcome(int i).
    */
   public final double[] eval(String[] context, float[] values, double[] outsums) {
+    if (prior instanceof UniformPrior) {
+      // the uniform prior does not look at the context, the predicates can be
+      // looked up while the parameters are added up and no array is needed
+      prior.logPrior(outsums, null, values);
+
+      for (int ci = 0; ci < context.length; ci++) {
+        int pi = getPredIndex(context[ci]);
+        if (pi >= 0) {
+          evalParams.addParameters(pi, values != null ? values[ci] : 1, outsums);
+        }
+      }
+
+      return normalize(outsums, evalParams.getNumOutcomes());
+    }
+
     int[] scontexts = new int[context.length];
     for (int i = 0; i < context.length; i++) {
-      Integer ci = pmap.get(context[i]);
-      scontexts[i] = ci == null ? -1 : ci;
+      scontexts[i] = getPredIndex(context[i]);
     }
     prior.logPrior(outsums, scontexts, values);
     return GISModel.eval(scontexts, values, outsums, evalParams);
   }
 
+  @Override
+  protected double[] evalPredicates(int[] predicates, int length, double[] outsums) {
+    if (prior instanceof UniformPrior) {
+      prior.logPrior(outsums, null, null);
+
+      for (int ci = 0; ci < length; ci++) {
+        evalParams.addParameters(predicates[ci], 1, outsums);
+      }
+
+      return normalize(outsums, evalParams.getNumOutcomes());
+    }
+
+    int[] scontexts = Arrays.copyOf(predicates, length);
+    prior.logPrior(outsums, scontexts, null);
+    return GISModel.eval(scontexts, null, outsums, evalParams);
+  }
+
 
   /**
    * Use this model to evaluate a context and return an array of the likelihood
@@ -155,36 +207,25 @@ public final class GISModel extends AbstractModel {
   @Deprecated // visibility will be reduced in 1.8.1
   public static double[] eval(int[] context, float[] values, double[] prior,
       EvalParameters model) {
-    Context[] params = model.getParams();
-    int[] numfeats = new int[model.getNumOutcomes()];
-    int[] activeOutcomes;
-    double[] activeParameters;
-    double value = 1;
     for (int ci = 0; ci < context.length; ci++) {
       if (context[ci] >= 0) {
-        Context predParams = params[context[ci]];
-        activeOutcomes = predParams.getOutcomes();
-        activeParameters = predParams.getParameters();
-        if (values != null) {
-          value = values[ci];
-        }
-        for (int ai = 0; ai < activeOutcomes.length; ai++) {
-          int oid = activeOutcomes[ai];
-          numfeats[oid]++;
-          prior[oid] += activeParameters[ai] * value;
-        }
+        model.addParameters(context[ci], values != null ? values[ci] : 1, prior);
       }
     }
 
+    return normalize(prior, model.getNumOutcomes());
+  }
+
+  private static double[] normalize(double[] outsums, int numOutcomes) {
     double normal = 0.0;
-    for (int oid = 0; oid < model.getNumOutcomes(); oid++) {
-      prior[oid] = Math.exp(prior[oid]);
-      normal += prior[oid];
+    for (int oid = 0; oid < numOutcomes; oid++) {
+      outsums[oid] = Math.exp(outsums[oid]);
+      normal += outsums[oid];
     }
 
-    for (int oid = 0; oid < model.getNumOutcomes(); oid++) {
-      prior[oid] /= normal;
+    for (int oid = 0; oid < numOutcomes; oid++) {
+      outsums[oid] /= normal;
     }
-    return prior;
+    return outsums;
   }
 }
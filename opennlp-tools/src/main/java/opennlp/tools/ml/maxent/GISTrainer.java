@@ -18,20 +18,23 @@
 package opennlp.tools.ml.maxent;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
 
 import opennlp.tools.ml.AbstractEventTrainer;
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.DataIndexer;
 import opennlp.tools.ml.model.EvalParameters;
 import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.IndexedEvents;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.MutableContext;
 import opennlp.tools.ml.model.OnePassDataIndexer;
@@ -61,6 +64,12 @@ import opennlp.tools.util.TrainingParameters;
 public class GISTrainer extends AbstractEventTrainer {
 
   private static final double LLThreshold = 0.0001;
+
+  /**
+   * The number of events whose outcome distributions are buffered before they are
+   * added to the model expectations, the buffer does not grow with the number of threads.
+   */
+  private static final int BLOCK_SIZE = 4096;
   /**
    * Specifies whether unseen context/outcome pairs should be estimated as occur very infrequently.
    */
@@ -88,21 +97,9 @@ public class GISTrainer extends AbstractEventTrainer {
    */
   private int numOutcomes;
   /**
-   * Records the array of predicates seen in each event.
-   */
-  private int[][] contexts;
-  /**
-   * The value associated with each context. If null then context values are assumes to be 1.
-   */
-  private float[][] values;
-  /**
-   * List of outcomes for each event i, in context[i].
+   * The indexed events, they are read sequentially in every iteration.
    */
-  private int[] outcomeList;
-  /**
-   * Records the num of times an event has been seen for each event i, in context[i].
-   */
-  private int[] numTimesEventsSeen;
+  private IndexedEvents events;
   /**
    * Stores the String names of the outcomes. The GIS only tracks outcomes as
    * ints, and so this array is needed to save the model to disk and thereby
@@ -126,7 +123,11 @@ public class GISTrainer extends AbstractEventTrainer {
   /**
    * Stores the expected values of the features based on the current models
    */
-  private MutableContext[][] modelExpects;
+  private MutableContext[] modelExpects;
+  /**
+   * The number of threads which compute the model expectations.
+   */
+  private int threads;
   /**
    * This is the prior distribution that the model uses for training.
    */
@@ -294,65 +295,66 @@ public class GISTrainer extends AbstractEventTrainer {
       throw new IllegalArgumentException("threads must be at least one or greater but is " + threads + "!");
     }
 
-    modelExpects = new MutableContext[threads][];
+    this.threads = threads;
 
     /* Incorporate all of the needed info *****/
     display("Incorporating indexed data for training...  \n");
-    contexts = di.getContexts();
-    values = di.getValues();
+    events = di.getIndexedEvents();
     /*
     The number of times a predicate occured in the training data.
    */
     int[] predicateCounts = di.getPredCounts();
-    numTimesEventsSeen = di.getNumTimesEventsSeen();
-    numUniqueEvents = contexts.length;
+    numUniqueEvents = events.size();
     this.prior = modelPrior;
-    //printTable(contexts);
 
-    // determine the correction constant and its inverse
+    outcomeLabels = di.getOutcomeLabels();
+    numOutcomes = outcomeLabels.length;
+
+    predLabels = di.getPredLabels();
+    prior.setLabels(outcomeLabels, predLabels);
+    numPreds = predLabels.length;
+
+    // determine the correction constant and its inverse, and
+    // count the predicates per outcome in the same pass over the events
     double correctionConstant = 0;
-    for (int ci = 0; ci < contexts.length; ci++) {
-      if (values == null || values[ci] == null) {
-        if (contexts[ci].length > correctionConstant) {
-          correctionConstant = contexts[ci].length;
+    float[][] predCount = new float[numPreds][numOutcomes];
+
+    IndexedEvents.Cursor cursor = events.cursor();
+    while (cursor.next()) {
+      int[] context = cursor.getContext();
+      float[] contextValues = cursor.getValues();
+      int outcome = cursor.getOutcome();
+      int numTimesSeen = cursor.getNumTimesSeen();
+
+      if (contextValues == null) {
+        if (context.length > correctionConstant) {
+          correctionConstant = context.length;
+        }
+
+        for (int pi : context) {
+          predCount[pi][outcome] += numTimesSeen;
         }
       } else {
-        float cl = values[ci][0];
-        for (int vi = 1; vi < values[ci].length; vi++) {
-          cl += values[ci][vi];
+        float cl = contextValues[0];
+        for (int vi = 1; vi < contextValues.length; vi++) {
+          cl += contextValues[vi];
         }
 
         if (cl > correctionConstant) {
           correctionConstant = cl;
         }
+
+        for (int j = 0; j < context.length; j++) {
+          predCount[context[j]][outcome] += numTimesSeen * contextValues[j];
+        }
       }
     }
     display("done.\n");
 
-    outcomeLabels = di.getOutcomeLabels();
-    outcomeList = di.getOutcomeList();
-    numOutcomes = outcomeLabels.length;
-
-    predLabels = di.getPredLabels();
-    prior.setLabels(outcomeLabels, predLabels);
-    numPreds = predLabels.length;
-
     display("\tNumber of Event Tokens: " + numUniqueEvents + "\n");
     display("\t    Number of Outcomes: " + numOutcomes + "\n");
     display("\t  Number of Predicates: " + numPreds + "\n");
 
-    // set up feature arrays
-    float[][] predCount = new float[numPreds][numOutcomes];
-    for (int ti = 0; ti < numUniqueEvents; ti++) {
-      for (int j = 0; j < contexts[ti].length; j++) {
-        if (values != null && values[ti] != null) {
-          predCount[contexts[ti][j]][outcomeList[ti]] += numTimesEventsSeen[ti] * values[ti][j];
-        } else {
-          predCount[contexts[ti][j]][outcomeList[ti]] += numTimesEventsSeen[ti];
-        }
-      }
-    }
-
     // A fake "observation" to cover features which are not detected in
     // the data.  The default is to assume that we observed "1/10th" of a
     // feature during training.
@@ -364,9 +366,7 @@ public class GISTrainer extends AbstractEventTrainer {
     // implementation, this is cancelled out when we compute the next
     // iteration of a parameter, making the extra divisions wasteful.
     params = new MutableContext[numPreds];
-    for (int i = 0; i < modelExpects.length; i++) {
-      modelExpects[i] = new MutableContext[numPreds];
-    }
+    modelExpects = new MutableContext[numPreds];
     observedExpects = new MutableContext[numPreds];
 
     // The model does need the correction constant and the correction feature. The correction constant
@@ -401,16 +401,12 @@ public class GISTrainer extends AbstractEventTrainer {
         }
       }
       params[pi] = new MutableContext(outcomePattern, new double[numActiveOutcomes]);
-      for (int i = 0; i < modelExpects.length; i++) {
-        modelExpects[i][pi] = new MutableContext(outcomePattern, new double[numActiveOutcomes]);
-      }
+      modelExpects[pi] = new MutableContext(outcomePattern, new double[numActiveOutcomes]);
       observedExpects[pi] = new MutableContext(outcomePattern, new double[numActiveOutcomes]);
       for (int aoi = 0; aoi < numActiveOutcomes; aoi++) {
         int oi = outcomePattern[aoi];
         params[pi].setParameter(aoi, 0.0);
-        for (MutableContext[] modelExpect : modelExpects) {
-          modelExpect[pi].setParameter(aoi, 0.0);
-        }
+        modelExpects[pi].setParameter(aoi, 0.0);
         if (predCount[pi][oi] > 0) {
           observedExpects[pi].setParameter(aoi, predCount[pi][oi]);
         } else if (useSimpleSmoothing) {
@@ -437,47 +433,59 @@ public class GISTrainer extends AbstractEventTrainer {
 
   /* Estimate and return the model parameters. */
   private void findParameters(int iterations, double correctionConstant) {
-    int threads = modelExpects.length;
-    ExecutorService executor = Executors.newFixedThreadPool(threads);
-    CompletionService<ModelExpectationComputeTask> completionService =
-        new ExecutorCompletionService<>(executor);
-    double prevLL = 0.0;
-    double currLL;
-    display("Performing " + iterations + " iterations.\n");
-    for (int i = 1; i <= iterations; i++) {
-      if (i < 10) {
-        display("  " + i + ":  ");
-      } else if (i < 100) {
-        display(" " + i + ":  ");
-      } else {
-        display(i + ":  ");
-      }
-      currLL = nextIteration(correctionConstant, completionService);
-      if (i > 1) {
-        if (prevLL > currLL) {
-          System.err.println("Model Diverging: loglikelihood decreased");
-          break;
+    // the pool is created once, every iteration runs the same workers on it
+    ExecutorService executor = null;
+    if (threads > 1) {
+      executor = Executors.newFixedThreadPool(threads - 1, runnable -> {
+        Thread thread = new Thread(runnable, "opennlp-gis-trainer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    try {
+      ModelExpectationComputer computer = new ModelExpectationComputer(executor);
+      double prevLL = 0.0;
+      double currLL;
+      display("Performing " + iterations + " iterations.\n");
+      for (int i = 1; i <= iterations; i++) {
+        if (i < 10) {
+          display("  " + i + ":  ");
+        } else if (i < 100) {
+          display(" " + i + ":  ");
+        } else {
+          display(i + ":  ");
         }
-        if (currLL - prevLL < LLThreshold) {
-          break;
+        currLL = nextIteration(correctionConstant, computer);
+        if (i > 1) {
+          if (prevLL > currLL) {
+            System.err.println("Model Diverging: loglikelihood decreased");
+            break;
+          }
+          if (currLL - prevLL < LLThreshold) {
+            break;
+          }
         }
+        prevLL = currLL;
+      }
+    }
+    finally {
+      if (executor != null) {
+        executor.shutdown();
       }
-      prevLL = currLL;
     }
 
     // kill a bunch of these big objects now that we don't need them
     observedExpects = null;
     modelExpects = null;
-    numTimesEventsSeen = null;
-    contexts = null;
-    executor.shutdown();
+    events = null;
   }
 
   //modeled on implementation in  Zhang Le's maxent kit
   private double gaussianUpdate(int predicate, int oid, double correctionConstant) {
     double param = params[predicate].getParameters()[oid];
     double x0 = 0.0;
-    double modelValue = modelExpects[0][predicate].getParameters()[oid];
+    double modelValue = modelExpects[predicate].getParameters()[oid];
     double observedValue = observedExpects[predicate].getParameters()[oid];
     for (int i = 0; i < 50; i++) {
       double tmp = modelValue * Math.exp(correctionConstant * x0);
@@ -497,74 +505,18 @@ public class GISTrainer extends AbstractEventTrainer {
   }
 
   /* Compute one iteration of GIS and retutn log-likelihood.*/
-  private double nextIteration(double correctionConstant,
-                               CompletionService<ModelExpectationComputeTask> completionService) {
-    // compute contribution of p(a|b_i) for each feature and the new
-    // correction parameter
-    double loglikelihood = 0.0;
-    int numEvents = 0;
-    int numCorrect = 0;
-
-    // Each thread gets equal number of tasks, if the number of tasks
-    // is not divisible by the number of threads, the first "leftOver"
-    // threads have one extra task.
-    int numberOfThreads = modelExpects.length;
-    int taskSize = numUniqueEvents / numberOfThreads;
-    int leftOver = numUniqueEvents % numberOfThreads;
-
-    // submit all tasks to the completion service.
-    for (int i = 0; i < numberOfThreads; i++) {
-      if (i < leftOver) {
-        completionService.submit(new ModelExpectationComputeTask(i, i * taskSize + i,
-            taskSize + 1));
-      } else {
-        completionService.submit(new ModelExpectationComputeTask(i,
-            i * taskSize + leftOver, taskSize));
-      }
-    }
-
-    for (int i = 0; i < numberOfThreads; i++) {
-      ModelExpectationComputeTask finishedTask;
-      try {
-        finishedTask = completionService.take().get();
-      } catch (InterruptedException e) {
-        // TODO: We got interrupted, but that is currently not really supported!
-        // For now we just print the exception and fail hard. We hopefully soon
-        // handle this case properly!
-        e.printStackTrace();
-        throw new IllegalStateException("Interruption is not supported!", e);
-      } catch (ExecutionException e) {
-        // Only runtime exception can be thrown during training, if one was thrown
-        // it should be re-thrown. That could for example be a NullPointerException
-        // which is caused through a bug in our implementation.
-        throw new RuntimeException("Exception during training: " + e.getMessage(), e);
-      }
-
-      // When they are done, retrieve the results ...
-      numEvents += finishedTask.getNumEvents();
-      numCorrect += finishedTask.getNumCorrect();
-      loglikelihood += finishedTask.getLoglikelihood();
-    }
-
-    display(".");
-
-    // merge the results of the two computations
-    for (int pi = 0; pi < numPreds; pi++) {
-      int[] activeOutcomes = params[pi].getOutcomes();
+  private double nextIteration(double correctionConstant, ModelExpectationComputer computer) {
+    long startTime = System.nanoTime();
 
-      for (int aoi = 0; aoi < activeOutcomes.length; aoi++) {
-        for (int i = 1; i < modelExpects.length; i++) {
-          modelExpects[0][pi].updateParameter(aoi, modelExpects[i][pi].getParameters()[aoi]);
-        }
-      }
-    }
+    // compute contribution of p(a|b_i) for each feature
+    computer.compute();
 
-    display(".");
+    display("..");
 
     // compute the new parameter values
     for (int pi = 0; pi < numPreds; pi++) {
       double[] observed = observedExpects[pi].getParameters();
-      double[] model = modelExpects[0][pi].getParameters();
+      double[] model = modelExpects[pi].getParameters();
       int[] activeOutcomes = params[pi].getOutcomes();
       for (int aoi = 0; aoi < activeOutcomes.length; aoi++) {
         if (useGaussianSmoothing) {
@@ -578,16 +530,16 @@ public class GISTrainer extends AbstractEventTrainer {
               / correctionConstant));
         }
 
-        for (MutableContext[] modelExpect : modelExpects) {
-          modelExpect[pi].setParameter(aoi, 0.0); // re-initialize to 0.0's
-        }
-
+        modelExpects[pi].setParameter(aoi, 0.0); // re-initialize to 0.0's
       }
     }
 
-    display(". loglikelihood=" + loglikelihood + "\t" + ((double) numCorrect / numEvents) + "\n");
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    display(". loglikelihood=" + computer.loglikelihood + "\t"
+        + ((double) computer.numCorrect / computer.numEvents) + "\t"
+        + Math.round(seconds * 1000) + " ms, " + Math.round(computer.numEvents / seconds) + " events/s\n");
 
-    return loglikelihood;
+    return computer.loglikelihood;
   }
 
   protected void display(String s) {
@@ -596,85 +548,200 @@ public class GISTrainer extends AbstractEventTrainer {
     }
   }
 
-  private class ModelExpectationComputeTask implements Callable<ModelExpectationComputeTask> {
+  /**
+   * Computes the model expectations of all predicates with the current parameters.
+   * <p>
+   * The events are processed in blocks. First the outcome distributions of the events of a
+   * block are computed, every thread evaluates a slice of the block. Then the distributions
+   * are added to the model expectations, every thread owns the predicates whose index modulo
+   * the number of threads is its index and only updates these. All threads share a single
+   * set of model expectations and the expectation of a predicate is always summed up in the
+   * order of the events, the trained model does not depend on the number of threads.
+   * <p>
+   * The workers, the phaser which separates the two steps and all buffers are created once
+   * and reused in every iteration.
+   */
+  private class ModelExpectationComputer {
+
+    private final ExecutorService executor;
+    private final Phaser phaser;
+    private final List<Worker> workers = new ArrayList<>();
+    private final List<Future<Void>> futures = new ArrayList<>();
+
+    private final double[] distributions = new double[BLOCK_SIZE * numOutcomes];
+    private final double[] loglikelihoods = new double[BLOCK_SIZE];
+    private final int[] numTimesSeen = new int[BLOCK_SIZE];
+    private final boolean[] correct = new boolean[BLOCK_SIZE];
+
+    private double loglikelihood;
+    private int numEvents;
+    private int numCorrect;
+
+    ModelExpectationComputer(ExecutorService executor) {
+      this.executor = executor;
+      phaser = new Phaser(threads);
+      for (int ti = 0; ti < threads; ti++) {
+        workers.add(new Worker(ti));
+      }
+    }
+
+    /**
+     * Adds the expectations of all events to the model expectations, the worker of the
+     * first thread runs on the calling thread.
+     */
+    void compute() {
+      loglikelihood = 0;
+      numEvents = 0;
+      numCorrect = 0;
+
+      futures.clear();
+      for (int ti = 1; ti < threads; ti++) {
+        futures.add(executor.submit(workers.get(ti)));
+      }
+
+      workers.get(0).call();
+
+      try {
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      }
+      catch (InterruptedException e) {
+        phaser.forceTermination();
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while computing the model expectations", e);
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
 
-    private final int startIndex;
-    private final int length;
-    final private int threadIndex;
-    private double loglikelihood = 0;
-    private int numEvents = 0;
-    private int numCorrect = 0;
+      if (phaser.isTerminated()) {
+        throw new IllegalStateException("Computation of the model expectations was aborted");
+      }
+    }
 
-    // startIndex to compute, number of events to compute
-    ModelExpectationComputeTask(int threadIndex, int startIndex, int length) {
-      this.startIndex = startIndex;
-      this.length = length;
-      this.threadIndex = threadIndex;
+    /**
+     * Waits until all workers finished the current step.
+     *
+     * @return false if the computation was aborted by a failed worker
+     */
+    private boolean awaitWorkers() {
+      return threads == 1 || phaser.arriveAndAwaitAdvance() >= 0;
     }
 
-    public ModelExpectationComputeTask call() {
+    private class Worker implements Callable<Void> {
 
-      final double[] modelDistribution = new double[numOutcomes];
+      private final int threadIndex;
+      private final double[] modelDistribution = new double[numOutcomes];
 
+      Worker(int threadIndex) {
+        this.threadIndex = threadIndex;
+      }
 
-      for (int ei = startIndex; ei < startIndex + length; ei++) {
+      @Override
+      public Void call() {
+        try {
+          for (int blockStart = 0; blockStart < numUniqueEvents; blockStart += BLOCK_SIZE) {
+            int blockEnd = Math.min(blockStart + BLOCK_SIZE, numUniqueEvents);
 
-        // TODO: check interruption status here, if interrupted set a poisoned flag and return
+            int sliceSize = (blockEnd - blockStart + threads - 1) / threads;
+            int sliceStart = Math.min(blockStart + threadIndex * sliceSize, blockEnd);
+            computeDistributions(blockStart, sliceStart, Math.min(sliceStart + sliceSize, blockEnd));
 
-        if (values != null) {
-          prior.logPrior(modelDistribution, contexts[ei], values[ei]);
-          GISModel.eval(contexts[ei], values[ei], modelDistribution, evalParams);
-        } else {
-          prior.logPrior(modelDistribution, contexts[ei]);
-          GISModel.eval(contexts[ei], modelDistribution, evalParams);
-        }
-        for (int j = 0; j < contexts[ei].length; j++) {
-          int pi = contexts[ei][j];
-          int[] activeOutcomes = modelExpects[threadIndex][pi].getOutcomes();
-          for (int aoi = 0; aoi < activeOutcomes.length; aoi++) {
-            int oi = activeOutcomes[aoi];
-
-            // numTimesEventsSeen must also be thread safe
-            if (values != null && values[ei] != null) {
-              modelExpects[threadIndex][pi].updateParameter(aoi, modelDistribution[oi]
-                  * values[ei][j] * numTimesEventsSeen[ei]);
-            } else {
-              modelExpects[threadIndex][pi].updateParameter(aoi, modelDistribution[oi]
-                  * numTimesEventsSeen[ei]);
+            if (!awaitWorkers()) {
+              return null;
+            }
+
+            addExpectations(blockStart, blockEnd);
+
+            if (!awaitWorkers()) {
+              return null;
             }
           }
+          return null;
+        }
+        catch (RuntimeException | Error e) {
+          // release the other workers, they would wait forever for this one
+          phaser.forceTermination();
+          throw e;
         }
+      }
+
+      private void computeDistributions(int blockStart, int start, int end) {
+        IndexedEvents.Cursor cursor = events.cursor(start, end);
+        while (cursor.next()) {
+          int[] context = cursor.getContext();
+          float[] contextValues = cursor.getValues();
+          int outcome = cursor.getOutcome();
+          int bi = cursor.getIndex() - blockStart;
+
+          if (contextValues != null) {
+            prior.logPrior(modelDistribution, context, contextValues);
+            GISModel.eval(context, contextValues, modelDistribution, evalParams);
+          } else {
+            prior.logPrior(modelDistribution, context);
+            GISModel.eval(context, modelDistribution, evalParams);
+          }
+          System.arraycopy(modelDistribution, 0, distributions, bi * numOutcomes, numOutcomes);
 
-        loglikelihood += Math.log(modelDistribution[outcomeList[ei]]) * numTimesEventsSeen[ei];
+          numTimesSeen[bi] = cursor.getNumTimesSeen();
+          loglikelihoods[bi] = Math.log(modelDistribution[outcome]) * numTimesSeen[bi];
 
-        numEvents += numTimesEventsSeen[ei];
-        if (printMessages) {
-          int max = 0;
-          for (int oi = 1; oi < numOutcomes; oi++) {
-            if (modelDistribution[oi] > modelDistribution[max]) {
-              max = oi;
+          if (printMessages) {
+            int max = 0;
+            for (int oi = 1; oi < numOutcomes; oi++) {
+              if (modelDistribution[oi] > modelDistribution[max]) {
+                max = oi;
+              }
             }
-          }
-          if (max == outcomeList[ei]) {
-            numCorrect += numTimesEventsSeen[ei];
+            correct[bi] = max == outcome;
           }
         }
-
       }
 
-      return this;
-    }
-
-    synchronized int getNumEvents() {
-      return numEvents;
-    }
+      private void addExpectations(int blockStart, int blockEnd) {
+        IndexedEvents.Cursor cursor = events.cursor(blockStart, blockEnd);
+        while (cursor.next()) {
+          int[] context = cursor.getContext();
+          float[] contextValues = cursor.getValues();
+          int bi = cursor.getIndex() - blockStart;
+          int offset = bi * numOutcomes;
+
+          for (int j = 0; j < context.length; j++) {
+            int pi = context[j];
+            if (pi % threads != threadIndex) {
+              continue;
+            }
 
-    synchronized int getNumCorrect() {
-      return numCorrect;
-    }
+            int[] activeOutcomes = modelExpects[pi].getOutcomes();
+            for (int aoi = 0; aoi < activeOutcomes.length; aoi++) {
+              int oi = activeOutcomes[aoi];
+              if (contextValues != null) {
+                modelExpects[pi].updateParameter(aoi, distributions[offset + oi]
+                    * contextValues[j] * numTimesSeen[bi]);
+              } else {
+                modelExpects[pi].updateParameter(aoi, distributions[offset + oi]
+                    * numTimesSeen[bi]);
+              }
+            }
+          }
 
-    synchronized double getLoglikelihood() {
-      return loglikelihood;
+          // the first thread sums up the statistics in the order of the events
+          if (threadIndex == 0) {
+            loglikelihood += loglikelihoods[bi];
+            numEvents += numTimesSeen[bi];
+            if (correct[bi]) {
+              numCorrect += numTimesSeen[bi];
+            }
+          }
+        }
+      }
     }
   }
 }
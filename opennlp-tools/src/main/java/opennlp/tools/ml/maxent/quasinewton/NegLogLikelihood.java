@@ -20,10 +20,14 @@ package opennlp.tools.ml.maxent.quasinewton;
 import java.util.Arrays;
 
 import opennlp.tools.ml.model.DataIndexer;
-import opennlp.tools.ml.model.OnePassRealValueDataIndexer;
+import opennlp.tools.ml.model.IndexedEvents;
+import opennlp.tools.ml.model.MappedDataIndexer;
 
 /**
  * Evaluate negative log-likelihood and its gradient from DataIndexer.
+ * <p>
+ * The events are read through the {@link IndexedEvents} of the indexer
+ * every time the function is evaluated.
  */
 public class NegLogLikelihood implements Function {
 
@@ -33,9 +37,32 @@ public class NegLogLikelihood implements Function {
   protected int numContexts;
 
   // Information from data index
+  protected final IndexedEvents events;
+
+  /**
+   * @deprecated the events are read through {@link #events}, the arrays of the indexer
+   *     are only set if it holds the events in memory and are null for a
+   *     {@link MappedDataIndexer}
+   */
+  @Deprecated
   protected final float[][] values;
+
+  /**
+   * @deprecated see {@link #values}
+   */
+  @Deprecated
   protected final int[][] contexts;
+
+  /**
+   * @deprecated see {@link #values}
+   */
+  @Deprecated
   protected final int[] outcomeList;
+
+  /**
+   * @deprecated see {@link #values}
+   */
+  @Deprecated
   protected final int[] numTimesEventsSeen;
 
   // For calculating negLogLikelihood and gradient
@@ -47,19 +74,24 @@ public class NegLogLikelihood implements Function {
   public NegLogLikelihood(DataIndexer indexer) {
 
     // Get data from indexer.
-    if (indexer instanceof OnePassRealValueDataIndexer) {
-      this.values = indexer.getValues();
-    } else {
+    this.events = indexer.getIndexedEvents();
+
+    // The arrays are shared with the events, loading them would defeat the mapped indexer
+    if (indexer instanceof MappedDataIndexer) {
       this.values = null;
+      this.contexts = null;
+      this.outcomeList = null;
+      this.numTimesEventsSeen = null;
+    } else {
+      this.values = indexer.getValues();
+      this.contexts = indexer.getContexts();
+      this.outcomeList = indexer.getOutcomeList();
+      this.numTimesEventsSeen = indexer.getNumTimesEventsSeen();
     }
 
-    this.contexts    = indexer.getContexts();
-    this.outcomeList = indexer.getOutcomeList();
-    this.numTimesEventsSeen = indexer.getNumTimesEventsSeen();
-
     this.numOutcomes = indexer.getOutcomeLabels().length;
     this.numFeatures = indexer.getPredLabels().length;
-    this.numContexts = this.contexts.length;
+    this.numContexts = this.events.size();
     this.dimension   = numOutcomes * numFeatures;
 
     this.expectation = new double[numOutcomes];
@@ -84,24 +116,42 @@ public class NegLogLikelihood implements Function {
       throw new IllegalArgumentException(
           "x is invalid, its dimension is not equal to domain dimension.");
 
-    int ci, oi, ai, vectorIndex, outcome;
+    return negLogLikelihood(x, 0, numContexts, tempSums);
+  }
+
+  /**
+   * Computes the negative log-likelihood of a range of the events.
+   *
+   * @param x the point to evaluate at
+   * @param startIndex the first event, inclusive
+   * @param endIndex the last event, exclusive
+   * @param tempSums a buffer with one element per outcome
+   *
+   * @return the negative log-likelihood of the events
+   */
+  protected double negLogLikelihood(double[] x, int startIndex, int endIndex, double[] tempSums) {
+    int oi, ai, vectorIndex, outcome;
     double predValue, logSumOfExps;
     double negLogLikelihood = 0;
 
-    for (ci = 0; ci < numContexts; ci++) {
+    IndexedEvents.Cursor cursor = events.cursor(startIndex, endIndex);
+    while (cursor.next()) {
+      int[] context = cursor.getContext();
+      float[] values = cursor.getValues();
+
       for (oi = 0; oi < numOutcomes; oi++) {
         tempSums[oi] = 0;
-        for (ai = 0; ai < contexts[ci].length; ai++) {
-          vectorIndex = indexOf(oi, contexts[ci][ai]);
-          predValue = values != null ? values[ci][ai] : 1.0;
+        for (ai = 0; ai < context.length; ai++) {
+          vectorIndex = indexOf(oi, context[ai]);
+          predValue = values != null ? values[ai] : 1.0;
           tempSums[oi] += predValue * x[vectorIndex];
         }
       }
 
       logSumOfExps = ArrayMath.logSumOfExps(tempSums);
 
-      outcome = outcomeList[ci];
-      negLogLikelihood -= (tempSums[outcome] - logSumOfExps) * numTimesEventsSeen[ci];
+      outcome = cursor.getOutcome();
+      negLogLikelihood -= (tempSums[outcome] - logSumOfExps) * cursor.getNumTimesSeen();
     }
 
     return negLogLikelihood;
@@ -116,19 +166,40 @@ public class NegLogLikelihood implements Function {
       throw new IllegalArgumentException(
           "x is invalid, its dimension is not equal to the function.");
 
-    int ci, oi, ai, vectorIndex;
+    // Reset gradient
+    Arrays.fill(gradient, 0);
+
+    addGradient(x, 0, numContexts, expectation, gradient);
+
+    return gradient;
+  }
+
+  /**
+   * Adds the gradient of a range of the events.
+   *
+   * @param x the point to evaluate at
+   * @param startIndex the first event, inclusive
+   * @param endIndex the last event, exclusive
+   * @param expectation a buffer with one element per outcome
+   * @param gradient the gradient which the gradient of the events is added to
+   */
+  protected void addGradient(double[] x, int startIndex, int endIndex, double[] expectation,
+      double[] gradient) {
+    int oi, ai, vectorIndex;
     double predValue, logSumOfExps;
     int empirical;
 
-    // Reset gradient
-    Arrays.fill(gradient, 0);
+    IndexedEvents.Cursor cursor = events.cursor(startIndex, endIndex);
+    while (cursor.next()) {
+      int[] context = cursor.getContext();
+      float[] values = cursor.getValues();
+      int numTimesSeen = cursor.getNumTimesSeen();
 
-    for (ci = 0; ci < numContexts; ci++) {
       for (oi = 0; oi < numOutcomes; oi++) {
         expectation[oi] = 0;
-        for (ai = 0; ai < contexts[ci].length; ai++) {
-          vectorIndex = indexOf(oi, contexts[ci][ai]);
-          predValue = values != null ? values[ci][ai] : 1.0;
+        for (ai = 0; ai < context.length; ai++) {
+          vectorIndex = indexOf(oi, context[ai]);
+          predValue = values != null ? values[ai] : 1.0;
           expectation[oi] += predValue * x[vectorIndex];
         }
       }
@@ -140,17 +211,15 @@ public class NegLogLikelihood implements Function {
       }
 
       for (oi = 0; oi < numOutcomes; oi++) {
-        empirical = outcomeList[ci] == oi ? 1 : 0;
-        for (ai = 0; ai < contexts[ci].length; ai++) {
-          vectorIndex = indexOf(oi, contexts[ci][ai]);
-          predValue = values != null ? values[ci][ai] : 1.0;
+        empirical = cursor.getOutcome() == oi ? 1 : 0;
+        for (ai = 0; ai < context.length; ai++) {
+          vectorIndex = indexOf(oi, context[ai]);
+          predValue = values != null ? values[ai] : 1.0;
           gradient[vectorIndex] +=
-              predValue * (expectation[oi] - empirical) * numTimesEventsSeen[ci];
+              predValue * (expectation[oi] - empirical) * numTimesSeen;
         }
       }
     }
-
-    return gradient;
   }
 
   protected int indexOf(int outcomeId, int featureId) {
@@ -17,11 +17,11 @@
 
 package opennlp.tools.ml.maxent.quasinewton;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -29,18 +29,29 @@ import java.util.concurrent.Future;
 import opennlp.tools.ml.model.DataIndexer;
 
 /**
- * Evaluate negative log-likelihood and its gradient in parallel
+ * Evaluate negative log-likelihood and its gradient in parallel.
+ * <p>
+ * The contexts are split into one contiguous partition per thread, the partitions
+ * are evaluated on a worker pool which is created once and reused for every
+ * function evaluation. The pool must be released with {@link #close()} once
+ * training is done.
  */
-public class ParallelNegLogLikelihood extends NegLogLikelihood {
+public class ParallelNegLogLikelihood extends NegLogLikelihood implements AutoCloseable {
 
-  // Number of threads
-  private int threads;
+  // Number of doubles which fit into a 64 byte cache line
+  private static final int CACHE_LINE_DOUBLES = 8;
 
-  // Partial value of negative log-likelihood to be computed by each thread
-  private double[] negLogLikelihoodThread;
+  private final ExecutorService executor;
 
-  // Partial gradient
-  private double[][] gradientThread;
+  private final List<NegLLComputeTask> negLLTasks;
+
+  private final List<GradientComputeTask> gradientTasks;
+
+  private final List<GradientSumTask> gradientSumTasks;
+
+  // The point the function is evaluated at, visible to the tasks
+  // since they are submitted after it is set
+  private double[] x;
 
   public ParallelNegLogLikelihood(DataIndexer indexer, int threads) {
     super(indexer);
@@ -49,9 +60,43 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
       throw new IllegalArgumentException(
           "Number of threads must 1 or larger");
 
-    this.threads                = threads;
-    this.negLogLikelihoodThread = new double[threads];
-    this.gradientThread         = new double[threads][dimension];
+    negLLTasks = new ArrayList<>(threads);
+    gradientTasks = new ArrayList<>(threads);
+    gradientSumTasks = new ArrayList<>(threads);
+
+    for (int t = 0; t < threads; t++) {
+      int startIndex = partition(numContexts, t, threads, 1);
+      int endIndex = partition(numContexts, t + 1, threads, 1);
+
+      negLLTasks.add(new NegLLComputeTask(startIndex, endIndex));
+      gradientTasks.add(new GradientComputeTask(startIndex, endIndex));
+
+      // align the ranges of the accumulation to cache lines, so no two
+      // threads write into the same cache line of the gradient
+      gradientSumTasks.add(new GradientSumTask(
+          partition(dimension, t, threads, CACHE_LINE_DOUBLES),
+          partition(dimension, t + 1, threads, CACHE_LINE_DOUBLES)));
+    }
+
+    executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "opennlp-qn-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Computes the boundary of a partition, the boundary is rounded up to
+   * a multiple of the alignment.
+   */
+  private static int partition(int size, int index, int partitions, int alignment) {
+    if (index == partitions) {
+      return size;
+    }
+
+    long boundary = (long) size * index / partitions;
+    boundary = (boundary + alignment - 1) / alignment * alignment;
+    return (int) Math.min(boundary, size);
   }
 
   /**
@@ -65,11 +110,12 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
           "x is invalid, its dimension is not equal to domain dimension.");
 
     // Compute partial value of negative log-likelihood in each thread
-    computeInParallel(x, NegLLComputeTask.class);
+    this.x = x;
+    computeInParallel(negLLTasks);
 
     double negLogLikelihood = 0;
-    for (int t = 0; t < threads; t++) {
-      negLogLikelihood += negLogLikelihoodThread[t];
+    for (NegLLComputeTask task : negLLTasks) {
+      negLogLikelihood += task.negLogLikelihood;
     }
 
     return negLogLikelihood;
@@ -86,15 +132,11 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
           "x is invalid, its dimension is not equal to the function.");
 
     // Compute partial gradient in each thread
-    computeInParallel(x, GradientComputeTask.class);
+    this.x = x;
+    computeInParallel(gradientTasks);
 
     // Accumulate gradient
-    for (int i = 0; i < dimension; i++) {
-      gradient[i] = 0;
-      for (int t = 0; t < threads; t++) {
-        gradient[i] += gradientThread[t][i];
-      }
-    }
+    computeInParallel(gradientSumTasks);
 
     return gradient;
   }
@@ -102,33 +144,32 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
   /**
    * Compute tasks in parallel
    */
-  private void computeInParallel(double[] x, Class<? extends ComputeTask> taskClass) {
-    ExecutorService executor = Executors.newFixedThreadPool(threads);
-    int taskSize = numContexts / threads;
-    int leftOver = numContexts % threads;
-
+  private <T> void computeInParallel(List<? extends Callable<T>> tasks) {
     try {
-      Constructor<? extends ComputeTask> cons = taskClass.getConstructor(
-          ParallelNegLogLikelihood.class,
-          int.class, int.class, int.class, double[].class);
-
-      List<Future<?>> futures = new ArrayList<>();
-      for (int i = 0; i < threads; i++) {
-        if (i != threads - 1)
-          futures.add(executor.submit(
-              cons.newInstance(this, i, i * taskSize, taskSize, x)));
-        else
-          futures.add(executor.submit(
-              cons.newInstance(this, i, i * taskSize, taskSize + leftOver, x)));
-      }
-
-      for (Future<?> future: futures)
+      for (Future<T> future : executor.invokeAll(tasks)) {
         future.get();
-
-    } catch (Exception e) {
-      e.printStackTrace();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while computing in parallel", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
     }
+  }
 
+  /**
+   * Shuts down the worker threads, the function can't be evaluated afterwards.
+   */
+  @Override
+  public void close() {
     executor.shutdown();
   }
 
@@ -137,21 +178,15 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
    */
   abstract class ComputeTask implements Callable<ComputeTask> {
 
-    final int threadIndex;
-
     // Start index of contexts to compute
     final int startIndex;
 
-    // Number of contexts to compute
-    final int length;
-
-    final double[] x;
+    // End index of contexts to compute, exclusive
+    final int endIndex;
 
-    public ComputeTask(int threadIndex, int startIndex, int length, double[] x) {
-      this.threadIndex = threadIndex;
-      this.startIndex  = startIndex;
-      this.length      = length;
-      this.x           = x;
+    ComputeTask(int startIndex, int endIndex) {
+      this.startIndex = startIndex;
+      this.endIndex   = endIndex;
     }
   }
 
@@ -162,34 +197,16 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
 
     final double[] tempSums;
 
-    public NegLLComputeTask(int threadIndex, int startIndex, int length, double[] x) {
-      super(threadIndex, startIndex, length, x);
+    double negLogLikelihood;
+
+    NegLLComputeTask(int startIndex, int endIndex) {
+      super(startIndex, endIndex);
       this.tempSums = new double[numOutcomes];
     }
 
     @Override
     public NegLLComputeTask call() {
-      int ci, oi, ai, vectorIndex, outcome;
-      double predValue, logSumOfExps;
-      negLogLikelihoodThread[threadIndex] = 0;
-
-      for (ci = startIndex; ci < startIndex + length; ci++) {
-        for (oi = 0; oi < numOutcomes; oi++) {
-          tempSums[oi] = 0;
-          for (ai = 0; ai < contexts[ci].length; ai++) {
-            vectorIndex = indexOf(oi, contexts[ci][ai]);
-            predValue = values != null ? values[ci][ai] : 1.0;
-            tempSums[oi] += predValue * x[vectorIndex];
-          }
-        }
-
-        logSumOfExps = ArrayMath.logSumOfExps(tempSums);
-
-        outcome = outcomeList[ci];
-        negLogLikelihoodThread[threadIndex] -=
-            (tempSums[outcome] - logSumOfExps) * numTimesEventsSeen[ci];
-      }
-
+      this.negLogLikelihood = negLogLikelihood(x, startIndex, endIndex, tempSums);
       return this;
     }
   }
@@ -201,45 +218,48 @@ public class ParallelNegLogLikelihood extends NegLogLikelihood {
 
     final double[] expectation;
 
-    public GradientComputeTask(int threadIndex, int startIndex, int length, double[] x) {
-      super(threadIndex, startIndex, length, x);
+    // Partial gradient
+    final double[] gradient;
+
+    GradientComputeTask(int startIndex, int endIndex) {
+      super(startIndex, endIndex);
       this.expectation = new double[numOutcomes];
+      this.gradient = new double[dimension];
     }
 
     @Override
     public GradientComputeTask call() {
-      int ci, oi, ai, vectorIndex;
-      double predValue, logSumOfExps;
-      int empirical;
-
-      // Reset gradientThread
-      Arrays.fill(gradientThread[threadIndex], 0);
-
-      for (ci = startIndex; ci < startIndex + length; ci++) {
-        for (oi = 0; oi < numOutcomes; oi++) {
-          expectation[oi] = 0;
-          for (ai = 0; ai < contexts[ci].length; ai++) {
-            vectorIndex = indexOf(oi, contexts[ci][ai]);
-            predValue = values != null ? values[ci][ai] : 1.0;
-            expectation[oi] += predValue * x[vectorIndex];
-          }
-        }
+      // Reset partial gradient
+      Arrays.fill(gradient, 0);
 
-        logSumOfExps = ArrayMath.logSumOfExps(expectation);
+      addGradient(x, startIndex, endIndex, expectation, gradient);
 
-        for (oi = 0; oi < numOutcomes; oi++) {
-          expectation[oi] = Math.exp(expectation[oi] - logSumOfExps);
-        }
+      return this;
+    }
+  }
+
+  /**
+   * Task for summing up a range of the partial gradients
+   */
+  class GradientSumTask implements Callable<GradientSumTask> {
 
-        for (oi = 0; oi < numOutcomes; oi++) {
-          empirical = outcomeList[ci] == oi ? 1 : 0;
-          for (ai = 0; ai < contexts[ci].length; ai++) {
-            vectorIndex = indexOf(oi, contexts[ci][ai]);
-            predValue = values != null ? values[ci][ai] : 1.0;
-            gradientThread[threadIndex][vectorIndex] +=
-                predValue * (expectation[oi] - empirical) * numTimesEventsSeen[ci];
-          }
+    final int startIndex;
+
+    final int endIndex;
+
+    GradientSumTask(int startIndex, int endIndex) {
+      this.startIndex = startIndex;
+      this.endIndex   = endIndex;
+    }
+
+    @Override
+    public GradientSumTask call() {
+      for (int i = startIndex; i < endIndex; i++) {
+        double sum = 0;
+        for (GradientComputeTask task : gradientTasks) {
+          sum += task.gradient[i];
         }
+        gradient[i] = sum;
       }
 
       return this;
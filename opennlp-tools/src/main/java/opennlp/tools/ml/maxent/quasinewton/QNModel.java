@@ -17,8 +17,12 @@
 
 package opennlp.tools.ml.maxent.quasinewton;
 
+import java.util.Arrays;
+
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.Context;
+import opennlp.tools.ml.model.EvalParameters;
+import opennlp.tools.ml.model.PredicateIndex;
 
 public class QNModel extends AbstractModel {
 
@@ -27,12 +31,13 @@ public class QNModel extends AbstractModel {
     this.modelType = ModelType.MaxentQn;
   }
 
-  public int getNumOutcomes() {
-    return this.outcomeNames.length;
+  public QNModel(PredicateIndex predicateIndex, String[] outcomeNames, EvalParameters evalParams) {
+    super(predicateIndex, outcomeNames, evalParams);
+    this.modelType = ModelType.MaxentQn;
   }
 
-  private Integer getPredIndex(String predicate) {
-    return pmap.get(predicate);
+  public int getNumOutcomes() {
+    return this.outcomeNames.length;
   }
 
   public double[] eval(String[] context) {
@@ -60,21 +65,16 @@ public class QNModel extends AbstractModel {
    * @return Normalized probabilities for the outcomes given the context.
    */
   private double[] eval(String[] context, float[] values, double[] probs) {
-    Context[] params = evalParams.getParams();
+    Arrays.fill(probs, 0);
 
     for (int ci = 0; ci < context.length; ci++) {
-      Integer predIdx = getPredIndex(context[ci]);
+      int predIdx = getPredIndex(context[ci]);
 
-      if (predIdx != null) {
+      if (predIdx >= 0) {
         double predValue = 1.0;
         if (values != null) predValue = values[ci];
 
-        double[] parameters = params[predIdx].getParameters();
-        int[] outcomes = params[predIdx].getOutcomes();
-        for (int i = 0; i < outcomes.length; i++) {
-          int oi = outcomes[i];
-          probs[oi] += predValue * parameters[i];
-        }
+        evalParams.addParameters(predIdx, predValue, probs);
       }
     }
 
@@ -85,6 +85,21 @@ public class QNModel extends AbstractModel {
     return probs;
   }
 
+  @Override
+  protected double[] evalPredicates(int[] predicates, int length, double[] probs) {
+    Arrays.fill(probs, 0);
+
+    for (int ci = 0; ci < length; ci++) {
+      evalParams.addParameters(predicates[ci], 1.0, probs);
+    }
+
+    double logSumExp = ArrayMath.logSumOfExps(probs);
+    for (int oi = 0; oi < outcomeNames.length; oi++) {
+      probs[oi] = Math.exp(probs[oi] - logSumExp);
+    }
+    return probs;
+  }
+
   /**
    * Model evaluation which should be used during training to report model accuracy.
    * @param context
@@ -27,6 +27,7 @@ import opennlp.tools.ml.maxent.quasinewton.QNMinimizer.Evaluator;
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.Context;
 import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.IndexedEvents;
 import opennlp.tools.util.TrainingParameters;
 
 /**
@@ -179,7 +180,16 @@ public class QNTrainer extends AbstractEventTrainer {
         l1Cost, l2Cost, iterations, m, maxFctEval, printMessages);
     minimizer.setEvaluator(new ModelEvaluator(indexer));
 
-    double[] parameters = minimizer.minimize(objectiveFunction);
+    double[] parameters;
+    try {
+      parameters = minimizer.minimize(objectiveFunction);
+    }
+    finally {
+      // release the worker threads of the parallel function
+      if (objectiveFunction instanceof ParallelNegLogLikelihood) {
+        ((ParallelNegLogLikelihood) objectiveFunction).close();
+      }
+    }
 
     // Construct model with trained parameters
     String[] predLabels = indexer.getPredLabels();
@@ -221,27 +231,22 @@ public class QNTrainer extends AbstractEventTrainer {
      */
     @Override
     public double evaluate(double[] parameters) {
-      int[][] contexts  = indexer.getContexts();
-      float[][] values  = indexer.getValues();
-      int[] nEventsSeen = indexer.getNumTimesEventsSeen();
-      int[] outcomeList = indexer.getOutcomeList();
       int nOutcomes     = indexer.getOutcomeLabels().length;
       int nPredLabels   = indexer.getPredLabels().length;
 
       int nCorrect     = 0;
       int nTotalEvents = 0;
 
-      for (int ei = 0; ei < contexts.length; ei++) {
-        int[] context  = contexts[ei];
-        float[] value  = values == null ? null : values[ei];
-
+      IndexedEvents.Cursor cursor = indexer.getIndexedEvents().cursor();
+      while (cursor.next()) {
         double[] probs = new double[nOutcomes];
-        QNModel.eval(context, value, probs, nOutcomes, nPredLabels, parameters);
+        QNModel.eval(cursor.getContext(), cursor.getValues(), probs, nOutcomes, nPredLabels,
+            parameters);
         int outcome = ArrayMath.maxIdx(probs);
-        if (outcome == outcomeList[ei]) {
-          nCorrect += nEventsSeen[ei];
+        if (outcome == cursor.getOutcome()) {
+          nCorrect += cursor.getNumTimesSeen();
         }
-        nTotalEvents += nEventsSeen[ei];
+        nTotalEvents += cursor.getNumTimesSeen();
       }
 
       return (double) nCorrect / nTotalEvents;
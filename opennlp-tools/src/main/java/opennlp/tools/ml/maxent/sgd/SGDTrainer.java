@@ -0,0 +1,846 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.maxent.sgd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.maxent.GISModel;
+import opennlp.tools.ml.model.Context;
+import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.HashSumEventStream;
+import opennlp.tools.ml.model.IndexedEvents;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.ml.model.PredicateIndex;
+import opennlp.tools.util.InsufficientTrainingDataException;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Maxent model trainer which uses mini-batch stochastic gradient descent
+ * with either a plain or an AdaGrad update rule and L1/L2 regularization.
+ * <p>
+ * The events are not indexed in memory. The event stream is read once to count the
+ * predicates and then once per epoch, it must therefore support
+ * {@link ObjectStream#reset()}. The events are processed in the order of the stream,
+ * a stream which is sorted by outcome should be shuffled beforehand.
+ * <p>
+ * The gradient of a mini-batch is computed in parallel, the events of the batch are
+ * split over the threads to compute the outcome distributions and the predicates are
+ * split over the threads to update their parameters. The result does not depend on the
+ * number of threads.
+ * <p>
+ * The regularization is applied lazily, the parameters of a predicate are only
+ * regularized when the predicate occurs in a batch, or once at the end of training, for
+ * all the batches it was absent from. The costs are relative to the log-likelihood of
+ * all events as in the {@link opennlp.tools.ml.maxent.quasinewton.QNTrainer}.
+ * <p>
+ * The trained model is a {@link GISModel}, only the non-zero parameters are kept.
+ */
+public class SGDTrainer extends AbstractTrainer implements EventTrainer {
+
+  public static final String MAXENT_SGD_VALUE = "MAXENT_SGD";
+
+  public static final String UPDATE_RULE_PARAM = "UpdateRule";
+  public static final String UPDATE_RULE_SGD_VALUE = "SGD";
+  public static final String UPDATE_RULE_ADAGRAD_VALUE = "AdaGrad";
+  public static final String UPDATE_RULE_DEFAULT = UPDATE_RULE_ADAGRAD_VALUE;
+
+  public static final String LEARNING_RATE_PARAM = "LearningRate";
+  public static final double LEARNING_RATE_DEFAULT = 0.1;
+
+  /**
+   * The decay of the learning rate of the plain update rule, after t batches
+   * the learning rate is learningRate / (1 + decay * t).
+   */
+  public static final String DECAY_PARAM = "LearningRateDecay";
+  public static final double DECAY_DEFAULT = 0;
+
+  public static final String BATCH_SIZE_PARAM = "BatchSize";
+  public static final int BATCH_SIZE_DEFAULT = 64;
+
+  /**
+   * The number of epochs, an epoch is a pass over all events.
+   */
+  public static final int EPOCHS_DEFAULT = 10;
+
+  /**
+   * Training stops once the average log-likelihood per event changes by less
+   * than the tolerance between two epochs.
+   */
+  public static final String TOLERANCE_PARAM = "Tolerance";
+  public static final double TOLERANCE_DEFAULT = 1e-4;
+
+  public static final String THREADS_PARAM = "Threads";
+  public static final int THREADS_DEFAULT = 1;
+
+  public static final String L1COST_PARAM = "L1Cost";
+  public static final double L1COST_DEFAULT = 0;
+
+  public static final String L2COST_PARAM = "L2Cost";
+  public static final double L2COST_DEFAULT = 0.1;
+
+  /**
+   * Prevents a division by zero in the AdaGrad step size.
+   */
+  private static final double ADAGRAD_EPSILON = 1e-8;
+
+  private String updateRule;
+  private double learningRate;
+  private double decay;
+  private int batchSize;
+  private double tolerance;
+  private int threads;
+  private double l1Cost;
+  private double l2Cost;
+
+  public SGDTrainer() {
+  }
+
+  public SGDTrainer(TrainingParameters parameters) {
+    super(parameters);
+  }
+
+  @Override
+  public void init(TrainingParameters trainingParameters, Map<String, String> reportMap) {
+    super.init(trainingParameters, reportMap);
+    updateRule = trainingParameters.getStringParameter(UPDATE_RULE_PARAM, UPDATE_RULE_DEFAULT);
+    learningRate = trainingParameters.getDoubleParameter(LEARNING_RATE_PARAM, LEARNING_RATE_DEFAULT);
+    decay = trainingParameters.getDoubleParameter(DECAY_PARAM, DECAY_DEFAULT);
+    batchSize = trainingParameters.getIntParameter(BATCH_SIZE_PARAM, BATCH_SIZE_DEFAULT);
+    tolerance = trainingParameters.getDoubleParameter(TOLERANCE_PARAM, TOLERANCE_DEFAULT);
+    threads = trainingParameters.getIntParameter(THREADS_PARAM, THREADS_DEFAULT);
+    l1Cost = trainingParameters.getDoubleParameter(L1COST_PARAM, L1COST_DEFAULT);
+    l2Cost = trainingParameters.getDoubleParameter(L2COST_PARAM, L2COST_DEFAULT);
+  }
+
+  @Override
+  @Deprecated
+  public void init(Map<String, String> trainParams, Map<String, String> reportMap) {
+    init(new TrainingParameters(trainParams), reportMap);
+  }
+
+  @Override
+  public int getIterations() {
+    return trainingParameters.getIntParameter(ITERATIONS_PARAM, EPOCHS_DEFAULT);
+  }
+
+  @Override
+  public boolean isValid() {
+
+    if (!super.isValid()) {
+      return false;
+    }
+
+    String algorithmName = trainingParameters.getStringParameter(ALGORITHM_PARAM, null);
+    if (algorithmName != null && !MAXENT_SGD_VALUE.equals(algorithmName)) {
+      return false;
+    }
+
+    if (!UPDATE_RULE_SGD_VALUE.equals(updateRule) && !UPDATE_RULE_ADAGRAD_VALUE.equals(updateRule)) {
+      return false;
+    }
+
+    return learningRate > 0 && decay >= 0 && batchSize >= 1 && tolerance >= 0 && threads >= 1
+        && l1Cost >= 0 && l2Cost >= 0;
+  }
+
+  @Override
+  public MaxentModel train(ObjectStream<Event> events) throws IOException {
+
+    if (!isValid()) {
+      throw new IllegalArgumentException("trainParams are not valid!");
+    }
+
+    int cutoff = getCutoff();
+
+    display("Counting predicates using cutoff of " + cutoff + "...  ");
+
+    HashSumEventStream hses = new HashSumEventStream(events);
+    ObjectStream<Event> hashedEvents = hashFeatures(hses);
+
+    Map<String, Integer> outcomeIndex = new HashMap<>();
+    List<String> outcomeLabels = new ArrayList<>();
+    Map<String, Integer> predicateCounts = new HashMap<>();
+
+    int numEvents = 0;
+    Event event;
+    while ((event = hashedEvents.read()) != null) {
+      if (!outcomeIndex.containsKey(event.getOutcome())) {
+        outcomeIndex.put(event.getOutcome(), outcomeLabels.size());
+        outcomeLabels.add(event.getOutcome());
+      }
+
+      for (String predicate : event.getContext()) {
+        predicateCounts.merge(predicate, 1, Integer::sum);
+      }
+      numEvents++;
+    }
+
+    addToReport("Training-Eventhash", hses.calculateHashSum().toString(16));
+
+    List<String> predicates = new ArrayList<>();
+    for (Map.Entry<String, Integer> entry : predicateCounts.entrySet()) {
+      if (entry.getValue() >= cutoff) {
+        predicates.add(entry.getKey());
+      }
+    }
+    Collections.sort(predicates);
+
+    display("done. " + numEvents + " events\n");
+
+    String[] predLabels = predicates.toArray(new String[predicates.size()]);
+
+    events.reset();
+
+    return train(new StreamBatchReader(hashFeatures(events), new PredicateIndex(predLabels), outcomeIndex),
+        predLabels, outcomeLabels.toArray(new String[outcomeLabels.size()]), numEvents);
+  }
+
+  @Override
+  public MaxentModel train(DataIndexer indexer) throws IOException {
+
+    if (!isValid()) {
+      throw new IllegalArgumentException("trainParams are not valid!");
+    }
+
+    int numEvents = 0;
+    IndexedEvents.Cursor cursor = indexer.getIndexedEvents().cursor();
+    while (cursor.next()) {
+      numEvents += cursor.getNumTimesSeen();
+    }
+
+    return train(new IndexerBatchReader(indexer), indexer.getPredLabels(),
+        indexer.getOutcomeLabels(), numEvents);
+  }
+
+  private GISModel train(BatchReader reader, String[] predLabels, String[] outcomeLabels,
+      int numEvents) throws IOException {
+
+    if (outcomeLabels.length <= 1) {
+      throw new InsufficientTrainingDataException("Training data must contain more than one outcome");
+    }
+
+    if ((long) predLabels.length * outcomeLabels.length > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many parameters: "
+          + predLabels.length + " predicates, " + outcomeLabels.length + " outcomes");
+    }
+
+    display("\t    Number of Outcomes: " + outcomeLabels.length + "\n");
+    display("\t  Number of Predicates: " + predLabels.length + "\n");
+
+    ExecutorService executor = null;
+    if (threads > 1) {
+      executor = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "opennlp-sgd-trainer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    try {
+      Optimizer optimizer = new Optimizer(predLabels.length, outcomeLabels.length, numEvents, executor);
+      optimizer.optimize(reader);
+
+      GISModel model = new GISModel(optimizer.toContexts(), predLabels, outcomeLabels);
+      enableFeatureHashing(model);
+      addToReport(TRAINER_TYPE_PARAM, EVENT_VALUE);
+      return model;
+    }
+    finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * A mini-batch of indexed events. The contexts and values are views, only the
+   * first {@code lengths[i]} entries of the event i are valid.
+   */
+  private static final class Batch {
+
+    private final int[][] contexts;
+    private final float[][] values;
+    private final int[] lengths;
+    private final int[] outcomes;
+    private final int[] counts;
+    private int size;
+
+    Batch(int capacity) {
+      contexts = new int[capacity][];
+      values = new float[capacity][];
+      lengths = new int[capacity];
+      outcomes = new int[capacity];
+      counts = new int[capacity];
+    }
+
+    int capacity() {
+      return outcomes.length;
+    }
+  }
+
+  /**
+   * Reads the events of an epoch in mini-batches.
+   */
+  private interface BatchReader {
+
+    /**
+     * Starts a new epoch.
+     */
+    void reset() throws IOException;
+
+    /**
+     * Fills the batch with the next events of the epoch.
+     *
+     * @return false if the epoch has no more events
+     */
+    boolean read(Batch batch) throws IOException;
+  }
+
+  /**
+   * Indexes the events of a stream while they are read, events without
+   * an indexed predicate are skipped.
+   */
+  private static final class StreamBatchReader implements BatchReader {
+
+    private final ObjectStream<Event> events;
+    private final PredicateIndex predicateIndex;
+    private final Map<String, Integer> outcomeIndex;
+
+    private int[][] contextBuffers = new int[0][];
+    private float[][] valueBuffers = new float[0][];
+
+    private boolean reset;
+
+    StreamBatchReader(ObjectStream<Event> events, PredicateIndex predicateIndex,
+        Map<String, Integer> outcomeIndex) {
+      this.events = events;
+      this.predicateIndex = predicateIndex;
+      this.outcomeIndex = outcomeIndex;
+    }
+
+    @Override
+    public void reset() throws IOException {
+      // the stream was already reset after the predicates were counted
+      if (reset) {
+        events.reset();
+      }
+      reset = true;
+    }
+
+    @Override
+    public boolean read(Batch batch) throws IOException {
+
+      if (contextBuffers.length < batch.capacity()) {
+        contextBuffers = new int[batch.capacity()][16];
+        valueBuffers = new float[batch.capacity()][16];
+      }
+
+      batch.size = 0;
+
+      Event event;
+      while (batch.size < batch.capacity() && (event = events.read()) != null) {
+        Integer outcome = outcomeIndex.get(event.getOutcome());
+        if (outcome == null) {
+          throw new IllegalStateException("The event stream returned an unknown outcome: "
+              + event.getOutcome());
+        }
+
+        int ei = batch.size;
+
+        String[] context = event.getContext();
+        float[] values = event.getValues();
+
+        if (contextBuffers[ei].length < context.length) {
+          contextBuffers[ei] = new int[context.length];
+          valueBuffers[ei] = new float[context.length];
+        }
+
+        int length = 0;
+        for (int ci = 0; ci < context.length; ci++) {
+          int pi = predicateIndex.get(context[ci]);
+          if (pi != -1) {
+            contextBuffers[ei][length] = pi;
+            if (values != null) {
+              valueBuffers[ei][length] = values[ci];
+            }
+            length++;
+          }
+        }
+
+        // drop events with no active features
+        if (length > 0) {
+          batch.contexts[ei] = contextBuffers[ei];
+          batch.values[ei] = values != null ? valueBuffers[ei] : null;
+          batch.lengths[ei] = length;
+          batch.outcomes[ei] = outcome;
+          batch.counts[ei] = 1;
+          batch.size++;
+        }
+      }
+
+      return batch.size > 0;
+    }
+  }
+
+  /**
+   * Reads the already indexed events of a {@link DataIndexer}.
+   */
+  private static final class IndexerBatchReader implements BatchReader {
+
+    private final IndexedEvents events;
+    private IndexedEvents.Cursor cursor;
+
+    private int[][] contextBuffers = new int[0][];
+    private float[][] valueBuffers = new float[0][];
+
+    IndexerBatchReader(DataIndexer indexer) {
+      this.events = indexer.getIndexedEvents();
+    }
+
+    @Override
+    public void reset() {
+      cursor = events.cursor();
+    }
+
+    @Override
+    public boolean read(Batch batch) {
+
+      if (contextBuffers.length < batch.capacity()) {
+        contextBuffers = new int[batch.capacity()][16];
+        valueBuffers = new float[batch.capacity()][16];
+      }
+
+      batch.size = 0;
+      while (batch.size < batch.capacity() && cursor.next()) {
+        int ei = batch.size++;
+
+        // the cursor may reuse its arrays, the batch needs its own copy
+        int[] context = cursor.getContext();
+        float[] values = cursor.getValues();
+
+        if (contextBuffers[ei].length < context.length) {
+          contextBuffers[ei] = new int[context.length];
+          valueBuffers[ei] = new float[context.length];
+        }
+
+        System.arraycopy(context, 0, contextBuffers[ei], 0, context.length);
+        batch.contexts[ei] = contextBuffers[ei];
+
+        if (values != null) {
+          System.arraycopy(values, 0, valueBuffers[ei], 0, context.length);
+          batch.values[ei] = valueBuffers[ei];
+        }
+        else {
+          batch.values[ei] = null;
+        }
+
+        batch.lengths[ei] = context.length;
+        batch.outcomes[ei] = cursor.getOutcome();
+        batch.counts[ei] = cursor.getNumTimesSeen();
+      }
+
+      return batch.size > 0;
+    }
+  }
+
+  /**
+   * The state of the optimization. The parameters of predicate pi and outcome oi
+   * are stored at pi * numOutcomes + oi.
+   */
+  private final class Optimizer {
+
+    private final int numPreds;
+    private final int numOutcomes;
+    private final int numEvents;
+    private final ExecutorService executor;
+    private final int numShards;
+
+    private final boolean adaGrad;
+    private final boolean regularize;
+
+    private final double[] parameters;
+    private final double[] gradients;
+
+    /** The summed squared gradients of the AdaGrad update rule. */
+    private final double[] squaredGradients;
+
+    /**
+     * The sum of the learning rates of all batches, the regularization of a
+     * predicate is applied for the difference to {@link #regularized}.
+     */
+    private double learningRateSum;
+    private final double[] regularized;
+
+    /** The number of the batch which last updated the predicate. */
+    private final int[] updated;
+    private int batchNumber;
+
+    private final Batch batch;
+
+    /** The count weighted difference of the outcome distribution to the observed outcome. */
+    private final double[] residuals;
+    private final double[] loglikelihoods;
+    private final boolean[] correct;
+
+    Optimizer(int numPreds, int numOutcomes, int numEvents, ExecutorService executor) {
+      this.numPreds = numPreds;
+      this.numOutcomes = numOutcomes;
+      this.numEvents = numEvents;
+      this.executor = executor;
+      this.numShards = executor != null ? threads : 1;
+
+      adaGrad = UPDATE_RULE_ADAGRAD_VALUE.equals(updateRule);
+      regularize = l1Cost > 0 || l2Cost > 0;
+
+      parameters = new double[numPreds * numOutcomes];
+      gradients = new double[numPreds * numOutcomes];
+      squaredGradients = adaGrad ? new double[numPreds * numOutcomes] : null;
+      regularized = regularize ? new double[numPreds] : null;
+
+      updated = new int[numPreds];
+      Arrays.fill(updated, -1);
+
+      batch = new Batch(batchSize);
+      residuals = new double[batchSize * numOutcomes];
+      loglikelihoods = new double[batchSize];
+      correct = new boolean[batchSize];
+    }
+
+    void optimize(BatchReader reader) throws IOException {
+      int epochs = getIterations();
+
+      display("Performing " + epochs + " epochs with batches of " + batchSize + " events in "
+          + numShards + " threads.\n");
+
+      double prevLL = 0;
+      for (int epoch = 1; epoch <= epochs; epoch++) {
+        if (epoch < 10) {
+          display("  " + epoch + ":  ");
+        } else if (epoch < 100) {
+          display(" " + epoch + ":  ");
+        } else {
+          display(epoch + ":  ");
+        }
+
+        reader.reset();
+
+        double loglikelihood = 0;
+        long numCorrect = 0;
+        long numTrained = 0;
+
+        while (reader.read(batch)) {
+          if (regularize) {
+            regularizeBatch();
+          }
+
+          computeResiduals();
+
+          int batchCount = 0;
+          for (int ei = 0; ei < batch.size; ei++) {
+            loglikelihood += loglikelihoods[ei];
+            if (correct[ei]) {
+              numCorrect += batch.counts[ei];
+            }
+            batchCount += batch.counts[ei];
+          }
+          numTrained += batchCount;
+
+          double rate = adaGrad ? learningRate : learningRate / (1 + decay * batchNumber);
+          update(rate, batchCount);
+
+          learningRateSum += rate;
+          batchNumber++;
+        }
+
+        // the statistics are computed before each batch is trained
+        display(". loglikelihood=" + loglikelihood + "\t" + ((double) numCorrect / numTrained) + "\n");
+
+        if (epoch > 1 && Math.abs(loglikelihood - prevLL) / numTrained < tolerance) {
+          display("Stopping: change in average loglikelihood less than " + tolerance + "\n");
+          break;
+        }
+        prevLL = loglikelihood;
+      }
+
+      if (regularize) {
+        for (int pi = 0; pi < numPreds; pi++) {
+          regularize(pi);
+        }
+      }
+    }
+
+    /**
+     * Catches up on the regularization of the predicates in the batch, so the outcome
+     * distributions are computed with their current parameters.
+     */
+    private void regularizeBatch() {
+      List<Callable<Void>> tasks = new ArrayList<>(numShards);
+      for (int si = 0; si < numShards; si++) {
+        final int shard = si;
+        tasks.add(() -> {
+          for (int ei = 0; ei < batch.size; ei++) {
+            for (int ci = 0; ci < batch.lengths[ei]; ci++) {
+              int pi = batch.contexts[ei][ci];
+              if (pi % numShards == shard) {
+                regularize(pi);
+              }
+            }
+          }
+          return null;
+        });
+      }
+      computeInParallel(tasks);
+    }
+
+    /**
+     * Applies the pending regularization of a predicate. The parameters are shrunk
+     * for the L2 cost and then truncated towards zero for the L1 cost.
+     */
+    private void regularize(int pi) {
+      double steps = learningRateSum - regularized[pi];
+      if (steps == 0) {
+        return;
+      }
+      regularized[pi] = learningRateSum;
+
+      for (int oi = 0; oi < numOutcomes; oi++) {
+        int index = pi * numOutcomes + oi;
+        double parameter = parameters[index];
+
+        if (parameter != 0) {
+          double step = steps / numEvents;
+          if (adaGrad) {
+            step /= Math.sqrt(squaredGradients[index]) + ADAGRAD_EPSILON;
+          }
+
+          parameter *= Math.exp(-2 * l2Cost * step);
+
+          double truncation = l1Cost * step;
+          if (parameter > truncation) {
+            parameter -= truncation;
+          } else if (parameter < -truncation) {
+            parameter += truncation;
+          } else {
+            parameter = 0;
+          }
+
+          parameters[index] = parameter;
+        }
+      }
+    }
+
+    /**
+     * Computes the residuals, the log-likelihood and whether the outcome is
+     * predicted correctly for the events in the batch.
+     */
+    private void computeResiduals() {
+      List<Callable<Void>> tasks = new ArrayList<>(numShards);
+      for (int si = 0; si < numShards; si++) {
+        final int start = (int) ((long) batch.size * si / numShards);
+        final int end = (int) ((long) batch.size * (si + 1) / numShards);
+        tasks.add(() -> {
+          computeResiduals(start, end);
+          return null;
+        });
+      }
+      computeInParallel(tasks);
+    }
+
+    private void computeResiduals(int start, int end) {
+      double[] probs = new double[numOutcomes];
+
+      for (int ei = start; ei < end; ei++) {
+        Arrays.fill(probs, 0);
+
+        int[] context = batch.contexts[ei];
+        float[] values = batch.values[ei];
+        for (int ci = 0; ci < batch.lengths[ei]; ci++) {
+          double value = values != null ? values[ci] : 1;
+          int offset = context[ci] * numOutcomes;
+          for (int oi = 0; oi < numOutcomes; oi++) {
+            probs[oi] += parameters[offset + oi] * value;
+          }
+        }
+
+        int best = 0;
+        for (int oi = 1; oi < numOutcomes; oi++) {
+          if (probs[oi] > probs[best]) {
+            best = oi;
+          }
+        }
+
+        double max = probs[best];
+        double normal = 0;
+        for (int oi = 0; oi < numOutcomes; oi++) {
+          probs[oi] = Math.exp(probs[oi] - max);
+          normal += probs[oi];
+        }
+
+        int outcome = batch.outcomes[ei];
+        int count = batch.counts[ei];
+
+        loglikelihoods[ei] = count * Math.log(probs[outcome] / normal);
+        correct[ei] = best == outcome;
+
+        int offset = ei * numOutcomes;
+        for (int oi = 0; oi < numOutcomes; oi++) {
+          residuals[offset + oi] = count * (probs[oi] / normal - (oi == outcome ? 1 : 0));
+        }
+      }
+    }
+
+    /**
+     * Sums the gradients of the predicates in the batch and updates their parameters.
+     */
+    private void update(double rate, int batchCount) {
+      List<Callable<Void>> tasks = new ArrayList<>(numShards);
+      for (int si = 0; si < numShards; si++) {
+        final int shard = si;
+        tasks.add(() -> {
+          int[] touched = new int[64];
+          int numTouched = 0;
+
+          for (int ei = 0; ei < batch.size; ei++) {
+            int[] context = batch.contexts[ei];
+            float[] values = batch.values[ei];
+            int residualOffset = ei * numOutcomes;
+
+            for (int ci = 0; ci < batch.lengths[ei]; ci++) {
+              int pi = context[ci];
+              if (pi % numShards != shard) {
+                continue;
+              }
+
+              if (updated[pi] != batchNumber) {
+                updated[pi] = batchNumber;
+                if (numTouched == touched.length) {
+                  touched = Arrays.copyOf(touched, touched.length * 2);
+                }
+                touched[numTouched++] = pi;
+              }
+
+              double value = values != null ? values[ci] : 1;
+              int offset = pi * numOutcomes;
+              for (int oi = 0; oi < numOutcomes; oi++) {
+                gradients[offset + oi] += value * residuals[residualOffset + oi];
+              }
+            }
+          }
+
+          for (int ti = 0; ti < numTouched; ti++) {
+            int offset = touched[ti] * numOutcomes;
+            for (int index = offset; index < offset + numOutcomes; index++) {
+              double gradient = gradients[index] / batchCount;
+              gradients[index] = 0;
+
+              if (adaGrad) {
+                if (gradient != 0) {
+                  squaredGradients[index] += gradient * gradient;
+                  parameters[index] -=
+                      rate * gradient / (Math.sqrt(squaredGradients[index]) + ADAGRAD_EPSILON);
+                }
+              }
+              else {
+                parameters[index] -= rate * gradient;
+              }
+            }
+          }
+          return null;
+        });
+      }
+      computeInParallel(tasks);
+    }
+
+    private <T> List<T> computeInParallel(List<? extends Callable<T>> tasks) {
+      try {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (executor == null) {
+          for (Callable<T> task : tasks) {
+            results.add(task.call());
+          }
+        }
+        else {
+          for (Future<T> future : executor.invokeAll(tasks)) {
+            results.add(future.get());
+          }
+        }
+        return results;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while training in parallel", e);
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+      catch (RuntimeException e) {
+        throw e;
+      }
+      catch (Exception e) {
+        // the tasks do not throw checked exceptions
+        throw new IllegalStateException(e);
+      }
+    }
+
+    /**
+     * @return the non-zero parameters of every predicate
+     */
+    Context[] toContexts() {
+      Context[] contexts = new Context[numPreds];
+
+      int[] outcomes = new int[numOutcomes];
+      double[] values = new double[numOutcomes];
+
+      for (int pi = 0; pi < numPreds; pi++) {
+        int length = 0;
+        for (int oi = 0; oi < numOutcomes; oi++) {
+          double parameter = parameters[pi * numOutcomes + oi];
+          if (parameter != 0) {
+            outcomes[length] = oi;
+            values[length] = parameter;
+            length++;
+          }
+        }
+        contexts[pi] = new Context(Arrays.copyOf(outcomes, length), Arrays.copyOf(values, length));
+      }
+
+      return contexts;
+    }
+  }
+}
@@ -17,11 +17,13 @@
 
 package opennlp.tools.ml.model;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import opennlp.tools.ml.AbstractTrainer;
 import opennlp.tools.util.InsufficientTrainingDataException;
@@ -104,9 +106,32 @@ public abstract class AbstractDataIndexer implements DataIndexer {
    */
   protected int sortAndMerge(List<ComparableEvent> eventsToCompare, boolean sort)
       throws InsufficientTrainingDataException {
+    return sortAndMerge(eventsToCompare, sort, false);
+  }
+
+  /**
+   * Sorts and uniques the array of comparable events and return the number of unique events.
+   * This method will alter the eventsToCompare array -- it does an in place
+   * sort, followed by an in place edit to remove duplicates.
+   * <p>
+   * In parallel mode the events are sorted with {@link Arrays#parallelSort(Object[])}
+   * and the duplicates are detected in parallel, the result is identical to the
+   * sequential mode since the sort is stable.
+   *
+   * @param eventsToCompare a <code>ComparableEvent[]</code> value
+   * @param sort true if the events should be sorted and merged
+   * @param parallel true if the sort and merge should use all available processors
+   * @return The number of unique events in the specified list.
+   * @throws InsufficientTrainingDataException if not enough events are provided
+   */
+  protected int sortAndMerge(List<ComparableEvent> eventsToCompare, boolean sort, boolean parallel)
+      throws InsufficientTrainingDataException {
     int numUniqueEvents = 1;
     numEvents = eventsToCompare.size();
-    if (sort && eventsToCompare.size() > 0) {
+    if (sort && parallel && eventsToCompare.size() > 0) {
+      numUniqueEvents = parallelSortAndMerge(eventsToCompare);
+    }
+    else if (sort && eventsToCompare.size() > 0) {
 
       Collections.sort(eventsToCompare);
 
@@ -153,6 +178,40 @@ public abstract class AbstractDataIndexer implements DataIndexer {
   }
 
 
+  private static int parallelSortAndMerge(List<ComparableEvent> eventsToCompare) {
+    ComparableEvent[] events = eventsToCompare.toArray(new ComparableEvent[eventsToCompare.size()]);
+    Arrays.parallelSort(events);
+
+    // an event is the first of its run if it differs from its predecessor
+    boolean[] first = new boolean[events.length];
+    IntStream.range(0, events.length).parallel()
+        .forEach(i -> first[i] = i == 0 || events[i - 1].compareTo(events[i]) != 0);
+
+    // the first event of a run counts the duplicates which follow it
+    IntStream.range(0, events.length).parallel().forEach(i -> {
+      if (first[i]) {
+        int end = i + 1;
+        while (end < events.length && !first[end]) {
+          end++;
+        }
+        events[i].seen += end - i - 1;
+      }
+    });
+
+    int numUniqueEvents = 0;
+    for (int i = 0; i < events.length; i++) {
+      if (first[i]) {
+        numUniqueEvents++;
+        eventsToCompare.set(i, events[i]);
+      }
+      else {
+        eventsToCompare.set(i, null); // kill the duplicate
+      }
+    }
+
+    return numUniqueEvents;
+  }
+
   public int getNumEvents() {
     return numEvents;
   }
@@ -19,14 +19,21 @@ package opennlp.tools.ml.model;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import opennlp.tools.ml.maxent.GISModel;
+import opennlp.tools.ml.maxent.quasinewton.QNModel;
+import opennlp.tools.ml.perceptron.PerceptronModel;
+
 public abstract class AbstractModel implements MaxentModel {
 
   /** Mapping between predicates/contexts and an integer representing them. */
   protected Map<String, Integer> pmap;
+  /** Index used to look up the integer representing a predicate during evaluation. */
+  private PredicateIndex predicateIndex;
+  /** Index used to look up the predicates of a {@link FeatureHashBuffer}, created on first use. */
+  private volatile FeatureHashIndex featureHashIndex;
   /** The names of the outcomes. */
   protected String[] outcomeNames;
   /** Parameters for the model. */
@@ -51,23 +58,164 @@ public abstract class AbstractModel implements MaxentModel {
   public AbstractModel(Context[] params, String[] predLabels,
       Map<String, Integer> pmap, String[] outcomeNames) {
     this.pmap = pmap;
+    this.predicateIndex = PredicateIndex.fromMap(pmap);
     this.outcomeNames =  outcomeNames;
     this.evalParams = new EvalParameters(params,outcomeNames.length);
   }
 
   public AbstractModel(Context[] params, String[] predLabels, String[] outcomeNames) {
-    init(predLabels, outcomeNames);
+    this.predicateIndex = new PredicateIndex(predLabels);
+    this.pmap = predicateIndex.asMap();
+    this.outcomeNames =  outcomeNames;
     this.evalParams = new EvalParameters(params, outcomeNames.length);
   }
 
-  private void init(String[] predLabels, String[] outcomeNames) {
-    this.pmap = new HashMap<>(predLabels.length);
+  /**
+   * Initializes the model with an existing predicate index and parameters,
+   * e.g. ones which are backed by a memory-mapped model file.
+   *
+   * @param predicateIndex the index of the predicates
+   * @param outcomeNames the names of the outcomes
+   * @param evalParams the parameters of the model
+   */
+  protected AbstractModel(PredicateIndex predicateIndex, String[] outcomeNames,
+      EvalParameters evalParams) {
+    this.predicateIndex = predicateIndex;
+    this.pmap = predicateIndex.asMap();
+    this.outcomeNames = outcomeNames;
+    this.evalParams = evalParams;
+  }
+
+  /**
+   * Retrieves the integer representing a predicate.
+   *
+   * @param predicate the predicate
+   *
+   * @return the index of the predicate or -1 if the predicate is unknown to this model
+   */
+  protected final int getPredIndex(String predicate) {
+    return predicateIndex.get(predicate);
+  }
 
-    for (int i = 0; i < predLabels.length; i++) {
-      pmap.put(predLabels[i], i);
+  /**
+   * Switches the model to hashed features. The predicates of the model must be the
+   * buckets of the hasher, as produced by training on a {@link FeatureHashingEventStream},
+   * afterwards the predicates passed to the eval methods are hashed to their buckets.
+   *
+   * @param hasher the hasher the model was trained with
+   *
+   * @throws IllegalArgumentException if a predicate of the model is not a bucket of the hasher
+   */
+  public final void enableFeatureHashing(FeatureHasher hasher) {
+    int[] buckets = new int[predicateIndex.size()];
+    for (int pi = 0; pi < buckets.length; pi++) {
+      String predicate = predicateIndex.getPredicate(pi);
+      buckets[pi] = hasher.parseLabel(predicate);
+      if (buckets[pi] == -1) {
+        throw new IllegalArgumentException("Predicate is not a bucket of the feature hashing: "
+            + predicate);
+      }
     }
 
-    this.outcomeNames =  outcomeNames;
+    predicateIndex = new HashedPredicateIndex(hasher, buckets);
+    pmap = predicateIndex.asMap();
+    featureHashIndex = null;
+  }
+
+  /**
+   * Retrieves the hasher which maps the predicates to the buckets of this model.
+   *
+   * @return the hasher or null if the model does not use feature hashing
+   */
+  public final FeatureHasher getFeatureHasher() {
+    return predicateIndex instanceof HashedPredicateIndex
+        ? ((HashedPredicateIndex) predicateIndex).getFeatureHasher() : null;
+  }
+
+  /**
+   * Evaluates a context which is described by the hashes of its predicates. The
+   * predicates are looked up in an index of the hashes of the predicates of this model,
+   * which is created when the first context is evaluated.
+   *
+   * @throws UnsupportedOperationException if the model uses feature hashing, the buckets
+   *     of the {@link FeatureHasher} can not be computed from the hashes
+   */
+  @Override
+  public final double[] eval(FeatureHashBuffer context, double[] probs) {
+    if (predicateIndex instanceof HashedPredicateIndex) {
+      throw new UnsupportedOperationException(
+          "Models with feature hashing do not support hashed predicates");
+    }
+
+    FeatureHashIndex index = featureHashIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = featureHashIndex;
+        if (index == null) {
+          featureHashIndex = index = new FeatureHashIndex(predicateIndex);
+        }
+      }
+    }
+
+    int[] predicates = context.getPredicateBuffer();
+    int length = 0;
+    for (int i = 0; i < context.size(); i++) {
+      int pi = index.get(context.get(i));
+      if (pi >= 0) {
+        predicates[length++] = pi;
+      }
+    }
+
+    return evalPredicates(predicates, length, probs);
+  }
+
+  /**
+   * Checks if the model can evaluate hashed predicates. Models which use feature hashing
+   * can not, and subclasses which do not implement
+   * {@link #evalPredicates(int[], int, double[])} must return false.
+   */
+  @Override
+  public boolean supportsHashedPredicates() {
+    return !(predicateIndex instanceof HashedPredicateIndex);
+  }
+
+  /**
+   * Evaluates a context of known predicates, this is used to evaluate a
+   * {@link FeatureHashBuffer} and must compute the same probabilities as
+   * the eval methods for the predicate strings.
+   *
+   * @param predicates the ids of the predicates
+   * @param length the number of predicates
+   * @param probs the array which is populated with the probabilities
+   *
+   * @return the probabilities of the outcomes
+   */
+  protected double[] evalPredicates(int[] predicates, int length, double[] probs) {
+    throw new UnsupportedOperationException(getClass().getName()
+        + " does not support hashed predicates");
+  }
+
+  PredicateIndex getPredicateIndex() {
+    return predicateIndex;
+  }
+
+  /**
+   * Creates a model of the given type with an existing predicate index and parameters.
+   *
+   * @throws IllegalArgumentException if the model type is naive bayes
+   */
+  static AbstractModel createModel(ModelType modelType, PredicateIndex predicateIndex,
+      String[] outcomeLabels, EvalParameters evalParams) {
+    switch (modelType) {
+      case Maxent:
+        return new GISModel(predicateIndex, outcomeLabels, evalParams);
+      case Perceptron:
+        return new PerceptronModel(predicateIndex, outcomeLabels, evalParams);
+      case MaxentQn:
+        return new QNModel(predicateIndex, outcomeLabels, evalParams);
+      default:
+        throw new IllegalArgumentException("Unsupported model type: " + modelType);
+    }
   }
 
 
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+/**
+ * The {@link IndexedEvents} of a {@link DataIndexer} which holds its events in arrays.
+ */
+final class ArrayIndexedEvents implements IndexedEvents {
+
+  private final int[][] contexts;
+  private final float[][] values;
+  private final int[] outcomeList;
+  private final int[] numTimesEventsSeen;
+
+  ArrayIndexedEvents(DataIndexer indexer) {
+    contexts = indexer.getContexts();
+    values = indexer.getValues();
+    outcomeList = indexer.getOutcomeList();
+    numTimesEventsSeen = indexer.getNumTimesEventsSeen();
+  }
+
+  @Override
+  public int size() {
+    return contexts.length;
+  }
+
+  @Override
+  public Cursor cursor(int start, int end) {
+    if (start < 0 || end > contexts.length || start > end) {
+      throw new IndexOutOfBoundsException("Invalid range: " + start + " to " + end);
+    }
+
+    return new Cursor() {
+
+      private int index = start - 1;
+
+      @Override
+      public boolean next() {
+        if (index + 1 < end) {
+          index++;
+          return true;
+        }
+        return false;
+      }
+
+      @Override
+      public int getIndex() {
+        return index;
+      }
+
+      @Override
+      public int[] getContext() {
+        return contexts[index];
+      }
+
+      @Override
+      public float[] getValues() {
+        return values != null ? values[index] : null;
+      }
+
+      @Override
+      public int getOutcome() {
+        return outcomeList[index];
+      }
+
+      @Override
+      public int getNumTimesSeen() {
+        return numTimesEventsSeen[index];
+      }
+    };
+  }
+}
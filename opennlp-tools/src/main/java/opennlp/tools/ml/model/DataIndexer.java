@@ -75,6 +75,16 @@ public interface DataIndexer {
    * @return The number of total events indexed.
    */
   int getNumEvents();
+
+  /**
+   * Returns the indexed events for sequential access. Trainers should prefer this over
+   * the arrays, it does not require the indexer to hold all events in memory.
+   *
+   * @return the indexed events
+   */
+  default IndexedEvents getIndexedEvents() {
+    return new ArrayIndexedEvents(this);
+  }
   
   /**
    * Sets parameters used during the data indexing.
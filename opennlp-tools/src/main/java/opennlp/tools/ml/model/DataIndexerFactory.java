@@ -50,6 +50,14 @@ public class DataIndexerFactory {
         indexer = new OnePassRealValueDataIndexer();
         break;
 
+      case AbstractEventTrainer.DATA_INDEXER_PARALLEL_VALUE:
+        indexer = new ParallelDataIndexer();
+        break;
+
+      case AbstractEventTrainer.DATA_INDEXER_MAPPED_VALUE:
+        indexer = new MappedDataIndexer();
+        break;
+
       default:
         // if the user passes in a class name for the indexer, try to instantiate the class.
         indexer = ExtensionLoader.instantiateExtension(DataIndexer.class, indexerParam);
@@ -53,9 +53,26 @@ public class EvalParameters {
     return numOutcomes;
   }
 
+  /**
+   * Adds the parameters of a predicate, scaled by the value of the predicate,
+   * to the sums of the outcomes it has parameters for.
+   *
+   * @param predicate the id of the predicate
+   * @param value the value of the predicate
+   * @param outsums the outcome sums, indexed by outcome id
+   */
+  public void addParameters(int predicate, double value, double[] outsums) {
+    Context predParams = params[predicate];
+    int[] activeOutcomes = predParams.getOutcomes();
+    double[] activeParameters = predParams.getParameters();
+    for (int ai = 0; ai < activeOutcomes.length; ai++) {
+      outsums[activeOutcomes[ai]] += activeParameters[ai] * value;
+    }
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(Arrays.hashCode(params), numOutcomes, correctionConstant);
+    return Objects.hash(Arrays.hashCode(getParams()), numOutcomes, correctionConstant);
   }
 
   @Override
@@ -67,7 +84,7 @@ public class EvalParameters {
     if (obj instanceof EvalParameters) {
       EvalParameters evalParameters = (EvalParameters) obj;
 
-      return Arrays.equals(params, evalParameters.params)
+      return Arrays.equals(getParams(), evalParameters.getParams())
           && numOutcomes == evalParameters.numOutcomes
           && correctionConstant == evalParameters.correctionConstant;
     }
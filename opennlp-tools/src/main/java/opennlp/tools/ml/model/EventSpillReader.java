@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the events of a spill file written by an {@link EventSpillWriter}.
+ * <p>
+ * The file is either read through a buffer or, for large files, mapped into memory
+ * region by region.
+ */
+class EventSpillReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The maximal size of a memory mapped region. */
+  private static final long MAX_REGION_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+
+  private final boolean memoryMapped;
+
+  private final long fileSize;
+
+  /** The file position of the first byte after the current buffer contents. */
+  private long position;
+
+  private ByteBuffer buffer;
+
+  private int outcome;
+
+  private int[] predicates = new int[16];
+
+  private int length;
+
+  /**
+   * Opens a spill file.
+   *
+   * @param file the spill file
+   * @param memoryMapped true to map the file into memory, otherwise it is read
+   *     through a buffer
+   */
+  EventSpillReader(Path file, boolean memoryMapped) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.memoryMapped = memoryMapped;
+    this.fileSize = channel.size();
+
+    if (memoryMapped) {
+      buffer = ByteBuffer.allocate(0);
+    }
+    else {
+      buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.flip();
+    }
+  }
+
+  /**
+   * Reads the next event.
+   *
+   * @return true if an event was read, false if the end of the file is reached
+   */
+  boolean next() throws IOException {
+    if (!buffer.hasRemaining() && !fill()) {
+      return false;
+    }
+
+    outcome = readInt();
+    length = readInt();
+
+    if (predicates.length < length) {
+      predicates = new int[Math.max(length, predicates.length * 2)];
+    }
+
+    for (int i = 0; i < length; i++) {
+      predicates[i] = readInt();
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the outcome id of the current event
+   */
+  int getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * @return the predicate ids of the current event, only the first
+   *     {@link #getLength()} ids are valid. The array is reused for the next event.
+   */
+  int[] getPredicates() {
+    return predicates;
+  }
+
+  /**
+   * @return the number of predicates of the current event
+   */
+  int getLength() {
+    return length;
+  }
+
+  private int readInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (!buffer.hasRemaining() && !fill()) {
+        throw new EOFException("Spill file ends within an event");
+      }
+
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Refills the empty buffer with the next bytes of the file.
+   *
+   * @return false if there are no more bytes
+   */
+  private boolean fill() throws IOException {
+    if (position >= fileSize) {
+      return false;
+    }
+
+    if (memoryMapped) {
+      long size = Math.min(MAX_REGION_SIZE, fileSize - position);
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      position += size;
+    }
+    else {
+      buffer.clear();
+      int read;
+      do {
+        read = channel.read(buffer, position);
+      }
+      while (read == 0);
+
+      if (read > 0) {
+        position += read;
+      }
+      buffer.flip();
+    }
+
+    return buffer.hasRemaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes events in a compact binary format to a spill file.
+ * <p>
+ * The events are dictionary encoded, the outcome and the predicates are written as
+ * integer ids which are assigned by the caller. Every event is written as its outcome id,
+ * the number of predicates and the predicate ids, each as an unsigned variable length
+ * integer with seven bits per byte. The file is read back with an {@link EventSpillReader}.
+ */
+class EventSpillWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The maximum number of bytes of an encoded int. */
+  private static final int MAX_INT_BYTES = 5;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  EventSpillWriter(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Writes an event.
+   *
+   * @param outcome the outcome id
+   * @param predicates the predicate ids
+   * @param length the number of predicate ids to write
+   */
+  void write(int outcome, int[] predicates, int length) throws IOException {
+    writeInt(outcome);
+    writeInt(length);
+    for (int i = 0; i < length; i++) {
+      writeInt(predicates[i]);
+    }
+  }
+
+  private void writeInt(int value) throws IOException {
+    if (buffer.remaining() < MAX_INT_BYTES) {
+      flush();
+    }
+
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      channel.close();
+    }
+  }
+}
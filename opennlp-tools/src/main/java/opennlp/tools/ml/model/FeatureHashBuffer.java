@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer for the 64-bit hashes of the features of an event, it allows
+ * feature generators to describe an event without building feature strings.
+ * <p>
+ * The hash of a feature is computed incrementally over its chars, starting with
+ * {@link #getPrefix()}, and added with {@link #add(long)}. The result equals
+ * {@link #hash(CharSequence)} of the feature string with the prefix, so a
+ * feature generator can hash the parts of a feature without concatenating them and
+ * a generator which wraps other generators can prefix their features with
+ * {@link #setPrefix(long)}. A model maps the hashes back to its predicates, see
+ * {@link MaxentModel#eval(FeatureHashBuffer, double[])}.
+ * <p>
+ * The chars are hashed with the 64-bit FNV-1a function, which is finalized with
+ * the MurmurHash3 mixing function. The hashes of distinct features are not guaranteed
+ * to differ, but with 64 bits a collision between the features of a model is unlikely.
+ * <p>
+ * These hashes identify the features exactly, they are not related to the buckets
+ * of the {@link FeatureHasher}.
+ * <p>
+ * The buffer is not thread safe, usually every thread reuses its own buffer.
+ */
+public final class FeatureHashBuffer {
+
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long PRIME = 0x100000001b3L;
+
+  private long[] hashes = new long[64];
+
+  private int size;
+
+  private long prefix = OFFSET_BASIS;
+
+  /** Reused by the models to look up the predicates of the features. */
+  private int[] predicates = new int[0];
+
+  /**
+   * Continues the hash of a feature with a char.
+   *
+   * @param state the hash state, e.g. {@link #getPrefix()}
+   * @param c the char
+   *
+   * @return the new hash state
+   */
+  public static long append(long state, char c) {
+    return (state ^ c) * PRIME;
+  }
+
+  /**
+   * Continues the hash of a feature with chars.
+   *
+   * @param state the hash state, e.g. {@link #getPrefix()}
+   * @param chars the chars
+   *
+   * @return the new hash state
+   */
+  public static long append(long state, CharSequence chars) {
+    return append(state, chars, 0, chars.length());
+  }
+
+  /**
+   * Continues the hash of a feature with a range of chars.
+   *
+   * @param state the hash state, e.g. {@link #getPrefix()}
+   * @param chars the chars
+   * @param start the index of the first char
+   * @param end the index after the last char
+   *
+   * @return the new hash state
+   */
+  public static long append(long state, CharSequence chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      state = (state ^ chars.charAt(i)) * PRIME;
+    }
+    return state;
+  }
+
+  /**
+   * Continues the hash of a feature with the chars lower cased like
+   * {@link opennlp.tools.util.StringUtil#toLowerCase(CharSequence)}.
+   *
+   * @param state the hash state, e.g. {@link #getPrefix()}
+   * @param chars the chars
+   *
+   * @return the new hash state
+   */
+  public static long appendLowerCase(long state, CharSequence chars) {
+    for (int i = 0; i < chars.length(); i++) {
+      state = (state ^ Character.toLowerCase(chars.charAt(i))) * PRIME;
+    }
+    return state;
+  }
+
+  /**
+   * Continues the hash of a feature with the decimal representation of a number,
+   * like {@link Integer#toString(int)}.
+   *
+   * @param state the hash state, e.g. {@link #getPrefix()}
+   * @param number the number
+   *
+   * @return the new hash state
+   */
+  public static long append(long state, int number) {
+    if (number < 0) {
+      state = append(state, '-');
+    }
+
+    // the digits are appended from the most significant one, the
+    // number is negated to also handle Integer.MIN_VALUE
+    int negative = number < 0 ? number : -number;
+    int divisor = 1;
+    while (negative / divisor <= -10) {
+      divisor *= 10;
+    }
+    while (divisor != 0) {
+      state = append(state, (char) ('0' - negative / divisor % 10));
+      divisor /= 10;
+    }
+    return state;
+  }
+
+  private static long finish(long state) {
+    state ^= state >>> 33;
+    state *= 0xff51afd7ed558ccdL;
+    state ^= state >>> 33;
+    state *= 0xc4ceb9fe1a85ec53L;
+    state ^= state >>> 33;
+    return state;
+  }
+
+  /**
+   * Computes the hash of a feature string, it equals the hash which is added for the
+   * same chars without prefix.
+   *
+   * @param feature the feature
+   *
+   * @return the hash
+   */
+  public static long hash(CharSequence feature) {
+    return finish(append(OFFSET_BASIS, feature));
+  }
+
+  /**
+   * Retrieves the hash state every feature starts with, the hash state of the
+   * prefix which is set or the initial hash state.
+   *
+   * @return the hash state of the prefix
+   */
+  public long getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Sets the hash state every feature starts with. A generator which prefixes the
+   * features of other generators appends the prefix to the current prefix and restores
+   * the previous prefix afterwards.
+   *
+   * @param prefix the hash state of the prefix
+   */
+  public void setPrefix(long prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * Adds a feature.
+   *
+   * @param state the hash state after the last char of the feature
+   */
+  public void add(long state) {
+    if (size == hashes.length) {
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    hashes[size++] = finish(state);
+  }
+
+  /**
+   * Adds a feature string, the prefix is prepended.
+   *
+   * @param feature the feature
+   */
+  public void add(CharSequence feature) {
+    add(append(prefix, feature));
+  }
+
+  /**
+   * Adds the hashes of another buffer, e.g. cached ones.
+   *
+   * @param features the hashes of the features
+   * @param length the number of hashes to add
+   */
+  public void addAll(long[] features, int length) {
+    if (size + length > hashes.length) {
+      hashes = Arrays.copyOf(hashes, Math.max(size + length, size * 2));
+    }
+    System.arraycopy(features, 0, hashes, size, length);
+    size += length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Retrieves the hash of a feature.
+   *
+   * @param index the index of the feature, in the order they were added
+   *
+   * @return the hash
+   */
+  public long get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return hashes[index];
+  }
+
+  /**
+   * Copies the hashes of the features.
+   *
+   * @return the hashes, in the order they were added
+   */
+  public long[] toArray() {
+    return Arrays.copyOf(hashes, size);
+  }
+
+  /**
+   * Removes all features and the prefix, the allocated memory is kept.
+   */
+  public void clear() {
+    size = 0;
+    prefix = OFFSET_BASIS;
+  }
+
+  /**
+   * Retrieves an array for the predicates of the features which is reused between events.
+   */
+  int[] getPredicateBuffer() {
+    if (predicates.length < size) {
+      predicates = new int[hashes.length];
+    }
+    return predicates;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.util.Arrays;
+
+/**
+ * Maps the {@link FeatureHashBuffer} hashes of the predicates of a model to their ids,
+ * in an open addressing hash table with linear probing like the {@link PredicateIndex}.
+ * If two predicates have the same hash the predicate with the smaller id is used.
+ */
+final class FeatureHashIndex {
+
+  private final long[] hashes;
+
+  /** Each slot holds a predicate id or {@link PredicateIndex#EMPTY}. */
+  private final int[] table;
+
+  private final int mask;
+
+  FeatureHashIndex(PredicateIndex predicateIndex) {
+    int capacity = PredicateIndex.tableSize(predicateIndex.size());
+    hashes = new long[capacity];
+    table = new int[capacity];
+    mask = capacity - 1;
+    Arrays.fill(table, PredicateIndex.EMPTY);
+
+    for (int pi = 0; pi < predicateIndex.size(); pi++) {
+      long hash = FeatureHashBuffer.hash(predicateIndex.getPredicate(pi));
+
+      int slot = (int) hash & mask;
+      while (table[slot] != PredicateIndex.EMPTY && hashes[slot] != hash) {
+        slot = (slot + 1) & mask;
+      }
+
+      if (table[slot] == PredicateIndex.EMPTY) {
+        hashes[slot] = hash;
+        table[slot] = pi;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the id of the predicate with a hash.
+   *
+   * @param hash the hash of the predicate
+   *
+   * @return the id of the predicate or -1 if no predicate has the hash
+   */
+  int get(long hash) {
+    int slot = (int) hash & mask;
+
+    int pi;
+    while ((pi = table[slot]) != PredicateIndex.EMPTY) {
+      if (hashes[slot] == hash) {
+        return pi;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+}
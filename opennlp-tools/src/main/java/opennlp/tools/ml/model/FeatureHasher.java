@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+/**
+ * Maps features to a fixed number of buckets with the hashing trick, instead of
+ * keeping a dictionary of all feature strings.
+ * <p>
+ * A feature is hashed with the 32 bit x86 variant of MurmurHash3 over its UTF-16 code
+ * units in little endian order with a seed of 0, the bucket is made of the lowest bits of the hash.
+ * The hash function is part of the model format and must never change, models trained with
+ * hashed features only contain the numbers of the buckets as predicates, see
+ * {@link AbstractModel#enableFeatureHashing(FeatureHasher)}.
+ * <p>
+ * Distinct features which fall into the same bucket share their parameters.
+ */
+public final class FeatureHasher {
+
+  /**
+   * The manifest property of a model package which holds the number of bits of the
+   * feature hashing, the models of the package are evaluated with hashed features.
+   */
+  public static final String MANIFEST_PROPERTY = "FeatureHashing-Bits";
+
+  public static final int MAX_BITS = 30;
+
+  private static final int C1 = 0xcc9e2d51;
+  private static final int C2 = 0x1b873593;
+
+  private final int bits;
+  private final int mask;
+
+  /**
+   * Initializes the hasher.
+   *
+   * @param bits the number of bits of a bucket, features are hashed into 2^bits buckets
+   */
+  public FeatureHasher(int bits) {
+    if (bits < 1 || bits > MAX_BITS) {
+      throw new IllegalArgumentException("Number of bits must be between 1 and " + MAX_BITS
+          + ": " + bits);
+    }
+
+    this.bits = bits;
+    this.mask = (1 << bits) - 1;
+  }
+
+  public int getBits() {
+    return bits;
+  }
+
+  public int getNumBuckets() {
+    return mask + 1;
+  }
+
+  /**
+   * Retrieves the bucket of a feature.
+   *
+   * @param feature the feature
+   *
+   * @return the bucket, between 0 and the number of buckets - 1
+   */
+  public int bucket(CharSequence feature) {
+    return murmurHash3(feature, 0) & mask;
+  }
+
+  /**
+   * Retrieves the predicate which represents a bucket in a model.
+   *
+   * @param bucket the bucket
+   *
+   * @return the predicate
+   */
+  public String label(int bucket) {
+    return Integer.toString(bucket);
+  }
+
+  /**
+   * Parses the bucket of a predicate which was created by {@link #label(int)}.
+   *
+   * @param label the predicate
+   *
+   * @return the bucket or -1 if the predicate does not represent a bucket of this hasher
+   */
+  public int parseLabel(String label) {
+    int bucket = 0;
+    for (int i = 0; i < label.length(); i++) {
+      char c = label.charAt(i);
+      if (c < '0' || c > '9' || (i == 0 && c == '0' && label.length() > 1)) {
+        return -1;
+      }
+
+      bucket = bucket * 10 + (c - '0');
+      if (bucket > mask) {
+        return -1;
+      }
+    }
+    return label.isEmpty() ? -1 : bucket;
+  }
+
+  /**
+   * Replaces the features of a context with the predicates of their buckets.
+   *
+   * @param context the features
+   *
+   * @return the predicates of the buckets
+   */
+  public String[] hash(String[] context) {
+    String[] hashed = new String[context.length];
+    for (int ci = 0; ci < context.length; ci++) {
+      hashed[ci] = label(bucket(context[ci]));
+    }
+    return hashed;
+  }
+
+  /**
+   * Computes the 32 bit x86 MurmurHash3 of the UTF-16LE encoding of the characters, without
+   * encoding them. Two characters form a block of four bytes.
+   *
+   * @param chars the characters
+   * @param seed the seed
+   *
+   * @return the hash
+   */
+  public static int murmurHash3(CharSequence chars, int seed) {
+    int h = seed;
+    int length = chars.length();
+
+    int i = 0;
+    for (; i + 1 < length; i += 2) {
+      int k = chars.charAt(i) | (chars.charAt(i + 1) << 16);
+
+      k *= C1;
+      k = Integer.rotateLeft(k, 15);
+      k *= C2;
+
+      h ^= k;
+      h = Integer.rotateLeft(h, 13);
+      h = h * 5 + 0xe6546b64;
+    }
+
+    if (i < length) {
+      int k = chars.charAt(i);
+
+      k *= C1;
+      k = Integer.rotateLeft(k, 15);
+      k *= C2;
+
+      h ^= k;
+    }
+
+    // the length of the data in bytes
+    h ^= length * 2;
+
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+
+    return h;
+  }
+
+  @Override
+  public int hashCode() {
+    return bits;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj == this || obj instanceof FeatureHasher && ((FeatureHasher) obj).bits == bits;
+  }
+}
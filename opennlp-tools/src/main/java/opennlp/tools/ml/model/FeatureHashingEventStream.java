@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+
+import opennlp.tools.util.FilterObjectStream;
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * An event stream which replaces the predicates of the events with the buckets
+ * of a {@link FeatureHasher}, the values and outcomes are kept.
+ */
+public class FeatureHashingEventStream extends FilterObjectStream<Event, Event> {
+
+  private final FeatureHasher hasher;
+
+  public FeatureHashingEventStream(ObjectStream<Event> events, FeatureHasher hasher) {
+    super(events);
+    this.hasher = hasher;
+  }
+
+  @Override
+  public Event read() throws IOException {
+    Event event = samples.read();
+
+    if (event != null) {
+      return new Event(event.getOutcome(), hasher.hash(event.getContext()), event.getValues());
+    }
+
+    return null;
+  }
+}
@@ -52,6 +52,9 @@ public class GenericModelReader extends AbstractModelReader {
       case "NaiveBayes":
         delegateModelReader = new NaiveBayesModelReader(this.dataReader);
         break;
+      case QuantizedModelReader.MODEL_TYPE:
+        delegateModelReader = new QuantizedModelReader(this.dataReader);
+        break;
       default:
         throw new IOException("Unknown model format: " + modelType);
     }
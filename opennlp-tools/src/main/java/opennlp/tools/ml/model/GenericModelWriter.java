@@ -53,14 +53,17 @@ public class GenericModelWriter extends AbstractModelWriter {
   }
 
   private void init(AbstractModel model, DataOutputStream dos) {
-    if (model.getModelType() == ModelType.Perceptron) {
+    // a quantized model is written in its compact form, whatever its model type is
+    if (model.evalParams instanceof QuantizedEvalParameters) {
+      delegateWriter = new QuantizedModelWriter(model,
+          ((QuantizedEvalParameters) model.evalParams).getQuantization(), dos);
+    } else if (model.getModelType() == ModelType.Perceptron) {
       delegateWriter = new BinaryPerceptronModelWriter(model, dos);
     } else if (model.getModelType() == ModelType.Maxent) {
       delegateWriter = new BinaryGISModelWriter(model, dos);
     } else if (model.getModelType() == ModelType.MaxentQn) {
       delegateWriter = new BinaryQNModelWriter(model, dos);
-    }
-    if (model.getModelType() == ModelType.NaiveBayes) {
+    } else if (model.getModelType() == ModelType.NaiveBayes) {
       delegateWriter = new BinaryNaiveBayesModelWriter(model, dos);
     }
   }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+/**
+ * A {@link PredicateIndex} of a model which was trained with hashed features. The index
+ * only holds the buckets which have parameters, predicates are hashed to their bucket on
+ * lookup and the predicate labels are the numbers of the buckets.
+ */
+final class HashedPredicateIndex extends PredicateIndex {
+
+  private final FeatureHasher hasher;
+
+  /** The bucket of each predicate, indexed by predicate id. */
+  private final int[] buckets;
+
+  /** The hash table, each slot holds a predicate id or {@link #EMPTY}. */
+  private final int[] table;
+
+  private final int mask;
+
+  HashedPredicateIndex(FeatureHasher hasher, int[] buckets) {
+    this.hasher = hasher;
+    this.buckets = buckets;
+
+    int capacity = tableSize(buckets.length);
+    this.table = new int[capacity];
+    this.mask = capacity - 1;
+
+    for (int i = 0; i < table.length; i++) {
+      table[i] = EMPTY;
+    }
+
+    for (int pi = 0; pi < buckets.length; pi++) {
+      int slot = hash(buckets[pi]) & mask;
+      while (table[slot] != EMPTY) {
+        if (buckets[table[slot]] == buckets[pi]) {
+          throw new IllegalArgumentException("Duplicate bucket: " + buckets[pi]);
+        }
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = pi;
+    }
+  }
+
+  FeatureHasher getFeatureHasher() {
+    return hasher;
+  }
+
+  private static int hash(int bucket) {
+    // the buckets are the low bits of a hash already, this only breaks up sequential numbers
+    return bucket * 0x9E3779B9 >>> 16;
+  }
+
+  private int find(int bucket) {
+    int slot = hash(bucket) & mask;
+
+    int pi;
+    while ((pi = table[slot]) != EMPTY) {
+      if (buckets[pi] == bucket) {
+        return pi;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  @Override
+  public int get(String predicate) {
+    return find(hasher.bucket(predicate));
+  }
+
+  @Override
+  int indexOf(String label) {
+    int bucket = hasher.parseLabel(label);
+    return bucket != -1 ? find(bucket) : -1;
+  }
+
+  @Override
+  public String getPredicate(int id) {
+    return hasher.label(buckets[id]);
+  }
+
+  @Override
+  public int size() {
+    return buckets.length;
+  }
+}
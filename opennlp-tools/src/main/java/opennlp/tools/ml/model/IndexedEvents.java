@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+/**
+ * Provides sequential access to the events of a {@link DataIndexer}.
+ * <p>
+ * Unlike the arrays of the {@link DataIndexer} the events do not have to be held in
+ * memory, an implementation can read them from disk while they are iterated.
+ * Multiple cursors can be used concurrently, but a single cursor must
+ * only be used by one thread.
+ */
+public interface IndexedEvents {
+
+  /**
+   * Iterates over a range of the indexed events.
+   */
+  interface Cursor {
+
+    /**
+     * Moves to the next event.
+     *
+     * @return false if there are no more events in the range
+     */
+    boolean next();
+
+    /**
+     * @return the index of the current event
+     */
+    int getIndex();
+
+    /**
+     * @return the predicate indexes of the current event, the array may
+     *     be reused once the cursor moves to the next event
+     */
+    int[] getContext();
+
+    /**
+     * @return the values of the predicates of the current event or null if all
+     *     values are 1, the array may be reused once the cursor moves to the next event
+     */
+    float[] getValues();
+
+    /**
+     * @return the outcome index of the current event
+     */
+    int getOutcome();
+
+    /**
+     * @return the number of times the current event was seen
+     */
+    int getNumTimesSeen();
+  }
+
+  /**
+   * @return the number of indexed events
+   */
+  int size();
+
+  /**
+   * Creates a cursor which is positioned before the first event of the range.
+   *
+   * @param start the index of the first event, inclusive
+   * @param end the index of the last event, exclusive
+   *
+   * @return the cursor
+   */
+  Cursor cursor(int start, int end);
+
+  /**
+   * Creates a cursor over all events.
+   *
+   * @return the cursor
+   */
+  default Cursor cursor() {
+    return cursor(0, size());
+  }
+}
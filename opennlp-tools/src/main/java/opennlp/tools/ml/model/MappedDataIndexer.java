@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.util.InsufficientTrainingDataException;
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * An indexer for maxent model data which stores the indexed events in memory mapped files
+ * instead of the heap, the size of the training data is limited by the disk space.
+ * <p>
+ * The first pass counts the predicates and writes the events to a temporary file in the
+ * compact format of the {@link TwoPassDataIndexer}. The second pass indexes the events and
+ * writes them column by column to files which are mapped into memory: the offsets of the
+ * events, their outcomes, the predicate indexes and, if any event has values, the values.
+ * The files are deleted once they are mapped, the operating system keeps them until
+ * the indexer is garbage collected.
+ * <p>
+ * The events are kept in the order of the stream and are never merged, {@link #SORT_PARAM}
+ * is ignored and every event is seen once. Trainers should read the events through
+ * {@link #getIndexedEvents()}, the arrays of the {@link DataIndexer} interface are
+ * only loaded into memory on request.
+ */
+public class MappedDataIndexer extends AbstractDataIndexer {
+
+  /**
+   * The directory for the files of the indexed events, by default the
+   * directory for temporary files.
+   */
+  public static final String DIRECTORY_PARAM = "MappedEventsDirectory";
+
+  private int numEvents;
+
+  private MappedColumn offsets;
+  private MappedColumn outcomes;
+  private MappedColumn predicates;
+  private MappedColumn values;
+
+  private float[][] loadedValues;
+
+  public MappedDataIndexer() {
+  }
+
+  @Override
+  public void index(ObjectStream<Event> eventStream) throws IOException {
+    int cutoff = trainingParameters.getIntParameter(CUTOFF_PARAM, CUTOFF_DEFAULT);
+    String directory = trainingParameters.getStringParameter(DIRECTORY_PARAM,
+        System.getProperty("java.io.tmpdir"));
+
+    display("Indexing events using cutoff of " + cutoff + "\n\n");
+
+    Path dir = Files.createTempDirectory(Paths.get(directory), "opennlp-events");
+    Path spillFile = dir.resolve("spill");
+    Path spillValuesFile = dir.resolve("spill-values");
+    Path offsetsFile = dir.resolve("offsets");
+    Path outcomesFile = dir.resolve("outcomes");
+    Path predicatesFile = dir.resolve("predicates");
+    Path valuesFile = dir.resolve("values");
+
+    try {
+      display("\tComputing event counts...  ");
+
+      Map<String, Integer> outcomeIds = new HashMap<>();
+      List<String> spillPredicates = new ArrayList<>();
+      int[] spillCounts;
+      boolean hasValues = false;
+      int numReadEvents = 0;
+
+      try (EventSpillWriter spillWriter = new EventSpillWriter(spillFile);
+           DataOutputStream valuesOut = createOutputStream(spillValuesFile)) {
+
+        Map<String, Integer> spillIds = new HashMap<>();
+        spillCounts = new int[1024];
+        int[] spillContext = new int[16];
+
+        Event ev;
+        while ((ev = eventStream.read()) != null) {
+          numReadEvents++;
+
+          Integer outcomeId = outcomeIds.get(ev.getOutcome());
+          if (outcomeId == null) {
+            outcomeId = outcomeIds.size();
+            outcomeIds.put(ev.getOutcome(), outcomeId);
+          }
+
+          String[] ec = ev.getContext();
+          if (spillContext.length < ec.length) {
+            spillContext = new int[ec.length];
+          }
+
+          for (int ci = 0; ci < ec.length; ci++) {
+            Integer spillId = spillIds.get(ec[ci]);
+            if (spillId == null) {
+              spillId = spillPredicates.size();
+              spillIds.put(ec[ci], spillId);
+              spillPredicates.add(ec[ci]);
+
+              if (spillId == spillCounts.length) {
+                spillCounts = Arrays.copyOf(spillCounts, spillCounts.length * 2);
+              }
+            }
+            spillCounts[spillId]++;
+            spillContext[ci] = spillId;
+          }
+
+          spillWriter.write(outcomeId, spillContext, ec.length);
+
+          float[] eventValues = ev.getValues();
+          valuesOut.writeBoolean(eventValues != null);
+          if (eventValues != null) {
+            hasValues = true;
+            for (int ci = 0; ci < ec.length; ci++) {
+              valuesOut.writeFloat(eventValues[ci]);
+            }
+          }
+        }
+      }
+      display("done. " + numReadEvents + " events\n");
+
+      // the predicates are indexed in lexicographic order
+      List<String> selectedPredicates = new ArrayList<>();
+      for (int si = 0; si < spillPredicates.size(); si++) {
+        if (spillCounts[si] >= cutoff) {
+          selectedPredicates.add(spillPredicates.get(si));
+        }
+      }
+      Collections.sort(selectedPredicates);
+
+      Map<String, Integer> predicateIndex = new HashMap<>();
+      predLabels = selectedPredicates.toArray(new String[selectedPredicates.size()]);
+      predCounts = new int[predLabels.length];
+      for (int pi = 0; pi < predLabels.length; pi++) {
+        predicateIndex.put(predLabels[pi], pi);
+      }
+
+      // maps the spill ids to the predicate indexes, -1 if the predicate is cut off
+      int[] spillToPredicateIndex = new int[spillPredicates.size()];
+      for (int si = 0; si < spillToPredicateIndex.length; si++) {
+        Integer pi = predicateIndex.get(spillPredicates.get(si));
+        spillToPredicateIndex[si] = pi != null ? pi : -1;
+        if (pi != null) {
+          predCounts[pi] = spillCounts[si];
+        }
+      }
+      spillPredicates = null;
+      spillCounts = null;
+
+      outcomeLabels = toIndexedStringArray(outcomeIds);
+
+      display("\tIndexing...  ");
+
+      try (EventSpillReader spillReader = new EventSpillReader(spillFile, true);
+           DataInputStream valuesIn = new DataInputStream(new BufferedInputStream(
+               Files.newInputStream(spillValuesFile), 64 * 1024));
+           DataOutputStream offsetsOut = createOutputStream(offsetsFile);
+           DataOutputStream outcomesOut = createOutputStream(outcomesFile);
+           DataOutputStream predicatesOut = createOutputStream(predicatesFile);
+           DataOutputStream valuesOut = hasValues ? createOutputStream(valuesFile) : null) {
+
+        long offset = 0;
+        offsetsOut.writeLong(offset);
+
+        float[] eventValues = new float[16];
+
+        while (spillReader.next()) {
+          int[] spillContext = spillReader.getPredicates();
+          int length = spillReader.getLength();
+
+          boolean eventHasValues = valuesIn.readBoolean();
+          if (eventHasValues) {
+            if (eventValues.length < length) {
+              eventValues = new float[length];
+            }
+            for (int ci = 0; ci < length; ci++) {
+              eventValues[ci] = valuesIn.readFloat();
+            }
+          }
+
+          int indexedLength = 0;
+          for (int ci = 0; ci < length; ci++) {
+            int pi = spillToPredicateIndex[spillContext[ci]];
+            if (pi != -1) {
+              predicatesOut.writeInt(pi);
+              if (valuesOut != null) {
+                valuesOut.writeFloat(eventHasValues ? eventValues[ci] : 1);
+              }
+              indexedLength++;
+            }
+          }
+
+          // drop events with no active features
+          if (indexedLength > 0) {
+            offset += indexedLength;
+            offsetsOut.writeLong(offset);
+            outcomesOut.writeInt(spillReader.getOutcome());
+            numEvents++;
+          }
+        }
+      }
+
+      if (numEvents == 0) {
+        throw new InsufficientTrainingDataException("Insufficient training data to create model.");
+      }
+
+      offsets = MappedColumn.map(offsetsFile);
+      outcomes = MappedColumn.map(outcomesFile);
+      predicates = MappedColumn.map(predicatesFile);
+      if (hasValues) {
+        values = MappedColumn.map(valuesFile);
+      }
+      display("done.\n");
+
+      if (numEvents < numReadEvents) {
+        display("\tDropped " + (numReadEvents - numEvents) + " events without indexed predicates\n");
+      }
+    }
+    finally {
+      for (Path file : new Path[] {spillFile, spillValuesFile, offsetsFile, outcomesFile,
+          predicatesFile, valuesFile, dir}) {
+        delete(file);
+      }
+    }
+
+    display("Done indexing " + numEvents + " events.\n");
+  }
+
+  private static DataOutputStream createOutputStream(Path file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    }
+    catch (IOException e) {
+      // mapped files can't be deleted on some platforms
+      File toDelete = file.toFile();
+      toDelete.deleteOnExit();
+    }
+  }
+
+  @Override
+  public int getNumEvents() {
+    return numEvents;
+  }
+
+  @Override
+  public IndexedEvents getIndexedEvents() {
+    return new IndexedEvents() {
+      @Override
+      public int size() {
+        return numEvents;
+      }
+
+      @Override
+      public Cursor cursor(int start, int end) {
+        if (start < 0 || end > numEvents || start > end) {
+          throw new IndexOutOfBoundsException("Invalid range: " + start + " to " + end);
+        }
+        return new MappedCursor(start, end);
+      }
+    };
+  }
+
+  /**
+   * Loads all contexts into memory.
+   */
+  @Override
+  public synchronized int[][] getContexts() {
+    if (contexts == null) {
+      loadEvents();
+    }
+    return contexts;
+  }
+
+  /**
+   * Loads all outcomes into memory.
+   */
+  @Override
+  public synchronized int[] getOutcomeList() {
+    if (outcomeList == null) {
+      loadEvents();
+    }
+    return outcomeList;
+  }
+
+  @Override
+  public synchronized int[] getNumTimesEventsSeen() {
+    if (numTimesEventsSeen == null) {
+      numTimesEventsSeen = new int[numEvents];
+      Arrays.fill(numTimesEventsSeen, 1);
+    }
+    return numTimesEventsSeen;
+  }
+
+  /**
+   * Loads all values into memory.
+   */
+  @Override
+  public synchronized float[][] getValues() {
+    if (values != null && loadedValues == null) {
+      loadEvents();
+    }
+    return loadedValues;
+  }
+
+  private void loadEvents() {
+    int[][] loadedContexts = new int[numEvents][];
+    float[][] eventValues = values != null ? new float[numEvents][] : null;
+    int[] loadedOutcomes = new int[numEvents];
+
+    IndexedEvents.Cursor cursor = getIndexedEvents().cursor();
+    while (cursor.next()) {
+      int ei = cursor.getIndex();
+      loadedContexts[ei] = cursor.getContext().clone();
+      loadedOutcomes[ei] = cursor.getOutcome();
+      if (eventValues != null) {
+        eventValues[ei] = cursor.getValues().clone();
+      }
+    }
+
+    contexts = loadedContexts;
+    outcomeList = loadedOutcomes;
+    loadedValues = eventValues;
+  }
+
+  /**
+   * Reads the events from the mapped files, the arrays of the contexts and values are
+   * reused for all events of the same length.
+   */
+  private final class MappedCursor implements IndexedEvents.Cursor {
+
+    private final int end;
+    private int index;
+
+    private int[][] contextsByLength = new int[32][];
+    private float[][] valuesByLength = new float[32][];
+
+    private int[] context;
+    private float[] contextValues;
+
+    MappedCursor(int start, int end) {
+      this.index = start - 1;
+      this.end = end;
+    }
+
+    @Override
+    public boolean next() {
+      if (index + 1 >= end) {
+        return false;
+      }
+      index++;
+
+      long offset = offsets.getLong(index);
+      int length = (int) (offsets.getLong(index + 1) - offset);
+
+      if (contextsByLength.length <= length) {
+        contextsByLength = Arrays.copyOf(contextsByLength, length + 1);
+        valuesByLength = Arrays.copyOf(valuesByLength, length + 1);
+      }
+
+      context = contextsByLength[length];
+      if (context == null) {
+        context = new int[length];
+        contextsByLength[length] = context;
+      }
+
+      for (int ci = 0; ci < length; ci++) {
+        context[ci] = predicates.getInt(offset + ci);
+      }
+
+      if (values != null) {
+        contextValues = valuesByLength[length];
+        if (contextValues == null) {
+          contextValues = new float[length];
+          valuesByLength[length] = contextValues;
+        }
+
+        for (int ci = 0; ci < length; ci++) {
+          contextValues[ci] = values.getFloat(offset + ci);
+        }
+      }
+
+      return true;
+    }
+
+    @Override
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public int[] getContext() {
+      return context;
+    }
+
+    @Override
+    public float[] getValues() {
+      return contextValues;
+    }
+
+    @Override
+    public int getOutcome() {
+      return outcomes.getInt(index);
+    }
+
+    @Override
+    public int getNumTimesSeen() {
+      return 1;
+    }
+  }
+
+  /**
+   * A read only file of big endian ints, floats or longs, which is mapped into memory in
+   * regions of 1 GB since a single mapping is limited to 2 GB.
+   */
+  private static final class MappedColumn {
+
+    private static final int REGION_SHIFT = 30;
+    private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+
+    private final ByteBuffer[] regions;
+
+    private MappedColumn(ByteBuffer[] regions) {
+      this.regions = regions;
+    }
+
+    static MappedColumn map(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        long size = channel.size();
+        ByteBuffer[] regions = new ByteBuffer[(int) ((size + REGION_MASK) >>> REGION_SHIFT)];
+        for (int ri = 0; ri < regions.length; ri++) {
+          long position = (long) ri << REGION_SHIFT;
+          regions[ri] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(size - position, 1L << REGION_SHIFT));
+        }
+        return new MappedColumn(regions);
+      }
+    }
+
+    int getInt(long index) {
+      long position = index << 2;
+      return regions[(int) (position >>> REGION_SHIFT)].getInt((int) (position & REGION_MASK));
+    }
+
+    float getFloat(long index) {
+      long position = index << 2;
+      return regions[(int) (position >>> REGION_SHIFT)].getFloat((int) (position & REGION_MASK));
+    }
+
+    long getLong(long index) {
+      long position = index << 3;
+      return regions[(int) (position >>> REGION_SHIFT)].getLong((int) (position & REGION_MASK));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * {@link EvalParameters} which operate directly on the parameter tables of a
+ * memory-mapped model file, see {@link MappedModelWriter} for the layout.
+ * <p>
+ * The outcome patterns are shared between predicates like in the other model
+ * formats. The {@link Context} objects are only created if {@link #getParams()}
+ * is called, evaluating the model does not need them.
+ */
+final class MappedEvalParameters extends EvalParameters {
+
+  /** The outcome pattern of each predicate, indexed by predicate id. */
+  private final IntBuffer patternIds;
+
+  /** The offset of each pattern in the pattern outcomes, followed by the end offset. */
+  private final IntBuffer patternOffsets;
+
+  private final IntBuffer patternOutcomes;
+
+  /** The offset of the parameters of each predicate, followed by the end offset. */
+  private final IntBuffer parameterOffsets;
+
+  private final DoubleBuffer parameters;
+
+  private volatile Context[] params;
+
+  MappedEvalParameters(int numOutcomes, IntBuffer patternIds, IntBuffer patternOffsets,
+      IntBuffer patternOutcomes, IntBuffer parameterOffsets, DoubleBuffer parameters) {
+    super(null, numOutcomes);
+    this.patternIds = patternIds;
+    this.patternOffsets = patternOffsets;
+    this.patternOutcomes = patternOutcomes;
+    this.parameterOffsets = parameterOffsets;
+    this.parameters = parameters;
+  }
+
+  @Override
+  public void addParameters(int predicate, double value, double[] outsums) {
+    int pattern = patternIds.get(predicate);
+    int outcomeStart = patternOffsets.get(pattern);
+    int length = patternOffsets.get(pattern + 1) - outcomeStart;
+    int parameterStart = parameterOffsets.get(predicate);
+
+    for (int ai = 0; ai < length; ai++) {
+      outsums[patternOutcomes.get(outcomeStart + ai)] += parameters.get(parameterStart + ai) * value;
+    }
+  }
+
+  @Override
+  public Context[] getParams() {
+    Context[] result = params;
+    if (result == null) {
+      synchronized (this) {
+        result = params;
+        if (result == null) {
+          params = result = createParams();
+        }
+      }
+    }
+    return result;
+  }
+
+  private Context[] createParams() {
+    int numPatterns = patternOffsets.capacity() - 1;
+    int[][] outcomePatterns = new int[numPatterns][];
+    for (int i = 0; i < numPatterns; i++) {
+      int start = patternOffsets.get(i);
+      outcomePatterns[i] = new int[patternOffsets.get(i + 1) - start];
+      for (int j = 0; j < outcomePatterns[i].length; j++) {
+        outcomePatterns[i][j] = patternOutcomes.get(start + j);
+      }
+    }
+
+    Context[] contexts = new Context[patternIds.capacity()];
+    for (int pi = 0; pi < contexts.length; pi++) {
+      int start = parameterOffsets.get(pi);
+      double[] predParams = new double[parameterOffsets.get(pi + 1) - start];
+      for (int i = 0; i < predParams.length; i++) {
+        predParams[i] = parameters.get(start + i);
+      }
+      contexts[pi] = new Context(outcomePatterns[patternIds.get(pi)], predParams);
+    }
+    return contexts;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import opennlp.tools.ml.maxent.GISModel;
+import opennlp.tools.ml.maxent.quasinewton.QNModel;
+import opennlp.tools.ml.perceptron.PerceptronModel;
+
+/**
+ * Reads a model which was written by the {@link MappedModelWriter}.
+ * <p>
+ * The file is mapped into memory read-only and the returned model uses the mapped
+ * tables in place, only the outcome labels are copied onto the heap. The mapping stays
+ * valid as long as the model is referenced, the file must not be modified meanwhile.
+ * The returned models are safe to use from multiple threads.
+ */
+public class MappedModelReader {
+
+  private final ByteBuffer buffer;
+
+  /** The position of the next table in the buffer. */
+  private int position;
+
+  /**
+   * Initializes the reader with a model file, the file is mapped into memory.
+   *
+   * @param file the model file
+   */
+  public MappedModelReader(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Mapped model files larger than 2GB are not supported: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Initializes the reader with a buffer which holds the contents of a model file.
+   *
+   * @param buffer the model contents, the buffer must not be modified afterwards
+   */
+  public MappedModelReader(ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+  }
+
+  private ByteBuffer nextTable(int length, int elementSize) throws IOException {
+    long size = (long) length * elementSize;
+    if (length < 0 || position + size > buffer.capacity()) {
+      throw new IOException("Invalid mapped model, a table exceeds the end of the file");
+    }
+
+    ByteBuffer table = buffer.duplicate();
+    table.position(position);
+    table.limit(position + (int) size);
+
+    // tables start at multiples of eight bytes
+    position = (int) Math.min(buffer.capacity(), (position + size + 7) & ~7L);
+
+    return table.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private IntBuffer nextInts(int length) throws IOException {
+    return nextTable(length, Integer.BYTES).asIntBuffer();
+  }
+
+  private CharBuffer nextChars(int length) throws IOException {
+    return nextTable(length, Character.BYTES).asCharBuffer();
+  }
+
+  private DoubleBuffer nextDoubles(int length) throws IOException {
+    return nextTable(length, Double.BYTES).asDoubleBuffer();
+  }
+
+  /**
+   * Reads the model, the tables of the returned model are backed by the mapped file.
+   *
+   * @return the model
+   */
+  public AbstractModel getModel() throws IOException {
+    position = 0;
+
+    IntBuffer header = nextInts(MappedModelWriter.HEADER_INTS);
+    if (header.get(0) != MappedModelWriter.MAGIC) {
+      throw new IOException("Not a mapped model file");
+    }
+    if (header.get(1) != MappedModelWriter.VERSION) {
+      throw new IOException("Unsupported mapped model version: " + header.get(1));
+    }
+
+    int modelType = header.get(2);
+    int numOutcomes = header.get(3);
+    int numPreds = header.get(4);
+    int tableSize = header.get(5);
+    int numPatterns = header.get(6);
+    int numPatternOutcomes = header.get(7);
+    int numParameters = header.get(8);
+    int numPredChars = header.get(9);
+    int numOutcomeChars = header.get(10);
+
+    if (Integer.bitCount(tableSize) != 1 || tableSize <= numPreds) {
+      throw new IOException("Invalid mapped model, bad hash table size: " + tableSize);
+    }
+
+    IntBuffer outcomeOffsets = nextInts(numOutcomes + 1);
+    CharBuffer outcomeChars = nextChars(numOutcomeChars);
+    String[] outcomeLabels = new String[numOutcomes];
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      int start = outcomeOffsets.get(oi);
+      outcomeLabels[oi] = outcomeChars.subSequence(start, outcomeOffsets.get(oi + 1)).toString();
+    }
+
+    PredicateIndex predicateIndex = new MappedPredicateIndex(numPreds, nextInts(numPreds),
+        nextInts(tableSize), nextInts(numPreds + 1), nextChars(numPredChars));
+
+    EvalParameters evalParams = new MappedEvalParameters(numOutcomes, nextInts(numPreds),
+        nextInts(numPatterns + 1), nextInts(numPatternOutcomes), nextInts(numPreds + 1),
+        nextDoubles(numParameters));
+
+    switch (modelType) {
+      case MappedModelWriter.TYPE_GIS:
+        return new GISModel(predicateIndex, outcomeLabels, evalParams);
+      case MappedModelWriter.TYPE_PERCEPTRON:
+        return new PerceptronModel(predicateIndex, outcomeLabels, evalParams);
+      case MappedModelWriter.TYPE_QN:
+        return new QNModel(predicateIndex, outcomeLabels, evalParams);
+      default:
+        throw new IOException("Unknown mapped model type: " + modelType);
+    }
+  }
+}
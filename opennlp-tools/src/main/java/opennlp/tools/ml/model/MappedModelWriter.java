@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import opennlp.tools.ml.model.AbstractModel.ModelType;
+
+/**
+ * Writes a model in a format which can be memory-mapped by the {@link MappedModelReader}.
+ * <p>
+ * Unlike the other model formats, which are parsed into objects on the heap, the
+ * mapped format stores the predicate index and the parameters as flat tables which
+ * the model uses in place. Loading such a model takes constant time and several processes
+ * which map the same file share its pages through the operating system page cache.
+ * <p>
+ * All values are little endian and every table starts at a multiple of eight bytes.
+ * The file consists of a header followed by the tables in this order:
+ * <ul>
+ * <li>header: magic number, format version, model type, number of outcomes,
+ *     number of predicates, hash table size, number of outcome patterns,
+ *     number of pattern outcomes, number of parameters, number of predicate chars
+ *     and number of outcome chars, each as an int</li>
+ * <li>outcome offsets (int) and outcome chars (UTF-16)</li>
+ * <li>predicate hashes (int), predicate hash table (int),
+ *     predicate offsets (int) and predicate chars (UTF-16)</li>
+ * <li>outcome pattern id of each predicate (int), pattern offsets (int),
+ *     pattern outcomes (int)</li>
+ * <li>parameter offsets (int) and parameters (double)</li>
+ * </ul>
+ * The offset tables have one entry more than the table they point into, the last
+ * entry is the end offset of the last element.
+ * <p>
+ * Naive bayes models are not supported.
+ */
+public class MappedModelWriter {
+
+  static final int MAGIC = 0x4F4E4D4D;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_INTS = 11;
+
+  static final int TYPE_GIS = 0;
+  static final int TYPE_PERCEPTRON = 1;
+  static final int TYPE_QN = 2;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final AbstractModel model;
+
+  private final WritableByteChannel channel;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+  private long position;
+
+  public MappedModelWriter(AbstractModel model, File file) throws IOException {
+    this(model, new FileOutputStream(file));
+  }
+
+  public MappedModelWriter(AbstractModel model, OutputStream out) {
+    this.model = model;
+    this.channel = Channels.newChannel(out);
+  }
+
+  static int typeCode(ModelType modelType) {
+    switch (modelType) {
+      case Maxent:
+        return TYPE_GIS;
+      case Perceptron:
+        return TYPE_PERCEPTRON;
+      case MaxentQn:
+        return TYPE_QN;
+      default:
+        throw new IllegalArgumentException("The mapped format does not support " + modelType
+            + " models");
+    }
+  }
+
+  /**
+   * Writes the model and closes the output.
+   */
+  @SuppressWarnings("unchecked")
+  public void persist() throws IOException {
+    try {
+      Object[] data = model.getDataStructures();
+      Context[] params = (Context[]) data[0];
+      Map<String, Integer> pmap = (Map<String, Integer>) data[1];
+      String[] outcomeLabels = (String[]) data[2];
+
+      int type = typeCode(model.getModelType());
+
+      String[] predLabels = new String[pmap.size()];
+      for (Map.Entry<String, Integer> entry : pmap.entrySet()) {
+        predLabels[entry.getValue()] = entry.getKey();
+      }
+
+      int tableSize = PredicateIndex.tableSize(predLabels.length);
+
+      // the outcome patterns are shared between predicates, an IntBuffer
+      // is used as key because it compares the wrapped array by content
+      Map<IntBuffer, Integer> patterns = new HashMap<>();
+      int[] patternIds = new int[params.length];
+      int numPatternOutcomes = 0;
+      long numParameters = 0;
+      for (int pi = 0; pi < params.length; pi++) {
+        int[] outcomes = params[pi].getOutcomes();
+        Integer patternId = patterns.get(IntBuffer.wrap(outcomes));
+        if (patternId == null) {
+          patternId = patterns.size();
+          patterns.put(IntBuffer.wrap(outcomes), patternId);
+          numPatternOutcomes += outcomes.length;
+        }
+        patternIds[pi] = patternId;
+        numParameters += outcomes.length;
+      }
+
+      if (numParameters > Integer.MAX_VALUE) {
+        throw new IOException("The model has too many parameters for the mapped format");
+      }
+
+      int[][] patternOutcomes = new int[patterns.size()][];
+      for (Map.Entry<IntBuffer, Integer> pattern : patterns.entrySet()) {
+        patternOutcomes[pattern.getValue()] = pattern.getKey().array();
+      }
+
+      putInt(MAGIC);
+      putInt(VERSION);
+      putInt(type);
+      putInt(outcomeLabels.length);
+      putInt(predLabels.length);
+      putInt(tableSize);
+      putInt(patternOutcomes.length);
+      putInt(numPatternOutcomes);
+      putInt((int) numParameters);
+      putInt(countChars(predLabels));
+      putInt(countChars(outcomeLabels));
+      align();
+
+      writeStrings(outcomeLabels);
+
+      int[] hashes = new int[predLabels.length];
+      for (int pi = 0; pi < predLabels.length; pi++) {
+        hashes[pi] = predLabels[pi].hashCode();
+        putInt(hashes[pi]);
+      }
+      align();
+
+      int[] table = new int[tableSize];
+      Arrays.fill(table, PredicateIndex.EMPTY);
+      int mask = tableSize - 1;
+      for (int pi = 0; pi < predLabels.length; pi++) {
+        int slot = PredicateIndex.spread(hashes[pi]) & mask;
+        while (table[slot] != PredicateIndex.EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = pi;
+      }
+      for (int slot : table) {
+        putInt(slot);
+      }
+      align();
+
+      writeStrings(predLabels);
+
+      for (int patternId : patternIds) {
+        putInt(patternId);
+      }
+      align();
+
+      int offset = 0;
+      for (int[] pattern : patternOutcomes) {
+        putInt(offset);
+        offset += pattern.length;
+      }
+      putInt(offset);
+      align();
+
+      for (int[] pattern : patternOutcomes) {
+        for (int outcome : pattern) {
+          putInt(outcome);
+        }
+      }
+      align();
+
+      offset = 0;
+      for (Context context : params) {
+        putInt(offset);
+        offset += context.getParameters().length;
+      }
+      putInt(offset);
+      align();
+
+      for (Context context : params) {
+        for (double parameter : context.getParameters()) {
+          putDouble(parameter);
+        }
+      }
+      align();
+
+      flush();
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  private static int countChars(String[] strings) throws IOException {
+    long count = 0;
+    for (String string : strings) {
+      count += string.length();
+    }
+
+    if (count > Integer.MAX_VALUE) {
+      throw new IOException("The labels of the model are too long for the mapped format");
+    }
+
+    return (int) count;
+  }
+
+  /**
+   * Writes the offsets table and the chars table of the strings.
+   */
+  private void writeStrings(String[] strings) throws IOException {
+    int offset = 0;
+    for (String string : strings) {
+      putInt(offset);
+      offset += string.length();
+    }
+    putInt(offset);
+    align();
+
+    for (String string : strings) {
+      for (int i = 0; i < string.length(); i++) {
+        putChar(string.charAt(i));
+      }
+    }
+    align();
+  }
+
+  private void putInt(int value) throws IOException {
+    ensureRemaining(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  private void putChar(char value) throws IOException {
+    ensureRemaining(Character.BYTES);
+    buffer.putChar(value);
+  }
+
+  private void putDouble(double value) throws IOException {
+    ensureRemaining(Double.BYTES);
+    buffer.putDouble(value);
+  }
+
+  /**
+   * Pads the output with zeros to the next multiple of eight bytes.
+   */
+  private void align() throws IOException {
+    while ((position + buffer.position()) % Double.BYTES != 0) {
+      ensureRemaining(1);
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    position += buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link PredicateIndex} which operates directly on the predicate table of a
+ * memory-mapped model file, see {@link MappedModelWriter} for the layout.
+ * <p>
+ * The hash table uses the same probing scheme as the heap based index and
+ * lookups compare the characters of a predicate in place, no predicate
+ * strings are created when the model is loaded.
+ */
+final class MappedPredicateIndex extends PredicateIndex {
+
+  private final int numPredicates;
+
+  /** The hash code of each predicate, indexed by predicate id. */
+  private final IntBuffer hashes;
+
+  /** The hash table, each slot holds a predicate id or {@link #EMPTY}. */
+  private final IntBuffer table;
+
+  /** The offset of each predicate in the chars buffer, followed by the end offset. */
+  private final IntBuffer offsets;
+
+  private final CharBuffer chars;
+
+  private final int mask;
+
+  MappedPredicateIndex(int numPredicates, IntBuffer hashes, IntBuffer table, IntBuffer offsets,
+      CharBuffer chars) {
+    this.numPredicates = numPredicates;
+    this.hashes = hashes;
+    this.table = table;
+    this.offsets = offsets;
+    this.chars = chars;
+    this.mask = table.capacity() - 1;
+  }
+
+  private boolean equalsPredicate(int id, String predicate) {
+    int start = offsets.get(id);
+    int length = offsets.get(id + 1) - start;
+
+    if (length != predicate.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (chars.get(start + i) != predicate.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int get(String predicate) {
+    int hash = predicate.hashCode();
+    int slot = spread(hash) & mask;
+
+    int pi;
+    while ((pi = table.get(slot)) != EMPTY) {
+      if (hashes.get(pi) == hash && equalsPredicate(pi, predicate)) {
+        return pi;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String getPredicate(int id) {
+    if (id < 0 || id >= numPredicates) {
+      throw new IndexOutOfBoundsException("Invalid predicate id: " + id);
+    }
+
+    int start = offsets.get(id);
+    char[] predicate = new char[offsets.get(id + 1) - start];
+    for (int i = 0; i < predicate.length; i++) {
+      predicate[i] = chars.get(start + i);
+    }
+    return new String(predicate);
+  }
+
+  @Override
+  public int size() {
+    return numPredicates;
+  }
+}
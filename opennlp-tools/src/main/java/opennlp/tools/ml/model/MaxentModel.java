@@ -53,6 +53,33 @@ public interface MaxentModel {
    */
   double[] eval(String[] context, float[] values);
 
+  /**
+   * Evaluates a context which is described by the hashes of its predicates, see
+   * {@link FeatureHashBuffer}. Hashes which do not belong to a predicate of the
+   * model are ignored like unknown predicates.
+   *
+   * @param context The hashes of the contextual predicates which are to be evaluated together.
+   * @param probs An array which is populated with the probabilities for each of the different
+   *         outcomes, all of which sum to 1.
+   * @return an array of the probabilities for each of the different outcomes, all of which sum to 1.
+   *
+   * @throws UnsupportedOperationException if the model can not evaluate hashed predicates
+   */
+  default double[] eval(FeatureHashBuffer context, double[] probs) {
+    throw new UnsupportedOperationException(getClass().getName()
+        + " does not support hashed predicates");
+  }
+
+  /**
+   * Checks if the model can evaluate hashed predicates with
+   * {@link #eval(FeatureHashBuffer, double[])}.
+   *
+   * @return true if hashed predicates are supported, the default is false
+   */
+  default boolean supportsHashedPredicates() {
+    return false;
+  }
+
   /**
    * Simple function to return the outcome associated with the index
    * containing the highest probability in the double[].
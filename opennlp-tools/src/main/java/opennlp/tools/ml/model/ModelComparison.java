@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * Compares a model to a reference model on a set of evaluation events, e.g. a
+ * quantized model to the full precision model it was created from.
+ * <p>
+ * The comparison counts how often each model predicts the outcome of the events, how
+ * often the best outcomes of both models agree and records the largest difference
+ * between the probabilities the models assign to an outcome.
+ */
+public class ModelComparison {
+
+  private final MaxentModel reference;
+
+  private final MaxentModel model;
+
+  private long numEvents;
+
+  private long referenceCorrect;
+
+  private long correct;
+
+  private long agreements;
+
+  private double maxProbabilityDifference;
+
+  /**
+   * Initializes the comparison.
+   *
+   * @param reference the reference model, e.g. the full precision model
+   * @param model the model which is compared to the reference model
+   */
+  public ModelComparison(MaxentModel reference, MaxentModel model) {
+    this.reference = reference;
+    this.model = model;
+  }
+
+  /**
+   * Evaluates both models on an event.
+   *
+   * @param event the event
+   *
+   * @throws IllegalArgumentException if the models have different outcomes
+   */
+  public void evaluate(Event event) {
+    double[] referenceProbs = reference.eval(event.getContext(), event.getValues());
+    double[] probs = model.eval(event.getContext(), event.getValues());
+
+    if (referenceProbs.length != probs.length) {
+      throw new IllegalArgumentException("The models have different outcomes");
+    }
+
+    // the models do not necessarily number their outcomes the same way
+    for (int oi = 0; oi < referenceProbs.length; oi++) {
+      int index = model.getIndex(reference.getOutcome(oi));
+      if (index < 0) {
+        throw new IllegalArgumentException("The models have different outcomes");
+      }
+      double difference = Math.abs(referenceProbs[oi] - probs[index]);
+      maxProbabilityDifference = Math.max(maxProbabilityDifference, difference);
+    }
+
+    String referenceOutcome = reference.getBestOutcome(referenceProbs);
+    String outcome = model.getBestOutcome(probs);
+
+    numEvents++;
+    if (referenceOutcome.equals(event.getOutcome())) {
+      referenceCorrect++;
+    }
+    if (outcome.equals(event.getOutcome())) {
+      correct++;
+    }
+    if (outcome.equals(referenceOutcome)) {
+      agreements++;
+    }
+  }
+
+  /**
+   * Evaluates both models on all events of a stream.
+   *
+   * @param events the events, the stream is not closed
+   */
+  public void evaluate(ObjectStream<Event> events) throws IOException {
+    Event event;
+    while ((event = events.read()) != null) {
+      evaluate(event);
+    }
+  }
+
+  public long getNumEvents() {
+    return numEvents;
+  }
+
+  /**
+   * Retrieves the accuracy of the reference model.
+   *
+   * @return the fraction of the events for which the reference model predicts the outcome
+   */
+  public double getReferenceAccuracy() {
+    return numEvents > 0 ? (double) referenceCorrect / numEvents : 0;
+  }
+
+  /**
+   * Retrieves the accuracy of the compared model.
+   *
+   * @return the fraction of the events for which the compared model predicts the outcome
+   */
+  public double getAccuracy() {
+    return numEvents > 0 ? (double) correct / numEvents : 0;
+  }
+
+  /**
+   * Retrieves the accuracy of the reference model minus the accuracy of the compared model.
+   * A negative loss means that the compared model is more accurate.
+   *
+   * @return the loss of accuracy
+   */
+  public double getAccuracyLoss() {
+    return numEvents > 0 ? (double) (referenceCorrect - correct) / numEvents : 0;
+  }
+
+  /**
+   * Retrieves the fraction of the events on which both models predict the same outcome,
+   * regardless of whether the outcome is correct.
+   *
+   * @return the agreement of the models
+   */
+  public double getAgreement() {
+    return numEvents > 0 ? (double) agreements / numEvents : 0;
+  }
+
+  /**
+   * Retrieves the largest absolute difference between the probabilities both models
+   * assigned to an outcome.
+   *
+   * @return the largest probability difference
+   */
+  public double getMaxProbabilityDifference() {
+    return maxProbabilityDifference;
+  }
+}
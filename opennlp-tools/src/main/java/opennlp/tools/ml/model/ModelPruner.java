@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes parameters with a small magnitude from a trained model.
+ * <p>
+ * Models which are trained with a low cutoff contain many parameters close to zero,
+ * which hardly influence the computed probabilities but take most of the memory.
+ * The pruner keeps only the parameters whose magnitude is at least a threshold and
+ * optionally only the largest parameters of every outcome. Predicates without any
+ * remaining parameter are removed from the model. Parameters which are zero are
+ * always removed, which does not change the probabilities.
+ * <p>
+ * GIS, perceptron and QN models are supported, the pruned model has the same type.
+ * The {@link ModelComparison} can be used to measure the loss of accuracy.
+ */
+public class ModelPruner {
+
+  private final double threshold;
+
+  private final int maxParametersPerOutcome;
+
+  /**
+   * Initializes the pruner.
+   *
+   * @param threshold the smallest magnitude of the parameters which are kept
+   * @param maxParametersPerOutcome the number of parameters with the largest magnitude
+   *     which are kept per outcome, {@link Integer#MAX_VALUE} to not limit the number
+   *
+   * @throws IllegalArgumentException if the threshold is negative or
+   *     maxParametersPerOutcome is smaller than one
+   */
+  public ModelPruner(double threshold, int maxParametersPerOutcome) {
+    if (!(threshold >= 0)) {
+      throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+    }
+    if (maxParametersPerOutcome < 1) {
+      throw new IllegalArgumentException("maxParametersPerOutcome must be at least 1: "
+          + maxParametersPerOutcome);
+    }
+
+    this.threshold = threshold;
+    this.maxParametersPerOutcome = maxParametersPerOutcome;
+  }
+
+  /**
+   * Initializes a pruner which keeps all parameters whose magnitude is at least the threshold.
+   *
+   * @param threshold the smallest magnitude of the parameters which are kept
+   */
+  public ModelPruner(double threshold) {
+    this(threshold, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Counts the parameters of a model.
+   *
+   * @param model the model
+   *
+   * @return the number of parameters
+   */
+  public static long getNumParameters(AbstractModel model) {
+    long numParameters = 0;
+    for (Context context : model.evalParams.getParams()) {
+      numParameters += context.getParameters().length;
+    }
+    return numParameters;
+  }
+
+  /**
+   * Creates a pruned copy of a model, the model itself is not changed.
+   *
+   * @param model the model to prune
+   *
+   * @return the pruned model
+   *
+   * @throws IllegalArgumentException if the model type is not supported
+   */
+  public AbstractModel prune(AbstractModel model) {
+    Context[] params = model.evalParams.getParams();
+    int numOutcomes = model.getNumOutcomes();
+
+    boolean[][] keep = new boolean[params.length][];
+    for (int pi = 0; pi < params.length; pi++) {
+      double[] predParams = params[pi].getParameters();
+      keep[pi] = new boolean[predParams.length];
+      for (int ai = 0; ai < predParams.length; ai++) {
+        double magnitude = Math.abs(predParams[ai]);
+        keep[pi][ai] = magnitude >= threshold && magnitude != 0;
+      }
+    }
+
+    if (maxParametersPerOutcome != Integer.MAX_VALUE) {
+      limitParametersPerOutcome(params, numOutcomes, keep);
+    }
+
+    // outcome patterns which are the same after pruning are shared like in the
+    // model files, an IntBuffer is used as key because it compares the array by content
+    Map<IntBuffer, int[]> patterns = new HashMap<>();
+
+    List<String> predLabels = new ArrayList<>();
+    List<Context> prunedParams = new ArrayList<>();
+    PredicateIndex predicateIndex = model.getPredicateIndex();
+    for (int pi = 0; pi < params.length; pi++) {
+      int[] outcomes = params[pi].getOutcomes();
+      double[] predParams = params[pi].getParameters();
+
+      int length = 0;
+      int[] prunedOutcomes = new int[outcomes.length];
+      double[] prunedPredParams = new double[predParams.length];
+      for (int ai = 0; ai < predParams.length; ai++) {
+        if (keep[pi][ai]) {
+          prunedOutcomes[length] = outcomes[ai];
+          prunedPredParams[length] = predParams[ai];
+          length++;
+        }
+      }
+
+      if (length > 0) {
+        int[] pattern = patterns.computeIfAbsent(
+            IntBuffer.wrap(Arrays.copyOf(prunedOutcomes, length)), IntBuffer::array);
+        predLabels.add(predicateIndex.getPredicate(pi));
+        prunedParams.add(new Context(pattern, Arrays.copyOf(prunedPredParams, length)));
+      }
+    }
+
+    AbstractModel prunedModel = AbstractModel.createModel(model.getModelType(),
+        new PredicateIndex(predLabels.toArray(new String[predLabels.size()])), model.outcomeNames,
+        new EvalParameters(prunedParams.toArray(new Context[prunedParams.size()]), numOutcomes));
+
+    FeatureHasher hasher = model.getFeatureHasher();
+    if (hasher != null) {
+      prunedModel.enableFeatureHashing(hasher);
+    }
+
+    return prunedModel;
+  }
+
+  /**
+   * Keeps only the parameters with the largest magnitude of each outcome. Parameters
+   * with the same magnitude are kept in the order of the predicates.
+   */
+  private void limitParametersPerOutcome(Context[] params, int numOutcomes, boolean[][] keep) {
+    int[] counts = new int[numOutcomes];
+    for (int pi = 0; pi < params.length; pi++) {
+      int[] outcomes = params[pi].getOutcomes();
+      for (int ai = 0; ai < outcomes.length; ai++) {
+        if (keep[pi][ai]) {
+          counts[outcomes[ai]]++;
+        }
+      }
+    }
+
+    double[][] magnitudes = new double[numOutcomes][];
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      magnitudes[oi] = new double[counts[oi]];
+    }
+
+    Arrays.fill(counts, 0);
+    for (int pi = 0; pi < params.length; pi++) {
+      int[] outcomes = params[pi].getOutcomes();
+      for (int ai = 0; ai < outcomes.length; ai++) {
+        if (keep[pi][ai]) {
+          magnitudes[outcomes[ai]][counts[outcomes[ai]]++] = Math.abs(params[pi].getParameters()[ai]);
+        }
+      }
+    }
+
+    // the smallest magnitude which is kept and how many parameters
+    // with exactly this magnitude can still be kept
+    double[] minMagnitudes = new double[numOutcomes];
+    int[] numMinMagnitudes = new int[numOutcomes];
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      double[] sorted = magnitudes[oi];
+      if (sorted.length > maxParametersPerOutcome) {
+        Arrays.sort(sorted);
+        int first = sorted.length - maxParametersPerOutcome;
+        minMagnitudes[oi] = sorted[first];
+        int equal = first;
+        while (equal < sorted.length && sorted[equal] == sorted[first]) {
+          equal++;
+        }
+        numMinMagnitudes[oi] = equal - first;
+      }
+      else {
+        minMagnitudes[oi] = 0;
+        numMinMagnitudes[oi] = Integer.MAX_VALUE;
+      }
+    }
+
+    for (int pi = 0; pi < params.length; pi++) {
+      int[] outcomes = params[pi].getOutcomes();
+      for (int ai = 0; ai < outcomes.length; ai++) {
+        if (keep[pi][ai]) {
+          int oi = outcomes[ai];
+          double magnitude = Math.abs(params[pi].getParameters()[ai]);
+          if (magnitude < minMagnitudes[oi]) {
+            keep[pi][ai] = false;
+          }
+          else if (magnitude == minMagnitudes[oi]) {
+            keep[pi][ai] = numMinMagnitudes[oi]-- > 0;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjIntConsumer;
+
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * An indexer for maxent model data which indexes the events on multiple threads.
+ * <p>
+ * The events are read in chunks, the predicates of each chunk are counted on a worker
+ * thread into a primitive map per thread and the maps are merged once all events are read.
+ * Afterwards the chunks are indexed in parallel and the resulting events are sorted
+ * and merged in parallel.
+ * <p>
+ * Like the {@link OnePassDataIndexer} all events are kept in memory. The indexing result
+ * does not depend on the number of threads, the predicates are indexed in lexicographic order.
+ */
+public class ParallelDataIndexer extends AbstractDataIndexer {
+
+  public static final String THREADS_PARAM = "Threads";
+
+  private static final int CHUNK_SIZE = 4096;
+
+  public ParallelDataIndexer() {
+  }
+
+  /**
+   * A chunk of events which is processed by a single task.
+   */
+  private static final class Chunk {
+
+    private final Event[] events = new Event[CHUNK_SIZE];
+    private final int[] outcomes = new int[CHUNK_SIZE];
+    private ComparableEvent[] indexed;
+    private int size;
+  }
+
+  @Override
+  public void index(ObjectStream<Event> eventStream) throws IOException {
+    int cutoff = trainingParameters.getIntParameter(CUTOFF_PARAM, CUTOFF_DEFAULT);
+    boolean sort = trainingParameters.getBooleanParameter(SORT_PARAM, SORT_DEFAULT);
+    int threads = trainingParameters.getIntParameter(THREADS_PARAM,
+        Runtime.getRuntime().availableProcessors());
+
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must 1 or larger: " + threads);
+    }
+
+    display("Indexing events using cutoff of " + cutoff + " in " + threads + " threads\n\n");
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "opennlp-indexer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    List<ComparableEvent> eventsToCompare;
+    try {
+      display("\tComputing event counts...  ");
+      List<Chunk> chunks = new ArrayList<>();
+      PredicateIndex predicateIndex = computeEventCounts(eventStream, executor, chunks, cutoff);
+      display("done. " + getNumReadEvents(chunks) + " events\n");
+
+      display("\tIndexing...  ");
+      eventsToCompare = index(executor, chunks, predicateIndex);
+      display("done.\n");
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    if (sort) {
+      display("Sorting and merging events... ");
+    }
+    else {
+      display("Collecting events... ");
+    }
+    sortAndMerge(eventsToCompare, sort, threads > 1);
+    display("Done indexing.\n");
+  }
+
+  private static int getNumReadEvents(List<Chunk> chunks) {
+    int numEvents = 0;
+    for (Chunk chunk : chunks) {
+      numEvents += chunk.size;
+    }
+    return numEvents;
+  }
+
+  /**
+   * Reads the events into chunks and counts their predicates on the executor.
+   * The outcomes are indexed while reading, in the order they occur first.
+   *
+   * @return the index of the predicates which occur at least cutoff times
+   */
+  private PredicateIndex computeEventCounts(ObjectStream<Event> eventStream,
+      ExecutorService executor, List<Chunk> chunksOut, int cutoff) throws IOException {
+
+    List<PredicateCounter> counters = Collections.synchronizedList(new ArrayList<>());
+    ThreadLocal<PredicateCounter> threadCounter = ThreadLocal.withInitial(() -> {
+      PredicateCounter counter = new PredicateCounter();
+      counters.add(counter);
+      return counter;
+    });
+
+    Map<String, Integer> omap = new HashMap<>();
+    List<Future<?>> futures = new ArrayList<>();
+
+    Chunk chunk = new Chunk();
+    Event ev;
+    while ((ev = eventStream.read()) != null) {
+      Integer ocID = omap.get(ev.getOutcome());
+      if (ocID == null) {
+        ocID = omap.size();
+        omap.put(ev.getOutcome(), ocID);
+      }
+
+      chunk.events[chunk.size] = ev;
+      chunk.outcomes[chunk.size] = ocID;
+      chunk.size++;
+
+      if (chunk.size == CHUNK_SIZE) {
+        futures.add(submitCount(executor, chunk, threadCounter));
+        chunksOut.add(chunk);
+        chunk = new Chunk();
+      }
+    }
+
+    if (chunk.size > 0) {
+      futures.add(submitCount(executor, chunk, threadCounter));
+      chunksOut.add(chunk);
+    }
+
+    waitFor(futures);
+
+    // merge the counts of all threads
+    PredicateCounter counter = new PredicateCounter();
+    for (PredicateCounter threadCounts : counters) {
+      threadCounts.forEach(counter::add);
+    }
+
+    List<String> predicates = new ArrayList<>();
+    counter.forEach((predicate, count) -> {
+      if (count >= cutoff) {
+        predicates.add(predicate);
+      }
+    });
+    Collections.sort(predicates);
+
+    predLabels = predicates.toArray(new String[predicates.size()]);
+    predCounts = new int[predLabels.length];
+    for (int pi = 0; pi < predLabels.length; pi++) {
+      predCounts[pi] = counter.get(predLabels[pi]);
+    }
+
+    outcomeLabels = toIndexedStringArray(omap);
+
+    return new PredicateIndex(predLabels);
+  }
+
+  private static Future<?> submitCount(ExecutorService executor, Chunk chunk,
+      ThreadLocal<PredicateCounter> threadCounter) {
+    return executor.submit(() -> {
+      PredicateCounter counter = threadCounter.get();
+      for (int ei = 0; ei < chunk.size; ei++) {
+        for (String predicate : chunk.events[ei].getContext()) {
+          counter.add(predicate, 1);
+        }
+      }
+    });
+  }
+
+  private List<ComparableEvent> index(ExecutorService executor, List<Chunk> chunks,
+      PredicateIndex predicateIndex) throws IOException {
+
+    List<Future<?>> futures = new ArrayList<>(chunks.size());
+    for (Chunk chunk : chunks) {
+      futures.add(executor.submit(() -> index(chunk, predicateIndex)));
+    }
+
+    waitFor(futures);
+
+    List<ComparableEvent> eventsToCompare = new ArrayList<>(getNumReadEvents(chunks));
+    for (Chunk chunk : chunks) {
+      for (int ei = 0; ei < chunk.size; ei++) {
+        if (chunk.indexed[ei] != null) {
+          eventsToCompare.add(chunk.indexed[ei]);
+        }
+        else {
+          Event ev = chunk.events[ei];
+          display("Dropped event " + ev.getOutcome() + ":" + Arrays.asList(ev.getContext()) + "\n");
+        }
+      }
+    }
+
+    return eventsToCompare;
+  }
+
+  private static void index(Chunk chunk, PredicateIndex predicateIndex) {
+    ComparableEvent[] indexed = new ComparableEvent[chunk.size];
+    int[] indexedContext = new int[16];
+
+    for (int ei = 0; ei < chunk.size; ei++) {
+      String[] econtext = chunk.events[ei].getContext();
+
+      if (indexedContext.length < econtext.length) {
+        indexedContext = new int[econtext.length];
+      }
+
+      int length = 0;
+      for (String pred : econtext) {
+        int pi = predicateIndex.get(pred);
+        if (pi != -1) {
+          indexedContext[length++] = pi;
+        }
+      }
+
+      // drop events with no active features
+      if (length > 0) {
+        indexed[ei] = new ComparableEvent(chunk.outcomes[ei], Arrays.copyOf(indexedContext, length));
+      }
+    }
+
+    chunk.indexed = indexed;
+  }
+
+  private static void waitFor(List<Future<?>> futures) throws IOException {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while indexing events", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Counts the occurrences of predicates in an open addressing hash table with
+   * linear probing, the counts are stored as primitive ints.
+   */
+  static final class PredicateCounter {
+
+    private String[] keys = new String[1024];
+    private int[] counts = new int[1024];
+    private int size;
+
+    private static int slot(String key, int mask) {
+      int hash = key.hashCode();
+      return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Adds to the count of a predicate.
+     *
+     * @param predicate the predicate
+     * @param count the number to add to the count
+     */
+    void add(String predicate, int count) {
+      int mask = keys.length - 1;
+      int slot = slot(predicate, mask);
+
+      String key;
+      while ((key = keys[slot]) != null) {
+        if (key.equals(predicate)) {
+          counts[slot] += count;
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      keys[slot] = predicate;
+      counts[slot] = count;
+
+      // keep the load factor at or below 0.5
+      if (++size * 2 > keys.length) {
+        resize();
+      }
+    }
+
+    /**
+     * Retrieves the count of a predicate.
+     *
+     * @param predicate the predicate
+     *
+     * @return the count or 0 if the predicate was never added
+     */
+    int get(String predicate) {
+      int mask = keys.length - 1;
+      int slot = slot(predicate, mask);
+
+      String key;
+      while ((key = keys[slot]) != null) {
+        if (key.equals(predicate)) {
+          return counts[slot];
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      return 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Passes every predicate with its count to the consumer.
+     */
+    void forEach(ObjIntConsumer<String> consumer) {
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (keys[slot] != null) {
+          consumer.accept(keys[slot], counts[slot]);
+        }
+      }
+    }
+
+    private void resize() {
+      String[] oldKeys = keys;
+      int[] oldCounts = counts;
+
+      keys = new String[oldKeys.length * 2];
+      counts = new int[oldKeys.length * 2];
+
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          int slot = slot(oldKeys[i], mask);
+          while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[i];
+          counts[slot] = oldCounts[i];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable mapping between predicate names and their integer ids.
+ * <p>
+ * The index is an open addressing hash table with linear probing which is built once
+ * when a model is loaded. Lookups return a primitive <code>int</code> and never allocate,
+ * which makes it considerably cheaper than a <code>HashMap&lt;String, Integer&gt;</code>
+ * on the hot evaluation path of a model.
+ * <p>
+ * The predicate ids are the positions of the predicates in the label array
+ * the index was created from.
+ */
+public class PredicateIndex {
+
+  static final int EMPTY = -1;
+
+  private final String[] predLabels;
+
+  /** The hash code of each predicate, indexed by predicate id. */
+  private final int[] hashes;
+
+  /** The hash table, each slot holds a predicate id or {@link #EMPTY}. */
+  private final int[] table;
+
+  private final int mask;
+
+  /**
+   * Initializes the index with the specified predicates.
+   *
+   * @param predLabels the predicates, the position of a predicate in
+   *                   the array is its id. Predicates must be unique.
+   */
+  public PredicateIndex(String[] predLabels) {
+    this.predLabels = predLabels;
+    this.hashes = new int[predLabels.length];
+
+    int capacity = tableSize(predLabels.length);
+    this.table = new int[capacity];
+    this.mask = capacity - 1;
+
+    for (int i = 0; i < table.length; i++) {
+      table[i] = EMPTY;
+    }
+
+    for (int pi = 0; pi < predLabels.length; pi++) {
+      int hash = predLabels[pi].hashCode();
+      hashes[pi] = hash;
+
+      int slot = spread(hash) & mask;
+      while (table[slot] != EMPTY) {
+        if (hash == hashes[table[slot]] && predLabels[pi].equals(predLabels[table[slot]])) {
+          throw new IllegalArgumentException("Duplicate predicate: " + predLabels[pi]);
+        }
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = pi;
+    }
+  }
+
+  /**
+   * Initializes an index which is not backed by a label array, subclasses
+   * must override all lookup methods.
+   */
+  PredicateIndex() {
+    this.predLabels = new String[0];
+    this.hashes = new int[0];
+    this.table = new int[0];
+    this.mask = 0;
+  }
+
+  /**
+   * Computes the size of the hash table for the specified number of predicates.
+   */
+  static int tableSize(int numPredicates) {
+    // keep the load factor at or below 0.5 to keep the probe sequences short
+    return Integer.highestOneBit(Math.max(2, numPredicates) * 2 - 1) << 1;
+  }
+
+  /**
+   * Creates an index from a predicate to id mapping.
+   *
+   * @param pmap the mapping, the ids must be in the range 0 to size - 1
+   *
+   * @return the new index
+   */
+  public static PredicateIndex fromMap(Map<String, Integer> pmap) {
+    String[] predLabels = new String[pmap.size()];
+    for (Map.Entry<String, Integer> entry : pmap.entrySet()) {
+      predLabels[entry.getValue()] = entry.getKey();
+    }
+    return new PredicateIndex(predLabels);
+  }
+
+  static int spread(int hash) {
+    // String hash codes are weak in the low bits for short strings
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Retrieves the id of a predicate.
+   *
+   * @param predicate the predicate
+   *
+   * @return the id or -1 if the predicate is not contained in the index
+   */
+  public int get(String predicate) {
+    int hash = predicate.hashCode();
+    int slot = spread(hash) & mask;
+
+    int pi;
+    while ((pi = table[slot]) != EMPTY) {
+      if (hashes[pi] == hash && predLabels[pi].equals(predicate)) {
+        return pi;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Retrieves the id of a predicate by its label as returned by {@link #getPredicate(int)},
+   * for indexes which do not look up the predicate labels directly.
+   *
+   * @param label the predicate label
+   *
+   * @return the id or -1 if the label is not contained in the index
+   */
+  int indexOf(String label) {
+    return get(label);
+  }
+
+  /**
+   * Retrieves the ids of the specified predicates and writes them into
+   * the provided array, unknown predicates are mapped to -1.
+   *
+   * @param context the predicates
+   * @param ids the array to write the ids into, must be at least as long as context
+   *
+   * @return the ids array
+   */
+  public int[] get(String[] context, int[] ids) {
+    for (int ci = 0; ci < context.length; ci++) {
+      ids[ci] = get(context[ci]);
+    }
+    return ids;
+  }
+
+  /**
+   * Retrieves the predicate with the specified id.
+   *
+   * @param id the predicate id
+   *
+   * @return the predicate
+   */
+  public String getPredicate(int id) {
+    return predLabels[id];
+  }
+
+  /**
+   * Retrieves the number of predicates in this index.
+   *
+   * @return the number of predicates
+   */
+  public int size() {
+    return predLabels.length;
+  }
+
+  /**
+   * Retrieves a read-only {@link Map} view of this index, for code
+   * which still expects the predicate map of a model.
+   *
+   * @return the map view
+   */
+  public Map<String, Integer> asMap() {
+    return new MapView();
+  }
+
+  private class MapView extends AbstractMap<String, Integer> {
+
+    @Override
+    public Integer get(Object key) {
+      if (key instanceof String) {
+        int id = indexOf((String) key);
+        if (id != -1) {
+          return id;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && indexOf((String) key) != -1;
+    }
+
+    @Override
+    public int size() {
+      return PredicateIndex.this.size();
+    }
+
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+      return new AbstractSet<Entry<String, Integer>>() {
+
+        @Override
+        public Iterator<Entry<String, Integer>> iterator() {
+          return new Iterator<Entry<String, Integer>>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < PredicateIndex.this.size();
+            }
+
+            @Override
+            public Entry<String, Integer> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int id = next++;
+              return new SimpleImmutableEntry<>(getPredicate(id), id);
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return PredicateIndex.this.size();
+        }
+      };
+    }
+  }
+}
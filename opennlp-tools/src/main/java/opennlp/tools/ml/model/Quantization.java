@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+/**
+ * The compact representations of the parameters of a model.
+ * <p>
+ * A quantized model stores each parameter in one or two bytes instead of the eight
+ * bytes of a double and converts them back while the model is evaluated. The
+ * probabilities computed by a quantized model differ slightly from the full precision
+ * model, the {@link ModelComparison} can be used to measure the loss of accuracy.
+ * <p>
+ * Quantized models are written with the {@link QuantizedModelWriter}. Naive bayes
+ * models are not supported.
+ */
+public enum Quantization {
+
+  /**
+   * Half precision floats, two bytes per parameter. Parameters larger than the
+   * largest half precision float are clamped to it.
+   */
+  FLOAT16,
+
+  /**
+   * Bytes which are scaled per predicate, one byte per parameter and a scale per predicate.
+   * The parameters of a predicate are rounded to 255 evenly spaced values
+   * between the negative and the positive largest parameter of the predicate.
+   * The scales take four bytes per predicate, for models with only a few parameters
+   * per predicate {@link #FLOAT16} can be smaller.
+   */
+  INT8,
+
+  /**
+   * Bytes with a single scale for all parameters, one byte per parameter.
+   * Smaller than {@link #INT8} but less accurate for predicates with small parameters.
+   */
+  INT8_SHARED_SCALE;
+
+  /**
+   * Creates a quantized copy of a model. The copy evaluates like the model
+   * which is written by the {@link QuantizedModelWriter} and read back.
+   *
+   * @param model the model to quantize
+   *
+   * @return the quantized model
+   *
+   * @throws IllegalArgumentException if the model type is not supported
+   */
+  public AbstractModel quantize(AbstractModel model) {
+    EvalParameters evalParams = QuantizedEvalParameters.quantize(model.evalParams.getParams(),
+        model.getNumOutcomes(), this);
+
+    return AbstractModel.createModel(model.getModelType(), model.getPredicateIndex(),
+        model.outcomeNames, evalParams);
+  }
+}
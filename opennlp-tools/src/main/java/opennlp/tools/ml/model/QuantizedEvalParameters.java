@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.util.Arrays;
+
+/**
+ * {@link EvalParameters} which store the parameters in one of the compact
+ * representations of {@link Quantization}. The parameters are converted back to
+ * doubles while they are added up, the {@link Context} objects are only created
+ * if {@link #getParams()} is called.
+ */
+final class QuantizedEvalParameters extends EvalParameters {
+
+  /** The largest value of an int8 parameter, the range is symmetric around zero. */
+  static final int INT8_MAX = 127;
+
+  /** The smallest positive normal half precision float. */
+  private static final float FLOAT16_MIN_NORMAL = 0x1.0p-14f;
+
+  /** The bits of the largest finite half precision float. */
+  private static final int FLOAT16_MAX_BITS = 0x7BFF;
+
+  /**
+   * The values of all half precision floats, indexed by their bits. The table is
+   * only loaded when the first float16 model is evaluated.
+   */
+  private static final class Float16Table {
+
+    private static final float[] VALUES = new float[1 << 16];
+
+    static {
+      for (int bits = 0; bits < VALUES.length; bits++) {
+        VALUES[bits] = fromFloat16((short) bits);
+      }
+    }
+  }
+
+  /** The active outcomes of each predicate, predicates with the same outcomes share the array. */
+  private final int[][] outcomes;
+
+  /** The offset of the parameters of each predicate, followed by the end offset. */
+  private final int[] offsets;
+
+  /** The int8 parameters, null if the parameters are float16. */
+  private final byte[] int8Parameters;
+
+  /** The float16 parameters, null if the parameters are int8. */
+  private final short[] float16Parameters;
+
+  /** The scale of the int8 parameters of each predicate. */
+  private final float[] scales;
+
+  /** The representation of the parameters. */
+  private final Quantization quantization;
+
+  private volatile Context[] params;
+
+  QuantizedEvalParameters(int numOutcomes, Quantization quantization, int[][] outcomes,
+      int[] offsets, byte[] int8Parameters, short[] float16Parameters, float[] scales) {
+    super(null, numOutcomes);
+    this.quantization = quantization;
+    this.outcomes = outcomes;
+    this.offsets = offsets;
+    this.int8Parameters = int8Parameters;
+    this.float16Parameters = float16Parameters;
+    this.scales = scales;
+  }
+
+  /**
+   * Quantizes the parameters of a model.
+   *
+   * @param params the parameters of each predicate
+   * @param numOutcomes the number of outcomes of the model
+   * @param quantization the representation of the quantized parameters
+   *
+   * @return the quantized parameters
+   */
+  static QuantizedEvalParameters quantize(Context[] params, int numOutcomes,
+      Quantization quantization) {
+    int[][] outcomes = new int[params.length][];
+    int[] offsets = new int[params.length + 1];
+    for (int pi = 0; pi < params.length; pi++) {
+      outcomes[pi] = params[pi].getOutcomes();
+      offsets[pi + 1] = Math.addExact(offsets[pi], params[pi].getParameters().length);
+    }
+
+    if (quantization == Quantization.FLOAT16) {
+      short[] float16Parameters = new short[offsets[params.length]];
+      for (int pi = 0; pi < params.length; pi++) {
+        double[] predParams = params[pi].getParameters();
+        for (int ai = 0; ai < predParams.length; ai++) {
+          float16Parameters[offsets[pi] + ai] = toFloat16((float) predParams[ai]);
+        }
+      }
+      return new QuantizedEvalParameters(numOutcomes, quantization, outcomes, offsets, null,
+          float16Parameters, null);
+    }
+
+    float[] scales = new float[params.length];
+    if (quantization == Quantization.INT8) {
+      for (int pi = 0; pi < params.length; pi++) {
+        scales[pi] = scale(maxAbs(params[pi].getParameters()));
+      }
+    }
+    else {
+      double maxAbs = 0;
+      for (Context context : params) {
+        maxAbs = Math.max(maxAbs, maxAbs(context.getParameters()));
+      }
+      Arrays.fill(scales, scale(maxAbs));
+    }
+
+    byte[] int8Parameters = new byte[offsets[params.length]];
+    for (int pi = 0; pi < params.length; pi++) {
+      double[] predParams = params[pi].getParameters();
+      for (int ai = 0; ai < predParams.length; ai++) {
+        int8Parameters[offsets[pi] + ai] = toInt8(predParams[ai], scales[pi]);
+      }
+    }
+    return new QuantizedEvalParameters(numOutcomes, quantization, outcomes, offsets,
+        int8Parameters, null, scales);
+  }
+
+  private static double maxAbs(double[] values) {
+    double maxAbs = 0;
+    for (double value : values) {
+      maxAbs = Math.max(maxAbs, Math.abs(value));
+    }
+    return maxAbs;
+  }
+
+  /**
+   * Computes the scale which maps the largest absolute parameter to {@link #INT8_MAX}.
+   */
+  static float scale(double maxAbs) {
+    return (float) (maxAbs / INT8_MAX);
+  }
+
+  static byte toInt8(double value, float scale) {
+    if (scale == 0) {
+      return 0;
+    }
+    long quantized = Math.round(value / scale);
+    return (byte) Math.max(-INT8_MAX, Math.min(INT8_MAX, quantized));
+  }
+
+  /**
+   * Converts a float to the bits of the nearest half precision float, ties are rounded
+   * to even. Finite values which are too large are clamped to the largest finite value.
+   */
+  static short toFloat16(float value) {
+    int bits = Float.floatToIntBits(value);
+    int sign = (bits >>> 16) & 0x8000;
+    int exponent = (bits >>> 23) & 0xFF;
+    int mantissa = bits & 0x7FFFFF;
+
+    if (exponent == 0xFF) {
+      // infinity keeps a zero mantissa, NaN a non-zero one
+      return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+    }
+
+    float abs = Math.abs(value);
+    if (abs < FLOAT16_MIN_NORMAL) {
+      // subnormal, the value is a multiple of 2^-24, a result of 1024
+      // correctly becomes the smallest normal value
+      return (short) (sign | (int) Math.rint(abs * 0x1.0p24));
+    }
+
+    int half = ((exponent - 127 + 15) << 10) | (mantissa >>> 13);
+    int remainder = mantissa & 0x1FFF;
+    if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+      // a carry out of the mantissa correctly increments the exponent
+      half++;
+    }
+
+    return (short) (sign | Math.min(half, FLOAT16_MAX_BITS));
+  }
+
+  static float fromFloat16(short half) {
+    int sign = (half & 0x8000) << 16;
+    int exponent = (half >>> 10) & 0x1F;
+    int mantissa = half & 0x3FF;
+
+    if (exponent == 0) {
+      float value = mantissa * 0x1.0p-24f;
+      return sign != 0 ? -value : value;
+    }
+
+    if (exponent == 0x1F) {
+      return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+    }
+
+    return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+  }
+
+  Quantization getQuantization() {
+    return quantization;
+  }
+
+  byte[] getInt8Parameters() {
+    return int8Parameters;
+  }
+
+  short[] getFloat16Parameters() {
+    return float16Parameters;
+  }
+
+  float[] getScales() {
+    return scales;
+  }
+
+  @Override
+  public void addParameters(int predicate, double value, double[] outsums) {
+    int[] activeOutcomes = outcomes[predicate];
+    int start = offsets[predicate];
+
+    if (int8Parameters != null) {
+      double scale = scales[predicate];
+      for (int ai = 0; ai < activeOutcomes.length; ai++) {
+        outsums[activeOutcomes[ai]] += int8Parameters[start + ai] * scale * value;
+      }
+    }
+    else {
+      float[] values = Float16Table.VALUES;
+      for (int ai = 0; ai < activeOutcomes.length; ai++) {
+        outsums[activeOutcomes[ai]] += values[float16Parameters[start + ai] & 0xFFFF] * value;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the parameters of the predicates, converted back to doubles.
+   */
+  @Override
+  public Context[] getParams() {
+    Context[] result = params;
+    if (result == null) {
+      synchronized (this) {
+        result = params;
+        if (result == null) {
+          params = result = createParams();
+        }
+      }
+    }
+    return result;
+  }
+
+  private Context[] createParams() {
+    Context[] contexts = new Context[outcomes.length];
+    for (int pi = 0; pi < contexts.length; pi++) {
+      double[] predParams = new double[offsets[pi + 1] - offsets[pi]];
+      for (int ai = 0; ai < predParams.length; ai++) {
+        predParams[ai] = int8Parameters != null
+            ? int8Parameters[offsets[pi] + ai] * (double) scales[pi]
+            : (double) Float16Table.VALUES[float16Parameters[offsets[pi] + ai] & 0xFFFF];
+      }
+      contexts[pi] = new Context(outcomes[pi], predParams);
+    }
+    return contexts;
+  }
+}
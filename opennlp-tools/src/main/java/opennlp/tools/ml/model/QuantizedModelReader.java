@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import opennlp.tools.ml.model.AbstractModel.ModelType;
+
+/**
+ * Reads a model which was written by the {@link QuantizedModelWriter}. The
+ * returned model keeps the parameters quantized and converts them while it is evaluated.
+ */
+public class QuantizedModelReader extends AbstractModelReader {
+
+  static final String MODEL_TYPE = "Quantized";
+
+  public QuantizedModelReader(File file) throws IOException {
+    super(file);
+  }
+
+  public QuantizedModelReader(DataReader dataReader) {
+    super(dataReader);
+  }
+
+  @Override
+  public void checkModelType() throws IOException {
+    String modelType = readUTF();
+    if (!MODEL_TYPE.equals(modelType)) {
+      throw new IOException("Not a quantized model: " + modelType);
+    }
+  }
+
+  @Override
+  public AbstractModel constructModel() throws IOException {
+    String modelType = readUTF();
+    Quantization quantization;
+    try {
+      quantization = Quantization.valueOf(readUTF());
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("Unknown quantization", e);
+    }
+
+    String[] outcomeLabels = getOutcomes();
+    int[][] outcomePatterns = getOutcomePatterns();
+    String[] predLabels = getPredicates();
+
+    // every outcome pattern starts with the number of predicates which use it
+    int[][] outcomes = new int[NUM_PREDS][];
+    int[] offsets = new int[NUM_PREDS + 1];
+    int pid = 0;
+    for (int[] outcomePattern : outcomePatterns) {
+      int[] pattern = new int[outcomePattern.length - 1];
+      System.arraycopy(outcomePattern, 1, pattern, 0, pattern.length);
+
+      for (int i = 0; i < outcomePattern[0]; i++) {
+        if (pid == NUM_PREDS) {
+          throw new IOException("The outcome patterns do not match the number of predicates");
+        }
+        outcomes[pid] = pattern;
+        offsets[pid + 1] = Math.addExact(offsets[pid], pattern.length);
+        pid++;
+      }
+    }
+
+    if (pid != NUM_PREDS) {
+      throw new IOException("The outcome patterns do not match the number of predicates");
+    }
+
+    int numParameters = offsets[NUM_PREDS];
+
+    EvalParameters evalParams;
+    switch (quantization) {
+      case FLOAT16:
+        evalParams = new QuantizedEvalParameters(outcomeLabels.length, quantization, outcomes,
+            offsets, null, readFloat16(numParameters), null);
+        break;
+      case INT8:
+        float[] scales = new float[NUM_PREDS];
+        for (int pi = 0; pi < scales.length; pi++) {
+          scales[pi] = Float.intBitsToFloat(readInt());
+        }
+        evalParams = new QuantizedEvalParameters(outcomeLabels.length, quantization, outcomes,
+            offsets, readInt8(numParameters), null, scales);
+        break;
+      case INT8_SHARED_SCALE:
+        float[] sharedScales = new float[NUM_PREDS];
+        Arrays.fill(sharedScales, Float.intBitsToFloat(readInt()));
+        evalParams = new QuantizedEvalParameters(outcomeLabels.length, quantization, outcomes,
+            offsets, readInt8(numParameters), null, sharedScales);
+        break;
+      default:
+        throw new IllegalStateException("Unknown quantization: " + quantization);
+    }
+
+    try {
+      return AbstractModel.createModel(ModelType.valueOf(modelType), new PredicateIndex(predLabels),
+          outcomeLabels, evalParams);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("Unsupported model type: " + modelType, e);
+    }
+  }
+
+  private byte[] readInt8(int length) throws IOException {
+    byte[] values = new byte[length];
+    for (int i = 0; i < length; i += 4) {
+      int packed = readInt();
+      for (int j = 0; j < 4 && i + j < length; j++) {
+        values[i + j] = (byte) (packed >>> (24 - 8 * j));
+      }
+    }
+    return values;
+  }
+
+  private short[] readFloat16(int length) throws IOException {
+    short[] values = new short[length];
+    for (int i = 0; i < length; i += 2) {
+      int packed = readInt();
+      values[i] = (short) (packed >>> 16);
+      if (i + 1 < length) {
+        values[i + 1] = (short) packed;
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import opennlp.tools.ml.maxent.io.GISModelWriter;
+import opennlp.tools.ml.model.AbstractModel.ModelType;
+
+/**
+ * Writes a model with quantized parameters which can be read by the
+ * {@link QuantizedModelReader} and the {@link GenericModelReader}.
+ * <p>
+ * The format follows the GIS format: the type "Quantized", the type of the model,
+ * the name of the {@link Quantization}, the outcomes, the outcome patterns and the
+ * predicates. The parameters follow in the order of the predicates, the int8
+ * parameters are preceded by their scales as float bits. The parameter values are
+ * packed big endian into ints, four int8 or two float16 values per int, the last
+ * int is padded with zeros.
+ * <p>
+ * A model which is read back evaluates exactly like the model returned by
+ * {@link Quantization#quantize(AbstractModel)}.
+ */
+public class QuantizedModelWriter extends GISModelWriter {
+
+  private final ModelType modelType;
+
+  private final Quantization quantization;
+
+  private final DataOutputStream output;
+
+  public QuantizedModelWriter(AbstractModel model, Quantization quantization, File f)
+      throws IOException {
+    this(model, quantization, f.getName().endsWith(".gz")
+        ? new DataOutputStream(new GZIPOutputStream(new FileOutputStream(f)))
+        : new DataOutputStream(new FileOutputStream(f)));
+  }
+
+  public QuantizedModelWriter(AbstractModel model, Quantization quantization,
+      DataOutputStream dos) {
+    super(model);
+
+    if (model.getModelType() == ModelType.NaiveBayes) {
+      throw new IllegalArgumentException("Quantization does not support "
+          + model.getModelType() + " models");
+    }
+
+    this.modelType = model.getModelType();
+    this.quantization = quantization;
+    this.output = dos;
+  }
+
+  @Override
+  public void persist() throws IOException {
+    writeUTF(QuantizedModelReader.MODEL_TYPE);
+    writeUTF(modelType.name());
+    writeUTF(quantization.name());
+
+    writeInt(OUTCOME_LABELS.length);
+    for (String outcomeLabel : OUTCOME_LABELS) {
+      writeUTF(outcomeLabel);
+    }
+
+    ComparablePredicate[] sorted = sortValues();
+    List<List<ComparablePredicate>> compressed = compressOutcomes(sorted);
+
+    writeInt(compressed.size());
+    for (List<ComparablePredicate> pattern : compressed) {
+      writeUTF(pattern.size() + pattern.get(0).toString());
+    }
+
+    writeInt(sorted.length);
+    for (ComparablePredicate predicate : sorted) {
+      writeUTF(predicate.name);
+    }
+
+    Context[] params = new Context[sorted.length];
+    for (int pi = 0; pi < sorted.length; pi++) {
+      params[pi] = new Context(sorted[pi].outcomes, sorted[pi].params);
+    }
+
+    QuantizedEvalParameters quantized = QuantizedEvalParameters.quantize(params,
+        OUTCOME_LABELS.length, quantization);
+
+    switch (quantization) {
+      case FLOAT16:
+        writeFloat16(quantized.getFloat16Parameters());
+        break;
+      case INT8:
+        for (float scale : quantized.getScales()) {
+          writeInt(Float.floatToIntBits(scale));
+        }
+        writeInt8(quantized.getInt8Parameters());
+        break;
+      case INT8_SHARED_SCALE:
+        float[] scales = quantized.getScales();
+        writeInt(Float.floatToIntBits(scales.length > 0 ? scales[0] : 0));
+        writeInt8(quantized.getInt8Parameters());
+        break;
+      default:
+        throw new IllegalStateException("Unknown quantization: " + quantization);
+    }
+
+    close();
+  }
+
+  private void writeInt8(byte[] values) throws IOException {
+    for (int i = 0; i < values.length; i += 4) {
+      int packed = 0;
+      for (int j = 0; j < 4; j++) {
+        packed <<= 8;
+        if (i + j < values.length) {
+          packed |= values[i + j] & 0xFF;
+        }
+      }
+      writeInt(packed);
+    }
+  }
+
+  private void writeFloat16(short[] values) throws IOException {
+    for (int i = 0; i < values.length; i += 2) {
+      int packed = (values[i] & 0xFFFF) << 16;
+      if (i + 1 < values.length) {
+        packed |= values[i + 1] & 0xFFFF;
+      }
+      writeInt(packed);
+    }
+  }
+
+  @Override
+  public void writeUTF(String s) throws IOException {
+    output.writeUTF(s);
+  }
+
+  @Override
+  public void writeInt(int i) throws IOException {
+    output.writeInt(i);
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    output.writeDouble(d);
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.flush();
+    output.close();
+  }
+}
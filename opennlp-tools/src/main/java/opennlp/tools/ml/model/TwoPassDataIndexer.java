@@ -17,12 +17,9 @@
 
 package opennlp.tools.ml.model;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -42,15 +39,34 @@ import opennlp.tools.util.ObjectStream;
  * will be used.  This greatly reduces the amount of memory required for storing
  * the events.  During the first pass a temporary event file is created which
  * is read during the second pass.
+ * <p>
+ * The temporary event file stores the events in a compact binary format, the outcomes
+ * and predicates are replaced by integer ids which are assigned during the first pass.
+ * The second pass only maps these ids to the ids of the model and neither parses nor
+ * hashes strings. The file can optionally be read back through memory mapping, see
+ * {@link #MEMORY_MAP_PARAM}.
  */
 public class TwoPassDataIndexer extends AbstractDataIndexer {
 
+  /**
+   * Set to true to read the temporary event file back through memory mapping.
+   */
+  public static final String MEMORY_MAP_PARAM = "MemoryMapEvents";
+  public static final boolean MEMORY_MAP_DEFAULT = false;
+
+  /** The ids which were assigned to the outcomes during the first pass. */
+  private Map<String, Integer> outcomeIds;
+
+  /** The predicates in the order of their spill ids. */
+  private List<String> spillPredicates;
+
   public TwoPassDataIndexer() {}
 
   @Override
   public void index(ObjectStream<Event> eventStream) throws IOException {
     int cutoff = trainingParameters.getIntParameter(CUTOFF_PARAM, CUTOFF_DEFAULT);
     boolean sort = trainingParameters.getBooleanParameter(SORT_PARAM, SORT_DEFAULT);
+    boolean memoryMap = trainingParameters.getBooleanParameter(MEMORY_MAP_PARAM, MEMORY_MAP_DEFAULT);
 
     Map<String,Integer> predicateIndex = new HashMap<>();
     List<ComparableEvent> eventsToCompare;
@@ -61,18 +77,26 @@ public class TwoPassDataIndexer extends AbstractDataIndexer {
 
     File tmp = File.createTempFile("events", null);
     tmp.deleteOnExit();
-    Writer osw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp),"UTF8"));
-    int numEvents = computeEventCounts(eventStream, osw, predicateIndex, cutoff);
-    display("done. " + numEvents + " events\n");
 
-    display("\tIndexing...  ");
+    try {
+      int numEvents;
+      try (EventSpillWriter eventStore = new EventSpillWriter(tmp.toPath())) {
+        numEvents = computeEventCounts(eventStream, eventStore, predicateIndex, cutoff);
+      }
+      display("done. " + numEvents + " events\n");
 
-    try (FileEventStream fes = new FileEventStream(tmp)) {
-      eventsToCompare = index(numEvents, fes, predicateIndex);
+      display("\tIndexing...  ");
+
+      try (EventSpillReader spillReader = new EventSpillReader(tmp.toPath(), memoryMap)) {
+        eventsToCompare = index(numEvents, spillReader, predicateIndex);
+      }
+    }
+    finally {
+      // done with predicates
+      outcomeIds = null;
+      spillPredicates = null;
+      Files.deleteIfExists(tmp.toPath());
     }
-    // done with predicates
-    predicateIndex = null;
-    tmp.delete();
     display("done.\n");
 
     if (sort) {
@@ -96,79 +120,128 @@ public class TwoPassDataIndexer extends AbstractDataIndexer {
    * @param predicatesInOut a <code>TObjectIntHashMap</code> value
    * @param cutoff an <code>int</code> value
    */
-  private int computeEventCounts(ObjectStream<Event> eventStream, Writer eventStore,
+  private int computeEventCounts(ObjectStream<Event> eventStream, EventSpillWriter eventStore,
       Map<String,Integer> predicatesInOut, int cutoff) throws IOException {
-    Map<String,Integer> counter = new HashMap<>();
+    outcomeIds = new HashMap<>();
+    spillPredicates = new ArrayList<>();
+
+    Map<String,Integer> spillIds = new HashMap<>();
+    int[] counts = new int[1024];
     int eventCount = 0;
-    Set<String> predicateSet = new HashSet<>();
+
+    // the predicates in the order in which they reach the cutoff
+    List<String> selectedPredicates = new ArrayList<>();
+    int selectionCount = Math.max(cutoff, 1);
+
+    int[] spillContext = new int[16];
 
     Event ev;
     while ((ev = eventStream.read()) != null) {
       eventCount++;
-      eventStore.write(FileEventStream.toLine(ev));
+
+      Integer outcomeId = outcomeIds.get(ev.getOutcome());
+      if (outcomeId == null) {
+        outcomeId = outcomeIds.size();
+        outcomeIds.put(ev.getOutcome(), outcomeId);
+      }
+
       String[] ec = ev.getContext();
-      update(ec,predicateSet,counter,cutoff);
+      if (spillContext.length < ec.length) {
+        spillContext = new int[ec.length];
+      }
+
+      for (int ci = 0; ci < ec.length; ci++) {
+        Integer spillId = spillIds.get(ec[ci]);
+        if (spillId == null) {
+          spillId = spillPredicates.size();
+          spillIds.put(ec[ci], spillId);
+          spillPredicates.add(ec[ci]);
+
+          if (spillId == counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+          }
+        }
+
+        if (++counts[spillId] == selectionCount) {
+          selectedPredicates.add(ec[ci]);
+        }
+
+        spillContext[ci] = spillId;
+      }
+
+      eventStore.write(outcomeId, spillContext, ec.length);
     }
+
+    // insert in the same order as the predicates reached the cutoff to keep the
+    // iteration order, and with it the predicate indexes, of previous versions
+    Set<String> predicateSet = new HashSet<>();
+    predicateSet.addAll(selectedPredicates);
+
     predCounts = new int[predicateSet.size()];
     int index = 0;
     for (Iterator<String> pi = predicateSet.iterator(); pi.hasNext(); index++) {
       String predicate = pi.next();
-      predCounts[index] = counter.get(predicate);
+      predCounts[index] = counts[spillIds.get(predicate)];
       predicatesInOut.put(predicate,index);
     }
-    eventStore.close();
     return eventCount;
   }
 
-  // TODO: merge this code with the copy and paste version in OnePassDataIndexer
-  private List<ComparableEvent> index(int numEvents, ObjectStream<Event> es,
+  private List<ComparableEvent> index(int numEvents, EventSpillReader spillReader,
       Map<String,Integer> predicateIndex) throws IOException {
-    Map<String,Integer> omap = new HashMap<>();
 
-    int outcomeCount = 0;
-    List<ComparableEvent> eventsToCompare = new ArrayList<>(numEvents);
-    List<Integer> indexedContext = new ArrayList<>();
+    // maps the spill ids to the predicate indexes, -1 if the predicate is cut off
+    int[] spillToPredicateIndex = new int[spillPredicates.size()];
+    for (int si = 0; si < spillToPredicateIndex.length; si++) {
+      Integer pi = predicateIndex.get(spillPredicates.get(si));
+      spillToPredicateIndex[si] = pi != null ? pi : -1;
+    }
 
-    Event ev;
-    while ((ev = es.read()) != null) {
-      String[] econtext = ev.getContext();
-      ComparableEvent ce;
+    List<ComparableEvent> eventsToCompare = new ArrayList<>(numEvents);
+    int[] indexedContext = new int[16];
 
-      int ocID;
-      String oc = ev.getOutcome();
+    while (spillReader.next()) {
+      int[] spillContext = spillReader.getPredicates();
+      int length = spillReader.getLength();
 
-      if (omap.containsKey(oc)) {
-        ocID = omap.get(oc);
-      }
-      else {
-        ocID = outcomeCount++;
-        omap.put(oc, ocID);
+      if (indexedContext.length < length) {
+        indexedContext = new int[length];
       }
 
-      for (String pred : econtext) {
-        if (predicateIndex.containsKey(pred)) {
-          indexedContext.add(predicateIndex.get(pred));
+      int indexedLength = 0;
+      for (int ci = 0; ci < length; ci++) {
+        int pi = spillToPredicateIndex[spillContext[ci]];
+        if (pi != -1) {
+          indexedContext[indexedLength++] = pi;
         }
       }
 
       // drop events with no active features
-      if (indexedContext.size() > 0) {
-        int[] cons = new int[indexedContext.size()];
-        for (int ci = 0;ci < cons.length; ci++) {
-          cons[ci] = indexedContext.get(ci);
-        }
-        ce = new ComparableEvent(ocID, cons);
-        eventsToCompare.add(ce);
+      if (indexedLength > 0) {
+        eventsToCompare.add(new ComparableEvent(spillReader.getOutcome(),
+            Arrays.copyOf(indexedContext, indexedLength)));
       }
       else {
-        display("Dropped event " + ev.getOutcome() + ":" + Arrays.asList(ev.getContext()) + "\n");
+        display("Dropped event " + toEvent(spillReader.getOutcome(), spillContext, length) + "\n");
       }
-      // recycle the TIntArrayList
-      indexedContext.clear();
     }
-    outcomeLabels = toIndexedStringArray(omap);
+    outcomeLabels = toIndexedStringArray(outcomeIds);
     predLabels = toIndexedStringArray(predicateIndex);
     return eventsToCompare;
   }
-}
 
+  private String toEvent(int outcomeId, int[] spillContext, int length) {
+    List<String> context = new ArrayList<>(length);
+    for (int ci = 0; ci < length; ci++) {
+      context.add(spillPredicates.get(spillContext[ci]));
+    }
+
+    for (Map.Entry<String, Integer> outcome : outcomeIds.entrySet()) {
+      if (outcome.getValue() == outcomeId) {
+        return outcome.getKey() + ":" + context;
+      }
+    }
+
+    return outcomeId + ":" + context;
+  }
+}
@@ -25,14 +25,39 @@ import opennlp.tools.ml.model.EvalParameters;
  */
 public class NaiveBayesEvalParameters extends EvalParameters {
 
+  /**
+   * The delta of the Lidstone smoothing which is applied to the feature probabilities.
+   */
+  static final double SMOOTHING_DELTA = 0.05;
+
   protected double[] outcomeTotals;
   protected long vocabulary;
 
+  private final double[] normalizers;
+  private final double[] logUnseenProbabilities;
+  private final double[] logPriors;
+
   public NaiveBayesEvalParameters(Context[] params, int numOutcomes,
       double[] outcomeTotals, long vocabulary) {
     super(params, numOutcomes);
     this.outcomeTotals = outcomeTotals;
     this.vocabulary = vocabulary;
+
+    // the terms which only depend on the outcome are computed once instead of per feature
+    normalizers = new double[outcomeTotals.length];
+    logUnseenProbabilities = new double[outcomeTotals.length];
+    logPriors = new double[outcomeTotals.length];
+
+    double total = 0;
+    for (int oi = 0; oi < outcomeTotals.length; oi++) {
+      total += outcomeTotals[oi];
+    }
+
+    for (int oi = 0; oi < outcomeTotals.length; oi++) {
+      normalizers[oi] = outcomeTotals[oi] + SMOOTHING_DELTA * vocabulary;
+      logUnseenProbabilities[oi] = Math.log(SMOOTHING_DELTA / normalizers[oi]);
+      logPriors[oi] = Math.log(outcomeTotals[oi] / total);
+    }
   }
 
   public double[] getOutcomeTotals() {
@@ -43,4 +68,32 @@ public class NaiveBayesEvalParameters extends EvalParameters {
     return vocabulary;
   }
 
+  /**
+   * Retrieves the denominators of the smoothed feature probabilities, the
+   * outcome total plus the smoothing mass of the whole vocabulary.
+   *
+   * @return the normalizer per outcome
+   */
+  public double[] getNormalizers() {
+    return normalizers;
+  }
+
+  /**
+   * Retrieves the log probabilities of a feature which was never seen with an outcome.
+   *
+   * @return the log probability of an unseen feature per outcome
+   */
+  public double[] getLogUnseenProbabilities() {
+    return logUnseenProbabilities;
+  }
+
+  /**
+   * Retrieves the log prior probabilities of the outcomes.
+   *
+   * @return the log prior per outcome
+   */
+  public double[] getLogPriors() {
+    return logPriors;
+  }
+
 }
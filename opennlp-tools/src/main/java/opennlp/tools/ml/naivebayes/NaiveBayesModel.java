@@ -17,6 +17,7 @@
 
 package opennlp.tools.ml.naivebayes;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import opennlp.tools.ml.model.AbstractModel;
@@ -76,10 +77,9 @@ public class NaiveBayesModel extends AbstractModel {
 
   public double[] eval(String[] context, float[] values, double[] outsums) {
     int[] scontexts = new int[context.length];
-    java.util.Arrays.fill(outsums, 0);
+    Arrays.fill(outsums, 0);
     for (int i = 0; i < context.length; i++) {
-      Integer ci = pmap.get(context[i]);
-      scontexts[i] = ci == null ? -1 : ci;
+      scontexts[i] = getPredIndex(context[i]);
     }
     return eval(scontexts, values, outsums, evalParams, true);
   }
@@ -91,59 +91,79 @@ public class NaiveBayesModel extends AbstractModel {
   @Deprecated // visibility will be reduced in 1.8.1
   public static double[] eval(int[] context, float[] values, double[] prior,
                               EvalParameters model, boolean normalize) {
-    Probabilities<Integer> probabilities = new LogProbabilities<>();
+    NaiveBayesEvalParameters parameters = model instanceof NaiveBayesEvalParameters
+        ? (NaiveBayesEvalParameters) model
+        : new NaiveBayesEvalParameters(model.getParams(), model.getNumOutcomes(),
+            new double[prior.length], 0);
+    return eval(context, context.length, values, prior, parameters);
+  }
+
+  @Override
+  protected double[] evalPredicates(int[] predicates, int length, double[] outsums) {
+    return eval(predicates, length, null, outsums, (NaiveBayesEvalParameters) evalParams);
+  }
+
+  /**
+   * Computes the outcome distribution by summing the log probabilities of the
+   * features directly into the prior array, the outcome dependent terms are
+   * precomputed in the {@link NaiveBayesEvalParameters}.
+   */
+  private static double[] eval(int[] context, int length, float[] values, double[] prior,
+                               NaiveBayesEvalParameters model) {
     Context[] params = model.getParams();
-    double[] outcomeTotals = model instanceof NaiveBayesEvalParameters
-        ? ((NaiveBayesEvalParameters) model).getOutcomeTotals() : new double[prior.length];
-    long vocabulary = model instanceof NaiveBayesEvalParameters
-        ? ((NaiveBayesEvalParameters) model).getVocabulary() : 0;
-    double[] activeParameters;
-    int[] activeOutcomes;
+    double[] normalizers = model.getNormalizers();
+    double[] logUnseenProbabilities = model.getLogUnseenProbabilities();
+    double[] logPriors = model.getLogPriors();
+    int numOutcomes = normalizers.length;
+    double delta = NaiveBayesEvalParameters.SMOOTHING_DELTA;
+
+    Arrays.fill(prior, 0, numOutcomes, 0);
+
     double value = 1;
-    for (int ci = 0; ci < context.length; ci++) {
+    for (int ci = 0; ci < length; ci++) {
       if (context[ci] >= 0) {
         Context predParams = params[context[ci]];
-        activeOutcomes = predParams.getOutcomes();
-        activeParameters = predParams.getParameters();
+        int[] activeOutcomes = predParams.getOutcomes();
+        double[] activeParameters = predParams.getParameters();
         if (values != null) {
           value = values[ci];
         }
         int ai = 0;
-        for (int i = 0; i < outcomeTotals.length && ai < activeOutcomes.length; ++i) {
-          int oid = activeOutcomes[ai];
-          double numerator = oid == i ? activeParameters[ai++] * value : 0;
-          double denominator = outcomeTotals[i];
-          probabilities.addIn(i, getProbability(numerator, denominator, vocabulary, true), 1);
+        for (int oi = 0; oi < numOutcomes && ai < activeOutcomes.length; oi++) {
+          if (activeOutcomes[ai] == oi) {
+            prior[oi] += Math.log((activeParameters[ai++] * value + delta) / normalizers[oi]);
+          }
+          else {
+            prior[oi] += logUnseenProbabilities[oi];
+          }
         }
       }
     }
-    double total = 0;
-    for (int i = 0; i < outcomeTotals.length; ++i) {
-      total += outcomeTotals[i];
-    }
-    for (int i = 0; i < outcomeTotals.length; ++i) {
-      double numerator = outcomeTotals[i];
-      probabilities.addIn(i, numerator / total, 1);
-    }
-    for (int i = 0; i < outcomeTotals.length; ++i) {
-      prior[i] = probabilities.get(i);
+
+    double highestLogProbability = Double.NEGATIVE_INFINITY;
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      prior[oi] += logPriors[oi];
+      if (prior[oi] > highestLogProbability) {
+        highestLogProbability = prior[oi];
+      }
     }
-    return prior;
-  }
 
-  private static double getProbability(double numerator, double denominator,
-                                       double vocabulary, boolean isSmoothed) {
-    if (isSmoothed)
-      return getSmoothedProbability(numerator, denominator, vocabulary);
-    else if (denominator == 0 || denominator < Double.MIN_VALUE)
-      return 0;
-    else
-      return 1.0 * numerator / denominator;
-  }
+    double sum = 0;
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      double probability = Math.exp(prior[oi] - highestLogProbability);
+      if (Double.isNaN(probability)) {
+        probability = 0;
+      }
+      sum += probability;
+      prior[oi] = probability;
+    }
 
-  private static double getSmoothedProbability(double numerator, double denominator, double vocabulary) {
-    final double delta = 0.05; // Lidstone smoothing
+    if (sum > Double.MIN_VALUE) {
+      for (int oi = 0; oi < numOutcomes; oi++) {
+        prior[oi] /= sum;
+      }
+    }
 
-    return 1.0 * (numerator + delta) / (denominator + delta * vocabulary);
+    return prior;
   }
 }
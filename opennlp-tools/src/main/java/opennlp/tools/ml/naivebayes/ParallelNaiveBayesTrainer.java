@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.naivebayes;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.model.Context;
+import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.HashSumEventStream;
+import opennlp.tools.ml.model.IndexedEvents;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.ml.model.MutableContext;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Trains a {@link NaiveBayesModel} directly from the event stream on multiple threads.
+ * <p>
+ * The events are not indexed, the stream is read once in chunks. Every thread owns the
+ * predicates of one hash partition and counts their occurrences per outcome into a
+ * primitive table, the tables are merged once all events are read. A predicate is always
+ * counted by the same thread in the order of the stream, the model therefore does not
+ * depend on the number of threads.
+ * <p>
+ * The predicates which occur less than cutoff times are dropped. The model is the same as
+ * the one trained by the {@link NaiveBayesTrainer} on indexed events.
+ */
+public class ParallelNaiveBayesTrainer extends AbstractTrainer implements EventTrainer {
+
+  public static final String NAIVE_BAYES_PARALLEL_VALUE = "NAIVEBAYES_PARALLEL";
+
+  public static final String THREADS_PARAM = "Threads";
+
+  private static final int CHUNK_SIZE = 4096;
+
+  private int threads;
+
+  public ParallelNaiveBayesTrainer() {
+  }
+
+  public ParallelNaiveBayesTrainer(TrainingParameters parameters) {
+    super(parameters);
+  }
+
+  @Override
+  public void init(TrainingParameters trainingParameters, Map<String, String> reportMap) {
+    super.init(trainingParameters, reportMap);
+    threads = trainingParameters.getIntParameter(THREADS_PARAM,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  @Override
+  @Deprecated
+  public void init(Map<String, String> trainParams, Map<String, String> reportMap) {
+    init(new TrainingParameters(trainParams), reportMap);
+  }
+
+  @Override
+  public boolean isValid() {
+
+    if (!super.isValid()) {
+      return false;
+    }
+
+    String algorithmName = trainingParameters.getStringParameter(ALGORITHM_PARAM, null);
+    if (algorithmName != null && !NAIVE_BAYES_PARALLEL_VALUE.equals(algorithmName)) {
+      return false;
+    }
+
+    return threads >= 1;
+  }
+
+  @Override
+  public MaxentModel train(ObjectStream<Event> events) throws IOException {
+
+    if (!isValid()) {
+      throw new IllegalArgumentException("trainParams are not valid!");
+    }
+
+    display("Counting events using cutoff of " + getCutoff() + " in " + threads + " threads...  ");
+
+    HashSumEventStream hses = new HashSumEventStream(events);
+    ObjectStream<Event> hashedEvents = hashFeatures(hses);
+
+    Map<String, Integer> outcomeIndex = new HashMap<>();
+    List<String> outcomeLabels = new ArrayList<>();
+
+    CountTable[] tables = new CountTable[threads];
+    for (int shard = 0; shard < threads; shard++) {
+      tables[shard] = new CountTable();
+    }
+
+    // one thread per shard, the tasks of a shard run in the order of the chunks
+    ExecutorService[] executors = new ExecutorService[threads > 1 ? threads : 0];
+    for (int shard = 0; shard < executors.length; shard++) {
+      executors[shard] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "opennlp-naivebayes-trainer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    int numEvents = 0;
+    try {
+      Deque<List<Future<?>>> pending = new ArrayDeque<>();
+
+      Chunk chunk = new Chunk();
+      Event event;
+      while ((event = hashedEvents.read()) != null) {
+        Integer outcome = outcomeIndex.get(event.getOutcome());
+        if (outcome == null) {
+          outcome = outcomeLabels.size();
+          outcomeIndex.put(event.getOutcome(), outcome);
+          outcomeLabels.add(event.getOutcome());
+        }
+
+        chunk.events[chunk.size] = event;
+        chunk.outcomes[chunk.size] = outcome;
+        chunk.size++;
+        numEvents++;
+
+        if (chunk.size == CHUNK_SIZE) {
+          count(chunk, tables, executors, pending);
+          chunk = new Chunk();
+        }
+      }
+
+      if (chunk.size > 0) {
+        count(chunk, tables, executors, pending);
+      }
+
+      while (!pending.isEmpty()) {
+        waitFor(pending.poll());
+      }
+    }
+    finally {
+      for (ExecutorService executor : executors) {
+        executor.shutdown();
+      }
+    }
+
+    display("done. " + numEvents + " events\n");
+
+    addToReport("Training-Eventhash", hses.calculateHashSum().toString(16));
+
+    return createModel(tables, outcomeLabels.toArray(new String[outcomeLabels.size()]));
+  }
+
+  @Override
+  public MaxentModel train(DataIndexer indexer) throws IOException {
+
+    if (!isValid()) {
+      throw new IllegalArgumentException("trainParams are not valid!");
+    }
+
+    // the indexer already applied the cutoff, its counts are added up on the calling thread
+    String[] predLabels = indexer.getPredLabels();
+    int numOutcomes = indexer.getOutcomeLabels().length;
+    double[][] counts = new double[predLabels.length][numOutcomes];
+
+    IndexedEvents.Cursor cursor = indexer.getIndexedEvents().cursor();
+    while (cursor.next()) {
+      int[] context = cursor.getContext();
+      float[] values = cursor.getValues();
+      for (int ni = 0; ni < cursor.getNumTimesSeen(); ni++) {
+        for (int ci = 0; ci < context.length; ci++) {
+          counts[context[ci]][cursor.getOutcome()] += values != null ? values[ci] : 1;
+        }
+      }
+    }
+
+    Context[] params = new Context[predLabels.length];
+    for (int pi = 0; pi < predLabels.length; pi++) {
+      params[pi] = createContext(counts[pi], numOutcomes);
+    }
+
+    addToReport(TRAINER_TYPE_PARAM, EVENT_VALUE);
+    return enableFeatureHashing(new NaiveBayesModel(params, predLabels, indexer.getOutcomeLabels()));
+  }
+
+  /**
+   * Submits the counting of the chunk to the shards. At most two chunks per thread
+   * are in flight, the reading waits for the oldest chunk to limit the memory usage.
+   */
+  private static void count(Chunk chunk, CountTable[] tables, ExecutorService[] executors,
+      Deque<List<Future<?>>> pending) throws IOException {
+
+    if (executors.length == 0) {
+      tables[0].count(chunk, 0, 1);
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(executors.length);
+    for (int shard = 0; shard < executors.length; shard++) {
+      CountTable table = tables[shard];
+      int s = shard;
+      futures.add(executors[shard].submit(() -> table.count(chunk, s, executors.length)));
+    }
+    pending.add(futures);
+
+    if (pending.size() > 2 * executors.length) {
+      waitFor(pending.poll());
+    }
+  }
+
+  private MaxentModel createModel(CountTable[] tables, String[] outcomeLabels) {
+    int cutoff = getCutoff();
+
+    // the shards count disjoint predicates, merging is just collecting them
+    Map<String, double[]> counts = new HashMap<>();
+    for (CountTable table : tables) {
+      table.forEach((predicate, occurrences, outcomeCounts) -> {
+        if (occurrences >= cutoff) {
+          counts.put(predicate, outcomeCounts);
+        }
+      });
+    }
+
+    List<String> predicates = new ArrayList<>(counts.keySet());
+    Collections.sort(predicates);
+
+    String[] predLabels = predicates.toArray(new String[predicates.size()]);
+    Context[] params = new Context[predLabels.length];
+    for (int pi = 0; pi < predLabels.length; pi++) {
+      params[pi] = createContext(counts.get(predLabels[pi]), outcomeLabels.length);
+    }
+
+    display("\t    Number of Outcomes: " + outcomeLabels.length + "\n");
+    display("\t  Number of Predicates: " + predLabels.length + "\n");
+
+    addToReport(TRAINER_TYPE_PARAM, EVENT_VALUE);
+    return enableFeatureHashing(new NaiveBayesModel(params, predLabels, outcomeLabels));
+  }
+
+  /**
+   * Creates the parameters of a predicate, like the {@link NaiveBayesTrainer} every
+   * predicate has a parameter for every outcome.
+   */
+  private static Context createContext(double[] outcomeCounts, int numOutcomes) {
+    int[] allOutcomesPattern = new int[numOutcomes];
+    for (int oi = 0; oi < numOutcomes; oi++) {
+      allOutcomesPattern[oi] = oi;
+    }
+    return new MutableContext(allOutcomesPattern, Arrays.copyOf(outcomeCounts, numOutcomes));
+  }
+
+  private static void waitFor(List<Future<?>> futures) throws IOException {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while counting events", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * A chunk of events with their indexed outcomes.
+   */
+  private static final class Chunk {
+
+    private final Event[] events = new Event[CHUNK_SIZE];
+    private final int[] outcomes = new int[CHUNK_SIZE];
+    private int size;
+  }
+
+  interface CountConsumer {
+    void accept(String predicate, int occurrences, double[] outcomeCounts);
+  }
+
+  /**
+   * Counts the occurrences of predicates and their outcome weights in an open addressing
+   * hash table with linear probing. The outcome counts of a predicate are a primitive array
+   * which grows with the largest outcome index seen together with the predicate.
+   */
+  static final class CountTable {
+
+    private String[] keys = new String[1024];
+    private int[] occurrences = new int[1024];
+    private double[][] outcomeCounts = new double[1024][];
+    private int size;
+
+    private static int hash(String key) {
+      int hash = key.hashCode();
+      return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Assigns the predicate to a shard by the high bits of a multiplicative hash, the
+     * low bits which select the slot would leave most slots of a shard unused.
+     */
+    private static int shard(String key, int numShards) {
+      return (int) (((key.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL) * numShards >>> 32);
+    }
+
+    /**
+     * Counts the predicates of the chunk which belong to the given shard.
+     */
+    void count(Chunk chunk, int shard, int numShards) {
+      for (int ei = 0; ei < chunk.size; ei++) {
+        Event event = chunk.events[ei];
+        String[] context = event.getContext();
+        float[] values = event.getValues();
+        for (int ci = 0; ci < context.length; ci++) {
+          if (numShards == 1 || shard(context[ci], numShards) == shard) {
+            add(context[ci], chunk.outcomes[ei], values != null ? values[ci] : 1);
+          }
+        }
+      }
+    }
+
+    /**
+     * Adds an occurrence of a predicate with an outcome.
+     *
+     * @param predicate the predicate
+     * @param outcome the index of the outcome
+     * @param value the value of the predicate which is added to the outcome count
+     */
+    void add(String predicate, int outcome, double value) {
+      int mask = keys.length - 1;
+      int slot = hash(predicate) & mask;
+
+      String key;
+      while ((key = keys[slot]) != null) {
+        if (key.equals(predicate)) {
+          break;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      if (key == null) {
+        keys[slot] = predicate;
+        outcomeCounts[slot] = new double[outcome + 1];
+        size++;
+      }
+      else if (outcomeCounts[slot].length <= outcome) {
+        outcomeCounts[slot] = Arrays.copyOf(outcomeCounts[slot], outcome + 1);
+      }
+
+      occurrences[slot]++;
+      outcomeCounts[slot][outcome] += value;
+
+      // keep the load factor at or below 0.5
+      if (size * 2 > keys.length) {
+        resize();
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Passes every predicate with its number of occurrences and outcome counts to the consumer.
+     */
+    void forEach(CountConsumer consumer) {
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (keys[slot] != null) {
+          consumer.accept(keys[slot], occurrences[slot], outcomeCounts[slot]);
+        }
+      }
+    }
+
+    private void resize() {
+      String[] oldKeys = keys;
+      int[] oldOccurrences = occurrences;
+      double[][] oldOutcomeCounts = outcomeCounts;
+
+      keys = new String[oldKeys.length * 2];
+      occurrences = new int[oldKeys.length * 2];
+      outcomeCounts = new double[oldKeys.length * 2][];
+
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          int slot = hash(oldKeys[i]) & mask;
+          while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[i];
+          occurrences[slot] = oldOccurrences[i];
+          outcomeCounts[slot] = oldOutcomeCounts[i];
+        }
+      }
+    }
+  }
+}
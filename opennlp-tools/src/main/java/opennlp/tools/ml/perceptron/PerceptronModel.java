@@ -22,6 +22,7 @@ import java.util.Map;
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.Context;
 import opennlp.tools.ml.model.EvalParameters;
+import opennlp.tools.ml.model.PredicateIndex;
 
 public class PerceptronModel extends AbstractModel {
 
@@ -40,6 +41,12 @@ public class PerceptronModel extends AbstractModel {
     modelType = ModelType.Perceptron;
   }
 
+  public PerceptronModel(PredicateIndex predicateIndex, String[] outcomeNames,
+                         EvalParameters evalParams) {
+    super(predicateIndex, outcomeNames, evalParams);
+    modelType = ModelType.Perceptron;
+  }
+
   public double[] eval(String[] context) {
     return eval(context,new double[evalParams.getNumOutcomes()]);
   }
@@ -53,13 +60,23 @@ public class PerceptronModel extends AbstractModel {
   }
 
   public double[] eval(String[] context, float[] values,double[] outsums) {
-    int[] scontexts = new int[context.length];
     java.util.Arrays.fill(outsums, 0);
-    for (int i = 0; i < context.length; i++) {
-      Integer ci = pmap.get(context[i]);
-      scontexts[i] = ci == null ? -1 : ci;
+    for (int ci = 0; ci < context.length; ci++) {
+      int pi = getPredIndex(context[ci]);
+      if (pi >= 0) {
+        evalParams.addParameters(pi, values != null ? values[ci] : 1, outsums);
+      }
+    }
+    return normalize(outsums, evalParams.getNumOutcomes());
+  }
+
+  @Override
+  protected double[] evalPredicates(int[] predicates, int length, double[] outsums) {
+    java.util.Arrays.fill(outsums, 0);
+    for (int ci = 0; ci < length; ci++) {
+      evalParams.addParameters(predicates[ci], 1, outsums);
     }
-    return eval(scontexts,values,outsums,evalParams,true);
+    return normalize(outsums, evalParams.getNumOutcomes());
   }
 
   public static double[] eval(int[] context, double[] prior, EvalParameters model) {
@@ -69,43 +86,34 @@ public class PerceptronModel extends AbstractModel {
   @Deprecated // visibility will be reduced in 1.8.1
   public static double[] eval(int[] context, float[] values, double[] prior, EvalParameters model,
                               boolean normalize) {
-    Context[] params = model.getParams();
-    double[] activeParameters;
-    int[] activeOutcomes;
-    double value = 1;
     for (int ci = 0; ci < context.length; ci++) {
       if (context[ci] >= 0) {
-        Context predParams = params[context[ci]];
-        activeOutcomes = predParams.getOutcomes();
-        activeParameters = predParams.getParameters();
-        if (values != null) {
-          value = values[ci];
-        }
-        for (int ai = 0; ai < activeOutcomes.length; ai++) {
-          int oid = activeOutcomes[ai];
-          prior[oid] += activeParameters[ai] * value;
-        }
+        model.addParameters(context[ci], values != null ? values[ci] : 1, prior);
       }
     }
     if (normalize) {
-      int numOutcomes = model.getNumOutcomes();
-
-      double maxPrior = 1;
+      normalize(prior, model.getNumOutcomes());
+    }
+    return prior;
+  }
 
-      for (int oid = 0; oid < numOutcomes; oid++) {
-        if (maxPrior < Math.abs(prior[oid]))
-          maxPrior = Math.abs(prior[oid]);
-      }
+  private static double[] normalize(double[] outsums, int numOutcomes) {
+    double maxPrior = 1;
 
-      double normal = 0.0;
-      for (int oid = 0; oid < numOutcomes; oid++) {
-        prior[oid] = Math.exp(prior[oid] / maxPrior);
-        normal += prior[oid];
-      }
+    for (int oid = 0; oid < numOutcomes; oid++) {
+      if (maxPrior < Math.abs(outsums[oid]))
+        maxPrior = Math.abs(outsums[oid]);
+    }
 
-      for (int oid = 0; oid < numOutcomes; oid++)
-        prior[oid] /= normal;
+    double normal = 0.0;
+    for (int oid = 0; oid < numOutcomes; oid++) {
+      outsums[oid] = Math.exp(outsums[oid] / maxPrior);
+      normal += outsums[oid];
     }
-    return prior;
+
+    for (int oid = 0; oid < numOutcomes; oid++)
+      outsums[oid] /= normal;
+
+    return outsums;
   }
 }
@@ -18,11 +18,20 @@
 package opennlp.tools.ml.perceptron;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import opennlp.tools.ml.AbstractEventTrainer;
 import opennlp.tools.ml.model.AbstractModel;
 import opennlp.tools.ml.model.DataIndexer;
 import opennlp.tools.ml.model.EvalParameters;
+import opennlp.tools.ml.model.IndexedEvents;
 import opennlp.tools.ml.model.MutableContext;
 import opennlp.tools.util.TrainingParameters;
 
@@ -32,7 +41,11 @@ import opennlp.tools.util.TrainingParameters;
  * average weighting as described in:
  * Discriminative Training Methods for Hidden Markov Models: Theory and Experiments
  * with the Perceptron Algorithm. Michael Collins, EMNLP 2002.
- *
+ * <p>
+ * With more than one thread the perceptron is trained with iterative parameter
+ * mixing as described in:
+ * Distributed Training Strategies for the Structured Perceptron.
+ * Ryan McDonald, Keith Hall and Gideon Mann, NAACL 2010.
  */
 public class PerceptronTrainer extends AbstractEventTrainer {
 
@@ -48,17 +61,8 @@ public class PerceptronTrainer extends AbstractEventTrainer {
   private int numPreds;
   /** Number of outcomes. */
   private int numOutcomes;
-  /** Records the array of predicates seen in each event. */
-  private int[][] contexts;
-
-  /** The value associates with each context. If null then context values are assumes to be 1. */
-  private float[][] values;
-
-  /** List of outcomes for each event i, in context[i]. */
-  private int[] outcomeList;
-
-  /** Records the num of times an event has been seen for each event i, in context[i]. */
-  private int[] numTimesEventsSeen;
+  /** The indexed events, they are read sequentially in every iteration. */
+  private IndexedEvents events;
 
   /** Stores the String names of the outcomes.  The GIS only tracks outcomes
   as ints, and so this array is needed to save the model to disk and
@@ -78,6 +82,8 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
   private boolean useSkippedlAveraging;
 
+  private int threads = 1;
+
   public PerceptronTrainer() {
   }
 
@@ -124,6 +130,8 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
     this.setTolerance(tolerance);
 
+    this.setThreads(trainingParameters.getIntParameter(TrainingParameters.THREADS_PARAM, 1));
+
     model = this.trainModel(iterations, indexer, cutoff, useAverage);
 
     return model;
@@ -182,20 +190,35 @@ public class PerceptronTrainer extends AbstractEventTrainer {
     useSkippedlAveraging = averaging;
   }
 
+  /**
+   * Sets the number of threads used for training. With more than one thread
+   * the events are split into one shard per thread, every iteration each shard
+   * is trained on its own copy of the parameters and the copies are averaged
+   * afterwards. This needs one copy of the parameters per thread.
+   *
+   * @param threads the number of threads
+   */
+  public void setThreads(int threads) {
+
+    if (threads < 1) {
+      throw new
+          IllegalArgumentException("threads must be at least one but is " + threads + "!");
+    }
+
+    this.threads = threads;
+  }
+
   public AbstractModel trainModel(int iterations, DataIndexer di, int cutoff) {
     return trainModel(iterations,di,cutoff,true);
   }
 
   public AbstractModel trainModel(int iterations, DataIndexer di, int cutoff, boolean useAverage) {
     display("Incorporating indexed data for training...  \n");
-    contexts = di.getContexts();
-    values = di.getValues();
-    numTimesEventsSeen = di.getNumTimesEventsSeen();
+    events = di.getIndexedEvents();
     numEvents = di.getNumEvents();
-    numUniqueEvents = contexts.length;
+    numUniqueEvents = events.size();
 
     outcomeLabels = di.getOutcomeLabels();
-    outcomeList = di.getOutcomeList();
 
     predLabels = di.getPredLabels();
     numPreds = predLabels.length;
@@ -209,7 +232,13 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
     display("Computing model parameters...\n");
 
-    MutableContext[] finalParameters = findParameters(iterations, useAverage);
+    MutableContext[] finalParameters;
+    if (threads > 1 && numUniqueEvents > 1) {
+      finalParameters = findParametersInParallel(iterations, useAverage);
+    }
+    else {
+      finalParameters = findParameters(iterations, useAverage);
+    }
 
     display("...done.\n");
 
@@ -221,29 +250,10 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
     display("Performing " + iterations + " iterations.\n");
 
-    int[] allOutcomesPattern = new int[numOutcomes];
-    for (int oi = 0; oi < numOutcomes; oi++)
-      allOutcomesPattern[oi] = oi;
-
-    /* Stores the estimated parameter value of each predicate during iteration. */
-    MutableContext[] params = new MutableContext[numPreds];
-    for (int pi = 0; pi < numPreds; pi++) {
-      params[pi] = new MutableContext(allOutcomesPattern,new double[numOutcomes]);
-      for (int aoi = 0; aoi < numOutcomes; aoi++)
-        params[pi].setParameter(aoi, 0.0);
-    }
-
-    EvalParameters evalParams = new EvalParameters(params, numOutcomes);
-
-    /* Stores the sum of parameter values of each predicate over many iterations. */
-    MutableContext[] summedParams = new MutableContext[numPreds];
-    if (useAverage) {
-      for (int pi = 0; pi < numPreds; pi++) {
-        summedParams[pi] = new MutableContext(allOutcomesPattern,new double[numOutcomes]);
-        for (int aoi = 0; aoi < numOutcomes; aoi++)
-          summedParams[pi].setParameter(aoi, 0.0);
-      }
-    }
+    /* Stores the estimated parameter value of each predicate during iteration,
+     * a predicate gets its parameters when it is updated the first time. With averaging
+     * the sums of the parameter values are maintained as well. */
+    SparseParameters[] params = new SparseParameters[numPreds];
 
     // Keep track of the previous three accuracies. The difference of
     // the mean of these and the current training set accuracy is used
@@ -255,6 +265,8 @@ public class PerceptronTrainer extends AbstractEventTrainer {
     // A counter for the denominator for averaging.
     int numTimesSummed = 0;
 
+    double[] modelDistribution = new double[numOutcomes];
+
     double stepsize = 1;
     for (int i = 1; i <= iterations; i++) {
 
@@ -266,17 +278,22 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
       int numCorrect = 0;
 
-      for (int ei = 0; ei < numUniqueEvents; ei++) {
-        int targetOutcome = outcomeList[ei];
+      IndexedEvents.Cursor cursor = events.cursor();
+      while (cursor.next()) {
+        int[] context = cursor.getContext();
+        float[] contextValues = cursor.getValues();
+        int targetOutcome = cursor.getOutcome();
 
-        for (int ni = 0; ni < this.numTimesEventsSeen[ei]; ni++) {
+        for (int ni = 0; ni < cursor.getNumTimesSeen(); ni++) {
 
           // Compute the model's prediction according to the current parameters.
-          double[] modelDistribution = new double[numOutcomes];
-          if (values != null)
-            PerceptronModel.eval(contexts[ei], values[ei], modelDistribution, evalParams, false);
-          else
-            PerceptronModel.eval(contexts[ei], null, modelDistribution, evalParams, false);
+          Arrays.fill(modelDistribution, 0);
+          for (int ci = 0; ci < context.length; ci++) {
+            SparseParameters predParams = params[context[ci]];
+            if (predParams != null) {
+              predParams.addTo(modelDistribution, contextValues != null ? contextValues[ci] : 1);
+            }
+          }
 
           int maxOutcome = maxIndex(modelDistribution);
 
@@ -285,15 +302,15 @@ public class PerceptronTrainer extends AbstractEventTrainer {
           // associated with the target and reduce those associated
           // with the incorrect predicted outcome.
           if (maxOutcome != targetOutcome) {
-            for (int ci = 0; ci < contexts[ei].length; ci++) {
-              int pi = contexts[ei][ci];
-              if (values == null) {
-                params[pi].updateParameter(targetOutcome, stepsize);
-                params[pi].updateParameter(maxOutcome, -stepsize);
-              } else {
-                params[pi].updateParameter(targetOutcome, stepsize * values[ei][ci]);
-                params[pi].updateParameter(maxOutcome, -stepsize * values[ei][ci]);
+            for (int ci = 0; ci < context.length; ci++) {
+              int pi = context[ci];
+              if (params[pi] == null) {
+                params[pi] = new SparseParameters(useAverage);
               }
+
+              double update = contextValues == null ? stepsize : stepsize * contextValues[ci];
+              params[pi].update(targetOutcome, update, numTimesSummed);
+              params[pi].update(maxOutcome, -update, numTimesSummed);
             }
           }
 
@@ -314,11 +331,10 @@ public class PerceptronTrainer extends AbstractEventTrainer {
 
       doAveraging = useAverage && useSkippedlAveraging && (i < 20 || isPerfectSquare(i)) || useAverage;
 
+      // The parameters are summed lazily, a parameter is added to its sum
+      // once for every averaging iteration when it is updated the next time.
       if (doAveraging) {
         numTimesSummed++;
-        for (int pi = 0; pi < numPreds; pi++)
-          for (int aoi = 0; aoi < numOutcomes; aoi++)
-            summedParams[pi].updateParameter(aoi, params[pi].getParameters()[aoi]);
       }
 
       // If the tolerance is greater than the difference between the
@@ -337,40 +353,345 @@ public class PerceptronTrainer extends AbstractEventTrainer {
       prevAccuracy3 = trainingAccuracy;
     }
 
+    MutableContext[] finalParams = new MutableContext[numPreds];
+    MutableContext[] averagedParams = useAverage ? new MutableContext[numPreds] : null;
+
+    for (int pi = 0; pi < numPreds; pi++) {
+      SparseParameters predParams = params[pi] != null ? params[pi] : SparseParameters.EMPTY;
+      finalParams[pi] = predParams.toContext();
+      if (useAverage) {
+        averagedParams[pi] = predParams.toAveragedContext(numTimesSummed);
+      }
+    }
+
     // Output the final training stats.
-    trainingStats(evalParams);
+    trainingStats(new EvalParameters(finalParams, numOutcomes));
+
+    return useAverage ? averagedParams : finalParams;
+  }
+
+  /**
+   * The parameters of a predicate for the outcomes it was updated for, sorted by outcome.
+   * <p>
+   * For averaging the sum of each parameter over the averaging iterations is kept together
+   * with the number of averaging iterations it includes. A parameter only changes when it is
+   * updated, so the iterations it missed are added up at the next update, at the cost of the
+   * update instead of once per iteration for every parameter.
+   */
+  private static final class SparseParameters {
+
+    private static final SparseParameters EMPTY = new SparseParameters(false);
+
+    private int[] outcomes = new int[0];
+    private double[] parameters = new double[0];
+
+    /** The sums of the parameters over the averaging iterations, null without averaging. */
+    private double[] sums;
+
+    /** The number of averaging iterations which are included in the sums. */
+    private int[] numSummed;
+
+    private int size;
+
+    private SparseParameters(boolean useAverage) {
+      if (useAverage) {
+        sums = new double[0];
+        numSummed = new int[0];
+      }
+    }
+
+    private void addTo(double[] distribution, double value) {
+      for (int i = 0; i < size; i++) {
+        distribution[outcomes[i]] += parameters[i] * value;
+      }
+    }
+
+    /**
+     * Updates the parameter of an outcome.
+     *
+     * @param outcome the outcome
+     * @param update the value to add to the parameter
+     * @param numTimesSummed the number of averaging iterations which are completed
+     */
+    private void update(int outcome, double update, int numTimesSummed) {
+      int index = Arrays.binarySearch(outcomes, 0, size, outcome);
+      if (index < 0) {
+        index = insert(-(index + 1), outcome, numTimesSummed);
+      }
+
+      if (sums != null) {
+        sums[index] += parameters[index] * (numTimesSummed - numSummed[index]);
+        numSummed[index] = numTimesSummed;
+      }
+
+      parameters[index] += update;
+    }
+
+    private int insert(int index, int outcome, int numTimesSummed) {
+      if (size == outcomes.length) {
+        int capacity = Math.max(4, size * 2);
+        outcomes = Arrays.copyOf(outcomes, capacity);
+        parameters = Arrays.copyOf(parameters, capacity);
+        if (sums != null) {
+          sums = Arrays.copyOf(sums, capacity);
+          numSummed = Arrays.copyOf(numSummed, capacity);
+        }
+      }
+
+      int numMoved = size - index;
+      System.arraycopy(outcomes, index, outcomes, index + 1, numMoved);
+      System.arraycopy(parameters, index, parameters, index + 1, numMoved);
+      outcomes[index] = outcome;
+      parameters[index] = 0;
+
+      if (sums != null) {
+        System.arraycopy(sums, index, sums, index + 1, numMoved);
+        System.arraycopy(numSummed, index, numSummed, index + 1, numMoved);
+        sums[index] = 0;
+        // the parameter was zero in all completed iterations
+        numSummed[index] = numTimesSummed;
+      }
+
+      size++;
+      return index;
+    }
+
+    private MutableContext toContext() {
+      return new MutableContext(Arrays.copyOf(outcomes, size), Arrays.copyOf(parameters, size));
+    }
+
+    private MutableContext toAveragedContext(int numTimesSummed) {
+      double[] averaged = new double[size];
+      for (int i = 0; i < size; i++) {
+        double sum = sums[i] + parameters[i] * (numTimesSummed - numSummed[i]);
+        averaged[i] = sum / numTimesSummed;
+      }
+      return new MutableContext(Arrays.copyOf(outcomes, size), averaged);
+    }
+  }
+
+  private MutableContext[] findParametersInParallel(int iterations, boolean useAverage) {
+
+    int numShards = Math.min(threads, numUniqueEvents);
+
+    display("Performing " + iterations + " iterations in " + numShards + " threads.\n");
+
+    if ((long) numPreds * numOutcomes > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many parameters for parallel training: "
+          + numPreds + " predicates, " + numOutcomes + " outcomes");
+    }
+
+    int numWeights = numPreds * numOutcomes;
+
+    /* The parameters of predicate pi and outcome oi are stored at pi * numOutcomes + oi. */
+    double[] weights = new double[numWeights];
+    double[] summedWeights = useAverage ? new double[numWeights] : null;
+
+    /* The copy of the parameters each shard is trained on. */
+    double[][] shardWeights = new double[numShards][numWeights];
+
+    ExecutorService executor = Executors.newFixedThreadPool(numShards, runnable -> {
+      Thread thread = new Thread(runnable, "opennlp-perceptron-trainer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+      double prevAccuracy1 = 0.0;
+      double prevAccuracy2 = 0.0;
+      double prevAccuracy3 = 0.0;
+
+      int numTimesSummed = 0;
+
+      double stepsize = 1;
+      for (int i = 1; i <= iterations; i++) {
+
+        if (stepSizeDecrease != null)
+          stepsize *= 1 - stepSizeDecrease;
+
+        displayIteration(i);
+
+        boolean doAveraging =
+            useAverage && useSkippedlAveraging && (i < 20 || isPerfectSquare(i)) || useAverage;
+        if (doAveraging) {
+          numTimesSummed++;
+        }
 
-    // Create averaged parameters
-    if (useAverage) {
-      for (int pi = 0; pi < numPreds; pi++)
-        for (int aoi = 0; aoi < numOutcomes; aoi++)
-          summedParams[pi].setParameter(aoi, summedParams[pi].getParameters()[aoi] / numTimesSummed);
+        // train every shard on a copy of the current parameters
+        final double shardStepsize = stepsize;
+        List<Callable<Integer>> trainTasks = new ArrayList<>(numShards);
+        for (int si = 0; si < numShards; si++) {
+          final double[] shard = shardWeights[si];
+          final int start = (int) ((long) numUniqueEvents * si / numShards);
+          final int end = (int) ((long) numUniqueEvents * (si + 1) / numShards);
+          trainTasks.add(() -> {
+            System.arraycopy(weights, 0, shard, 0, numWeights);
+            return trainShard(shard, start, end, shardStepsize);
+          });
+        }
+
+        int numCorrect = 0;
+        for (int shardCorrect : computeInParallel(executor, trainTasks)) {
+          numCorrect += shardCorrect;
+        }
+
+        // mix the parameters of the shards, the ranges are split over the threads
+        List<Callable<Void>> mixTasks = new ArrayList<>(numShards);
+        for (int si = 0; si < numShards; si++) {
+          final int start = (int) ((long) numWeights * si / numShards);
+          final int end = (int) ((long) numWeights * (si + 1) / numShards);
+          mixTasks.add(() -> {
+            for (int wi = start; wi < end; wi++) {
+              double sum = 0;
+              for (double[] shard : shardWeights) {
+                sum += shard[wi];
+              }
+              weights[wi] = sum / numShards;
+
+              if (doAveraging) {
+                summedWeights[wi] += weights[wi];
+              }
+            }
+            return null;
+          });
+        }
+        computeInParallel(executor, mixTasks);
 
-      return summedParams;
+        double trainingAccuracy = (double) numCorrect / numEvents;
+        if (i < 10 || (i % 10) == 0)
+          display(". (" + numCorrect + "/" + numEvents + ") " + trainingAccuracy + "\n");
 
-    } else {
+        if (Math.abs(prevAccuracy1 - trainingAccuracy) < tolerance
+            && Math.abs(prevAccuracy2 - trainingAccuracy) < tolerance
+            && Math.abs(prevAccuracy3 - trainingAccuracy) < tolerance) {
+          display("Stopping: change in training set accuracy less than " + tolerance + "\n");
+          break;
+        }
+
+        prevAccuracy1 = prevAccuracy2;
+        prevAccuracy2 = prevAccuracy3;
+        prevAccuracy3 = trainingAccuracy;
+      }
 
-      return params;
+      MutableContext[] params = toContexts(weights, 1);
 
+      trainingStats(new EvalParameters(params, numOutcomes));
+
+      if (useAverage) {
+        return toContexts(summedWeights, numTimesSummed);
+      }
+      else {
+        return params;
+      }
+    }
+    finally {
+      executor.shutdown();
     }
+  }
 
+  /**
+   * Trains one epoch of the perceptron over a range of the events.
+   *
+   * @param weights the parameters, they are updated in place
+   * @param start the first event, inclusive
+   * @param end the last event, exclusive
+   * @param stepsize the size of an update
+   *
+   * @return the number of events which were predicted correctly
+   */
+  private int trainShard(double[] weights, int start, int end, double stepsize) {
+    double[] scores = new double[numOutcomes];
+    int numCorrect = 0;
+
+    IndexedEvents.Cursor cursor = events.cursor(start, end);
+    while (cursor.next()) {
+      int[] context = cursor.getContext();
+      float[] contextValues = cursor.getValues();
+      int targetOutcome = cursor.getOutcome();
+
+      for (int ni = 0; ni < cursor.getNumTimesSeen(); ni++) {
+
+        Arrays.fill(scores, 0);
+        for (int ci = 0; ci < context.length; ci++) {
+          int offset = context[ci] * numOutcomes;
+          double value = contextValues != null ? contextValues[ci] : 1;
+          for (int oi = 0; oi < numOutcomes; oi++) {
+            scores[oi] += weights[offset + oi] * value;
+          }
+        }
+
+        int maxOutcome = maxIndex(scores);
+
+        if (maxOutcome != targetOutcome) {
+          for (int ci = 0; ci < context.length; ci++) {
+            int offset = context[ci] * numOutcomes;
+            double update = contextValues != null ? stepsize * contextValues[ci] : stepsize;
+            weights[offset + targetOutcome] += update;
+            weights[offset + maxOutcome] -= update;
+          }
+        }
+        else {
+          numCorrect++;
+        }
+      }
+    }
+
+    return numCorrect;
+  }
+
+  private MutableContext[] toContexts(double[] weights, int divisor) {
+    int[] allOutcomesPattern = new int[numOutcomes];
+    for (int oi = 0; oi < numOutcomes; oi++)
+      allOutcomesPattern[oi] = oi;
+
+    MutableContext[] params = new MutableContext[numPreds];
+    for (int pi = 0; pi < numPreds; pi++) {
+      double[] predParams = new double[numOutcomes];
+      for (int oi = 0; oi < numOutcomes; oi++)
+        predParams[oi] = weights[pi * numOutcomes + oi] / divisor;
+      params[pi] = new MutableContext(allOutcomesPattern, predParams);
+    }
+    return params;
+  }
+
+  private static <T> List<T> computeInParallel(ExecutorService executor,
+      List<? extends Callable<T>> tasks) {
+    try {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while training in parallel", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
   private double trainingStats(EvalParameters evalParams) {
     int numCorrect = 0;
 
-    for (int ei = 0; ei < numUniqueEvents; ei++) {
-      for (int ni = 0; ni < this.numTimesEventsSeen[ei]; ni++) {
+    IndexedEvents.Cursor cursor = events.cursor();
+    while (cursor.next()) {
+      for (int ni = 0; ni < cursor.getNumTimesSeen(); ni++) {
 
         double[] modelDistribution = new double[numOutcomes];
 
-        if (values != null)
-          PerceptronModel.eval(contexts[ei], values[ei], modelDistribution, evalParams,false);
-        else
-          PerceptronModel.eval(contexts[ei], null, modelDistribution, evalParams, false);
+        PerceptronModel.eval(cursor.getContext(), cursor.getValues(), modelDistribution, evalParams,
+            false);
 
         int max = maxIndex(modelDistribution);
-        if (max == outcomeList[ei])
+        if (max == cursor.getOutcome())
           numCorrect++;
       }
     }
@@ -223,7 +223,8 @@ public class SimplePerceptronSequenceTrainer extends AbstractEventModelSequenceT
     for (int oi = 0; oi < numOutcomes; oi++) {
       featureCounts.add(new HashMap<>());
     }
-    PerceptronModel model = new PerceptronModel(params,predLabels,pmap,outcomeLabels);
+    // the model shares the params with the trainer and sees all updates
+    PerceptronModel model = new PerceptronModel(params,predLabels,outcomeLabels);
 
     sequenceStream.reset();
 
@@ -316,7 +317,6 @@ public class SimplePerceptronSequenceTrainer extends AbstractEventModelSequenceT
             }
           }
         }
-        model = new PerceptronModel(params,predLabels,pmap,outcomeLabels);
       }
       si++;
     }
@@ -347,12 +347,13 @@ public class SimplePerceptronSequenceTrainer extends AbstractEventModelSequenceT
     int numCorrect = 0;
     int oei = 0;
 
+    PerceptronModel model = new PerceptronModel(params,predLabels,outcomeLabels);
+
     sequenceStream.reset();
 
     Sequence sequence;
     while ((sequence = sequenceStream.read()) != null) {
-      Event[] taggerEvents = sequenceStream.updateContext(sequence,
-          new PerceptronModel(params,predLabels,pmap,outcomeLabels));
+      Event[] taggerEvents = sequenceStream.updateContext(sequence, model);
       for (int ei = 0; ei < taggerEvents.length; ei++, oei++) {
         int max = omap.get(taggerEvents[ei].getOutcome());
         if (max == outcomeList[oei]) {
@@ -20,6 +20,7 @@ package opennlp.tools.namefind;
 import java.util.ArrayList;
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.util.featuregen.AdaptiveFeatureGenerator;
 import opennlp.tools.util.featuregen.BigramNameFeatureGenerator;
 import opennlp.tools.util.featuregen.CachedFeatureGenerator;
@@ -140,4 +141,62 @@ public class DefaultNameContextGenerator implements NameContextGenerator {
 
     return features.toArray(new String[features.size()]);
   }
+
+  /**
+   * Adds the hashes of the context for finding names at the specified index to a buffer,
+   * they equal the hashes of the features returned by
+   * {@link #getContext(int, String[], String[], Object[])}.
+   *
+   * @param features The buffer the hashes are added to.
+   * @param index The index of the token in the specified toks array for which the
+   *              context should be constructed.
+   * @param tokens The tokens of the sentence.
+   * @param preds The previous decisions made in the tagging of this sequence.
+   *              Only indices less than i will be examined.
+   * @param additionalContext Addition features which may be based on a context outside of the sentence.
+   *
+   * @return true if the hashes were added, false for a subclass, which might change the
+   *     context without changing the hashes, unless it overrides this method
+   */
+  @Override
+  public boolean getContextHashes(FeatureHashBuffer features, int index, String[] tokens,
+      String[] preds, Object[] additionalContext) {
+
+    if (getClass() != DefaultNameContextGenerator.class) {
+      return false;
+    }
+
+    for (AdaptiveFeatureGenerator featureGenerator : featureGenerators) {
+      featureGenerator.createFeatureHashes(features, tokens, index, preds);
+    }
+
+    //previous outcome features
+    String po = NameFinderME.OTHER;
+    String ppo = NameFinderME.OTHER;
+
+    if (preds != null) {
+      if (index > 1) {
+        ppo = preds[index - 2];
+      }
+
+      if (index > 0) {
+        po = preds[index - 1];
+      }
+
+      long prefix = features.getPrefix();
+      long poState = FeatureHashBuffer.append(prefix, "po=");
+      features.add(FeatureHashBuffer.append(poState, po));
+
+      long powState = FeatureHashBuffer.append(FeatureHashBuffer.append(prefix, "pow="), po);
+      features.add(FeatureHashBuffer.append(FeatureHashBuffer.append(powState, ','), tokens[index]));
+
+      long powfState = FeatureHashBuffer.append(FeatureHashBuffer.append(prefix, "powf="), po);
+      features.add(FeatureHashBuffer.append(FeatureHashBuffer.append(powfState, ','),
+          FeatureGeneratorUtil.tokenFeature(tokens[index])));
+
+      features.add(FeatureHashBuffer.append(FeatureHashBuffer.append(prefix, "ppo="), ppo));
+    }
+
+    return true;
+  }
 }
@@ -51,6 +51,10 @@ import opennlp.tools.util.featuregen.WindowFeatureGenerator;
 
 /**
  * Class for creating a maximum-entropy-based name finder.
+ * <p>
+ * Instances are thread-safe and can be shared between threads. The feature context
+ * generator, and with it the adaptive data, is held per thread, every thread should
+ * process whole documents and call {@link #clearAdaptiveData()} at their end.
  */
 public class NameFinderME implements TokenNameFinder {
 
@@ -66,13 +70,39 @@ public class NameFinderME implements TokenNameFinder {
 
   protected SequenceClassificationModel<String> model;
 
+  /**
+   * @deprecated the field is not read by the name finder, it only holds the generator of
+   *     the thread which created the name finder, override {@link #getContextGenerator()}
+   *     to use a different context generator
+   */
+  @Deprecated
   protected NameContextGenerator contextGenerator;
-  private Sequence bestSequence;
 
-  private AdditionalContextFeatureGenerator additionalContextFeatureGenerator
-          = new AdditionalContextFeatureGenerator();
+  private final ThreadLocal<FinderState> states;
+
   private SequenceValidator<String> sequenceValidator;
 
+  /**
+   * The state of the name finder which is confined to a single thread.
+   */
+  private static final class FinderState {
+
+    private final NameContextGenerator contextGenerator;
+
+    private final AdditionalContextFeatureGenerator additionalContextFeatureGenerator
+        = new AdditionalContextFeatureGenerator();
+
+    private Sequence bestSequence;
+
+    private FinderState(TokenNameFinderFactory factory) {
+      contextGenerator = factory.createContextGenerator();
+
+      // TODO: We should deprecate this. And come up with a better solution!
+      contextGenerator.addFeatureGenerator(
+          new WindowFeatureGenerator(additionalContextFeatureGenerator, 8, 8));
+    }
+  }
+
   public NameFinderME(TokenNameFinderModel model) {
 
     TokenNameFinderFactory factory = model.getFactory();
@@ -80,11 +110,8 @@ public class NameFinderME implements TokenNameFinder {
     seqCodec = factory.createSequenceCodec();
     sequenceValidator = seqCodec.createSequenceValidator();
     this.model = model.getNameFinderSequenceModel();
-    contextGenerator = factory.createContextGenerator();
-
-    // TODO: We should deprecate this. And come up with a better solution!
-    contextGenerator.addFeatureGenerator(
-            new WindowFeatureGenerator(additionalContextFeatureGenerator, 8, 8));
+    states = ThreadLocal.withInitial(() -> new FinderState(factory));
+    contextGenerator = states.get().contextGenerator;
   }
 
   private static AdaptiveFeatureGenerator createFeatureGenerator(
@@ -111,6 +138,18 @@ public class NameFinderME implements TokenNameFinder {
     return find(tokens, EMPTY);
   }
 
+  /**
+   * Retrieves the context generator of the calling thread. The name finder creates one
+   * context generator per thread, which also generates the features of the additional
+   * context. A subclass which overrides this method must ensure that the returned
+   * generator is not shared across threads.
+   *
+   * @return the context generator used to find names in the calling thread
+   */
+  protected NameContextGenerator getContextGenerator() {
+    return states.get().contextGenerator;
+  }
+
   /**
    * Generates name tags for the given sequence, typically a sentence, returning
    * token spans for any identified names.
@@ -123,11 +162,16 @@ public class NameFinderME implements TokenNameFinder {
    */
   public Span[] find(String[] tokens, String[][] additionalContext) {
 
-    additionalContextFeatureGenerator.setCurrentContext(additionalContext);
+    FinderState state = states.get();
+
+    state.additionalContextFeatureGenerator.setCurrentContext(additionalContext);
 
-    bestSequence = model.bestSequence(tokens, additionalContext, contextGenerator, sequenceValidator);
+    NameContextGenerator contextGenerator = getContextGenerator();
 
-    List<String> c = bestSequence.getOutcomes();
+    state.bestSequence = model.bestSequence(tokens, additionalContext, contextGenerator,
+        sequenceValidator);
+
+    List<String> c = state.bestSequence.getOutcomes();
 
     contextGenerator.updateAdaptiveData(tokens, c.toArray(new String[c.size()]));
     Span[] spans = seqCodec.decode(c);
@@ -135,14 +179,35 @@ public class NameFinderME implements TokenNameFinder {
     return spans;
   }
 
+  /**
+   * Finds the names in the sentences of a document. The sentences are processed
+   * in order and the adaptive data is updated after every sentence, exactly as if
+   * {@link #find(String[])} was called for each of them. Call {@link #clearAdaptiveData()}
+   * at the end of the document. The contexts are not generated and evaluated in one pass
+   * over the batch, because they depend on the previous outcomes and the adaptive data.
+   *
+   * @param sentences the tokens of each sentence of the document
+   *
+   * @return the spans of the names found in each sentence
+   */
+  public Span[][] find(String[][] sentences) {
+    Span[][] names = new Span[sentences.length][];
+
+    for (int i = 0; i < sentences.length; i++) {
+      names[i] = find(sentences[i]);
+    }
+
+    return names;
+  }
+
   /**
    * Forgets all adaptive data which was collected during previous calls to one
-   * of the find methods.
+   * of the find methods by the calling thread.
    *
    * This method is typical called at the end of a document.
    */
   public void clearAdaptiveData() {
-    contextGenerator.clearAdaptiveData();
+    getContextGenerator().clearAdaptiveData();
   }
 
   /**
@@ -155,7 +220,7 @@ public class NameFinderME implements TokenNameFinder {
    *     sequence.
    */
   public void probs(double[] probs) {
-    bestSequence.getProbs(probs);
+    states.get().bestSequence.getProbs(probs);
   }
 
   /**
@@ -166,7 +231,7 @@ public class NameFinderME implements TokenNameFinder {
    *     to <code>chunk</code> when it was last called.
    */
   public double[] probs() {
-    return bestSequence.getProbs();
+    return states.get().bestSequence.getProbs();
   }
 
   /**
@@ -199,7 +264,7 @@ public class NameFinderME implements TokenNameFinder {
   public double[] probs(Span[] spans) {
 
     double[] sprobs = new double[spans.length];
-    double[] probs = bestSequence.getProbs();
+    double[] probs = states.get().bestSequence.getProbs();
 
     for (int si = 0; si < spans.length; si++) {
 
@@ -234,6 +299,11 @@ public class NameFinderME implements TokenNameFinder {
 
     Map<String, String> manifestInfoEntries = new HashMap<>();
 
+    String cacheSizeString = trainParams.getSettings().get(BeamSearch.CACHE_SIZE_PARAMETER);
+    if (cacheSizeString != null) {
+      manifestInfoEntries.put(BeamSearch.CACHE_SIZE_PARAMETER, cacheSizeString);
+    }
+
     MaxentModel nameFinderModel = null;
 
     SequenceClassificationModel<String> seqModel = null;
@@ -32,6 +32,7 @@ import opennlp.tools.util.featuregen.AdaptiveFeatureGenerator;
 import opennlp.tools.util.featuregen.AggregatedFeatureGenerator;
 import opennlp.tools.util.featuregen.BigramNameFeatureGenerator;
 import opennlp.tools.util.featuregen.CachedFeatureGenerator;
+import opennlp.tools.util.featuregen.FusedFeatureGenerator;
 import opennlp.tools.util.featuregen.GeneratorFactory;
 import opennlp.tools.util.featuregen.OutcomePriorFeatureGenerator;
 import opennlp.tools.util.featuregen.PreviousMapFeatureGenerator;
@@ -159,7 +160,7 @@ public class TokenNameFinderFactory extends BaseToolFactory {
           new SentenceFeatureGenerator(true, false));
     }
 
-    return new DefaultNameContextGenerator(featureGenerator);
+    return new DefaultNameContextGenerator(new FusedFeatureGenerator(featureGenerator));
   }
 
   /**
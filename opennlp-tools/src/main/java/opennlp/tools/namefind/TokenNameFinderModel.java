@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Properties;
 
@@ -107,6 +108,14 @@ public class TokenNameFinderModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public TokenNameFinderModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public TokenNameFinderModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public TokenNameFinderModel(URL modelURL) throws IOException {
     super(COMPONENT_NAME, modelURL);
   }
@@ -150,7 +159,8 @@ public class TokenNameFinderModel extends BaseModel {
         beamSize = Integer.parseInt(beamSizeString);
       }
 
-      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(MAXENT_MODEL_ENTRY_NAME));
+      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(MAXENT_MODEL_ENTRY_NAME),
+          getContextCache());
     }
     else if (artifactMap.get(MAXENT_MODEL_ENTRY_NAME) instanceof SequenceClassificationModel) {
       return (SequenceClassificationModel) artifactMap.get(MAXENT_MODEL_ENTRY_NAME);
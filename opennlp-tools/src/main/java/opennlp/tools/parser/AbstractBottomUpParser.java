@@ -22,12 +22,14 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import opennlp.tools.chunker.Chunker;
 import opennlp.tools.dictionary.Dictionary;
 import opennlp.tools.ngram.NGramModel;
 import opennlp.tools.parser.chunking.ParserEventStream;
 import opennlp.tools.postag.POSTagger;
+import opennlp.tools.util.BatchProcessor;
 import opennlp.tools.util.Heap;
 import opennlp.tools.util.ListHeap;
 import opennlp.tools.util.ObjectStream;
@@ -172,6 +174,12 @@ public abstract class AbstractBottomUpParser implements Parser {
    */
   protected boolean debugOn = false;
 
+  /**
+   * The executor the derivations of a parse are advanced on, null if they are
+   * advanced in the calling thread.
+   */
+  private Executor executor;
+
   public AbstractBottomUpParser(POSTagger tagger, Chunker chunker, HeadRules headRules,
       int beamSize, double advancePercentage) {
     this.tagger = tagger;
@@ -196,6 +204,18 @@ public abstract class AbstractBottomUpParser implements Parser {
     this.reportFailedParse = errorReporting;
   }
 
+  /**
+   * Specifies an executor to advance the derivations of a parse stage concurrently.
+   * The advanced parses are merged in the order of the derivations, therefore the
+   * parser returns the same parses as without an executor. The pos-tagging and chunking
+   * stages are still done in the calling thread.
+   *
+   * @param executor the executor, or null to advance the derivations in the calling thread
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
   /**
    * Assigns parent references for the specified parse so that they
    * are consistent with the children references.
@@ -281,6 +301,11 @@ public abstract class AbstractBottomUpParser implements Parser {
         && derivationStage < maxDerivationLength) {
       ndh = new ListHeap<>(K);
 
+      Parse[][] advancedParses = null;
+      if (executor != null && derivationStage > 1) {
+        advancedParses = advanceParsesConcurrently();
+      }
+
       int derivationRank = 0;
       for (Iterator<Parse> pi = odh.iterator(); pi.hasNext()
           && derivationRank < K; derivationRank++) { // forearch derivation
@@ -314,6 +339,9 @@ public abstract class AbstractBottomUpParser implements Parser {
             nd = advanceChunks(tp,(ndh.last()).getProb());
           }
         }
+        else if (advancedParses != null) {
+          nd = advancedParses[derivationRank];
+        }
         else { // i > 1
           nd = advanceParses(tp, Q);
         }
@@ -367,6 +395,28 @@ public abstract class AbstractBottomUpParser implements Parser {
     }
   }
 
+  /**
+   * Advances the first K derivations of the current stage on the executor.
+   *
+   * @return the advanced parses of each derivation, in the order of the derivations
+   */
+  private Parse[][] advanceParsesConcurrently() {
+    Parse[] derivations = new Parse[Math.min(K, odh.size())];
+    Iterator<Parse> pi = odh.iterator();
+    for (int di = 0; di < derivations.length; di++) {
+      derivations[di] = pi.next();
+    }
+
+    Parse[][] advancedParses = new Parse[derivations.length][];
+    BatchProcessor.process(derivations.length, executor, (start, end) -> {
+      for (int di = start; di < end; di++) {
+        advancedParses[di] = advanceParses(derivations[di], Q);
+      }
+    });
+
+    return advancedParses;
+  }
+
   public Parse parse(Parse tokens) {
 
     if (tokens.getChildCount() > 0) {
@@ -422,8 +472,8 @@ public abstract class AbstractBottomUpParser implements Parser {
         else { //make previous constituent if it exists
           if (type != null) {
             //System.err.println("inserting tag "+tags[j]);
-            Parse p1 = p.getChildren()[start];
-            Parse p2 = p.getChildren()[end];
+            Parse p1 = children[start];
+            Parse p2 = children[end];
             // System.err.println("Putting "+type+" at "+start+","+end+" for "
             // +j+" "+newParses[si].getProb());
             Parse[] cons = new Parse[end - start + 1];
@@ -433,7 +483,7 @@ public abstract class AbstractBottomUpParser implements Parser {
               cons[end - start] = p2;
               //cons[end-start].label="Cont-"+type;
               for (int ci = 1; ci < end - start; ci++) {
-                cons[ci] = p.getChildren()[ci + start];
+                cons[ci] = children[ci + start];
                 //cons[ci].label="Cont-"+type;
               }
             }
@@ -18,6 +18,7 @@
 
 package opennlp.tools.parser;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -62,10 +63,16 @@ public class Parse implements Cloneable, Comparable<Parse> {
   private String type;
 
   /**
-   * The sub-constituents of this parse.
+   * The sub-constituents of this parse. A clone shares the list with the parse it was
+   * cloned from until one of them changes its sub-constituents, see {@link #ownParts()}.
    */
   private List<Parse> parts;
 
+  /**
+   * Specifies whether the sub-constituents list may be shared with another parse.
+   */
+  private boolean sharedParts;
+
   /**
    * The head parse of this parse. A parse can be its own head.
    */
@@ -121,14 +128,16 @@ public class Parse implements Cloneable, Comparable<Parse> {
 
   /**
    * The set of punctuation parses which are between this parse and the previous parse.
+   * The set is replaced rather than changed when punctuation is added, because the node
+   * can be shared by parses which are advanced concurrently.
    */
-  private Collection<Parse> prevPunctSet;
+  private volatile Collection<Parse> prevPunctSet;
 
   /**
    * The set of punctuation parses which are between this parse and
    * the subsequent parse.
    */
-  private Collection<Parse> nextPunctSet;
+  private volatile Collection<Parse> nextPunctSet;
 
   /**
    * Specifies whether constituent labels should include parts specified
@@ -153,7 +162,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
     this.prob = p;
     this.head = this;
     this.headIndex = index;
-    this.parts = new LinkedList<>();
+    this.parts = new ArrayList<>();
     this.label = null;
     this.parent = null;
   }
@@ -179,17 +188,33 @@ public class Parse implements Cloneable, Comparable<Parse> {
   @Override
   public Object clone() {
     Parse p = new Parse(this.text, this.span, this.type, this.prob, this.head);
-    p.parts = new LinkedList<>();
-    p.parts.addAll(this.parts);
+    // the children are copied when either parse changes them
+    p.parts = this.parts;
+    p.sharedParts = true;
+    this.sharedParts = true;
 
     if (derivation != null) {
-      p.derivation = new StringBuffer(100);
-      p.derivation.append(this.derivation.toString());
+      p.derivation = new StringBuffer(derivation.length() + 16);
+      p.derivation.append(this.derivation);
     }
     p.label = this.label;
     return (p);
   }
 
+  /**
+   * Retrieves the sub-constituents of this parse to change them, the list is
+   * copied first if it is shared with another parse.
+   *
+   * @return the sub-constituents of this parse
+   */
+  private List<Parse> ownParts() {
+    if (sharedParts) {
+      parts = new ArrayList<>(parts);
+      sharedParts = false;
+    }
+    return parts;
+  }
+
   /**
    * Clones the right frontier of parse up to the specified node.
    *
@@ -203,7 +228,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
     else {
       Parse c = (Parse) this.clone();
       Parse lc = c.parts.get(parts.size() - 1);
-      c.parts.set(parts.size() - 1,lc.clone(node));
+      c.ownParts().set(parts.size() - 1,lc.clone(node));
       return c;
     }
   }
@@ -218,7 +243,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
   public Parse cloneRoot(Parse node, int parseIndex) {
     Parse c = (Parse) this.clone();
     Parse fc = c.parts.get(parseIndex);
-    c.parts.set(parseIndex,fc.clone(node));
+    c.ownParts().set(parseIndex,fc.clone(node));
     return c;
   }
 
@@ -264,11 +289,8 @@ public class Parse implements Cloneable, Comparable<Parse> {
    *
    * @param punct The punctuation.
    */
-  public void addPreviousPunctuation(Parse punct) {
-    if (this.prevPunctSet == null) {
-      this.prevPunctSet = new TreeSet<>();
-    }
-    prevPunctSet.add(punct);
+  public synchronized void addPreviousPunctuation(Parse punct) {
+    prevPunctSet = addPunctuation(prevPunctSet, punct);
   }
 
   /**
@@ -285,11 +307,22 @@ public class Parse implements Cloneable, Comparable<Parse> {
    *
    * @param punct The punctuation set.
    */
-  public void addNextPunctuation(Parse punct) {
-    if (this.nextPunctSet == null) {
-      this.nextPunctSet = new TreeSet<>();
+  public synchronized void addNextPunctuation(Parse punct) {
+    nextPunctSet = addPunctuation(nextPunctSet, punct);
+  }
+
+  private static Collection<Parse> addPunctuation(Collection<Parse> punctSet, Parse punct) {
+    if (punctSet == null) {
+      punctSet = new TreeSet<>();
+    }
+    else if (punctSet.contains(punct)) {
+      return punctSet;
+    }
+    else {
+      punctSet = new TreeSet<>(punctSet);
     }
-    nextPunctSet.add(punct);
+    punctSet.add(punct);
+    return punctSet;
   }
 
   /**
@@ -332,9 +365,9 @@ public class Parse implements Cloneable, Comparable<Parse> {
         // constituent contains subPart
         else if (ic.contains(sp)) {
           //System.err.println("Parse.insert:con contains subPart");
-          parts.remove(pi);
+          ownParts().remove(pi);
           pi--;
-          constituent.parts.add(subPart);
+          constituent.ownParts().add(subPart);
           subPart.setParent(constituent);
           //System.err.println("Parse.insert: "+subPart.hashCode()+" -> "+subPart.getParent().hashCode());
           pn = parts.size();
@@ -346,7 +379,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
         }
       }
       //System.err.println("Parse.insert:adding con="+constituent+" to "+this);
-      parts.add(pi, constituent);
+      ownParts().add(pi, constituent);
       constituent.setParent(this);
       // System.err.println("Parse.insert: "+constituent.hashCode()+" -> "
       // +constituent.getParent().hashCode());
@@ -506,14 +539,14 @@ public class Parse implements Cloneable, Comparable<Parse> {
   public void setChild(int index, String label) {
     Parse newChild = (Parse) (parts.get(index)).clone();
     newChild.setLabel(label);
-    parts.set(index,newChild);
+    ownParts().set(index,newChild);
   }
 
   public void add(Parse daughter, HeadRules rules) {
     if (daughter.prevPunctSet != null) {
-      parts.addAll(daughter.prevPunctSet);
+      ownParts().addAll(daughter.prevPunctSet);
     }
-    parts.add(daughter);
+    ownParts().add(daughter);
     this.span = new Span(span.getStart(),daughter.getSpan().getEnd());
     this.head = rules.getHead(getChildren(),type);
     if (head == null) {
@@ -523,7 +556,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
   }
 
   public void remove(int index) {
-    parts.remove(index);
+    ownParts().remove(index);
     if (! parts.isEmpty()) {
       if (index == 0 || index == parts.size()) { //size is orig last element
         span = new Span((parts.get(0)).span.getStart(),(parts.get(parts.size() - 1)).span.getEnd());
@@ -541,7 +574,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
       adjNode.parts.addAll(node.prevPunctSet);
     }
     adjNode.parts.add(node);
-    parts.set(parseIndex,adjNode);
+    ownParts().set(parseIndex,adjNode);
     return adjNode;
   }
 
@@ -562,7 +595,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
       adjNode.parts.addAll(sister.prevPunctSet);
     }
     adjNode.parts.add(sister);
-    parts.set(parts.size() - 1, adjNode);
+    ownParts().set(parts.size() - 1, adjNode);
     this.span = new Span(span.getStart(),sister.getSpan().getEnd());
     this.head = rules.getHead(getChildren(),type);
     this.headIndex = head.headIndex;
@@ -578,13 +611,13 @@ public class Parse implements Cloneable, Comparable<Parse> {
         beforeRoot = false;
       }
       else if (beforeRoot) {
-        root.parts.add(ai,node);
-        parts.remove(pi);
+        root.ownParts().add(ai,node);
+        ownParts().remove(pi);
         pi--;
       }
       else {
-        root.parts.add(node);
-        parts.remove(pi);
+        root.ownParts().add(node);
+        ownParts().remove(pi);
         pi--;
       }
     }
@@ -795,7 +828,7 @@ public class Parse implements Cloneable, Comparable<Parse> {
       if (children.length == 1 && node.getType().equals(children[0].getType())) {
         int index = node.getParent().parts.indexOf(node);
         children[0].setParent(node.getParent());
-        node.getParent().parts.set(index,children[0]);
+        node.getParent().ownParts().set(index,children[0]);
         node.parent = null;
         node.parts = null;
       }
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 
@@ -181,6 +182,14 @@ public class ParserModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public ParserModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public ParserModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public ParserModel(URL modelURL) throws IOException {
     super(COMPONENT_NAME, modelURL);
   }
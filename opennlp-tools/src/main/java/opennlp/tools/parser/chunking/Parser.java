@@ -61,9 +61,6 @@ public class Parser extends AbstractBottomUpParser {
   private BuildContextGenerator buildContextGenerator;
   private CheckContextGenerator checkContextGenerator;
 
-  private double[] bprobs;
-  private double[] cprobs;
-
   private static final String TOP_START = START + TOP_NODE;
   private int topStartIndex;
   private Map<String, String> startTypeMap;
@@ -100,8 +97,6 @@ public class Parser extends AbstractBottomUpParser {
     super(tagger, chunker, headRules, beamSize, advancePercentage);
     this.buildModel = buildModel;
     this.checkModel = checkModel;
-    bprobs = new double[buildModel.getNumOutcomes()];
-    cprobs = new double[checkModel.getNumOutcomes()];
     this.buildContextGenerator = new BuildContextGenerator();
     this.checkContextGenerator = new CheckContextGenerator();
     startTypeMap = new HashMap<>();
@@ -124,6 +119,8 @@ public class Parser extends AbstractBottomUpParser {
 
   @Override
   protected void advanceTop(Parse p) {
+    double[] bprobs = new double[buildModel.getNumOutcomes()];
+    double[] cprobs = new double[checkModel.getNumOutcomes()];
     buildModel.eval(buildContextGenerator.getContext(p.getChildren(), 0), bprobs);
     p.addProb(Math.log(bprobs[topStartIndex]));
     checkModel.eval(checkContextGenerator.getContext(p.getChildren(), TOP_NODE, 0, 0), cprobs);
@@ -165,6 +162,9 @@ public class Parser extends AbstractBottomUpParser {
     }
     int originalAdvanceIndex = mapParseIndex(advanceNodeIndex,children,originalChildren);
     List<Parse> newParsesList = new ArrayList<>(buildModel.getNumOutcomes());
+    // the probabilities are not shared, the parses can be advanced concurrently
+    double[] bprobs = new double[buildModel.getNumOutcomes()];
+    double[] cprobs = new double[checkModel.getNumOutcomes()];
     //call build
     buildModel.eval(buildContextGenerator.getContext(children, advanceNodeIndex), bprobs);
     double bprobSum = 0;
@@ -29,11 +29,8 @@ import opennlp.tools.parser.Parse;
 
 public class CheckContextGenerator extends AbstractContextGenerator {
 
-  private Parse[] leftNodes;
-
   public CheckContextGenerator(Set<String> punctSet) {
     this.punctSet = punctSet;
-    leftNodes = new Parse[2];
   }
 
   public String[] getContext(Object arg0) {
@@ -82,6 +79,7 @@ public class CheckContextGenerator extends AbstractContextGenerator {
       }
     }
 
+    Parse[] leftNodes = new Parse[2];
     getFrontierNodes(rf,leftNodes);
     Parse p_1 = leftNodes[0];
     Parse p_2 = leftNodes[1];
@@ -85,10 +85,6 @@ public class Parser extends AbstractBottomUpParser {
   private AttachContextGenerator attachContextGenerator;
   private CheckContextGenerator checkContextGenerator;
 
-  private double[] bprobs;
-  private double[] aprobs;
-  private double[] cprobs;
-
   private int doneIndex;
   private int sisterAttachIndex;
   private int daughterAttachIndex;
@@ -121,10 +117,6 @@ public class Parser extends AbstractBottomUpParser {
     this.attachContextGenerator = new AttachContextGenerator(punctSet);
     this.checkContextGenerator = new CheckContextGenerator(punctSet);
 
-    this.bprobs = new double[buildModel.getNumOutcomes()];
-    this.aprobs = new double[attachModel.getNumOutcomes()];
-    this.cprobs = new double[checkModel.getNumOutcomes()];
-
     this.doneIndex = buildModel.getIndex(DONE);
     this.sisterAttachIndex = attachModel.getIndex(ATTACH_SISTER);
     this.daughterAttachIndex = attachModel.getIndex(ATTACH_DAUGHTER);
@@ -245,6 +237,10 @@ public class Parser extends AbstractBottomUpParser {
     int originalZeroIndex = mapParseIndex(0,children,originalChildren);
     int originalAdvanceIndex = mapParseIndex(advanceNodeIndex,children,originalChildren);
     List<Parse> newParsesList = new ArrayList<>();
+    // the probabilities are not shared, the parses can be advanced concurrently
+    double[] bprobs = new double[buildModel.getNumOutcomes()];
+    double[] aprobs = new double[attachModel.getNumOutcomes()];
+    double[] cprobs;
     //call build model
     buildModel.eval(buildContextGenerator.getContext(children, advanceNodeIndex), bprobs);
     double doneProb = bprobs[doneIndex];
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
@@ -98,6 +99,14 @@ public final class POSModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public POSModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public POSModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public POSModel(URL modelURL) throws IOException {
     super(COMPONENT_NAME, modelURL);
   }
@@ -142,7 +151,8 @@ public final class POSModel extends BaseModel {
         beamSize = Integer.parseInt(beamSizeString);
       }
 
-      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(POS_MODEL_ENTRY_NAME));
+      return new BeamSearch<>(beamSize, (MaxentModel) artifactMap.get(POS_MODEL_ENTRY_NAME),
+          getContextCache());
     }
     else if (artifactMap.get(POS_MODEL_ENTRY_NAME) instanceof SequenceClassificationModel) {
       return (SequenceClassificationModel) artifactMap.get(POS_MODEL_ENTRY_NAME);
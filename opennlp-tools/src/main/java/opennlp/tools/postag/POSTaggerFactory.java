@@ -39,6 +39,7 @@ import opennlp.tools.util.Version;
 import opennlp.tools.util.ext.ExtensionLoader;
 import opennlp.tools.util.featuregen.AdaptiveFeatureGenerator;
 import opennlp.tools.util.featuregen.AggregatedFeatureGenerator;
+import opennlp.tools.util.featuregen.FusedFeatureGenerator;
 import opennlp.tools.util.featuregen.GeneratorFactory;
 import opennlp.tools.util.model.ArtifactSerializer;
 import opennlp.tools.util.model.UncloseableInputStream;
@@ -270,7 +271,8 @@ public class POSTaggerFactory extends BaseToolFactory {
 
   public POSContextGenerator getPOSContextGenerator(int cacheSize) {
     if (Version.currentVersion().getMinor() >= 8) {
-      return new ConfigurablePOSContextGenerator(cacheSize, createFeatureGenerators());
+      return new ConfigurablePOSContextGenerator(cacheSize,
+          new FusedFeatureGenerator(createFeatureGenerators()));
     }
 
     return new DefaultPOSContextGenerator(cacheSize, getDictionary());
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import opennlp.tools.dictionary.Dictionary;
@@ -36,6 +37,7 @@ import opennlp.tools.ml.model.Event;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.SequenceClassificationModel;
 import opennlp.tools.ngram.NGramModel;
+import opennlp.tools.util.BatchProcessor;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.Sequence;
 import opennlp.tools.util.SequenceValidator;
@@ -48,7 +50,10 @@ import opennlp.tools.util.featuregen.StringPattern;
  * A part-of-speech tagger that uses maximum entropy.  Tries to predict whether
  * words are nouns, verbs, or any of 70 other POS tags depending on their
  * surrounding context.
- *
+ * <p>
+ * Instances are thread-safe and can be shared between threads, the feature context
+ * generator and the last tagged sentence are held per thread. The probabilities
+ * returned by {@link #probs()} belong to the last sentence tagged by the calling thread.
  */
 public class POSTaggerME implements POSTagger {
 
@@ -58,9 +63,16 @@ public class POSTaggerME implements POSTagger {
 
   /**
    * The feature context generator.
+   *
+   * @deprecated the field is not read by the tagger, it only holds the generator of
+   *     the thread which created the tagger, override {@link #getContextGenerator()}
+   *     to use a different context generator
    */
+  @Deprecated
   protected POSContextGenerator contextGen;
 
+  private final ThreadLocal<POSContextGenerator> contextGenerators;
+
   /**
    * Tag dictionary used for restricting words to a fixed set of tags.
    */
@@ -80,7 +92,7 @@ public class POSTaggerME implements POSTagger {
    */
   protected int size;
 
-  private Sequence bestSequence;
+  private final ThreadLocal<Sequence> bestSequence = new ThreadLocal<>();
 
   private SequenceClassificationModel<String> model;
 
@@ -104,7 +116,9 @@ public class POSTaggerME implements POSTagger {
 
     modelPackage = model;
 
-    contextGen = factory.getPOSContextGenerator(beamSize);
+    final int cacheSize = beamSize;
+    contextGenerators = ThreadLocal.withInitial(() -> factory.getPOSContextGenerator(cacheSize));
+    contextGen = contextGenerators.get();
     tagDictionary = factory.getTagDictionary();
     size = beamSize;
 
@@ -120,6 +134,17 @@ public class POSTaggerME implements POSTagger {
 
   }
 
+  /**
+   * Retrieves the context generator of the calling thread. The tagger creates one
+   * context generator per thread, a subclass which overrides this method must ensure
+   * that the returned generator is not shared across threads.
+   *
+   * @return the context generator used to tag in the calling thread
+   */
+  protected POSContextGenerator getContextGenerator() {
+    return contextGenerators.get();
+  }
+
   /**
    * Retrieves an array of all possible part-of-speech tags from the
    * tagger.
@@ -135,11 +160,50 @@ public class POSTaggerME implements POSTagger {
   }
 
   public String[] tag(String[] sentence, Object[] additionaContext) {
-    bestSequence = model.bestSequence(sentence, additionaContext, contextGen, sequenceValidator);
-    List<String> t = bestSequence.getOutcomes();
+    Sequence sequence = model.bestSequence(sentence, additionaContext, getContextGenerator(),
+        sequenceValidator);
+    bestSequence.set(sequence);
+    List<String> t = sequence.getOutcomes();
     return t.toArray(new String[t.size()]);
   }
 
+  /**
+   * Tags a batch of sentences. The sentences are tagged one after another with
+   * {@link #tag(String[])}, the contexts are not generated and evaluated in one pass
+   * over the batch because they depend on the previously assigned tags. Contexts which
+   * repeat across the batch are evaluated once if the model enables the context cache
+   * with the {@link BeamSearch#CACHE_SIZE_PARAMETER} parameter.
+   *
+   * @param sentences the sentences, each an array of tokens
+   *
+   * @return the tags of each sentence
+   */
+  public String[][] tag(String[][] sentences) {
+    return tag(sentences, null);
+  }
+
+  /**
+   * Tags a batch of sentences. The batch is split into partitions which are tagged
+   * in parallel on the executor by this tagger.
+   *
+   * @param sentences the sentences, each an array of tokens
+   * @param executor the executor to tag the partitions on, or null to tag the
+   *     batch in the calling thread
+   *
+   * @return the tags of each sentence
+   */
+  public String[][] tag(String[][] sentences, Executor executor) {
+    String[][] tags = new String[sentences.length][];
+
+    BatchProcessor.process(sentences.length, executor, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        tags[i] = tag(sentences[i]);
+      }
+    });
+
+    return tags;
+  }
+
   /**
    * Returns at most the specified number of taggings for the specified sentence.
    *
@@ -150,7 +214,7 @@ public class POSTaggerME implements POSTagger {
    */
   public String[][] tag(int numTaggings, String[] sentence) {
     Sequence[] bestSequences = model.bestSequences(numTaggings, sentence, null,
-        contextGen, sequenceValidator);
+        getContextGenerator(), sequenceValidator);
     String[][] tags = new String[bestSequences.length][];
     for (int si = 0; si < tags.length; si++) {
       List<String> t = bestSequences[si].getOutcomes();
@@ -164,7 +228,8 @@ public class POSTaggerME implements POSTagger {
   }
 
   public Sequence[] topKSequences(String[] sentence, Object[] additionaContext) {
-    return model.bestSequences(size, sentence, additionaContext, contextGen, sequenceValidator);
+    return model.bestSequences(size, sentence, additionaContext, getContextGenerator(),
+        sequenceValidator);
   }
 
   /**
@@ -173,7 +238,7 @@ public class POSTaggerME implements POSTagger {
    * @param probs An array to put the probabilities into.
    */
   public void probs(double[] probs) {
-    bestSequence.getProbs(probs);
+    bestSequence.get().getProbs(probs);
   }
 
   /**
@@ -182,7 +247,7 @@ public class POSTaggerME implements POSTagger {
    * @return an array with the probabilities for each tag of the last tagged sentence.
    */
   public double[] probs() {
-    return bestSequence.getProbs();
+    return bestSequence.get().getProbs();
   }
 
   public String[] getOrderedTags(List<String> words, List<String> tags, int index) {
@@ -195,7 +260,7 @@ public class POSTaggerME implements POSTagger {
 
       MaxentModel posModel = modelPackage.getPosModel();
 
-      double[] probs = posModel.eval(contextGen.getContext(index,
+      double[] probs = posModel.eval(getContextGenerator().getContext(index,
           words.toArray(new String[words.size()]),
           tags.toArray(new String[tags.size()]),null));
 
@@ -236,6 +301,11 @@ public class POSTaggerME implements POSTagger {
 
     Map<String, String> manifestInfoEntries = new HashMap<>();
 
+    String cacheSizeString = trainParams.getSettings().get(BeamSearch.CACHE_SIZE_PARAMETER);
+    if (cacheSizeString != null) {
+      manifestInfoEntries.put(BeamSearch.CACHE_SIZE_PARAMETER, cacheSizeString);
+    }
+
     TrainerType trainerType = TrainerFactory.getTrainerType(trainParams);
 
     MaxentModel posModel = null;
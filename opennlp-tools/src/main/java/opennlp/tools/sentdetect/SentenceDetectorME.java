@@ -20,11 +20,13 @@ package opennlp.tools.sentdetect;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import opennlp.tools.dictionary.Dictionary;
 import opennlp.tools.ml.EventTrainer;
@@ -32,6 +34,7 @@ import opennlp.tools.ml.TrainerFactory;
 import opennlp.tools.ml.model.Event;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.sentdetect.lang.Factory;
+import opennlp.tools.util.BatchProcessor;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.Span;
 import opennlp.tools.util.StringUtil;
@@ -43,6 +46,9 @@ import opennlp.tools.util.model.ModelUtil;
  * <p>
  * A maximum entropy model is used to evaluate end-of-sentence characters in a
  * string to determine if they signify the end of a sentence.
+ * <p>
+ * Instances are thread-safe and can be shared between threads, the feature context
+ * generator and the probabilities of the last detected sentences are held per thread.
  */
 public class SentenceDetectorME implements SentenceDetector {
 
@@ -62,9 +68,9 @@ public class SentenceDetectorME implements SentenceDetector {
   private MaxentModel model;
 
   /**
-   * The feature context generator.
+   * The feature context generator of each thread.
    */
-  private final SDContextGenerator cgen;
+  private final ThreadLocal<SDContextGenerator> cgens;
 
   /**
    * The {@link EndOfSentenceScanner} to use when scanning for end of sentence offsets.
@@ -72,12 +78,18 @@ public class SentenceDetectorME implements SentenceDetector {
   private final EndOfSentenceScanner scanner;
 
   /**
-   * The list of probabilities associated with each decision.
+   * The list of probabilities associated with each decision of each thread.
    */
-  private List<Double> sentProbs = new ArrayList<>();
+  private final ThreadLocal<List<Double>> sentProbs = ThreadLocal.withInitial(ArrayList::new);
 
   protected boolean useTokenEnd;
 
+  /**
+   * Buffer for the outcome probabilities of each thread, reused for every evaluation
+   * of the model.
+   */
+  private final ThreadLocal<double[]> outcomeProbs;
+
   /**
    * Initializes the current instance.
    *
@@ -86,9 +98,10 @@ public class SentenceDetectorME implements SentenceDetector {
   public SentenceDetectorME(SentenceModel model) {
     SentenceDetectorFactory sdFactory = model.getFactory();
     this.model = model.getMaxentModel();
-    cgen = sdFactory.getSDContextGenerator();
+    cgens = ThreadLocal.withInitial(sdFactory::getSDContextGenerator);
     scanner = sdFactory.getEndOfSentenceScanner();
     useTokenEnd = sdFactory.isUseTokenEnd();
+    outcomeProbs = createOutcomeProbs(this.model);
   }
 
   /**
@@ -100,16 +113,24 @@ public class SentenceDetectorME implements SentenceDetector {
     // if the model has custom EOS characters set, use this to get the context
     // generator and the EOS scanner; otherwise use language-specific defaults
     char[] customEOSCharacters = model.getEosCharacters();
+    Set<String> abbreviations = getAbbreviations(model.getAbbreviations());
     if (customEOSCharacters == null) {
-      cgen = factory.createSentenceContextGenerator(model.getLanguage(),
-          getAbbreviations(model.getAbbreviations()));
-      scanner = factory.createEndOfSentenceScanner(model.getLanguage());
+      String languageCode = model.getLanguage();
+      cgens = ThreadLocal.withInitial(
+          () -> factory.createSentenceContextGenerator(languageCode, abbreviations));
+      scanner = factory.createEndOfSentenceScanner(languageCode);
     } else {
-      cgen = factory.createSentenceContextGenerator(
-          getAbbreviations(model.getAbbreviations()), customEOSCharacters);
+      cgens = ThreadLocal.withInitial(
+          () -> factory.createSentenceContextGenerator(abbreviations, customEOSCharacters));
       scanner = factory.createEndOfSentenceScanner(customEOSCharacters);
     }
     useTokenEnd = model.useTokenEnd();
+    outcomeProbs = createOutcomeProbs(this.model);
+  }
+
+  private static ThreadLocal<double[]> createOutcomeProbs(MaxentModel model) {
+    int numOutcomes = model.getNumOutcomes();
+    return ThreadLocal.withInitial(() -> new double[numOutcomes]);
   }
 
   private static Set<String> getAbbreviations(Dictionary abbreviations) {
@@ -162,6 +183,21 @@ public class SentenceDetectorME implements SentenceDetector {
    *
    */
   public Span[] sentPosDetect(String s) {
+    return sentPosDetect(s, null);
+  }
+
+  /**
+   * Detects the sentences of a string, the contexts which were already evaluated are
+   * looked up in the passed map instead of being evaluated again.
+   *
+   * @param s the string to be processed
+   * @param evaluatedContexts the probabilities of the contexts evaluated so far,
+   *     or null to evaluate every context
+   *
+   * @return the sentence spans
+   */
+  private Span[] sentPosDetect(String s, Map<List<String>, double[]> evaluatedContexts) {
+    List<Double> sentProbs = this.sentProbs.get();
     sentProbs.clear();
     StringBuffer sb = new StringBuffer(s);
     List<Integer> enders = scanner.getPositions(s);
@@ -176,10 +212,23 @@ public class SentenceDetectorME implements SentenceDetector {
       }
       if (positions.size() > 0 && cint < positions.get(positions.size() - 1)) continue;
 
-      double[] probs = model.eval(cgen.getContext(sb, cint));
-      String bestOutcome = model.getBestOutcome(probs);
+      double[] probs;
+      if (evaluatedContexts != null) {
+        String[] context = cgens.get().getContext(sb, cint);
+        probs = evaluatedContexts.computeIfAbsent(Arrays.asList(context),
+            key -> model.eval(context, new double[model.getNumOutcomes()]));
+      }
+      else {
+        probs = model.eval(cgens.get().getContext(sb, cint), outcomeProbs.get());
+      }
+      int best = 0;
+      for (int oi = 1; oi < probs.length; oi++) {
+        if (probs[oi] > probs[best]) {
+          best = oi;
+        }
+      }
 
-      if (bestOutcome.equals(SPLIT) && isAcceptableBreak(s, index, cint)) {
+      if (model.getOutcome(best).equals(SPLIT) && isAcceptableBreak(s, index, cint)) {
         if (index != cint) {
           if (useTokenEnd) {
             positions.add(getFirstNonWS(s, getFirstWS(s,cint + 1)));
@@ -187,7 +236,7 @@ public class SentenceDetectorME implements SentenceDetector {
           else {
             positions.add(getFirstNonWS(s, cint + 1));
           }
-          sentProbs.add(probs[model.getIndex(bestOutcome)]);
+          sentProbs.add(probs[best]);
         }
 
         index = cint + 1;
@@ -265,14 +314,52 @@ public class SentenceDetectorME implements SentenceDetector {
     return spans;
   }
 
+  /**
+   * Detects the sentences of a batch of strings. The probabilities of each distinct
+   * context are evaluated once per batch, e.g. the contexts of frequent abbreviations
+   * are only looked up in the model the first time they occur.
+   *
+   * @param documents the strings to be processed
+   *
+   * @return the sentence spans of each string
+   */
+  public Span[][] sentPosDetect(String[] documents) {
+    return sentPosDetect(documents, null);
+  }
+
+  /**
+   * Detects the sentences of a batch of strings. The batch is split into partitions which
+   * are processed in parallel on the executor by this sentence detector, each distinct
+   * context is evaluated once per partition.
+   *
+   * @param documents the strings to be processed
+   * @param executor the executor to process the partitions on, or null to process the
+   *     batch in the calling thread
+   *
+   * @return the sentence spans of each string
+   */
+  public Span[][] sentPosDetect(String[] documents, Executor executor) {
+    Span[][] sentences = new Span[documents.length][];
+
+    BatchProcessor.process(documents.length, executor, (start, end) -> {
+      Map<List<String>, double[]> evaluatedContexts = new HashMap<>();
+      for (int i = start; i < end; i++) {
+        sentences[i] = sentPosDetect(documents[i], evaluatedContexts);
+      }
+    });
+
+    return sentences;
+  }
+
   /**
    * Returns the probabilities associated with the most recent
-   * calls to sentDetect().
+   * calls to sentDetect() by the calling thread.
    *
    * @return probability for each sentence returned for the most recent
    *     call to sentDetect.  If not applicable an empty array is returned.
    */
   public double[] getSentenceProbabilities() {
+    List<Double> sentProbs = this.sentProbs.get();
     double[] sentProbArray = new double[sentProbs.size()];
     for (int i = 0; i < sentProbArray.length; i++) {
       sentProbArray[i] = sentProbs.get(i);
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 
 import opennlp.tools.dictionary.Dictionary;
@@ -95,6 +96,14 @@ public class SentenceModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  public SentenceModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  public SentenceModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   public SentenceModel(URL modelURL) throws IOException {
     super(COMPONENT_NAME, modelURL);
   }
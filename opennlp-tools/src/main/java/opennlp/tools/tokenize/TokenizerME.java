@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 import opennlp.tools.dictionary.Dictionary;
@@ -32,6 +33,7 @@ import opennlp.tools.ml.TrainerFactory;
 import opennlp.tools.ml.model.Event;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.tokenize.lang.Factory;
+import opennlp.tools.util.BatchProcessor;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.Span;
 import opennlp.tools.util.TrainingParameters;
@@ -48,9 +50,10 @@ import opennlp.tools.util.TrainingParameters;
  * The {@link TokenizerModel} class encapsulates the model and provides
  * methods to create it from the binary representation.
  * <p>
- * A tokenizer instance is not thread safe. For each thread one tokenizer
- * must be instantiated which can share one <code>TokenizerModel</code> instance
- * to safe memory.
+ * A tokenizer instance is thread safe and can be shared between threads, the
+ * token probabilities returned by {@link #getTokenProbabilities()} belong to the
+ * most recent call of the calling thread. The context generator must be stateless,
+ * which is the case for the default context generator.
  * <p>
  * To train a new model {{@link #train(ObjectStream, TokenizerFactory, TrainingParameters)} method
  * can be used.
@@ -110,13 +113,53 @@ public class TokenizerME extends AbstractTokenizer {
    */
   private boolean useAlphaNumericOptimization;
 
+  private final ThreadLocal<TokenizerState> states = ThreadLocal.withInitial(TokenizerState::new);
+
   /**
-   * List of probabilities for each token returned from a call to
-   * <code>tokenize</code> or <code>tokenizePos</code>.
+   * The state of the tokenizer which is confined to a single thread.
    */
-  private List<Double> tokProbs;
+  private final class TokenizerState {
+
+    /**
+     * List of probabilities for each token returned from a call to
+     * <code>tokenize</code> or <code>tokenizePos</code>.
+     */
+    private final List<Double> tokProbs = new ArrayList<>(50);
+
+    private final List<Span> newTokens = new ArrayList<>();
+
+    /**
+     * Buffer for the outcome probabilities, reused for every evaluation of the model.
+     */
+    private final double[] outcomeProbs = new double[model.getNumOutcomes()];
+  }
+
+  /**
+   * The tokens a white space delimited token was split into, relative to its start.
+   */
+  private static final class TokenSplit {
+
+    private final int[] ends;
+    private final double[] probs;
+
+    private TokenSplit(List<Span> tokens, List<Double> tokProbs, int first, int offset) {
+      ends = new int[tokens.size() - first];
+      probs = new double[ends.length];
+      for (int i = 0; i < ends.length; i++) {
+        ends[i] = tokens.get(first + i).getEnd() - offset;
+        probs[i] = tokProbs.get(first + i);
+      }
+    }
 
-  private List<Span> newTokens;
+    private void addTo(List<Span> tokens, List<Double> tokProbs, int offset) {
+      int start = offset;
+      for (int i = 0; i < ends.length; i++) {
+        tokens.add(new Span(start, offset + ends[i]));
+        tokProbs.add(probs[i]);
+        start = offset + ends[i];
+      }
+    }
+  }
 
   public TokenizerME(TokenizerModel model) {
     TokenizerFactory factory = model.getFactory();
@@ -124,9 +167,6 @@ public class TokenizerME extends AbstractTokenizer {
     this.cg = factory.getContextGenerator();
     this.model = model.getMaxentModel();
     this.useAlphaNumericOptimization = factory.isUseAlphaNumericOptmization();
-
-    newTokens = new ArrayList<>();
-    tokProbs = new ArrayList<>(50);
   }
 
   /**
@@ -142,9 +182,6 @@ public class TokenizerME extends AbstractTokenizer {
 
     this.model = model.getMaxentModel();
     useAlphaNumericOptimization = model.useAlphaNumericOptimization();
-
-    newTokens = new ArrayList<>();
-    tokProbs = new ArrayList<>(50);
   }
 
   private static Set<String> getAbbreviations(Dictionary abbreviations) {
@@ -156,12 +193,14 @@ public class TokenizerME extends AbstractTokenizer {
 
   /**
    * Returns the probabilities associated with the most recent
-   * calls to {@link TokenizerME#tokenize(String)} or {@link TokenizerME#tokenizePos(String)}.
+   * calls to {@link TokenizerME#tokenize(String)} or {@link TokenizerME#tokenizePos(String)}
+   * by the calling thread.
    *
    * @return probability for each token returned for the most recent
    *     call to tokenize.  If not applicable an empty array is returned.
    */
   public double[] getTokenProbabilities() {
+    List<Double> tokProbs = states.get().tokProbs;
     double[] tokProbArray = new double[tokProbs.size()];
     for (int i = 0; i < tokProbArray.length; i++) {
       tokProbArray[i] = tokProbs.get(i);
@@ -177,6 +216,23 @@ public class TokenizerME extends AbstractTokenizer {
    * @return   A span array containing individual tokens as elements.
    */
   public Span[] tokenizePos(String d) {
+    return tokenizePos(d, null);
+  }
+
+  /**
+   * Tokenizes the string, the white space delimited tokens which were already split
+   * are looked up in the passed map instead of being evaluated again.
+   *
+   * @param d the string to be tokenized
+   * @param splits the splits of the tokens seen so far, or null to evaluate every token
+   *
+   * @return the token spans
+   */
+  private Span[] tokenizePos(String d, Map<String, TokenSplit> splits) {
+    TokenizerState state = states.get();
+    List<Span> newTokens = state.newTokens;
+    List<Double> tokProbs = state.tokProbs;
+
     Span[] tokens = WhitespaceTokenizer.INSTANCE.tokenizePos(d);
     newTokens.clear();
     tokProbs.clear();
@@ -190,16 +246,27 @@ public class TokenizerME extends AbstractTokenizer {
         newTokens.add(s);
         tokProbs.add(1d);
       } else {
+        TokenSplit split = splits != null ? splits.get(tok) : null;
+        if (split != null) {
+          split.addTo(newTokens, tokProbs, s.getStart());
+          continue;
+        }
+
+        int first = newTokens.size();
         int start = s.getStart();
         int end = s.getEnd();
         final int origStart = s.getStart();
         double tokenProb = 1.0;
         for (int j = origStart + 1; j < end; j++) {
-          double[] probs =
-              model.eval(cg.getContext(tok, j - origStart));
-          String best = model.getBestOutcome(probs);
-          tokenProb *= probs[model.getIndex(best)];
-          if (best.equals(TokenizerME.SPLIT)) {
+          double[] probs = model.eval(cg.getContext(tok, j - origStart), state.outcomeProbs);
+          int best = 0;
+          for (int oi = 1; oi < probs.length; oi++) {
+            if (probs[oi] > probs[best]) {
+              best = oi;
+            }
+          }
+          tokenProb *= probs[best];
+          if (model.getOutcome(best).equals(TokenizerME.SPLIT)) {
             newTokens.add(new Span(start, j));
             tokProbs.add(tokenProb);
             start = j;
@@ -208,6 +275,10 @@ public class TokenizerME extends AbstractTokenizer {
         }
         newTokens.add(new Span(start, end));
         tokProbs.add(tokenProb);
+
+        if (splits != null) {
+          splits.put(tok, new TokenSplit(newTokens, tokProbs, first, origStart));
+        }
       }
     }
 
@@ -216,6 +287,44 @@ public class TokenizerME extends AbstractTokenizer {
     return spans;
   }
 
+  /**
+   * Tokenizes a batch of strings. The context generator is stateless, therefore a white
+   * space delimited token is always split in the same way. Each distinct token is
+   * evaluated once per batch, the contexts of its repetitions are neither generated nor
+   * evaluated again.
+   *
+   * @param documents the strings to be tokenized
+   *
+   * @return the token spans of each string
+   */
+  public Span[][] tokenizePos(String[] documents) {
+    return tokenizePos(documents, null);
+  }
+
+  /**
+   * Tokenizes a batch of strings. The batch is split into partitions which are tokenized
+   * in parallel on the executor by this tokenizer, each distinct token is evaluated
+   * once per partition.
+   *
+   * @param documents the strings to be tokenized
+   * @param executor the executor to tokenize the partitions on, or null to tokenize the
+   *     batch in the calling thread
+   *
+   * @return the token spans of each string
+   */
+  public Span[][] tokenizePos(String[] documents, Executor executor) {
+    Span[][] tokens = new Span[documents.length][];
+
+    BatchProcessor.process(documents.length, executor, (start, end) -> {
+      Map<String, TokenSplit> splits = new HashMap<>();
+      for (int i = start; i < end; i++) {
+        tokens[i] = tokenizePos(documents[i], splits);
+      }
+    });
+
+    return tokens;
+  }
+
   /**
    * Trains a model for the {@link TokenizerME}.
    *
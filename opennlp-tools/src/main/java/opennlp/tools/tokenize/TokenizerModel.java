@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Map;
 
 import opennlp.tools.dictionary.Dictionary;
@@ -81,6 +82,32 @@ public final class TokenizerModel extends BaseModel {
     super(COMPONENT_NAME, modelFile);
   }
 
+  /**
+   * Initializes the current instance.
+   *
+   * @param modelPath the path of the file containing the tokenizer model
+   *
+   * @throws IOException if reading from the stream fails in anyway
+   */
+  public TokenizerModel(Path modelPath) throws IOException {
+    super(COMPONENT_NAME, modelPath);
+  }
+
+  /**
+   * Initializes the current instance, optionally the artifacts are loaded on
+   * first access and the file stays open until the model is closed.
+   *
+   * @param modelPath the path of the file containing the tokenizer model
+   * @param loadLazily true to load the artifacts on first access
+   *
+   * @throws IOException if reading from the file fails in anyway
+   *
+   * @see BaseModel#close()
+   */
+  public TokenizerModel(Path modelPath, boolean loadLazily) throws IOException {
+    super(COMPONENT_NAME, modelPath, loadLazily);
+  }
+
   /**
    * Initializes the current instance.
    *
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Utility to process the elements of a batch in parallel on an {@link Executor}.
+ */
+public final class BatchProcessor {
+
+  /**
+   * Processes a contiguous partition of a batch.
+   */
+  @FunctionalInterface
+  public interface PartitionProcessor {
+
+    /**
+     * Processes the elements of a partition.
+     *
+     * @param start the index of the first element, inclusive
+     * @param end the index of the last element, exclusive
+     */
+    void process(int start, int end);
+  }
+
+  private BatchProcessor() {
+  }
+
+  /**
+   * Splits a batch into one contiguous partition per available processor and
+   * processes the partitions on the executor. The call blocks until all partitions
+   * are processed.
+   *
+   * @param batchSize the number of elements in the batch
+   * @param executor the executor to run the partitions on, if null the whole
+   *     batch is processed in the calling thread
+   * @param processor the processor which is invoked for every partition
+   */
+  public static void process(int batchSize, Executor executor, PartitionProcessor processor) {
+
+    if (executor == null || batchSize < 2) {
+      processor.process(0, batchSize);
+      return;
+    }
+
+    int numPartitions = Math.min(batchSize, Runtime.getRuntime().availableProcessors());
+
+    CompletableFuture<?>[] partitions = new CompletableFuture<?>[numPartitions];
+
+    for (int i = 0; i < numPartitions; i++) {
+      int start = (int) ((long) batchSize * i / numPartitions);
+      int end = (int) ((long) batchSize * (i + 1) / numPartitions);
+      partitions[i] = CompletableFuture.runAsync(() -> processor.process(start, end), executor);
+    }
+
+    try {
+      CompletableFuture.allOf(partitions).join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -17,6 +17,8 @@
 
 package opennlp.tools.util;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 /**
  * Interface for context generators used with a sequence beam search.
  */
@@ -31,4 +33,24 @@ public interface BeamSearchContextGenerator<T> {
      * @return the context for the specified position in the specified sequence.
      */
   String[] getContext(int index, T[] sequence, String[] priorDecisions, Object[] additionalContext);
+
+  /**
+   * Adds the hashes of the context for the specified position to a buffer, they must
+   * equal the hashes of the features returned by
+   * {@link #getContext(int, Object[], String[], Object[])}. The beam search evaluates
+   * the hashes instead of the features if the model supports them.
+   *
+   * @param features the buffer the hashes are added to
+   * @param index The index of the sequence.
+   * @param sequence  The sequence of items over which the beam search is performed.
+   * @param priorDecisions The sequence of decisions made prior to the context for
+   *     which this decision is being made.
+   * @param additionalContext Any addition context specific to a class implementing this interface.
+   * @return true if the hashes were added, false if the context generator does not support
+   *     hashes, the default, then {@link #getContext(int, Object[], String[], Object[])} is used
+   */
+  default boolean getContextHashes(FeatureHashBuffer features, int index, T[] sequence,
+      String[] priorDecisions, Object[] additionalContext) {
+    return false;
+  }
 }
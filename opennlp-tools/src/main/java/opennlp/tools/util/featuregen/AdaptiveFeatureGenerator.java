@@ -18,8 +18,11 @@
 
 package opennlp.tools.util.featuregen;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 /**
  * An interface for generating features for name entity identification and for
  * updating document level contexts.
@@ -44,6 +47,30 @@ public interface AdaptiveFeatureGenerator {
    */
   void createFeatures(List<String> features, String[] tokens, int index, String[] previousOutcomes);
 
+  /**
+   * Adds the hashes of the features for the token at the specified index to the
+   * specified buffer. The hashes equal the hashes of the features which are created
+   * by {@link #createFeatures(List, String[], int, String[])}, with the prefix of the
+   * buffer prepended.
+   * <p>
+   * The default implementation adapts {@link #createFeatures(List, String[], int, String[])}
+   * and hashes the created feature strings. Generators which are evaluated often
+   * should hash the parts of their features directly without building strings.
+   *
+   * @param features The buffer the hashes are added to.
+   * @param tokens The tokens of the sentence or other text unit being processed.
+   * @param index The index of the token which is currently being processed.
+   * @param previousOutcomes The outcomes for the tokens prior to the specified index.
+   */
+  default void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+    List<String> stringFeatures = new ArrayList<>();
+    createFeatures(stringFeatures, tokens, index, previousOutcomes);
+    for (String feature : stringFeatures) {
+      features.add(feature);
+    }
+  }
+
   /**
    * Informs the feature generator that the specified tokens have been classified with the
    * corresponding set of specified outcomes.
@@ -23,6 +23,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 /**
  * The {@link AggregatedFeatureGenerator} aggregates a set of
  * {@link AdaptiveFeatureGenerator}s and calls them to generate the features.
@@ -83,6 +85,15 @@ public class AggregatedFeatureGenerator implements AdaptiveFeatureGenerator {
    * Calls the {@link AdaptiveFeatureGenerator#updateAdaptiveData(String[], String[])}
    * method on all aggregated {@link AdaptiveFeatureGenerator}s.
    */
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    for (AdaptiveFeatureGenerator generator : generators) {
+      generator.createFeatureHashes(features, tokens, index, previousOutcomes);
+    }
+  }
+
   public void updateAdaptiveData(String[] tokens, String[] outcomes) {
 
     for (AdaptiveFeatureGenerator generator : generators) {
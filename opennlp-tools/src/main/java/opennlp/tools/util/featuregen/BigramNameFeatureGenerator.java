@@ -21,18 +21,25 @@ import java.util.List;
 
 public class BigramNameFeatureGenerator implements AdaptiveFeatureGenerator {
 
+  /** The classes of the tokens, they are computed once per sentence. */
+  private final SentenceFeatureTable tokenClasses = new SentenceFeatureTable(
+      (features, tokens, index, previousOutcomes) ->
+          features.add(FeatureGeneratorUtil.tokenFeature(tokens[index])));
+
   public void createFeatures(List<String> features, String[] tokens, int index,
                              String[] previousOutcomes) {
-    String wc = FeatureGeneratorUtil.tokenFeature(tokens[index]);
+    tokenClasses.update(tokens, previousOutcomes);
+
+    String wc = tokenClasses.getFeature(index, 0);
     //bi-gram features
     if (index > 0) {
       features.add("pw,w=" + tokens[index - 1] + "," + tokens[index]);
-      String pwc = FeatureGeneratorUtil.tokenFeature(tokens[index - 1]);
+      String pwc = tokenClasses.getFeature(index - 1, 0);
       features.add("pwc,wc=" + pwc + "," + wc);
     }
     if (index + 1 < tokens.length) {
       features.add("w,nw=" + tokens[index] + "," + tokens[index + 1]);
-      String nwc = FeatureGeneratorUtil.tokenFeature(tokens[index + 1]);
+      String nwc = tokenClasses.getFeature(index + 1, 0);
       features.add("wc,nc=" + wc + "," + nwc);
     }
   }
@@ -19,6 +19,8 @@ package opennlp.tools.util.featuregen;
 
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 /**
  * Generates Brown cluster features for current token.
  */
@@ -40,4 +42,28 @@ public class BrownTokenFeatureGenerator implements AdaptiveFeatureGenerator {
     }
   }
 
+  /**
+   * Hashes the prefixes of the brown class like {@link BrownTokenClasses#getWordClasses}
+   * creates them, without creating the substrings.
+   */
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    String brownClass = brownLexicon.lookupToken(tokens[index]);
+    if (brownClass != null) {
+      int[] pathLengths = BrownTokenClasses.pathLengths;
+      long state = FeatureHashBuffer.append(features.getPrefix(), "browncluster=");
+
+      features.add(FeatureHashBuffer.append(state, brownClass, 0,
+          Math.min(brownClass.length(), pathLengths[0])));
+      for (int i = 1; i < pathLengths.length; i++) {
+        if (pathLengths[i - 1] < brownClass.length()) {
+          features.add(FeatureHashBuffer.append(state, brownClass, 0,
+              Math.min(brownClass.length(), pathLengths[i])));
+        }
+      }
+    }
+  }
+
 }
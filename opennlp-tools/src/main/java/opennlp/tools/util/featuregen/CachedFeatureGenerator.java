@@ -21,6 +21,7 @@ package opennlp.tools.util.featuregen;
 import java.util.ArrayList;
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.util.Cache;
 
 /**
@@ -34,12 +35,33 @@ public class CachedFeatureGenerator implements AdaptiveFeatureGenerator {
 
   private Cache<Integer, List<String>> contextsCache;
 
+  private Cache<Integer, CachedHashes> hashesCache;
+
+  /** True if the features of a token do not depend on the previous outcomes. */
+  private final boolean outcomeIndependent;
+
   private long numberOfCacheHits;
   private long numberOfCacheMisses;
 
   public CachedFeatureGenerator(AdaptiveFeatureGenerator... generators) {
     this.generator = new AggregatedFeatureGenerator(generators);
     contextsCache = new Cache<>(100);
+    hashesCache = new Cache<>(100);
+    outcomeIndependent = SentenceFeatureTable.isOutcomeIndependent(generator);
+  }
+
+  /**
+   * The feature hashes of a token, they are only valid for the prefix they were computed with.
+   */
+  private static final class CachedHashes {
+
+    private final long prefix;
+    private final long[] hashes;
+
+    private CachedHashes(long prefix, long[] hashes) {
+      this.prefix = prefix;
+      this.hashes = hashes;
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -59,6 +81,7 @@ public class CachedFeatureGenerator implements AdaptiveFeatureGenerator {
 
     } else {
       contextsCache.clear();
+      hashesCache.clear();
       prevTokens = tokens;
     }
 
@@ -72,6 +95,53 @@ public class CachedFeatureGenerator implements AdaptiveFeatureGenerator {
     features.addAll(cacheFeatures);
   }
 
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    if (tokens == prevTokens) {
+      CachedHashes cachedHashes = hashesCache.get(index);
+
+      if (cachedHashes != null && cachedHashes.prefix == features.getPrefix()) {
+        numberOfCacheHits++;
+        features.addAll(cachedHashes.hashes, cachedHashes.hashes.length);
+        return;
+      }
+
+    } else {
+      contextsCache.clear();
+      hashesCache.clear();
+      prevTokens = tokens;
+    }
+
+    numberOfCacheMisses++;
+
+    int start = features.size();
+    if (outcomeIndependent) {
+      generator.createFeatureHashes(features, tokens, index, previousOutcomes);
+    }
+    else {
+      // the hashes are only cached for one prefix, the features of another prefix are
+      // hashed from the cached strings, otherwise they would be created with other outcomes
+      List<String> cacheFeatures = contextsCache.get(index);
+      if (cacheFeatures == null) {
+        cacheFeatures = new ArrayList<>();
+        generator.createFeatures(cacheFeatures, tokens, index, previousOutcomes);
+        contextsCache.put(index, cacheFeatures);
+      }
+
+      for (String feature : cacheFeatures) {
+        features.add(feature);
+      }
+    }
+
+    long[] hashes = new long[features.size() - start];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = features.get(start + i);
+    }
+    hashesCache.put(index, new CachedHashes(features.getPrefix(), hashes));
+  }
+
   public void updateAdaptiveData(String[] tokens, String[] outcomes) {
     generator.updateAdaptiveData(tokens, outcomes);
   }
@@ -80,6 +150,10 @@ public class CachedFeatureGenerator implements AdaptiveFeatureGenerator {
     generator.clearAdaptiveData();
   }
 
+  AdaptiveFeatureGenerator getGenerator() {
+    return generator;
+  }
+
   /**
    * Retrieves the number of times a cache hit occurred.
    *
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.util.featuregen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
+/**
+ * Compiles a tree of feature generators, as created by the {@link GeneratorFactory},
+ * into a flat list of terms and generates the same features as the tree.
+ * <p>
+ * The {@link AggregatedFeatureGenerator}, {@link CachedFeatureGenerator} and
+ * {@link WindowFeatureGenerator} nodes of the tree are removed. Every other generator
+ * is a leaf, and a term describes one use of a leaf: the offset of the token it is
+ * applied to, the prefix of its features and the range of tokens which must exist
+ * for the term to apply. Leaves which are equal are only computed once, e.g.
+ * a token class generator in different windows.
+ * <p>
+ * The features of a leaf are memoized like the tree memoizes them. Under a window, the
+ * features of all tokens of the sentence are created once and stored in a
+ * {@link SentenceFeatureTable}, if the generator of the window is known to ignore the
+ * previous outcomes, see {@link WindowFeatureGenerator}. Under a cache, the features of
+ * a token are stored when it is generated for the first time and are kept until the
+ * sentence changes. Other leaves are called for every token.
+ * <p>
+ * A cache stores the features of the requested token, which include the features of
+ * the surrounding tokens if the cache contains a window. If such a window uses the
+ * previous outcomes, the features of a surrounding token differ between the requests,
+ * so the whole generator of the cache is a leaf and is memoized by the requested token.
+ * <p>
+ * The adaptive data is updated and cleared on the original tree.
+ */
+public class FusedFeatureGenerator implements AdaptiveFeatureGenerator {
+
+  /**
+   * How the features of a leaf are memoized.
+   */
+  private enum Scope { DIRECT, CACHED, WINDOW }
+
+  private static final class Term {
+
+    private final int leaf;
+    private final Scope scope;
+    private final int offset;
+    private final int minOffset;
+    private final int maxOffset;
+    private final String prefix;
+
+    private Term(int leaf, Scope scope, int offset, int minOffset, int maxOffset, String prefix) {
+      this.leaf = leaf;
+      this.scope = scope;
+      this.offset = offset;
+      this.minOffset = minOffset;
+      this.maxOffset = maxOffset;
+      this.prefix = prefix;
+    }
+  }
+
+  /**
+   * Collects the leaves and terms of a generator tree.
+   */
+  private static final class Compiler {
+
+    private final List<AdaptiveFeatureGenerator> leaves = new ArrayList<>();
+    private final Map<AdaptiveFeatureGenerator, Integer> leafIndexes = new HashMap<>();
+    private final List<Term> terms = new ArrayList<>();
+
+    private static String concat(String prefix, String suffix) {
+      return prefix == null ? suffix : prefix + suffix;
+    }
+
+    /**
+     * Checks if a generator contains a window whose generator might use the previous outcomes.
+     *
+     * @param generator the generator
+     * @return true if the generator contains such a window
+     */
+    private static boolean containsOutcomeDependentWindow(AdaptiveFeatureGenerator generator) {
+      if (generator.getClass() == AggregatedFeatureGenerator.class) {
+        for (AdaptiveFeatureGenerator child :
+            ((AggregatedFeatureGenerator) generator).getGenerators()) {
+          if (containsOutcomeDependentWindow(child)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      else if (generator.getClass() == CachedFeatureGenerator.class) {
+        return containsOutcomeDependentWindow(((CachedFeatureGenerator) generator).getGenerator());
+      }
+      else if (generator.getClass() == WindowFeatureGenerator.class) {
+        return !SentenceFeatureTable.isOutcomeIndependent(
+            ((WindowFeatureGenerator) generator).getGenerator());
+      }
+      return false;
+    }
+
+    /**
+     * Adds the terms of a generator.
+     *
+     * @param generator the generator
+     * @param scope the scope of the generator
+     * @param offset the offset of the token the generator is applied to
+     * @param minOffset the offset of the first token which must exist
+     * @param maxOffset the offset of the last token which must exist
+     * @param prefix the prefix of the features, or null
+     */
+    private void add(AdaptiveFeatureGenerator generator, Scope scope, int offset,
+        int minOffset, int maxOffset, String prefix) {
+
+      if (generator.getClass() == AggregatedFeatureGenerator.class) {
+        for (AdaptiveFeatureGenerator child :
+            ((AggregatedFeatureGenerator) generator).getGenerators()) {
+          add(child, scope, offset, minOffset, maxOffset, prefix);
+        }
+      }
+      else if (generator.getClass() == CachedFeatureGenerator.class) {
+        AdaptiveFeatureGenerator cached = ((CachedFeatureGenerator) generator).getGenerator();
+
+        if (containsOutcomeDependentWindow(cached)) {
+          addLeaf(cached, Scope.CACHED, offset, minOffset, maxOffset, prefix);
+        }
+        else {
+          add(cached, scope == Scope.DIRECT ? Scope.CACHED : scope, offset, minOffset, maxOffset,
+              prefix);
+        }
+      }
+      else if (generator.getClass() == WindowFeatureGenerator.class) {
+        WindowFeatureGenerator window = (WindowFeatureGenerator) generator;
+
+        // the window only uses a table if its generator ignores the previous outcomes,
+        // otherwise the generator is called for the surrounding tokens
+        Scope windowScope = SentenceFeatureTable.isOutcomeIndependent(window.getGenerator())
+            ? Scope.WINDOW : scope;
+
+        add(window.getGenerator(), windowScope, offset, minOffset, maxOffset, prefix);
+
+        for (int i = 1; i < window.getPrevWindowSize() + 1; i++) {
+          add(window.getGenerator(), windowScope, offset - i, Math.min(minOffset, offset - i),
+              maxOffset, concat(prefix, WindowFeatureGenerator.PREV_PREFIX + i));
+        }
+
+        for (int i = 1; i < window.getNextWindowSize() + 1; i++) {
+          add(window.getGenerator(), windowScope, offset + i, minOffset,
+              Math.max(maxOffset, offset + i), concat(prefix, WindowFeatureGenerator.NEXT_PREFIX + i));
+        }
+      }
+      else {
+        addLeaf(generator, scope, offset, minOffset, maxOffset, prefix);
+      }
+    }
+
+    private void addLeaf(AdaptiveFeatureGenerator generator, Scope scope, int offset,
+        int minOffset, int maxOffset, String prefix) {
+      Integer leaf = leafIndexes.get(generator);
+      if (leaf == null) {
+        leaf = leaves.size();
+        leaves.add(generator);
+        leafIndexes.put(generator, leaf);
+      }
+      terms.add(new Term(leaf, scope, offset, minOffset, maxOffset, prefix));
+    }
+  }
+
+  private final AdaptiveFeatureGenerator generator;
+
+  private final AdaptiveFeatureGenerator[] leaves;
+
+  private final Term[] terms;
+
+  /** The features of the leaves which are used in a window, null for other leaves. */
+  private final SentenceFeatureTable[] tables;
+
+  private String[] cachedTokens;
+
+  /** The features of the leaves which are used in a cache, by leaf and token. */
+  private final String[][][] cachedFeatures;
+
+  /**
+   * Compiles a feature generator.
+   *
+   * @param generator the generator, usually a tree created by the {@link GeneratorFactory}
+   */
+  public FusedFeatureGenerator(AdaptiveFeatureGenerator generator) {
+    this.generator = Objects.requireNonNull(generator, "generator must not be null");
+
+    Compiler compiler = new Compiler();
+    compiler.add(generator, Scope.DIRECT, 0, 0, 0, null);
+
+    leaves = compiler.leaves.toArray(new AdaptiveFeatureGenerator[compiler.leaves.size()]);
+    terms = compiler.terms.toArray(new Term[compiler.terms.size()]);
+
+    tables = new SentenceFeatureTable[leaves.length];
+    for (Term term : terms) {
+      if (term.scope == Scope.WINDOW && tables[term.leaf] == null) {
+        tables[term.leaf] = new SentenceFeatureTable(leaves[term.leaf]);
+      }
+    }
+
+    cachedFeatures = new String[leaves.length][][];
+  }
+
+  private String[] getCachedFeatures(int leaf, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    if (tokens != cachedTokens) {
+      Arrays.fill(cachedFeatures, null);
+      cachedTokens = tokens;
+    }
+
+    if (cachedFeatures[leaf] == null) {
+      cachedFeatures[leaf] = new String[tokens.length][];
+    }
+
+    String[] features = cachedFeatures[leaf][index];
+    if (features == null) {
+      List<String> leafFeatures = new ArrayList<>();
+      leaves[leaf].createFeatures(leafFeatures, tokens, index, previousOutcomes);
+      features = leafFeatures.toArray(new String[leafFeatures.size()]);
+      cachedFeatures[leaf][index] = features;
+    }
+    return features;
+  }
+
+  public void createFeatures(List<String> features, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    for (Term term : terms) {
+      if (index + term.minOffset < 0 || index + term.maxOffset >= tokens.length) {
+        continue;
+      }
+
+      switch (term.scope) {
+        case WINDOW:
+          SentenceFeatureTable table = tables[term.leaf];
+          table.update(tokens, previousOutcomes);
+          table.addFeatures(features, index + term.offset, term.prefix);
+          break;
+        case CACHED:
+          String[] cached = getCachedFeatures(term.leaf, tokens, index + term.offset, previousOutcomes);
+          if (term.prefix == null) {
+            Collections.addAll(features, cached);
+          }
+          else {
+            for (String feature : cached) {
+              features.add(term.prefix + feature);
+            }
+          }
+          break;
+        default:
+          if (term.prefix == null) {
+            leaves[term.leaf].createFeatures(features, tokens, index + term.offset, previousOutcomes);
+          }
+          else {
+            List<String> leafFeatures = new ArrayList<>();
+            leaves[term.leaf].createFeatures(leafFeatures, tokens, index + term.offset,
+                previousOutcomes);
+            for (String feature : leafFeatures) {
+              features.add(term.prefix + feature);
+            }
+          }
+      }
+    }
+  }
+
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+
+    long prefix = features.getPrefix();
+
+    for (Term term : terms) {
+      if (index + term.minOffset < 0 || index + term.maxOffset >= tokens.length) {
+        continue;
+      }
+
+      switch (term.scope) {
+        case WINDOW:
+          SentenceFeatureTable table = tables[term.leaf];
+          table.update(tokens, previousOutcomes);
+          table.addFeatureHashes(features, index + term.offset,
+              term.prefix == null ? prefix : FeatureHashBuffer.append(prefix, term.prefix));
+          break;
+        case CACHED:
+          features.setPrefix(term.prefix == null ? prefix : FeatureHashBuffer.append(prefix, term.prefix));
+          try {
+            for (String feature : getCachedFeatures(term.leaf, tokens, index + term.offset,
+                previousOutcomes)) {
+              features.add(feature);
+            }
+          }
+          finally {
+            features.setPrefix(prefix);
+          }
+          break;
+        default:
+          features.setPrefix(term.prefix == null ? prefix : FeatureHashBuffer.append(prefix, term.prefix));
+          try {
+            leaves[term.leaf].createFeatureHashes(features, tokens, index + term.offset,
+                previousOutcomes);
+          }
+          finally {
+            features.setPrefix(prefix);
+          }
+      }
+    }
+  }
+
+  /**
+   * Clears the features of the windows, like the {@link WindowFeatureGenerator} does.
+   * The {@link CachedFeatureGenerator} keeps its features, so the cached features are kept.
+   */
+  private void clearTables() {
+    for (SentenceFeatureTable table : tables) {
+      if (table != null) {
+        table.clear();
+      }
+    }
+  }
+
+  public void updateAdaptiveData(String[] tokens, String[] outcomes) {
+    generator.updateAdaptiveData(tokens, outcomes);
+    clearTables();
+  }
+
+  public void clearAdaptiveData() {
+    generator.clearAdaptiveData();
+    clearTables();
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + ": leaves=" + leaves.length + " terms=" + terms.length;
+  }
+}
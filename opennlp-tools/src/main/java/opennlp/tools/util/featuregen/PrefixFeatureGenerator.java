@@ -19,6 +19,8 @@ package opennlp.tools.util.featuregen;
 
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 public class PrefixFeatureGenerator implements AdaptiveFeatureGenerator {
 
   static final int DEFAULT_MAX_LENGTH = 4;
@@ -42,6 +44,20 @@ public class PrefixFeatureGenerator implements AdaptiveFeatureGenerator {
     }
   }
   
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+    String lex = tokens[index];
+    int prefixes = Math.min(prefixLength, lex.length());
+
+    // every prefix extends the previous one by a char
+    long state = FeatureHashBuffer.append(features.getPrefix(), "pre=");
+    for (int li = 0; li < prefixes; li++) {
+      state = FeatureHashBuffer.append(state, lex.charAt(li));
+      features.add(state);
+    }
+  }
+
   private String[] getPrefixes(String lex) {
       
     int prefixes = Math.min(prefixLength, lex.length());
@@ -52,4 +68,24 @@ public class PrefixFeatureGenerator implements AdaptiveFeatureGenerator {
     }
     return prefs;
   }
+
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(prefixLength);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+
+    if (obj != null && obj.getClass() == PrefixFeatureGenerator.class) {
+      PrefixFeatureGenerator generator = (PrefixFeatureGenerator) obj;
+
+      return generator.prefixLength == prefixLength;
+    }
+
+    return false;
+  }
 }
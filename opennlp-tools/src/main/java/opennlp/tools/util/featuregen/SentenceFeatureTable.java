@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.util.featuregen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
+/**
+ * A table of the features an {@link AdaptiveFeatureGenerator} creates for the tokens
+ * of a sentence. The features of all tokens are created once per sentence, in a single
+ * pass over the tokens, and stored one token after another in a flat list. Generators
+ * which need the features of a token multiple times, e.g. for a window around every
+ * token, read them from the table with a prefix instead of calling the generator again.
+ * <p>
+ * A sentence is identified by its token array, like in the {@link CachedFeatureGenerator}
+ * the table is recomputed when a different array is passed. The features are created
+ * with the previous outcomes of the first request for the sentence, therefore they
+ * must not depend on the previous outcomes. The table must be cleared when the adaptive
+ * data of the generator changes.
+ * <p>
+ * The table is not thread safe.
+ */
+public final class SentenceFeatureTable {
+
+  /**
+   * The generators whose features only depend on the tokens and their resources. Sub classes
+   * are not included, because they can create their features in a different way.
+   */
+  private static final Set<Class<?>> OUTCOME_INDEPENDENT_GENERATORS = new HashSet<>(Arrays.asList(
+      TokenFeatureGenerator.class, TokenClassFeatureGenerator.class,
+      TokenPatternFeatureGenerator.class, PrefixFeatureGenerator.class,
+      SuffixFeatureGenerator.class, CharacterNgramFeatureGenerator.class,
+      SentenceFeatureGenerator.class, BigramNameFeatureGenerator.class,
+      TrigramNameFeatureGenerator.class, BrownTokenFeatureGenerator.class,
+      BrownTokenClassFeatureGenerator.class, BrownBigramFeatureGenerator.class,
+      WordClusterFeatureGenerator.class, DictionaryFeatureGenerator.class,
+      InSpanGenerator.class, OutcomePriorFeatureGenerator.class));
+
+  private final AdaptiveFeatureGenerator generator;
+
+  private String[] tokens;
+
+  /** The features of all tokens of the sentence, one token after another. */
+  private final List<String> features = new ArrayList<>();
+
+  /** The features of token i start at offsets[i] and end before offsets[i + 1]. */
+  private int[] offsets = new int[1];
+
+  /**
+   * Checks if the features of a generator are known to not depend on the previous
+   * outcomes, only then they can be stored in a table. The generators which are
+   * aggregated, cached or windowed by the generator are checked as well.
+   *
+   * @param generator the generator
+   *
+   * @return true if the features only depend on the tokens, false if the generator
+   *     might use the previous outcomes
+   */
+  static boolean isOutcomeIndependent(AdaptiveFeatureGenerator generator) {
+    if (generator.getClass() == AggregatedFeatureGenerator.class) {
+      for (AdaptiveFeatureGenerator aggregated :
+          ((AggregatedFeatureGenerator) generator).getGenerators()) {
+        if (!isOutcomeIndependent(aggregated)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    else if (generator.getClass() == CachedFeatureGenerator.class) {
+      return isOutcomeIndependent(((CachedFeatureGenerator) generator).getGenerator());
+    }
+    else if (generator.getClass() == WindowFeatureGenerator.class) {
+      return isOutcomeIndependent(((WindowFeatureGenerator) generator).getGenerator());
+    }
+
+    return OUTCOME_INDEPENDENT_GENERATORS.contains(generator.getClass());
+  }
+
+  /**
+   * Initializes the table.
+   *
+   * @param generator the generator which creates the features of a token
+   */
+  public SentenceFeatureTable(AdaptiveFeatureGenerator generator) {
+    this.generator = generator;
+  }
+
+  /**
+   * Creates the features of the tokens, unless the table already contains the
+   * features of the tokens.
+   *
+   * @param tokens the tokens of the sentence
+   * @param previousOutcomes the previous outcomes, they are passed to the generator
+   */
+  public void update(String[] tokens, String[] previousOutcomes) {
+    if (tokens == this.tokens) {
+      return;
+    }
+
+    features.clear();
+    if (offsets.length < tokens.length + 1) {
+      offsets = new int[tokens.length + 1];
+    }
+
+    for (int i = 0; i < tokens.length; i++) {
+      offsets[i] = features.size();
+      generator.createFeatures(features, tokens, i, previousOutcomes);
+    }
+    offsets[tokens.length] = features.size();
+
+    this.tokens = tokens;
+  }
+
+  /**
+   * Removes the features of the current sentence, the next call to
+   * {@link #update(String[], String[])} creates the features again.
+   */
+  public void clear() {
+    tokens = null;
+    features.clear();
+  }
+
+  /**
+   * Retrieves the number of features of a token.
+   *
+   * @param index the index of the token
+   *
+   * @return the number of features
+   */
+  public int getNumFeatures(int index) {
+    return offsets[index + 1] - offsets[index];
+  }
+
+  /**
+   * Retrieves a feature of a token.
+   *
+   * @param index the index of the token
+   * @param i the index of the feature
+   *
+   * @return the feature
+   */
+  public String getFeature(int index, int i) {
+    return features.get(offsets[index] + i);
+  }
+
+  /**
+   * Adds the features of a token.
+   *
+   * @param features the list the features are added to
+   * @param index the index of the token
+   * @param prefix the prefix of the features, or null
+   */
+  public void addFeatures(List<String> features, int index, String prefix) {
+    for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+      features.add(prefix == null ? this.features.get(i) : prefix + this.features.get(i));
+    }
+  }
+
+  /**
+   * Adds the hashes of the features of a token.
+   *
+   * @param features the buffer the hashes are added to
+   * @param index the index of the token
+   * @param prefix the hash state of the prefix of the features,
+   *     see {@link FeatureHashBuffer#getPrefix()}
+   */
+  public void addFeatureHashes(FeatureHashBuffer features, int index, long prefix) {
+    for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+      features.add(FeatureHashBuffer.append(prefix, this.features.get(i)));
+    }
+  }
+}
@@ -19,6 +19,8 @@ package opennlp.tools.util.featuregen;
 
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 public class SuffixFeatureGenerator implements AdaptiveFeatureGenerator {
 
   static final int DEFAULT_MAX_LENGTH = 4;
@@ -42,6 +44,18 @@ public class SuffixFeatureGenerator implements AdaptiveFeatureGenerator {
     }
   }
   
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] previousOutcomes) {
+    String lex = tokens[index];
+    int suffixes = Math.min(suffixLength, lex.length());
+
+    long state = FeatureHashBuffer.append(features.getPrefix(), "suf=");
+    for (int li = 0; li < suffixes; li++) {
+      features.add(FeatureHashBuffer.append(state, lex, lex.length() - li - 1, lex.length()));
+    }
+  }
+
   private String[] getSuffixes(String lex) {
       
     int suffixes = Math.min(suffixLength, lex.length());
@@ -52,5 +66,24 @@ public class SuffixFeatureGenerator implements AdaptiveFeatureGenerator {
     }
     return suffs;
   }
-  
+
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(suffixLength);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+
+    if (obj != null && obj.getClass() == SuffixFeatureGenerator.class) {
+      SuffixFeatureGenerator generator = (SuffixFeatureGenerator) obj;
+
+      return generator.suffixLength == suffixLength;
+    }
+
+    return false;
+  }
 }
@@ -19,6 +19,7 @@ package opennlp.tools.util.featuregen;
 
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.util.StringUtil;
 
 
@@ -49,4 +50,40 @@ public class TokenClassFeatureGenerator implements AdaptiveFeatureGenerator {
           "," + wordClass);
     }
   }
+
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] preds) {
+    String wordClass = FeatureGeneratorUtil.tokenFeature(tokens[index]);
+    long state = FeatureHashBuffer.append(FeatureHashBuffer.append(features.getPrefix(),
+        TOKEN_CLASS_PREFIX), '=');
+    features.add(FeatureHashBuffer.append(state, wordClass));
+
+    if (generateWordAndClassFeature) {
+      state = FeatureHashBuffer.append(FeatureHashBuffer.append(features.getPrefix(),
+          TOKEN_AND_CLASS_PREFIX), '=');
+      state = FeatureHashBuffer.appendLowerCase(state, tokens[index]);
+      features.add(FeatureHashBuffer.append(FeatureHashBuffer.append(state, ','), wordClass));
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Boolean.hashCode(generateWordAndClassFeature);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+
+    if (obj != null && obj.getClass() == TokenClassFeatureGenerator.class) {
+      TokenClassFeatureGenerator generator = (TokenClassFeatureGenerator) obj;
+
+      return generator.generateWordAndClassFeature == generateWordAndClassFeature;
+    }
+
+    return false;
+  }
 }
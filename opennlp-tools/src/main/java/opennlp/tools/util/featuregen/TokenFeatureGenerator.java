@@ -20,6 +20,7 @@ package opennlp.tools.util.featuregen;
 
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.util.StringUtil;
 
 /**
@@ -46,4 +47,37 @@ public class TokenFeatureGenerator implements AdaptiveFeatureGenerator {
       features.add(WORD_PREFIX + "=" + tokens[index]);
     }
   }
+
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] preds) {
+    long state = FeatureHashBuffer.append(FeatureHashBuffer.append(features.getPrefix(),
+        WORD_PREFIX), '=');
+    if (lowercase) {
+      features.add(FeatureHashBuffer.appendLowerCase(state, tokens[index]));
+    }
+    else {
+      features.add(FeatureHashBuffer.append(state, tokens[index]));
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Boolean.hashCode(lowercase);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+
+    if (obj != null && obj.getClass() == TokenFeatureGenerator.class) {
+      TokenFeatureGenerator generator = (TokenFeatureGenerator) obj;
+
+      return generator.lowercase == lowercase;
+    }
+
+    return false;
+  }
 }
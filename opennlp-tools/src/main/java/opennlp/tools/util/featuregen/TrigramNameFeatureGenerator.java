@@ -25,20 +25,27 @@ import java.util.List;
  */
 public class TrigramNameFeatureGenerator implements AdaptiveFeatureGenerator {
 
+  /** The classes of the tokens, they are computed once per sentence. */
+  private final SentenceFeatureTable tokenClasses = new SentenceFeatureTable(
+      (features, tokens, index, previousOutcomes) ->
+          features.add(FeatureGeneratorUtil.tokenFeature(tokens[index])));
+
   public void createFeatures(List<String> features, String[] tokens, int index,
       String[] previousOutcomes) {
-    String wc = FeatureGeneratorUtil.tokenFeature(tokens[index]);
+    tokenClasses.update(tokens, previousOutcomes);
+
+    String wc = tokenClasses.getFeature(index, 0);
     // trigram features
     if (index > 1) {
       features.add("ppw,pw,w=" + tokens[index - 2] + "," + tokens[index - 1] + "," + tokens[index]);
-      String pwc = FeatureGeneratorUtil.tokenFeature(tokens[index - 1]);
-      String ppwc = FeatureGeneratorUtil.tokenFeature(tokens[index - 2]);
+      String pwc = tokenClasses.getFeature(index - 1, 0);
+      String ppwc = tokenClasses.getFeature(index - 2, 0);
       features.add("ppwc,pwc,wc=" + ppwc + "," + pwc + "," + wc);
     }
     if (index + 2 < tokens.length) {
       features.add("w,nw,nnw=" + tokens[index] + "," + tokens[index + 1] + "," + tokens[index + 2]);
-      String nwc = FeatureGeneratorUtil.tokenFeature(tokens[index + 1]);
-      String nnwc = FeatureGeneratorUtil.tokenFeature(tokens[index + 2]);
+      String nwc = tokenClasses.getFeature(index + 1, 0);
+      String nnwc = tokenClasses.getFeature(index + 2, 0);
       features.add("wc,nwc,nnwc=" + wc + "," + nwc + "," + nnwc);
     }
   }
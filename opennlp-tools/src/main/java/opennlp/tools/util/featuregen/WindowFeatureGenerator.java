@@ -21,6 +21,8 @@ package opennlp.tools.util.featuregen;
 import java.util.ArrayList;
 import java.util.List;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
 /**
  * Generates previous and next features for a given {@link AdaptiveFeatureGenerator}.
  * The window size can be specified.
@@ -29,6 +31,12 @@ import java.util.List;
  * Current token is always included unchanged
  * Previous tokens are prefixed with p distance
  * Next tokens are prefix with n distance
+ *
+ * If the features of the given generator are known to not depend on the previous
+ * outcomes, e.g. those of the token, token class, prefix and suffix generators, they
+ * are created once per sentence and are read from a {@link SentenceFeatureTable} for
+ * every window which contains the token. All other generators, including custom ones,
+ * are called for every token of every window with the previous outcomes of the request.
  */
 public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
 
@@ -40,6 +48,12 @@ public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
   private final int prevWindowSize;
   private final int nextWindowSize;
 
+  /** The features of the tokens, null if the generator is called for every window. */
+  private final SentenceFeatureTable table;
+
+  private final String[] prevPrefixes;
+  private final String[] nextPrefixes;
+
   /**
    * Initializes the current instance with the given parameters.
    *
@@ -51,6 +65,19 @@ public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
     this.generator = generator;
     this.prevWindowSize = prevWindowSize;
     this.nextWindowSize = nextWindowSize;
+
+    table = SentenceFeatureTable.isOutcomeIndependent(generator)
+        ? new SentenceFeatureTable(generator) : null;
+
+    prevPrefixes = new String[prevWindowSize + 1];
+    for (int i = 1; i < prevPrefixes.length; i++) {
+      prevPrefixes[i] = PREV_PREFIX + i;
+    }
+
+    nextPrefixes = new String[nextWindowSize + 1];
+    for (int i = 1; i < nextPrefixes.length; i++) {
+      nextPrefixes[i] = NEXT_PREFIX + i;
+    }
   }
 
   /**
@@ -84,6 +111,36 @@ public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
   }
 
   public void createFeatures(List<String> features, String[] tokens, int index, String[] preds) {
+    if (table == null) {
+      createWindowFeatures(features, tokens, index, preds);
+      return;
+    }
+
+    table.update(tokens, preds);
+
+    // current features
+    table.addFeatures(features, index, null);
+
+    // previous features
+    for (int i = 1; i < prevWindowSize + 1; i++) {
+      if (index - i >= 0) {
+        table.addFeatures(features, index - i, prevPrefixes[i]);
+      }
+    }
+
+    // next features
+    for (int i = 1; i < nextWindowSize + 1; i++) {
+      if (i + index < tokens.length) {
+        table.addFeatures(features, index + i, nextPrefixes[i]);
+      }
+    }
+  }
+
+  /**
+   * Creates the features of the window by calling the generator for every token of it.
+   */
+  private void createWindowFeatures(List<String> features, String[] tokens, int index,
+      String[] preds) {
     // current features
     generator.createFeatures(features, tokens, index, preds);
 
@@ -93,7 +150,7 @@ public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
         List<String> prevFeatures = new ArrayList<>();
         generator.createFeatures(prevFeatures, tokens, index - i, preds);
         for (String prevFeature : prevFeatures) {
-          features.add(PREV_PREFIX + i + prevFeature);
+          features.add(prevPrefixes[i] + prevFeature);
         }
       }
     }
@@ -104,18 +161,97 @@ public class WindowFeatureGenerator implements AdaptiveFeatureGenerator {
         List<String> nextFeatures = new ArrayList<>();
         generator.createFeatures(nextFeatures, tokens, index + i, preds);
         for (String nextFeature : nextFeatures) {
-          features.add(NEXT_PREFIX + i + nextFeature);
+          features.add(nextPrefixes[i] + nextFeature);
         }
       }
     }
   }
 
+  @Override
+  public void createFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] preds) {
+    if (table == null) {
+      createWindowFeatureHashes(features, tokens, index, preds);
+      return;
+    }
+
+    table.update(tokens, preds);
+
+    // current features
+    long prefix = features.getPrefix();
+    table.addFeatureHashes(features, index, prefix);
+
+    // previous features
+    for (int i = 1; i < prevWindowSize + 1; i++) {
+      if (index - i >= 0) {
+        table.addFeatureHashes(features, index - i, FeatureHashBuffer.append(prefix, prevPrefixes[i]));
+      }
+    }
+
+    // next features
+    for (int i = 1; i < nextWindowSize + 1; i++) {
+      if (i + index < tokens.length) {
+        table.addFeatureHashes(features, index + i, FeatureHashBuffer.append(prefix, nextPrefixes[i]));
+      }
+    }
+  }
+
+  /**
+   * Creates the feature hashes of the window by calling the generator for every token of it.
+   */
+  private void createWindowFeatureHashes(FeatureHashBuffer features, String[] tokens, int index,
+      String[] preds) {
+    // current features
+    generator.createFeatureHashes(features, tokens, index, preds);
+
+    // the features of the surrounding tokens are prefixed by changing the prefix of the buffer
+    long prefix = features.getPrefix();
+    try {
+      // previous features
+      for (int i = 1; i < prevWindowSize + 1; i++) {
+        if (index - i >= 0) {
+          features.setPrefix(FeatureHashBuffer.append(prefix, prevPrefixes[i]));
+          generator.createFeatureHashes(features, tokens, index - i, preds);
+        }
+      }
+
+      // next features
+      for (int i = 1; i < nextWindowSize + 1; i++) {
+        if (i + index < tokens.length) {
+          features.setPrefix(FeatureHashBuffer.append(prefix, nextPrefixes[i]));
+          generator.createFeatureHashes(features, tokens, index + i, preds);
+        }
+      }
+    }
+    finally {
+      features.setPrefix(prefix);
+    }
+  }
+
   public void updateAdaptiveData(String[] tokens, String[] outcomes) {
     generator.updateAdaptiveData(tokens, outcomes);
+    if (table != null) {
+      table.clear();
+    }
   }
 
   public void clearAdaptiveData() {
     generator.clearAdaptiveData();
+    if (table != null) {
+      table.clear();
+    }
+  }
+
+  AdaptiveFeatureGenerator getGenerator() {
+    return generator;
+  }
+
+  int getPrevWindowSize() {
+    return prevWindowSize;
+  }
+
+  int getNextWindowSize() {
+    return nextWindowSize;
   }
 
   @Override
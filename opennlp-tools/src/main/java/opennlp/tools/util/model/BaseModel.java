@@ -18,24 +18,36 @@
 package opennlp.tools.util.model;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import opennlp.tools.ml.BeamSearch;
+import opennlp.tools.ml.ContextCache;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.FeatureHasher;
 import opennlp.tools.util.BaseToolFactory;
 import opennlp.tools.util.InvalidFormatException;
 import opennlp.tools.util.Version;
@@ -78,6 +90,14 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
 
   private boolean isLoadedFromSerialized;
 
+  private transient ContextCache contextCache;
+
+  /**
+   * The artifacts which are loaded from the model file on first access,
+   * null if the model is not loaded lazily.
+   */
+  private transient LazyArtifacts lazyArtifacts;
+
   private BaseModel(String componentName, boolean isLoadedFromSerialized) {
     this.isLoadedFromSerialized = isLoadedFromSerialized;
 
@@ -173,12 +193,54 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
     loadModel(in);
   }
 
+  /**
+   * Initializes the current instance from a model file. The manifest is read first
+   * and afterwards all the other artifacts, the file is closed before the constructor
+   * returns.
+   *
+   * @param componentName the component name
+   * @param modelFile the model file
+   *
+   * @throws IOException
+   */
   protected BaseModel(String componentName, File modelFile) throws IOException  {
     this(componentName, true);
 
-    try (InputStream in = new BufferedInputStream(new FileInputStream(modelFile))) {
-      loadModel(in);
-    }
+    loadModel(modelFile, false);
+  }
+
+  /**
+   * Initializes the current instance from a model file, see
+   * {@link #BaseModel(String, File)}.
+   *
+   * @param componentName the component name
+   * @param modelPath the path of the model file
+   *
+   * @throws IOException
+   */
+  protected BaseModel(String componentName, Path modelPath) throws IOException  {
+    this(componentName, modelPath.toFile());
+  }
+
+  /**
+   * Initializes the current instance from a model file. If the model is loaded
+   * lazily the manifest is read first, and the other artifacts are de-serialized
+   * from the file on first access. The artifacts which are validated are loaded
+   * during construction. The file stays open until all artifacts are loaded or
+   * {@link #close()} is called.
+   *
+   * @param componentName the component name
+   * @param modelPath the path of the model file
+   * @param loadLazily true to load the artifacts on first access, false to load
+   *     all of them before the constructor returns
+   *
+   * @throws IOException
+   */
+  protected BaseModel(String componentName, Path modelPath, boolean loadLazily)
+      throws IOException  {
+    this(componentName, true);
+
+    loadModel(modelPath.toFile(), loadLazily);
   }
 
   protected BaseModel(String componentName, URL modelURL) throws IOException  {
@@ -199,10 +261,6 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
       in = new BufferedInputStream(in);
     }
 
-    // TODO: Discuss this solution, the buffering should
-    int MODEL_BUFFER_SIZE_LIMIT = Integer.MAX_VALUE;
-    in.mark(MODEL_BUFFER_SIZE_LIMIT);
-
     final ZipInputStream zip = new ZipInputStream(in);
 
     // The model package can contain artifacts which are serialized with 3rd party
@@ -210,35 +268,133 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
     // the model the manifest must be read first, and afterwards all the artifacts
     // can be de-serialized.
 
-    // The ordering of artifacts in a zip package is not guaranteed. The stream is first
-    // read until the manifest appears, reseted, and read again to load all artifacts.
+    // The ordering of artifacts in a zip package is not guaranteed. Artifacts which
+    // appear before the manifest are copied to a temporary file and de-serialized
+    // once the manifest is read, all other artifacts are de-serialized directly from
+    // the stream. Models written by this class store the manifest first.
+
+    boolean isManifestLoaded = false;
 
-    boolean isSearchingForManifest = true;
+    DeferredArtifacts deferredArtifacts = null;
+    try {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        String entryName = entry.getName();
 
-    ZipEntry entry;
-    while ((entry = zip.getNextEntry()) != null && isSearchingForManifest) {
+        if (MANIFEST_ENTRY.equals(entryName)) {
+          ArtifactSerializer factory = artifactSerializers.get("properties");
+          artifactMap.put(entryName, factory.create(zip));
+          isManifestLoaded = true;
 
-      if ("manifest.properties".equals(entry.getName())) {
-        // TODO: Probably better to use the serializer here directly!
-        ArtifactSerializer factory = artifactSerializers.get("properties");
-        artifactMap.put(entry.getName(), factory.create(zip));
-        isSearchingForManifest = false;
+          initializeFactory();
+          loadArtifactSerializers();
+
+          if (deferredArtifacts != null) {
+            deferredArtifacts.load();
+          }
+        }
+        else if (isManifestLoaded) {
+          artifactMap.put(entryName, createArtifact(entryName, zip));
+        }
+        else {
+          if (deferredArtifacts == null) {
+            deferredArtifacts = new DeferredArtifacts();
+          }
+          deferredArtifacts.add(entryName, zip);
+        }
+
+        zip.closeEntry();
       }
+    }
+    finally {
+      if (deferredArtifacts != null) {
+        deferredArtifacts.delete();
+      }
+    }
 
-      zip.closeEntry();
+    if (!isManifestLoaded) {
+      throw new InvalidFormatException("Missing the " + MANIFEST_ENTRY + "!");
     }
 
-    initializeFactory();
+    finishedLoadingArtifacts = true;
 
-    loadArtifactSerializers();
+    checkArtifactMap();
+  }
 
-    // The Input Stream should always be reset-able because if markSupport returns
-    // false it is wrapped before hand into an Buffered InputStream
-    in.reset();
+  private void loadModel(File modelFile, boolean loadLazily) throws IOException {
 
-    finishLoadingArtifacts(in);
+    Objects.requireNonNull(modelFile, "modelFile must not be null");
 
-    checkArtifactMap();
+    createBaseArtifactSerializers(artifactSerializers);
+
+    ZipFile zip = new ZipFile(modelFile);
+
+    LazyArtifacts lazyArtifacts = null;
+    try {
+      ZipEntry manifestEntry = zip.getEntry(MANIFEST_ENTRY);
+      if (manifestEntry == null) {
+        throw new InvalidFormatException("Missing the " + MANIFEST_ENTRY + "!");
+      }
+
+      try (InputStream in = zip.getInputStream(manifestEntry)) {
+        artifactMap.put(MANIFEST_ENTRY, artifactSerializers.get("properties").create(in));
+      }
+
+      initializeFactory();
+      loadArtifactSerializers();
+
+      if (loadLazily) {
+        lazyArtifacts = new LazyArtifacts(zip);
+        artifactMap = new ArtifactMap(artifactMap);
+      }
+
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory() && !MANIFEST_ENTRY.equals(entry.getName())) {
+          ArtifactSerializer serializer = getLoadingSerializer(entry.getName());
+
+          if (lazyArtifacts != null) {
+            artifactMap.put(entry.getName(), lazyArtifacts.add(entry, serializer));
+          }
+          else {
+            try (InputStream in = zip.getInputStream(entry)) {
+              artifactMap.put(entry.getName(), serializer.create(in));
+            }
+          }
+        }
+      }
+
+      finishedLoadingArtifacts = true;
+
+      checkArtifactMap();
+    }
+    catch (IOException | RuntimeException e) {
+      zip.close();
+      throw e;
+    }
+
+    if (lazyArtifacts != null) {
+      this.lazyArtifacts = lazyArtifacts;
+      lazyArtifacts.closeIfLoaded();
+    }
+    else {
+      zip.close();
+    }
+  }
+
+  /**
+   * Closes the model file of a lazily loaded model, afterwards the artifacts which were
+   * not accessed yet can not be loaded anymore. The file is closed automatically once
+   * all artifacts are loaded. Models which are not loaded lazily do not keep their
+   * model file open, for them this method does nothing.
+   *
+   * @throws IOException if closing the model file fails
+   */
+  public void close() throws IOException {
+    if (lazyArtifacts != null) {
+      lazyArtifacts.close();
+    }
   }
 
   private void initializeFactory() throws InvalidFormatException {
@@ -278,45 +434,318 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
   }
 
   /**
-   * Finish loading the artifacts now that it knows all serializers.
+   * Retrieves the serializer to load an artifact of the model package with, now
+   * that all serializers are known.
+   *
+   * @param entryName the name of the artifact
+   *
+   * @return the serializer
+   *
+   * @throws InvalidFormatException if there is no serializer for the artifact
    */
-  private void finishLoadingArtifacts(InputStream in)
-      throws IOException {
+  private ArtifactSerializer getLoadingSerializer(String entryName) throws InvalidFormatException {
 
-    final ZipInputStream zip = new ZipInputStream(in);
+    String extension = getEntryExtension(entryName);
 
-    Map<String, Object> artifactMap = new HashMap<>();
+    ArtifactSerializer factory = artifactSerializers.get(extension);
 
-    ZipEntry entry;
-    while ((entry = zip.getNextEntry()) != null ) {
+    String artifactSerializerClazzName =
+        getManifestProperty(SERIALIZER_CLASS_NAME_PREFIX + entryName);
 
-      // Note: The manifest.properties file will be read here again,
-      // there should be no need to prevent that.
+    if (artifactSerializerClazzName != null) {
+      factory = ExtensionLoader.instantiateExtension(ArtifactSerializer.class, artifactSerializerClazzName);
+    }
 
-      String entryName = entry.getName();
-      String extension = getEntryExtension(entryName);
+    if (factory == null) {
+      throw new InvalidFormatException("Unknown artifact format: " + extension);
+    }
 
-      ArtifactSerializer factory = artifactSerializers.get(extension);
+    String featureHashingBits = getManifestProperty(FeatureHasher.MANIFEST_PROPERTY);
+    if (featureHashingBits != null) {
+      try {
+        factory = new FeatureHashingSerializer(factory,
+            new FeatureHasher(Integer.parseInt(featureHashingBits)));
+      }
+      catch (IllegalArgumentException e) {
+        throw new InvalidFormatException("Invalid " + FeatureHasher.MANIFEST_PROPERTY + " property: "
+            + featureHashingBits, e);
+      }
+    }
+
+    return factory;
+  }
 
-      String artifactSerializerClazzName =
-          getManifestProperty(SERIALIZER_CLASS_NAME_PREFIX + entryName);
+  /**
+   * Loads the artifacts of a model package which was trained with hashed features,
+   * the loaded models are switched to feature hashing.
+   */
+  private static final class FeatureHashingSerializer implements ArtifactSerializer<Object> {
 
-      if (artifactSerializerClazzName != null) {
-        factory = ExtensionLoader.instantiateExtension(ArtifactSerializer.class, artifactSerializerClazzName);
+    private final ArtifactSerializer<Object> serializer;
+    private final FeatureHasher hasher;
+
+    @SuppressWarnings("unchecked")
+    private FeatureHashingSerializer(ArtifactSerializer<?> serializer, FeatureHasher hasher) {
+      this.serializer = (ArtifactSerializer<Object>) serializer;
+      this.hasher = hasher;
+    }
+
+    @Override
+    public Object create(InputStream in) throws IOException {
+      Object artifact = serializer.create(in);
+
+      if (artifact instanceof AbstractModel) {
+        try {
+          ((AbstractModel) artifact).enableFeatureHashing(hasher);
+        }
+        catch (IllegalArgumentException e) {
+          throw new InvalidFormatException(e);
+        }
       }
 
-      if (factory != null) {
-        artifactMap.put(entryName, factory.create(zip));
-      } else {
-        throw new InvalidFormatException("Unknown artifact format: " + extension);
+      return artifact;
+    }
+
+    @Override
+    public void serialize(Object artifact, OutputStream out) throws IOException {
+      serializer.serialize(artifact, out);
+    }
+  }
+
+  private Object createArtifact(String entryName, InputStream in) throws IOException {
+    return getLoadingSerializer(entryName).create(in);
+  }
+
+  /**
+   * Artifacts which were read before the manifest, they are copied into a
+   * temporary file until the serializers are known.
+   */
+  private final class DeferredArtifacts {
+
+    private final Path file;
+    private final OutputStream out;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Long> lengths = new ArrayList<>();
+
+    private DeferredArtifacts() throws IOException {
+      file = Files.createTempFile("opennlp-model", ".tmp");
+      out = new BufferedOutputStream(Files.newOutputStream(file));
+    }
+
+    private void add(String entryName, InputStream in) throws IOException {
+      byte[] buffer = new byte[1024 * 4];
+      long length = 0;
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+        length += n;
       }
 
-      zip.closeEntry();
+      names.add(entryName);
+      lengths.add(length);
     }
 
-    this.artifactMap.putAll(artifactMap);
+    private void load() throws IOException {
+      out.close();
 
-    finishedLoadingArtifacts = true;
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+        for (int i = 0; i < names.size(); i++) {
+          EntryInputStream entryIn = new EntryInputStream(in, lengths.get(i));
+          artifactMap.put(names.get(i), createArtifact(names.get(i), entryIn));
+          entryIn.skipRemaining();
+        }
+      }
+
+      names.clear();
+      lengths.clear();
+    }
+
+    private void delete() throws IOException {
+      try {
+        out.close();
+      }
+      finally {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Exposes a fixed number of bytes of the underlying stream, closing it
+   * does not close the underlying stream.
+   */
+  private static final class EntryInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    private EntryInputStream(InputStream in, long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+
+      int b = in.read();
+      if (b != -1) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+
+      int n = in.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(Math.min(n, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void skipRemaining() throws IOException {
+      byte[] buffer = new byte[1024 * 4];
+      while (read(buffer, 0, buffer.length) != -1) {
+        // discard the bytes the serializer did not read
+      }
+    }
+  }
+
+  /**
+   * The artifacts of a model file which are de-serialized on first access. The
+   * file is closed once all of them are loaded, or when the model is closed.
+   */
+  private static final class LazyArtifacts {
+
+    private final ZipFile zip;
+
+    private int pending;
+    private boolean closed;
+
+    private LazyArtifacts(ZipFile zip) {
+      this.zip = zip;
+    }
+
+    private synchronized LazyArtifact add(ZipEntry entry, ArtifactSerializer serializer) {
+      pending++;
+      return new LazyArtifact(this, entry, serializer);
+    }
+
+    private synchronized Object load(ZipEntry entry, ArtifactSerializer serializer)
+        throws IOException {
+      if (closed) {
+        throw new IllegalStateException("The model is closed, the artifact "
+            + entry.getName() + " can not be loaded");
+      }
+
+      Object artifact;
+      try (InputStream in = zip.getInputStream(entry)) {
+        artifact = serializer.create(in);
+      }
+
+      pending--;
+      closeIfLoaded();
+
+      return artifact;
+    }
+
+    private synchronized void closeIfLoaded() throws IOException {
+      if (pending == 0) {
+        close();
+      }
+    }
+
+    private synchronized void close() throws IOException {
+      closed = true;
+      zip.close();
+    }
+  }
+
+  private static final class LazyArtifact {
+
+    private final LazyArtifacts artifacts;
+    private final ZipEntry entry;
+    private final ArtifactSerializer serializer;
+
+    private volatile Object artifact;
+
+    private LazyArtifact(LazyArtifacts artifacts, ZipEntry entry, ArtifactSerializer serializer) {
+      this.artifacts = artifacts;
+      this.entry = entry;
+      this.serializer = serializer;
+    }
+
+    private Object get() {
+      Object result = artifact;
+      if (result == null) {
+        synchronized (this) {
+          result = artifact;
+          if (result == null) {
+            try {
+              result = artifacts.load(entry, serializer);
+              artifact = result;
+            }
+            catch (IOException e) {
+              throw new UncheckedIOException("Failed to load the model artifact " + entry.getName(), e);
+            }
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * An artifact map which loads {@link LazyArtifact}s on lookup. Only the lookup
+   * methods resolve the artifacts, the views of the map expose them as they are.
+   */
+  private static final class ArtifactMap extends HashMap<String, Object> {
+
+    private ArtifactMap(Map<String, Object> artifacts) {
+      super(artifacts);
+    }
+
+    @Override
+    public Object get(Object key) {
+      Object value = super.get(key);
+      if (value instanceof LazyArtifact) {
+        return ((LazyArtifact) value).get();
+      }
+      return value;
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+      return containsKey(key) ? get(key) : defaultValue;
+    }
   }
 
   /**
@@ -503,6 +932,25 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
     return manifest.getProperty(key);
   }
 
+  /**
+   * Retrieves the cache which is shared by all the beam searches created
+   * for this model. The size of the cache is configured with the
+   * {@link BeamSearch#CACHE_SIZE_PARAMETER} manifest property.
+   *
+   * @return the cache or null if the manifest does not enable caching
+   */
+  protected synchronized ContextCache getContextCache() {
+    if (contextCache == null) {
+      String cacheSizeString = getManifestProperty(BeamSearch.CACHE_SIZE_PARAMETER);
+
+      if (cacheSizeString != null && Integer.parseInt(cacheSizeString) > 0) {
+        contextCache = new ContextCache(Integer.parseInt(cacheSizeString));
+      }
+    }
+
+    return contextCache;
+  }
+
   /**
    * Sets a given value for a given key to the manifest.properties entry.
    *
@@ -567,7 +1015,12 @@ public abstract class BaseModel implements ArtifactProvider, Serializable {
 
     ZipOutputStream zip = new ZipOutputStream(out);
 
-    for (String name : artifactMap.keySet()) {
+    // the manifest is written first to allow loading the model in a single pass
+    List<String> names = new ArrayList<>(artifactMap.keySet());
+    names.remove(MANIFEST_ENTRY);
+    names.add(0, MANIFEST_ENTRY);
+
+    for (String name : names) {
       zip.putNextEntry(new ZipEntry(name));
 
       Object artifact = artifactMap.get(name);
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.cmdline.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import opennlp.tools.chunker.ChunkSampleStream;
+import opennlp.tools.chunker.ChunkerFactory;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.formats.ResourceAsStreamFactory;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.GenericModelWriter;
+import opennlp.tools.ml.model.ModelPruner;
+import opennlp.tools.ml.model.Quantization;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.BaseModel;
+
+public class ModelPackageTest {
+
+  private static final String SAMPLES = "/opennlp/tools/chunker/test.txt";
+
+  private static File modelFile;
+
+  private static File data;
+
+  @BeforeClass
+  public static void trainModel() throws IOException, URISyntaxException {
+    TrainingParameters params = new TrainingParameters();
+    params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(70));
+    params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(1));
+
+    ChunkerModel model = ChunkerME.train("en", new ChunkSampleStream(new PlainTextByLineStream(
+        new ResourceAsStreamFactory(ModelPackageTest.class, SAMPLES), StandardCharsets.UTF_8)),
+        params, new ChunkerFactory());
+
+    modelFile = File.createTempFile("chunker-model", ".bin");
+    try (OutputStream out = new FileOutputStream(modelFile)) {
+      model.serialize(out);
+    }
+
+    data = new File(ModelPackageTest.class.getResource(SAMPLES).toURI());
+  }
+
+  @AfterClass
+  public static void deleteModel() {
+    modelFile.delete();
+  }
+
+  @Test
+  public void testIsModelPackage() throws IOException {
+    Assert.assertTrue(ModelPackage.isModelPackage(modelFile));
+
+    AbstractModel maxentModel = (AbstractModel) new ChunkerModel(modelFile).getChunkerModel();
+    File maxentFile = File.createTempFile("chunker-maxent", ".bin");
+    try {
+      new GenericModelWriter(maxentModel, maxentFile).persist();
+      Assert.assertFalse(ModelPackage.isModelPackage(maxentFile));
+    }
+    finally {
+      maxentFile.delete();
+    }
+  }
+
+  @Test
+  public void testQuantizePackage() throws IOException {
+    ModelPackage modelPackage = ModelPackage.read(modelFile);
+    ModelPackage quantizedPackage = modelPackage.transform(Quantization.INT8::quantize);
+
+    Assert.assertTrue(quantizedPackage.size() < modelPackage.size());
+
+    BaseModel model = modelPackage.load();
+    BaseModel quantizedModel = quantizedPackage.load();
+    Assert.assertTrue(quantizedModel instanceof ChunkerModel);
+    Assert.assertEquals("F-Measure", ModelPackage.getScoreName(quantizedModel));
+
+    double score = ModelPackage.evaluate(model, data, StandardCharsets.UTF_8);
+    double quantizedScore = ModelPackage.evaluate(quantizedModel, data, StandardCharsets.UTF_8);
+    Assert.assertTrue(score > 0.9);
+    Assert.assertEquals(score, quantizedScore, 0.02);
+  }
+
+  @Test
+  public void testPrunePackage() throws IOException {
+    ModelPruner pruner = new ModelPruner(0.05, Integer.MAX_VALUE);
+
+    ModelPackage modelPackage = ModelPackage.read(modelFile);
+    ModelPackage prunedPackage = modelPackage.transform(pruner::prune);
+
+    AbstractModel maxentModel = (AbstractModel) ((ChunkerModel) modelPackage.load())
+        .getChunkerModel();
+    AbstractModel prunedMaxentModel = (AbstractModel) ((ChunkerModel) prunedPackage.load())
+        .getChunkerModel();
+    Assert.assertTrue(ModelPruner.getNumParameters(prunedMaxentModel)
+        < ModelPruner.getNumParameters(maxentModel));
+
+    double score = ModelPackage.evaluate(modelPackage.load(), data, StandardCharsets.UTF_8);
+    double prunedScore = ModelPackage.evaluate(prunedPackage.load(), data, StandardCharsets.UTF_8);
+    Assert.assertEquals(score, prunedScore, 0.02);
+  }
+
+  @Test
+  public void testTransformNestedPackage() throws IOException {
+    ModelPackage modelPackage = ModelPackage.read(modelFile);
+
+    // a package which contains the chunker model, like a parser contains its chunker
+    ByteArrayOutputStream modelBytes = new ByteArrayOutputStream();
+    ((ChunkerModel) modelPackage.load()).serialize(modelBytes);
+    File outerFile = File.createTempFile("outer-model", ".bin");
+    try {
+      try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(outerFile))) {
+        zip.putNextEntry(new ZipEntry("manifest.properties"));
+        zip.write("Component-Name=Outer\n".getBytes(StandardCharsets.UTF_8));
+        zip.putNextEntry(new ZipEntry("parserchunker.chunker"));
+        zip.write(modelBytes.toByteArray());
+      }
+
+      List<AbstractModel> transformed = new ArrayList<>();
+      ModelPackage.read(outerFile).transform(model -> {
+        transformed.add(model);
+        return model;
+      });
+
+      Assert.assertEquals(1, transformed.size());
+    }
+    finally {
+      outerFile.delete();
+    }
+  }
+}
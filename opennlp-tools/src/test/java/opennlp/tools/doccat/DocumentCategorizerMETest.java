@@ -17,6 +17,8 @@
 
 package opennlp.tools.doccat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Set;
 import java.util.SortedMap;
@@ -24,6 +26,9 @@ import java.util.SortedMap;
 import org.junit.Assert;
 import org.junit.Test;
 
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.FeatureHasher;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.ObjectStreamUtils;
 import opennlp.tools.util.TrainingParameters;
@@ -61,4 +66,36 @@ public class DocumentCategorizerMETest {
     Set<String> cat = sortedScoreMap.get(sortedScoreMap.lastKey());
     Assert.assertEquals(1, cat.size());
   }
+
+  @Test
+  public void testTrainingWithFeatureHashing() throws IOException {
+
+    ObjectStream<DocumentSample> samples = ObjectStreamUtils.createObjectStream(
+        new DocumentSample("1", new String[]{"a", "b", "c"}),
+        new DocumentSample("1", new String[]{"a", "b", "c", "1", "2"}),
+        new DocumentSample("0", new String[]{"x", "y", "z"}),
+        new DocumentSample("0", new String[]{"x", "y", "z", "5", "6"}));
+
+    TrainingParameters params = new TrainingParameters();
+    params.put(TrainingParameters.ITERATIONS_PARAM, "100");
+    params.put(TrainingParameters.CUTOFF_PARAM, "0");
+    params.put(AbstractTrainer.FEATURE_HASHING_BITS_PARAM, "16");
+
+    DoccatModel model = DocumentCategorizerME.train("x-unspecified", samples,
+        params, new DoccatFactory());
+    Assert.assertEquals("16", model.getManifestProperty(FeatureHasher.MANIFEST_PROPERTY));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    model.serialize(out);
+
+    DoccatModel readModel = new DoccatModel(new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(new FeatureHasher(16),
+        ((AbstractModel) readModel.getMaxentModel()).getFeatureHasher());
+
+    DocumentCategorizer doccat = new DocumentCategorizerME(readModel);
+    Assert.assertEquals("1", doccat.getBestCategory(doccat.categorize(new String[]{"a"})));
+    Assert.assertEquals("0", doccat.getBestCategory(doccat.categorize(new String[]{"x"})));
+    Assert.assertArrayEquals(new DocumentCategorizerME(model).categorize(new String[]{"b", "z"}),
+        doccat.categorize(new String[]{"b", "z"}), 0d);
+  }
 }
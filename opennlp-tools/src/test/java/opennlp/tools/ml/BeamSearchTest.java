@@ -23,6 +23,7 @@ import java.util.Map;
 import org.junit.Assert;
 import org.junit.Test;
 
+import opennlp.tools.ml.model.FeatureHashBuffer;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.util.BeamSearchContextGenerator;
 import opennlp.tools.util.Sequence;
@@ -44,6 +45,28 @@ public class BeamSearchTest {
   }
 
 
+  /**
+   * Creates the hashes of the contexts too and counts them.
+   */
+  static class HashedIdentityFeatureGenerator extends IdentityFeatureGenerator {
+
+    private int numHashedContexts;
+
+    HashedIdentityFeatureGenerator(String[] outcomeSequence) {
+      super(outcomeSequence);
+    }
+
+    @Override
+    public boolean getContextHashes(FeatureHashBuffer features, int index, String[] sequence,
+        String[] priorDecisions, Object[] additionalContext) {
+      numHashedContexts++;
+      for (String feature : getContext(index, sequence, priorDecisions, additionalContext)) {
+        features.add(feature);
+      }
+      return true;
+    }
+  }
+
   static class IdentityModel implements MaxentModel {
 
     private String[] outcomes;
@@ -112,6 +135,73 @@ public class BeamSearchTest {
     }
   }
 
+  /**
+   * Evaluates the hashes of the outcomes like the outcomes.
+   */
+  static class HashedIdentityModel extends IdentityModel {
+
+    private final String[] outcomes;
+
+    HashedIdentityModel(String[] outcomes) {
+      super(outcomes);
+      this.outcomes = outcomes;
+    }
+
+    @Override
+    public boolean supportsHashedPredicates() {
+      return true;
+    }
+
+    @Override
+    public double[] eval(FeatureHashBuffer context, double[] probs) {
+      for (String outcome : outcomes) {
+        if (FeatureHashBuffer.hash(outcome) == context.get(0)) {
+          return eval(new String[] {outcome});
+        }
+      }
+      return eval(new String[] {""});
+    }
+  }
+
+  private static void assertBestSequence(String[] expected, MaxentModel model, int cacheSize,
+      BeamSearchContextGenerator<String> cg) {
+    BeamSearch<String> bs = new BeamSearch<>(2, model, cacheSize);
+
+    Sequence seq = bs.bestSequence(expected, null, cg,
+        (int i, String[] inputSequence, String[] outcomesSequence, String outcome) -> true);
+
+    Assert.assertNotNull(seq);
+    Assert.assertArrayEquals(expected, seq.getOutcomes().toArray());
+  }
+
+  /**
+   * Tests that the hashes of the contexts are evaluated if the model and the context
+   * generator support them, and the feature strings otherwise.
+   */
+  @Test
+  public void testBestSequenceWithHashes() {
+    String[] sequence = {"1", "2", "3", "2", "1"};
+    String[] outcomes = new String[] {"1", "2", "3"};
+
+    HashedIdentityFeatureGenerator cg = new HashedIdentityFeatureGenerator(sequence);
+    assertBestSequence(sequence, new HashedIdentityModel(outcomes), 0, cg);
+    Assert.assertEquals(9, cg.numHashedContexts);
+
+    // the model does not support hashes
+    cg = new HashedIdentityFeatureGenerator(sequence);
+    assertBestSequence(sequence, new IdentityModel(outcomes), 0, cg);
+    Assert.assertEquals(0, cg.numHashedContexts);
+
+    // the cache stores the feature strings
+    cg = new HashedIdentityFeatureGenerator(sequence);
+    assertBestSequence(sequence, new HashedIdentityModel(outcomes), 10, cg);
+    Assert.assertEquals(0, cg.numHashedContexts);
+
+    // the context generator does not support hashes
+    assertBestSequence(sequence, new HashedIdentityModel(outcomes), 0,
+        new IdentityFeatureGenerator(sequence));
+  }
+
   /**
    * Tests that beam search does not fail to detect an empty sequence.
    */
@@ -205,4 +295,32 @@ public class BeamSearchTest {
     Assert.assertNotSame("2", seq.getOutcomes().get(3));
     Assert.assertEquals("1", seq.getOutcomes().get(4));
   }
+
+  /**
+   * Tests that more sequences than the beam size can be requested and
+   * that they are ordered by their score.
+   */
+  @Test
+  public void testBestSequencesMoreThanBeamSize() {
+    String[] sequence = {"1", "2"};
+    BeamSearchContextGenerator<String> cg = new IdentityFeatureGenerator(sequence);
+
+    String[] outcomes = new String[] {"1", "2", "3"};
+    MaxentModel model = new IdentityModel(outcomes);
+
+    BeamSearch<String> bs = new BeamSearch<>(2, model);
+
+    Sequence[] seqs = bs.bestSequences(3, sequence, null, cg,
+        (int i, String[] inputSequence, String[] outcomesSequence,
+         String outcome) -> true);
+
+    Assert.assertEquals(3, seqs.length);
+    Assert.assertEquals("1", seqs[0].getOutcomes().get(0));
+    Assert.assertEquals("2", seqs[0].getOutcomes().get(1));
+
+    for (int i = 1; i < seqs.length; i++) {
+      Assert.assertEquals(sequence.length, seqs[i].getOutcomes().size());
+      Assert.assertTrue(seqs[i - 1].getScore() >= seqs[i].getScore());
+    }
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContextCacheTest {
+
+  @Test
+  public void testContentKeyed() {
+    ContextCache cache = new ContextCache(10);
+
+    double[] probs = new double[] {0.25, 0.75};
+    cache.put(new String[] {"w=a", "p=b"}, probs);
+
+    // the cache must keep its own copy
+    probs[0] = 1;
+
+    double[] cached = cache.get(new String[] {"w=a", "p=b"});
+    Assert.assertNotNull(cached);
+    Assert.assertEquals(0.25, cached[0], 0d);
+    Assert.assertEquals(0.75, cached[1], 0d);
+
+    Assert.assertNull(cache.get(new String[] {"p=b", "w=a"}));
+
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testEviction() {
+    ContextCache cache = new ContextCache(2);
+
+    cache.put(new String[] {"a"}, new double[] {1});
+    cache.put(new String[] {"b"}, new double[] {2});
+
+    // a is now the most recently used entry
+    Assert.assertNotNull(cache.get(new String[] {"a"}));
+
+    cache.put(new String[] {"c"}, new double[] {3});
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertNull(cache.get(new String[] {"b"}));
+    Assert.assertNotNull(cache.get(new String[] {"a"}));
+    Assert.assertNotNull(cache.get(new String[] {"c"}));
+  }
+
+  @Test
+  public void testBoundedUnderConcurrentAccess() throws Exception {
+    final int capacity = 1000;
+    ContextCache cache = new ContextCache(capacity);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            String[] context = new String[] {"w=" + (i % 3000)};
+            double[] probs = cache.get(context);
+            if (probs == null) {
+              cache.put(context, new double[] {i % 3000});
+            }
+            else {
+              Assert.assertEquals(i % 3000, probs[0], 0d);
+            }
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    Assert.assertTrue(cache.size() <= capacity);
+    Assert.assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+    Assert.assertTrue(cache.getEvictionCount() > 0);
+  }
+}
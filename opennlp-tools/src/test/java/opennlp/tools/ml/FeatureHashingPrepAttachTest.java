@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.BinaryFileDataReader;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.FeatureHasher;
+import opennlp.tools.ml.model.GenericModelReader;
+import opennlp.tools.ml.model.GenericModelWriter;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class FeatureHashingPrepAttachTest {
+
+  private static AbstractModel train(String algorithm, Map<String, String> reportMap)
+      throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    trainParams.put(AbstractTrainer.FEATURE_HASHING_BITS_PARAM, "18");
+
+    return (AbstractModel) TrainerFactory.getEventTrainer(trainParams, reportMap)
+        .train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static void assertSameDistributions(MaxentModel expected, MaxentModel model)
+      throws IOException {
+    ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream();
+
+    Event event;
+    while ((event = events.read()) != null) {
+      Assert.assertArrayEquals(expected.eval(event.getContext()), model.eval(event.getContext()), 0d);
+    }
+  }
+
+  @Test
+  public void testGISWithFeatureHashing() throws IOException {
+    Map<String, String> reportMap = new HashMap<>();
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE, reportMap);
+
+    Assert.assertEquals(new FeatureHasher(18), model.getFeatureHasher());
+    Assert.assertEquals("18", reportMap.get(FeatureHasher.MANIFEST_PROPERTY));
+    PrepAttachDataUtil.testModel(model, 0.7982173805397376);
+  }
+
+  @Test
+  public void testQNWithFeatureHashing() throws IOException {
+    PrepAttachDataUtil.testModel(train(QNTrainer.MAXENT_QN_VALUE, null), 0.8140628868531815);
+  }
+
+  @Test
+  public void testPerceptronWithFeatureHashing() throws IOException {
+    PrepAttachDataUtil.testModel(train(PerceptronTrainer.PERCEPTRON_VALUE, null), 0.769744986382768);
+  }
+
+  @Test
+  public void testSerializedModel() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE, null);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new GenericModelWriter(model, new DataOutputStream(out)).persist();
+
+    // the model only contains the buckets, the hashing is enabled by the loading code
+    AbstractModel readModel = new GenericModelReader(new BinaryFileDataReader(
+        new ByteArrayInputStream(out.toByteArray()))).getModel();
+    Assert.assertNull(readModel.getFeatureHasher());
+    Assert.assertTrue(readModel.supportsHashedPredicates());
+
+    readModel.enableFeatureHashing(new FeatureHasher(18));
+
+    // the buckets can not be computed from the hashes of the predicates
+    Assert.assertFalse(readModel.supportsHashedPredicates());
+
+    // the writer reorders the predicates, the models evaluate identically
+    assertSameDistributions(model, readModel);
+  }
+}
@@ -59,6 +59,10 @@ public class PrepAttachDataUtil {
     return ObjectStreamUtils.createObjectStream(trainingEvents);
   }
 
+  public static ObjectStream<Event> createDevStream() throws IOException {
+    return ObjectStreamUtils.createObjectStream(readPpaFile("devset"));
+  }
+
   public static void testModel(MaxentModel model, double expecedAccuracy) throws IOException {
 
     List<Event> devEvents = readPpaFile("devset");
@@ -20,6 +20,7 @@ package opennlp.tools.ml.maxent;
 import java.io.IOException;
 import java.util.HashMap;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -71,6 +72,18 @@ public class MaxentPrepAttachTest {
     PrepAttachDataUtil.testModel(model, 0.7997028967566229);
   }
 
+  @Test
+  public void testMaxentOnPrepAttachDataIndependentOfThreads() throws IOException {
+    // the unmerged events do not fit into a single block of the trainer
+    testDataIndexer.index(PrepAttachDataUtil.createTrainingStream());
+
+    AbstractModel expected = new GISTrainer().trainModel(10, testDataIndexer, new UniformPrior(), 1);
+    for (int threads = 2; threads <= 4; threads++) {
+      Assert.assertEquals(expected,
+          new GISTrainer().trainModel(10, testDataIndexer, new UniformPrior(), threads));
+    }
+  }
+
   @Test
   public void testMaxentOnPrepAttachDataWithParams() throws IOException {
 
@@ -28,6 +28,7 @@ import org.junit.Test;
 
 import opennlp.tools.ml.AbstractTrainer;
 import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.MappedDataIndexer;
 import opennlp.tools.ml.model.OnePassRealValueDataIndexer;
 import opennlp.tools.ml.model.RealValueFileEventStream;
 import opennlp.tools.util.TrainingParameters;
@@ -174,6 +175,64 @@ public class NegLogLikelihoodTest {
         testDataIndexer, TOLERANCE01));
   }
 
+  @Test
+  public void testParallelMatchesSequential() throws IOException {
+    // given
+    RealValueFileEventStream rvfes1 = new RealValueFileEventStream(
+        "src/test/resources/data/opennlp/maxent/real-valued-weights-training-data.txt", "UTF-8");
+    testDataIndexer.index(rvfes1);
+    NegLogLikelihood objectFunction = new NegLogLikelihood(testDataIndexer);
+    double[] nonInitialPoint = new double[] { 3, 2, 3, 2, 3, 2, 3, 2, 3, 2 };
+
+    // the gradient buffer is reused, copy it before the next call
+    double expectedValue = objectFunction.valueAt(nonInitialPoint);
+    double[] expectedGradient = objectFunction.gradientAt(nonInitialPoint).clone();
+
+    // when, then
+    for (int threads = 1; threads <= 4; threads++) {
+      try (ParallelNegLogLikelihood parallelFunction =
+               new ParallelNegLogLikelihood(testDataIndexer, threads)) {
+        // the worker pool is reused across evaluations
+        for (int i = 0; i < 3; i++) {
+          Assert.assertEquals(expectedValue, parallelFunction.valueAt(nonInitialPoint), TOLERANCE02);
+          Assert.assertArrayEquals(expectedGradient, parallelFunction.gradientAt(nonInitialPoint),
+              TOLERANCE02);
+        }
+      }
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testDeprecatedArrays() throws IOException {
+    // given
+    RealValueFileEventStream rvfes1 = new RealValueFileEventStream(
+        "src/test/resources/data/opennlp/maxent/real-valued-weights-training-data.txt", "UTF-8");
+    testDataIndexer.index(rvfes1);
+
+    DataIndexer mappedDataIndexer = new MappedDataIndexer();
+    TrainingParameters trainingParameters = new TrainingParameters();
+    trainingParameters.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    mappedDataIndexer.init(trainingParameters, new HashMap<>());
+    mappedDataIndexer.index(new RealValueFileEventStream(
+        "src/test/resources/data/opennlp/maxent/real-valued-weights-training-data.txt", "UTF-8"));
+
+    // when
+    NegLogLikelihood objectFunction = new NegLogLikelihood(testDataIndexer);
+    NegLogLikelihood mappedFunction = new NegLogLikelihood(mappedDataIndexer);
+
+    // then
+    Assert.assertSame(testDataIndexer.getValues(), objectFunction.values);
+    Assert.assertSame(testDataIndexer.getContexts(), objectFunction.contexts);
+    Assert.assertSame(testDataIndexer.getOutcomeList(), objectFunction.outcomeList);
+    Assert.assertSame(testDataIndexer.getNumTimesEventsSeen(), objectFunction.numTimesEventsSeen);
+
+    Assert.assertNull(mappedFunction.values);
+    Assert.assertNull(mappedFunction.contexts);
+    Assert.assertNull(mappedFunction.outcomeList);
+    Assert.assertNull(mappedFunction.numTimesEventsSeen);
+  }
+
   private double[] alignDoubleArrayForTestData(double[] expected,
       String[] predLabels, String[] outcomeLabels) {
     double[] aligned = new double[predLabels.length * outcomeLabels.length];
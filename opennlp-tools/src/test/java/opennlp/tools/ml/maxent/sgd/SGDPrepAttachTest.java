@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.maxent.sgd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISModel;
+import opennlp.tools.ml.maxent.io.BinaryGISModelReader;
+import opennlp.tools.ml.maxent.io.BinaryGISModelWriter;
+import opennlp.tools.ml.model.AbstractDataIndexer;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.ml.model.OnePassDataIndexer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class SGDPrepAttachTest {
+
+  private static TrainingParameters createParameters() {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, SGDTrainer.MAXENT_SGD_VALUE);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    return trainParams;
+  }
+
+  private static MaxentModel train(TrainingParameters trainParams) throws IOException {
+    return TrainerFactory.getEventTrainer(trainParams, null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static void assertSameDistributions(MaxentModel expected, MaxentModel model)
+      throws IOException {
+    ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream();
+
+    Event event;
+    while ((event = events.read()) != null) {
+      Assert.assertArrayEquals(expected.eval(event.getContext()), model.eval(event.getContext()), 1e-12);
+    }
+  }
+
+  @Test
+  public void testAdaGradOnPrepAttachData() throws IOException {
+    TrainingParameters trainParams = createParameters();
+
+    EventTrainer trainer = TrainerFactory.getEventTrainer(trainParams, null);
+    Assert.assertEquals(SGDTrainer.class, trainer.getClass());
+
+    MaxentModel model = trainer.train(PrepAttachDataUtil.createTrainingStream());
+
+    Assert.assertEquals(GISModel.class, model.getClass());
+    PrepAttachDataUtil.testModel(model, 0.81827184946769);
+  }
+
+  @Test
+  public void testSGDOnPrepAttachData() throws IOException {
+    TrainingParameters trainParams = createParameters();
+    trainParams.put(SGDTrainer.UPDATE_RULE_PARAM, SGDTrainer.UPDATE_RULE_SGD_VALUE);
+    trainParams.put(SGDTrainer.LEARNING_RATE_PARAM, "0.5");
+    trainParams.put(SGDTrainer.DECAY_PARAM, "0.001");
+
+    PrepAttachDataUtil.testModel(train(trainParams), 0.8115870264917059);
+  }
+
+  @Test
+  public void testAdaGradWithElasticNetOnPrepAttachData() throws IOException {
+    TrainingParameters trainParams = createParameters();
+    trainParams.put(SGDTrainer.L1COST_PARAM, "0.25");
+    trainParams.put(SGDTrainer.L2COST_PARAM, "1.0");
+
+    PrepAttachDataUtil.testModel(train(trainParams), 0.822233226046051);
+  }
+
+  @Test
+  public void testResultIndependentOfThreads() throws IOException {
+    TrainingParameters trainParams = createParameters();
+    trainParams.put(SGDTrainer.L1COST_PARAM, "0.25");
+
+    MaxentModel expected = train(trainParams);
+
+    trainParams.put(SGDTrainer.THREADS_PARAM, "4");
+    MaxentModel model = train(trainParams);
+
+    Assert.assertEquals(expected, model);
+  }
+
+  @Test
+  public void testTrainOnDataIndexer() throws IOException {
+    TrainingParameters indexingParameters = new TrainingParameters();
+    indexingParameters.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    indexingParameters.put(AbstractDataIndexer.SORT_PARAM, "false");
+
+    DataIndexer indexer = new OnePassDataIndexer();
+    indexer.init(indexingParameters, new HashMap<>());
+    indexer.index(PrepAttachDataUtil.createTrainingStream());
+
+    MaxentModel model = TrainerFactory.getEventTrainer(createParameters(), null).train(indexer);
+
+    // without sorting the indexer keeps the events in the order of the stream
+    assertSameDistributions(train(createParameters()), model);
+  }
+
+  @Test
+  public void testSerializedModel() throws IOException {
+    TrainingParameters trainParams = createParameters();
+    trainParams.put(SGDTrainer.L1COST_PARAM, "0.5");
+
+    AbstractModel model = (AbstractModel) train(trainParams);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryGISModelWriter(model, new DataOutputStream(out)).persist();
+
+    AbstractModel readModel = new BinaryGISModelReader(new DataInputStream(
+        new ByteArrayInputStream(out.toByteArray()))).getModel();
+
+    assertSameDistributions(model, readModel);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventSpillReaderTest {
+
+  private Path spillFile;
+
+  @Before
+  public void createSpillFile() throws IOException {
+    spillFile = Files.createTempFile("events", null);
+  }
+
+  @After
+  public void deleteSpillFile() throws IOException {
+    Files.deleteIfExists(spillFile);
+  }
+
+  private void testRoundTrip(boolean memoryMapped) throws IOException {
+    Random random = new Random(7);
+
+    // enough events to refill the read buffer several times
+    int[][] contexts = new int[20000][];
+    int[] outcomes = new int[contexts.length];
+    for (int ei = 0; ei < contexts.length; ei++) {
+      outcomes[ei] = random.nextInt(10);
+      contexts[ei] = new int[random.nextInt(40)];
+      for (int ci = 0; ci < contexts[ei].length; ci++) {
+        // cover all encoded lengths, from one to five bytes
+        contexts[ei][ci] = random.nextInt() >>> random.nextInt(32);
+      }
+    }
+
+    try (EventSpillWriter writer = new EventSpillWriter(spillFile)) {
+      for (int ei = 0; ei < contexts.length; ei++) {
+        writer.write(outcomes[ei], contexts[ei], contexts[ei].length);
+      }
+    }
+
+    try (EventSpillReader reader = new EventSpillReader(spillFile, memoryMapped)) {
+      for (int ei = 0; ei < contexts.length; ei++) {
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(outcomes[ei], reader.getOutcome());
+        Assert.assertArrayEquals(contexts[ei],
+            Arrays.copyOf(reader.getPredicates(), reader.getLength()));
+      }
+      Assert.assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    testRoundTrip(false);
+  }
+
+  @Test
+  public void testMemoryMappedRoundTrip() throws IOException {
+    testRoundTrip(true);
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    new EventSpillWriter(spillFile).close();
+
+    try (EventSpillReader reader = new EventSpillReader(spillFile, false)) {
+      Assert.assertFalse(reader.next());
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.naivebayes.NaiveBayesTrainer;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class FeatureHashBufferTest {
+
+  private static MaxentModel train(String algorithm) throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    trainParams.put(AbstractTrainer.ITERATIONS_PARAM, "20");
+
+    return TrainerFactory.getEventTrainer(trainParams, null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static void assertSameDistributions(MaxentModel model) throws IOException {
+    FeatureHashBuffer features = new FeatureHashBuffer();
+    double[] probs = new double[model.getNumOutcomes()];
+
+    ObjectStream<Event> events = PrepAttachDataUtil.createDevStream();
+    Event event;
+    while ((event = events.read()) != null) {
+      features.clear();
+      for (String predicate : event.getContext()) {
+        features.add(predicate);
+      }
+      // the dev data contains predicates which are unknown to the model
+      features.add("unknown=predicate");
+
+      Assert.assertArrayEquals(model.eval(event.getContext()), model.eval(features, probs), 0d);
+    }
+  }
+
+  private static final long INITIAL_STATE = new FeatureHashBuffer().getPrefix();
+
+  private static long hashOf(long state) {
+    FeatureHashBuffer features = new FeatureHashBuffer();
+    features.add(state);
+    return features.get(0);
+  }
+
+  @Test
+  public void testIncrementalHash() {
+    long expected = FeatureHashBuffer.hash("w=example");
+    long state = FeatureHashBuffer.append(INITIAL_STATE, "w=");
+
+    Assert.assertEquals(expected, hashOf(FeatureHashBuffer.append(state, "example")));
+    Assert.assertEquals(expected, hashOf(FeatureHashBuffer.append(state, "an example", 3, 10)));
+    Assert.assertEquals(expected, hashOf(FeatureHashBuffer.appendLowerCase(state, "ExAmple")));
+    Assert.assertNotEquals(expected, FeatureHashBuffer.hash("w=examplf"));
+  }
+
+  @Test
+  public void testAppendNumber() {
+    for (int number : new int[] {0, 7, -1, 42, -305, 1234567890, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+      Assert.assertEquals(FeatureHashBuffer.hash(Integer.toString(number)),
+          hashOf(FeatureHashBuffer.append(INITIAL_STATE, number)));
+    }
+  }
+
+  @Test
+  public void testPrefix() {
+    FeatureHashBuffer features = new FeatureHashBuffer();
+    features.add("w=a");
+
+    long prefix = features.getPrefix();
+    features.setPrefix(FeatureHashBuffer.append(prefix, "p1"));
+    features.add("w=b");
+    features.add(FeatureHashBuffer.append(features.getPrefix(), "w=c"));
+    features.setPrefix(prefix);
+    features.add("w=d");
+
+    Assert.assertArrayEquals(new long[] {FeatureHashBuffer.hash("w=a"), FeatureHashBuffer.hash("p1w=b"),
+        FeatureHashBuffer.hash("p1w=c"), FeatureHashBuffer.hash("w=d")}, features.toArray());
+  }
+
+  @Test
+  public void testAddAllAndClear() {
+    long[] hashes = new long[100];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = FeatureHashBuffer.hash("f=" + i);
+    }
+
+    FeatureHashBuffer features = new FeatureHashBuffer();
+    features.add("first");
+    features.addAll(hashes, hashes.length);
+    Assert.assertEquals(101, features.size());
+    Assert.assertEquals(hashes[99], features.get(100));
+
+    features.setPrefix(FeatureHashBuffer.append(features.getPrefix(), "p1"));
+    features.clear();
+    Assert.assertEquals(0, features.size());
+    features.add("f=0");
+    Assert.assertEquals(hashes[0], features.get(0));
+  }
+
+  @Test
+  public void testGISModel() throws IOException {
+    assertSameDistributions(train(GISTrainer.MAXENT_VALUE));
+  }
+
+  @Test
+  public void testPerceptronModel() throws IOException {
+    assertSameDistributions(train(PerceptronTrainer.PERCEPTRON_VALUE));
+  }
+
+  @Test
+  public void testQNModel() throws IOException {
+    assertSameDistributions(train(QNTrainer.MAXENT_QN_VALUE));
+  }
+
+  @Test
+  public void testNaiveBayesModel() throws IOException {
+    assertSameDistributions(train(NaiveBayesTrainer.NAIVE_BAYES_VALUE));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testModelWithFeatureHashing() throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, GISTrainer.MAXENT_VALUE);
+    trainParams.put(AbstractTrainer.ITERATIONS_PARAM, "20");
+    trainParams.put(AbstractTrainer.FEATURE_HASHING_BITS_PARAM, "18");
+
+    MaxentModel model = TrainerFactory.getEventTrainer(trainParams, null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+
+    FeatureHashBuffer features = new FeatureHashBuffer();
+    features.add("verb=join");
+    model.eval(features, new double[model.getNumOutcomes()]);
+  }
+}
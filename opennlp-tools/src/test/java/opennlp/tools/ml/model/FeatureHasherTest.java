@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeatureHasherTest {
+
+  /**
+   * The reference implementation of the 32 bit x86 MurmurHash3 over bytes.
+   */
+  private static int murmurHash3(byte[] data, int seed) {
+    int h = seed;
+    int blocks = data.length / 4;
+
+    for (int i = 0; i < blocks; i++) {
+      int k = (data[i * 4] & 0xff) | (data[i * 4 + 1] & 0xff) << 8
+          | (data[i * 4 + 2] & 0xff) << 16 | (data[i * 4 + 3] & 0xff) << 24;
+      k *= 0xcc9e2d51;
+      k = Integer.rotateLeft(k, 15);
+      k *= 0x1b873593;
+      h ^= k;
+      h = Integer.rotateLeft(h, 13);
+      h = h * 5 + 0xe6546b64;
+    }
+
+    int k = 0;
+    switch (data.length & 3) {
+      case 3:
+        k ^= (data[blocks * 4 + 2] & 0xff) << 16;
+      case 2:
+        k ^= (data[blocks * 4 + 1] & 0xff) << 8;
+      case 1:
+        k ^= data[blocks * 4] & 0xff;
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        k *= 0x1b873593;
+        h ^= k;
+    }
+
+    h ^= data.length;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  @Test
+  public void testReferenceImplementation() {
+    // published test vectors of MurmurHash3_x86_32
+    Assert.assertEquals(0, murmurHash3(new byte[0], 0));
+    Assert.assertEquals(0x514E28B7, murmurHash3(new byte[0], 1));
+    Assert.assertEquals(0x2362F9DE, murmurHash3(new byte[4], 0));
+    Assert.assertEquals(0xB3DD93FA, murmurHash3("abc".getBytes(StandardCharsets.UTF_8), 0));
+    Assert.assertEquals(0x2E4FF723, murmurHash3(
+        "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0));
+  }
+
+  @Test
+  public void testHashOfUtf16Encoding() {
+    String[] features = {"", "a", "ab", "abc", "w=the", "suf=ung", "pre=über", "中文"};
+
+    for (String feature : features) {
+      for (int seed : new int[] {0, 42}) {
+        Assert.assertEquals(feature, murmurHash3(feature.getBytes(StandardCharsets.UTF_16LE), seed),
+            FeatureHasher.murmurHash3(feature, seed));
+      }
+    }
+  }
+
+  @Test
+  public void testBuckets() {
+    FeatureHasher hasher = new FeatureHasher(4);
+    Assert.assertEquals(16, hasher.getNumBuckets());
+
+    for (int i = 0; i < 100; i++) {
+      int bucket = hasher.bucket("f=" + i);
+      Assert.assertTrue(bucket >= 0 && bucket < 16);
+      Assert.assertEquals(bucket, hasher.parseLabel(hasher.label(bucket)));
+    }
+
+    Assert.assertArrayEquals(new String[] {hasher.label(hasher.bucket("a"))},
+        hasher.hash(new String[] {"a"}));
+  }
+
+  @Test
+  public void testParseInvalidLabel() {
+    FeatureHasher hasher = new FeatureHasher(4);
+
+    Assert.assertEquals(-1, hasher.parseLabel(""));
+    Assert.assertEquals(-1, hasher.parseLabel("a"));
+    Assert.assertEquals(-1, hasher.parseLabel("-1"));
+    Assert.assertEquals(-1, hasher.parseLabel("01"));
+    Assert.assertEquals(-1, hasher.parseLabel("16"));
+    Assert.assertEquals(15, hasher.parseLabel("15"));
+    Assert.assertEquals(0, hasher.parseLabel("0"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyBits() {
+    new FeatureHasher(FeatureHasher.MAX_BITS + 1);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+public class MappedDataIndexerTest {
+
+  private static DataIndexer index(DataIndexer indexer, List<Event> events) throws IOException {
+    TrainingParameters parameters = new TrainingParameters();
+    parameters.put(AbstractDataIndexer.CUTOFF_PARAM, "1");
+    parameters.put(AbstractDataIndexer.SORT_PARAM, "false");
+    parameters.put(ParallelDataIndexer.THREADS_PARAM, "1");
+    parameters.put(AbstractTrainer.VERBOSE_PARAM, "false");
+
+    indexer.init(parameters, new HashMap<>());
+    indexer.index(ObjectStreamUtils.createObjectStream(events));
+    return indexer;
+  }
+
+  private static List<Event> readEvents() throws IOException {
+    List<Event> events = new ArrayList<>();
+    try (ObjectStream<Event> stream = PrepAttachDataUtil.createTrainingStream()) {
+      Event event;
+      while ((event = stream.read()) != null) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  @Test
+  public void testSameEventsAsInMemoryIndexer() throws IOException {
+    List<Event> events = readEvents();
+
+    // the parallel indexer also indexes the predicates in lexicographic order
+    DataIndexer expected = index(new ParallelDataIndexer(), events);
+    DataIndexer indexer = index(new MappedDataIndexer(), events);
+
+    Assert.assertEquals(expected.getNumEvents(), indexer.getNumEvents());
+    Assert.assertArrayEquals(expected.getPredLabels(), indexer.getPredLabels());
+    Assert.assertArrayEquals(expected.getPredCounts(), indexer.getPredCounts());
+    Assert.assertArrayEquals(expected.getOutcomeLabels(), indexer.getOutcomeLabels());
+    Assert.assertNull(indexer.getValues());
+
+    IndexedEvents.Cursor expectedCursor = expected.getIndexedEvents().cursor();
+    IndexedEvents.Cursor cursor = indexer.getIndexedEvents().cursor();
+    while (expectedCursor.next()) {
+      Assert.assertTrue(cursor.next());
+      Assert.assertEquals(expectedCursor.getIndex(), cursor.getIndex());
+      Assert.assertArrayEquals(expectedCursor.getContext(), cursor.getContext());
+      Assert.assertEquals(expectedCursor.getOutcome(), cursor.getOutcome());
+      Assert.assertEquals(expectedCursor.getNumTimesSeen(), cursor.getNumTimesSeen());
+    }
+    Assert.assertFalse(cursor.next());
+
+    // the arrays are loaded on request
+    Assert.assertArrayEquals(expected.getContexts(), indexer.getContexts());
+    Assert.assertArrayEquals(expected.getOutcomeList(), indexer.getOutcomeList());
+    Assert.assertArrayEquals(expected.getNumTimesEventsSeen(), indexer.getNumTimesEventsSeen());
+  }
+
+  @Test
+  public void testCursorRange() throws IOException {
+    DataIndexer indexer = index(new MappedDataIndexer(), readEvents());
+
+    IndexedEvents.Cursor cursor = indexer.getIndexedEvents().cursor(10, 20);
+    for (int ei = 10; ei < 20; ei++) {
+      Assert.assertTrue(cursor.next());
+      Assert.assertEquals(ei, cursor.getIndex());
+      Assert.assertArrayEquals(indexer.getContexts()[ei], cursor.getContext());
+    }
+    Assert.assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testValuesAndCutoff() throws IOException {
+    List<Event> events = new ArrayList<>();
+    events.add(new Event("a", new String[] {"x", "y"}, new float[] {0.5f, 2f}));
+    events.add(new Event("b", new String[] {"x", "rare"}));
+    events.add(new Event("a", new String[] {"rare2"}));
+    events.add(new Event("b", new String[] {"y", "x"}, new float[] {3f, 4f}));
+
+    DataIndexer indexer = new MappedDataIndexer();
+    TrainingParameters parameters = new TrainingParameters();
+    parameters.put(AbstractDataIndexer.CUTOFF_PARAM, "2");
+    parameters.put(AbstractTrainer.VERBOSE_PARAM, "false");
+    indexer.init(parameters, new HashMap<>());
+    indexer.index(ObjectStreamUtils.createObjectStream(events));
+
+    // the event without a predicate above the cutoff is dropped
+    Assert.assertEquals(3, indexer.getNumEvents());
+    Assert.assertArrayEquals(new String[] {"x", "y"}, indexer.getPredLabels());
+    Assert.assertArrayEquals(new int[] {3, 2}, indexer.getPredCounts());
+
+    Assert.assertArrayEquals(new int[][] {{0, 1}, {0}, {1, 0}}, indexer.getContexts());
+    Assert.assertArrayEquals(new int[] {0, 1, 1}, indexer.getOutcomeList());
+
+    // events without values get values of 1
+    float[][] values = indexer.getValues();
+    Assert.assertArrayEquals(new float[] {0.5f, 2f}, values[0], 0f);
+    Assert.assertArrayEquals(new float[] {1f}, values[1], 0f);
+    Assert.assertArrayEquals(new float[] {3f, 4f}, values[2], 0f);
+  }
+
+  @Test
+  public void testTrainersReadMappedEvents() throws IOException {
+    List<Event> events = readEvents();
+
+    DataIndexer expected = index(new ParallelDataIndexer(), events);
+    DataIndexer indexer = index(new MappedDataIndexer(), events);
+
+    for (String algorithm : new String[] {GISTrainer.MAXENT_VALUE, QNTrainer.MAXENT_QN_VALUE,
+        PerceptronTrainer.PERCEPTRON_VALUE}) {
+      TrainingParameters parameters = new TrainingParameters();
+      parameters.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+      parameters.put(AbstractTrainer.ITERATIONS_PARAM, "10");
+      parameters.put(AbstractTrainer.VERBOSE_PARAM, "false");
+
+      EventTrainer trainer = TrainerFactory.getEventTrainer(parameters, null);
+
+      Assert.assertEquals(algorithm, trainer.train(expected), trainer.train(indexer));
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.naivebayes.NaiveBayesTrainer;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class MappedModelTest {
+
+  private static AbstractModel train(String algorithm) throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    trainParams.put(AbstractTrainer.ITERATIONS_PARAM, "10");
+
+    EventTrainer trainer = TrainerFactory.getEventTrainer(trainParams, null);
+    return (AbstractModel) trainer.train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static AbstractModel writeAndRead(AbstractModel model) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new MappedModelWriter(model, out).persist();
+    return new MappedModelReader(ByteBuffer.wrap(out.toByteArray())).getModel();
+  }
+
+  private static void assertSameEval(AbstractModel expected, AbstractModel actual)
+      throws IOException {
+    Assert.assertEquals(expected.getModelType(), actual.getModelType());
+    Assert.assertEquals(expected.getNumOutcomes(), actual.getNumOutcomes());
+
+    try (ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream()) {
+      Event event;
+      while ((event = events.read()) != null) {
+        Assert.assertArrayEquals(expected.eval(event.getContext()), actual.eval(event.getContext()), 0d);
+      }
+    }
+
+    String[] unknownContext = new String[] {"verb=unknown", "noun=unknown"};
+    Assert.assertArrayEquals(expected.eval(unknownContext), actual.eval(unknownContext), 0d);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testGISModel() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    assertSameEval(model, writeAndRead(model));
+  }
+
+  @Test
+  public void testPerceptronModel() throws IOException {
+    AbstractModel model = train(PerceptronTrainer.PERCEPTRON_VALUE);
+    assertSameEval(model, writeAndRead(model));
+  }
+
+  @Test
+  public void testQNModel() throws IOException {
+    AbstractModel model = train(QNTrainer.MAXENT_QN_VALUE);
+    assertSameEval(model, writeAndRead(model));
+  }
+
+  @Test
+  public void testMappedFile() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+
+    File file = File.createTempFile("mapped-model", ".bin");
+    try {
+      new MappedModelWriter(model, file).persist();
+      AbstractModel mapped = new MappedModelReader(file).getModel();
+
+      assertSameEval(model, mapped);
+
+      // the predicate index of the mapped model must resolve every predicate
+      for (String predicate : model.pmap.keySet()) {
+        Assert.assertEquals(model.pmap.get(predicate), mapped.pmap.get(predicate));
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFile() throws IOException {
+    new MappedModelReader(ByteBuffer.wrap(new byte[64])).getModel();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaiveBayesNotSupported() throws IOException {
+    new MappedModelWriter(train(NaiveBayesTrainer.NAIVE_BAYES_VALUE), new ByteArrayOutputStream())
+        .persist();
+  }
+}
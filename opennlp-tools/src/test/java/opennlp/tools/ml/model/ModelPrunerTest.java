@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISModel;
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.naivebayes.NaiveBayesTrainer;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class ModelPrunerTest {
+
+  private static AbstractModel train(TrainingParameters trainParams) throws IOException {
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+    return (AbstractModel) TrainerFactory.getEventTrainer(trainParams, null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static AbstractModel train(String algorithm) throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+    return train(trainParams);
+  }
+
+  private static Context[] getParams(AbstractModel model) {
+    return (Context[]) model.getDataStructures()[0];
+  }
+
+  private static void assertSameEval(MaxentModel expected, MaxentModel actual) throws IOException {
+    try (ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream()) {
+      Event event;
+      while ((event = events.read()) != null) {
+        Assert.assertArrayEquals(expected.eval(event.getContext()), actual.eval(event.getContext()), 0d);
+      }
+    }
+  }
+
+  /**
+   * Creates a copy of a GIS model where the parameters which the pruner removes are zero.
+   */
+  private static AbstractModel zeroRemovedParameters(AbstractModel model, AbstractModel pruned) {
+    Context[] params = getParams(model);
+    Context[] zeroed = new Context[params.length];
+    String[] predLabels = new String[params.length];
+    for (int pi = 0; pi < params.length; pi++) {
+      predLabels[pi] = model.getPredicateIndex().getPredicate(pi);
+
+      double[] predParams = params[pi].getParameters().clone();
+      int prunedIndex = pruned.getPredicateIndex().get(predLabels[pi]);
+      for (int ai = 0; ai < predParams.length; ai++) {
+        int outcome = params[pi].getOutcomes()[ai];
+        if (prunedIndex == -1 || findOutcome(getParams(pruned)[prunedIndex], outcome) == -1) {
+          predParams[ai] = 0;
+        }
+      }
+      zeroed[pi] = new Context(params[pi].getOutcomes(), predParams);
+    }
+    return new GISModel(zeroed, predLabels, model.outcomeNames);
+  }
+
+  private static int findOutcome(Context context, int outcome) {
+    for (int ai = 0; ai < context.getOutcomes().length; ai++) {
+      if (context.getOutcomes()[ai] == outcome) {
+        return ai;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void testZeroThresholdKeepsDistributions() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    AbstractModel pruned = new ModelPruner(0).prune(model);
+
+    Assert.assertEquals(GISModel.class, pruned.getClass());
+    assertSameEval(model, pruned);
+  }
+
+  @Test
+  public void testThreshold() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    AbstractModel pruned = new ModelPruner(0.5).prune(model);
+
+    Assert.assertTrue(ModelPruner.getNumParameters(pruned) < ModelPruner.getNumParameters(model));
+    Assert.assertTrue(getParams(pruned).length < getParams(model).length);
+
+    for (Context context : getParams(pruned)) {
+      Assert.assertTrue(context.getParameters().length > 0);
+      for (double param : context.getParameters()) {
+        Assert.assertTrue(Math.abs(param) >= 0.5);
+      }
+    }
+
+    assertSameEval(zeroRemovedParameters(model, pruned), pruned);
+  }
+
+  @Test
+  public void testMaxParametersPerOutcome() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    AbstractModel pruned = new ModelPruner(0, 100).prune(model);
+
+    for (int oi = 0; oi < model.getNumOutcomes(); oi++) {
+      int kept = 0;
+      double minKept = Double.POSITIVE_INFINITY;
+      for (Context context : getParams(pruned)) {
+        int ai = findOutcome(context, oi);
+        if (ai != -1) {
+          kept++;
+          minKept = Math.min(minKept, Math.abs(context.getParameters()[ai]));
+        }
+      }
+      Assert.assertEquals(100, kept);
+
+      // no removed parameter is larger than the kept ones
+      Context[] params = getParams(model);
+      for (int pi = 0; pi < params.length; pi++) {
+        int ai = findOutcome(params[pi], oi);
+        int prunedIndex = pruned.getPredicateIndex().get(model.getPredicateIndex().getPredicate(pi));
+        if (ai != -1 && (prunedIndex == -1 || findOutcome(getParams(pruned)[prunedIndex], oi) == -1)) {
+          Assert.assertTrue(Math.abs(params[pi].getParameters()[ai]) <= minKept);
+        }
+      }
+    }
+
+    assertSameEval(zeroRemovedParameters(model, pruned), pruned);
+  }
+
+  @Test
+  public void testAccuracy() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    AbstractModel pruned = new ModelPruner(0.1).prune(model);
+
+    ModelComparison comparison = new ModelComparison(model, pruned);
+    try (ObjectStream<Event> events = PrepAttachDataUtil.createDevStream()) {
+      comparison.evaluate(events);
+    }
+
+    Assert.assertEquals(0, comparison.getAccuracyLoss(), 0.01);
+  }
+
+  @Test
+  public void testPerceptronAndQNModels() throws IOException {
+    for (String algorithm : new String[] {PerceptronTrainer.PERCEPTRON_VALUE,
+        QNTrainer.MAXENT_QN_VALUE}) {
+      AbstractModel model = train(algorithm);
+      AbstractModel pruned = new ModelPruner(0).prune(model);
+
+      Assert.assertEquals(model.getClass(), pruned.getClass());
+      assertSameEval(model, pruned);
+    }
+  }
+
+  @Test
+  public void testFeatureHashing() throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, GISTrainer.MAXENT_VALUE);
+    trainParams.put(AbstractTrainer.FEATURE_HASHING_BITS_PARAM, "16");
+
+    AbstractModel model = train(trainParams);
+    AbstractModel pruned = new ModelPruner(0).prune(model);
+
+    Assert.assertEquals(model.getFeatureHasher(), pruned.getFeatureHasher());
+    assertSameEval(model, pruned);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeThreshold() {
+    new ModelPruner(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoParametersPerOutcome() {
+    new ModelPruner(0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaiveBayesNotSupported() throws IOException {
+    new ModelPruner(0).prune(train(NaiveBayesTrainer.NAIVE_BAYES_VALUE));
+  }
+}
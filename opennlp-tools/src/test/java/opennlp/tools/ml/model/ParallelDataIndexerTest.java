@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractEventTrainer;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+public class ParallelDataIndexerTest {
+
+  private static List<Event> createEvents(int count) {
+    Random random = new Random(42);
+
+    List<Event> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String[] context = new String[1 + random.nextInt(4)];
+      for (int ci = 0; ci < context.length; ci++) {
+        // a skewed distribution to get rare predicates which are cut off
+        context[ci] = "p=" + (int) Math.pow(random.nextInt(40), 2);
+      }
+      events.add(new Event("o" + random.nextInt(3), context));
+    }
+    return events;
+  }
+
+  private static DataIndexer index(List<Event> events, String indexerType, int threads)
+      throws IOException {
+    TrainingParameters parameters = new TrainingParameters();
+    parameters.put(AbstractDataIndexer.CUTOFF_PARAM, "3");
+    parameters.put(AbstractEventTrainer.DATA_INDEXER_PARAM, indexerType);
+    parameters.put(ParallelDataIndexer.THREADS_PARAM, Integer.toString(threads));
+
+    DataIndexer indexer = DataIndexerFactory.getDataIndexer(parameters, new HashMap<>());
+    indexer.index(ObjectStreamUtils.createObjectStream(events));
+    return indexer;
+  }
+
+  /**
+   * Maps every unique event to its number of occurrences, the events are described
+   * by their outcome and predicate labels to be independent of the assigned indexes.
+   */
+  private static Map<String, Integer> describeEvents(DataIndexer indexer) {
+    Map<String, Integer> events = new HashMap<>();
+    for (int ei = 0; ei < indexer.getContexts().length; ei++) {
+      String[] context = new String[indexer.getContexts()[ei].length];
+      for (int ci = 0; ci < context.length; ci++) {
+        context[ci] = indexer.getPredLabels()[indexer.getContexts()[ei][ci]];
+      }
+      String event = indexer.getOutcomeLabels()[indexer.getOutcomeList()[ei]] + " "
+          + Arrays.toString(context);
+      events.merge(event, indexer.getNumTimesEventsSeen()[ei], Integer::sum);
+    }
+    return events;
+  }
+
+  private static Map<String, Integer> describePredicates(DataIndexer indexer) {
+    Map<String, Integer> predicates = new HashMap<>();
+    for (int pi = 0; pi < indexer.getPredLabels().length; pi++) {
+      predicates.put(indexer.getPredLabels()[pi], indexer.getPredCounts()[pi]);
+    }
+    return predicates;
+  }
+
+  @Test
+  public void testSameResultAsOnePassIndexer() throws IOException {
+    // more events than fit into a single chunk
+    List<Event> events = createEvents(10000);
+
+    DataIndexer expected = index(events, AbstractEventTrainer.DATA_INDEXER_ONE_PASS_VALUE, 1);
+
+    for (int threads = 1; threads <= 4; threads++) {
+      DataIndexer indexer = index(events, AbstractEventTrainer.DATA_INDEXER_PARALLEL_VALUE, threads);
+
+      Assert.assertEquals(ParallelDataIndexer.class, indexer.getClass());
+      Assert.assertEquals(expected.getNumEvents(), indexer.getNumEvents());
+      Assert.assertArrayEquals(expected.getOutcomeLabels(), indexer.getOutcomeLabels());
+      Assert.assertEquals(describePredicates(expected), describePredicates(indexer));
+      Assert.assertEquals(describeEvents(expected), describeEvents(indexer));
+    }
+  }
+
+  @Test
+  public void testResultIndependentOfThreads() throws IOException {
+    List<Event> events = createEvents(10000);
+
+    DataIndexer expected = index(events, AbstractEventTrainer.DATA_INDEXER_PARALLEL_VALUE, 1);
+    DataIndexer indexer = index(events, AbstractEventTrainer.DATA_INDEXER_PARALLEL_VALUE, 3);
+
+    Assert.assertArrayEquals(expected.getPredLabels(), indexer.getPredLabels());
+    Assert.assertArrayEquals(expected.getContexts(), indexer.getContexts());
+    Assert.assertArrayEquals(expected.getOutcomeList(), indexer.getOutcomeList());
+    Assert.assertArrayEquals(expected.getNumTimesEventsSeen(), indexer.getNumTimesEventsSeen());
+  }
+
+  @Test
+  public void testPredicateCounter() {
+    ParallelDataIndexer.PredicateCounter counter = new ParallelDataIndexer.PredicateCounter();
+
+    // enough predicates to resize the table a few times
+    for (int i = 0; i < 5000; i++) {
+      counter.add("p=" + (i % 2500), 1);
+    }
+
+    Assert.assertEquals(2500, counter.size());
+    Assert.assertEquals(2, counter.get("p=0"));
+    Assert.assertEquals(2, counter.get("p=2499"));
+    Assert.assertEquals(0, counter.get("p=2500"));
+  }
+}
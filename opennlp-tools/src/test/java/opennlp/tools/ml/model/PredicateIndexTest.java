@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PredicateIndexTest {
+
+  private static String[] createPredicates(int count) {
+    String[] predLabels = new String[count];
+    for (int i = 0; i < count; i++) {
+      predLabels[i] = "w=" + i;
+    }
+    return predLabels;
+  }
+
+  @Test
+  public void testLookup() {
+    String[] predLabels = createPredicates(1000);
+
+    PredicateIndex index = new PredicateIndex(predLabels);
+
+    Assert.assertEquals(predLabels.length, index.size());
+
+    for (int i = 0; i < predLabels.length; i++) {
+      Assert.assertEquals(i, index.get(new String(predLabels[i])));
+      Assert.assertEquals(predLabels[i], index.getPredicate(i));
+    }
+
+    Assert.assertEquals(-1, index.get("w=1000"));
+    Assert.assertEquals(-1, index.get(""));
+  }
+
+  @Test
+  public void testLookupContext() {
+    PredicateIndex index = new PredicateIndex(new String[] {"a", "b", "c"});
+
+    int[] ids = new int[5];
+    index.get(new String[] {"c", "x", "a"}, ids);
+
+    Assert.assertEquals(2, ids[0]);
+    Assert.assertEquals(-1, ids[1]);
+    Assert.assertEquals(0, ids[2]);
+  }
+
+  @Test
+  public void testEmptyIndex() {
+    PredicateIndex index = new PredicateIndex(new String[0]);
+    Assert.assertEquals(0, index.size());
+    Assert.assertEquals(-1, index.get("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicatePredicate() {
+    new PredicateIndex(new String[] {"a", "b", "a"});
+  }
+
+  @Test
+  public void testMapView() {
+    String[] predLabels = createPredicates(100);
+
+    Map<String, Integer> pmap = new HashMap<>();
+    for (int i = 0; i < predLabels.length; i++) {
+      pmap.put(predLabels[i], i);
+    }
+
+    PredicateIndex index = PredicateIndex.fromMap(pmap);
+    Map<String, Integer> view = index.asMap();
+
+    Assert.assertEquals(pmap, view);
+    Assert.assertEquals(view, pmap);
+    Assert.assertEquals(pmap.hashCode(), view.hashCode());
+    Assert.assertEquals(Integer.valueOf(42), view.get("w=42"));
+    Assert.assertNull(view.get("unknown"));
+  }
+}
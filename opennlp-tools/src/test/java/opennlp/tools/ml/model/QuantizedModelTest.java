@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.ml.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.maxent.GISTrainer;
+import opennlp.tools.ml.maxent.io.BinaryGISModelWriter;
+import opennlp.tools.ml.maxent.quasinewton.QNTrainer;
+import opennlp.tools.ml.naivebayes.NaiveBayesTrainer;
+import opennlp.tools.ml.perceptron.PerceptronTrainer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class QuantizedModelTest {
+
+  private static AbstractModel train(String algorithm) throws IOException {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, algorithm);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, "1");
+
+    return (AbstractModel) TrainerFactory.getEventTrainer(trainParams, null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+  }
+
+  private static byte[] write(AbstractModel model, Quantization quantization) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new QuantizedModelWriter(model, quantization, new DataOutputStream(out)).persist();
+    return out.toByteArray();
+  }
+
+  private static AbstractModel read(byte[] bytes) throws IOException {
+    return new GenericModelReader(new BinaryFileDataReader(new ByteArrayInputStream(bytes)))
+        .getModel();
+  }
+
+  private static ModelComparison compare(AbstractModel reference, AbstractModel model)
+      throws IOException {
+    ModelComparison comparison = new ModelComparison(reference, model);
+    try (ObjectStream<Event> events = PrepAttachDataUtil.createDevStream()) {
+      comparison.evaluate(events);
+    }
+    return comparison;
+  }
+
+  private static void assertSameEval(AbstractModel expected, AbstractModel actual)
+      throws IOException {
+    Assert.assertEquals(expected.getModelType(), actual.getModelType());
+
+    try (ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream()) {
+      Event event;
+      while ((event = events.read()) != null) {
+        Assert.assertArrayEquals(expected.eval(event.getContext()), actual.eval(event.getContext()), 0d);
+      }
+    }
+  }
+
+  private static void testQuantization(String algorithm) throws IOException {
+    AbstractModel model = train(algorithm);
+
+    for (Quantization quantization : Quantization.values()) {
+      AbstractModel quantized = quantization.quantize(model);
+      AbstractModel read = read(write(model, quantization));
+
+      // the parameters are quantized the same way in memory and in the file
+      assertSameEval(quantized, read);
+
+      ModelComparison comparison = compare(model, read);
+      Assert.assertTrue(quantization + " agreement " + comparison.getAgreement(),
+          comparison.getAgreement() > 0.99);
+      Assert.assertEquals(quantization + " accuracy loss", 0, comparison.getAccuracyLoss(), 0.005);
+    }
+  }
+
+  @Test
+  public void testGISModel() throws IOException {
+    testQuantization(GISTrainer.MAXENT_VALUE);
+  }
+
+  @Test
+  public void testPerceptronModel() throws IOException {
+    testQuantization(PerceptronTrainer.PERCEPTRON_VALUE);
+  }
+
+  @Test
+  public void testQNModel() throws IOException {
+    testQuantization(QNTrainer.MAXENT_QN_VALUE);
+  }
+
+  @Test
+  public void testDequantizedModel() throws IOException {
+    AbstractModel quantized = Quantization.INT8.quantize(train(GISTrainer.MAXENT_VALUE));
+
+    // the full precision writer writes the dequantized parameters
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryGISModelWriter(quantized, new DataOutputStream(out)).persist();
+    AbstractModel read = new GenericModelReader(new BinaryFileDataReader(
+        new DataInputStream(new ByteArrayInputStream(out.toByteArray())))).getModel();
+
+    assertSameEval(quantized, read);
+  }
+
+  @Test
+  public void testSmallerThanFullPrecisionModel() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryGISModelWriter(model, new DataOutputStream(out)).persist();
+
+    int float16Size = write(model, Quantization.FLOAT16).length;
+    int int8Size = write(model, Quantization.INT8).length;
+    int sharedScaleSize = write(model, Quantization.INT8_SHARED_SCALE).length;
+
+    Assert.assertTrue(float16Size < out.size());
+    Assert.assertTrue(int8Size < out.size());
+    Assert.assertTrue(sharedScaleSize < int8Size);
+    Assert.assertTrue(sharedScaleSize < float16Size);
+  }
+
+  private static byte[] serialize(DoccatModel model) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    model.serialize(out);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testModelPackage() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    int fullPrecisionSize = serialize(new DoccatModel("en", model, null, new DoccatFactory())).length;
+
+    for (Quantization quantization : Quantization.values()) {
+      AbstractModel quantized = quantization.quantize(model);
+
+      byte[] bytes = serialize(new DoccatModel("en", quantized, null, new DoccatFactory()));
+      Assert.assertTrue(quantization + " package size", bytes.length < fullPrecisionSize);
+
+      // the package keeps the compact parameters when it is loaded and written again
+      DoccatModel read = new DoccatModel(new ByteArrayInputStream(bytes));
+      AbstractModel readModel = (AbstractModel) read.getMaxentModel();
+      Assert.assertTrue(readModel.evalParams instanceof QuantizedEvalParameters);
+      Assert.assertEquals(quantization,
+          ((QuantizedEvalParameters) readModel.evalParams).getQuantization());
+      assertSameEval(quantized, readModel);
+
+      Assert.assertEquals(bytes.length, serialize(read).length);
+    }
+  }
+
+  @Test
+  public void testInt8Parameters() {
+    Random random = new Random(42);
+
+    Context[] params = new Context[100];
+    for (int pi = 0; pi < params.length; pi++) {
+      double[] predParams = new double[1 + random.nextInt(5)];
+      for (int ai = 0; ai < predParams.length; ai++) {
+        predParams[ai] = random.nextGaussian() * (pi + 1);
+      }
+      params[pi] = new Context(new int[predParams.length], predParams);
+    }
+
+    Context[] quantized = QuantizedEvalParameters.quantize(params, 5, Quantization.INT8).getParams();
+
+    for (int pi = 0; pi < params.length; pi++) {
+      double maxAbs = 0;
+      for (double param : params[pi].getParameters()) {
+        maxAbs = Math.max(maxAbs, Math.abs(param));
+      }
+      double scale = maxAbs / QuantizedEvalParameters.INT8_MAX;
+
+      for (int ai = 0; ai < params[pi].getParameters().length; ai++) {
+        Assert.assertEquals(params[pi].getParameters()[ai], quantized[pi].getParameters()[ai],
+            scale / 2 * 1.0001);
+      }
+    }
+  }
+
+  @Test
+  public void testFloat16Conversion() {
+    Assert.assertEquals(0x3C00, QuantizedEvalParameters.toFloat16(1f));
+    Assert.assertEquals((short) 0xC000, QuantizedEvalParameters.toFloat16(-2f));
+    Assert.assertEquals(0x7BFF, QuantizedEvalParameters.toFloat16(65504f));
+    Assert.assertEquals(0x0001, QuantizedEvalParameters.toFloat16(0x1.0p-24f));
+    Assert.assertEquals(0x0400, QuantizedEvalParameters.toFloat16(0x1.0p-14f));
+    Assert.assertEquals(0x7C00, QuantizedEvalParameters.toFloat16(Float.POSITIVE_INFINITY));
+
+    // finite values which are too large are clamped
+    Assert.assertEquals(0x7BFF, QuantizedEvalParameters.toFloat16(1e6f));
+    Assert.assertEquals((short) 0xFBFF, QuantizedEvalParameters.toFloat16(-1e6f));
+
+    // ties are rounded to even
+    Assert.assertEquals(0x3C00, QuantizedEvalParameters.toFloat16(1f + 0x1.0p-11f));
+    Assert.assertEquals(0x3C02, QuantizedEvalParameters.toFloat16(1f + 0x3.0p-11f));
+    Assert.assertEquals(0x0000, QuantizedEvalParameters.toFloat16(0x1.0p-25f));
+    Assert.assertEquals(0x0002, QuantizedEvalParameters.toFloat16(0x3.0p-25f));
+
+    // the rounding carries into the exponent
+    Assert.assertEquals(0x4000, QuantizedEvalParameters.toFloat16(0x1.FFFp0f));
+    Assert.assertEquals(0x0400, QuantizedEvalParameters.toFloat16(0x1.FFFp-15f));
+
+    Assert.assertTrue(Float.isNaN(QuantizedEvalParameters.fromFloat16(
+        QuantizedEvalParameters.toFloat16(Float.NaN))));
+
+    // every half precision float survives the round trip
+    for (int bits = 0; bits < 1 << 16; bits++) {
+      float value = QuantizedEvalParameters.fromFloat16((short) bits);
+      if (!Float.isNaN(value)) {
+        Assert.assertEquals(bits, QuantizedEvalParameters.toFloat16(value) & 0xFFFF);
+      }
+    }
+  }
+
+  @Test
+  public void testComparisonWithItself() throws IOException {
+    AbstractModel model = train(GISTrainer.MAXENT_VALUE);
+    ModelComparison comparison = compare(model, model);
+
+    Assert.assertEquals(4039, comparison.getNumEvents());
+    Assert.assertEquals(comparison.getReferenceAccuracy(), comparison.getAccuracy(), 0d);
+    Assert.assertEquals(0, comparison.getAccuracyLoss(), 0d);
+    Assert.assertEquals(1, comparison.getAgreement(), 0d);
+    Assert.assertEquals(0, comparison.getMaxProbabilityDifference(), 0d);
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAQuantizedModel() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryGISModelWriter(train(GISTrainer.MAXENT_VALUE), new DataOutputStream(out)).persist();
+
+    new QuantizedModelReader(new BinaryFileDataReader(new ByteArrayInputStream(out.toByteArray())))
+        .getModel();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaiveBayesNotSupported() throws IOException {
+    Quantization.FLOAT16.quantize(train(NaiveBayesTrainer.NAIVE_BAYES_VALUE));
+  }
+}
@@ -19,6 +19,7 @@ package opennlp.tools.ml.naivebayes;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,9 +30,12 @@ import opennlp.tools.ml.EventTrainer;
 import opennlp.tools.ml.PrepAttachDataUtil;
 import opennlp.tools.ml.TrainerFactory;
 import opennlp.tools.ml.model.AbstractDataIndexer;
+import opennlp.tools.ml.model.Context;
 import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.Event;
 import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.TwoPassDataIndexer;
+import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.TrainingParameters;
 
 /**
@@ -81,4 +85,56 @@ public class NaiveBayesPrepAttachTest {
     Assert.assertTrue(model instanceof NaiveBayesModel);
     PrepAttachDataUtil.testModel(model, 0.7945035899975241);
   }
+
+  /**
+   * Computes the outcome distribution with a {@link LogProbabilities} map, the way
+   * the model evaluated events before it accumulated the log probabilities in an array.
+   */
+  @SuppressWarnings("unchecked")
+  private static double[] evalWithLogProbabilities(NaiveBayesModel model, String[] context) {
+    Context[] params = (Context[]) model.getDataStructures()[0];
+    Map<String, Integer> pmap = (Map<String, Integer>) model.getDataStructures()[1];
+    double[] outcomeTotals = model.outcomeTotals;
+
+    Probabilities<Integer> probabilities = new LogProbabilities<>();
+    for (String predicate : context) {
+      Integer pi = pmap.get(predicate);
+      if (pi != null) {
+        int[] activeOutcomes = params[pi].getOutcomes();
+        double[] activeParameters = params[pi].getParameters();
+        int ai = 0;
+        for (int i = 0; i < outcomeTotals.length && ai < activeOutcomes.length; ++i) {
+          double numerator = activeOutcomes[ai] == i ? activeParameters[ai++] : 0;
+          probabilities.addIn(i, (numerator + 0.05) / (outcomeTotals[i] + 0.05 * params.length), 1);
+        }
+      }
+    }
+
+    double total = 0;
+    for (double outcomeTotal : outcomeTotals) {
+      total += outcomeTotal;
+    }
+
+    double[] distribution = new double[outcomeTotals.length];
+    for (int i = 0; i < outcomeTotals.length; ++i) {
+      probabilities.addIn(i, outcomeTotals[i] / total, 1);
+    }
+    for (int i = 0; i < outcomeTotals.length; ++i) {
+      distribution[i] = probabilities.get(i);
+    }
+    return distribution;
+  }
+
+  @Test
+  public void testSameDistributionAsLogProbabilities() throws IOException {
+    testDataIndexer.index(PrepAttachDataUtil.createTrainingStream());
+    NaiveBayesModel model = (NaiveBayesModel) new NaiveBayesTrainer().trainModel(testDataIndexer);
+
+    ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream();
+    Event event;
+    while ((event = events.read()) != null) {
+      Assert.assertArrayEquals(evalWithLogProbabilities(model, event.getContext()),
+          model.eval(event.getContext()), 0d);
+    }
+  }
 }
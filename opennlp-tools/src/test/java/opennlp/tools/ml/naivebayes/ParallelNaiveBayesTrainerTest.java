@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.tools.ml.naivebayes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.ml.EventTrainer;
+import opennlp.tools.ml.PrepAttachDataUtil;
+import opennlp.tools.ml.TrainerFactory;
+import opennlp.tools.ml.model.DataIndexer;
+import opennlp.tools.ml.model.Event;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.ml.model.TwoPassDataIndexer;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+public class ParallelNaiveBayesTrainerTest {
+
+  private static TrainingParameters createParameters(int cutoff, int threads) {
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, ParallelNaiveBayesTrainer.NAIVE_BAYES_PARALLEL_VALUE);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, Integer.toString(cutoff));
+    trainParams.put(ParallelNaiveBayesTrainer.THREADS_PARAM, Integer.toString(threads));
+    return trainParams;
+  }
+
+  private static List<Event> createEvents(int count) {
+    Random random = new Random(42);
+
+    List<Event> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String[] context = new String[1 + random.nextInt(4)];
+      float[] values = new float[context.length];
+      for (int ci = 0; ci < context.length; ci++) {
+        context[ci] = "p=" + (int) Math.pow(random.nextInt(40), 2);
+        values[ci] = random.nextFloat();
+      }
+      events.add(new Event("o" + random.nextInt(3), context, values));
+    }
+    return events;
+  }
+
+  private static void assertSameDistributions(MaxentModel expected, MaxentModel model)
+      throws IOException {
+    ObjectStream<Event> events = PrepAttachDataUtil.createTrainingStream();
+
+    Event event;
+    while ((event = events.read()) != null) {
+      double[] expectedDistribution = expected.eval(event.getContext());
+      double[] distribution = model.eval(event.getContext());
+      for (int oi = 0; oi < expectedDistribution.length; oi++) {
+        Assert.assertEquals(expectedDistribution[oi],
+            distribution[model.getIndex(expected.getOutcome(oi))], 0d);
+      }
+    }
+  }
+
+  @Test
+  public void testNaiveBayesOnPrepAttachData() throws IOException {
+    EventTrainer trainer = TrainerFactory.getEventTrainer(createParameters(1, 4), null);
+    Assert.assertEquals(ParallelNaiveBayesTrainer.class, trainer.getClass());
+
+    MaxentModel model = trainer.train(PrepAttachDataUtil.createTrainingStream());
+    Assert.assertTrue(model instanceof NaiveBayesModel);
+    PrepAttachDataUtil.testModel(model, 0.7897994553107205);
+  }
+
+  @Test
+  public void testNaiveBayesOnPrepAttachDataWithCutoff5() throws IOException {
+    MaxentModel model = TrainerFactory.getEventTrainer(createParameters(5, 4), null)
+        .train(PrepAttachDataUtil.createTrainingStream());
+    PrepAttachDataUtil.testModel(model, 0.7945035899975241);
+  }
+
+  @Test
+  public void testSameModelAsNaiveBayesTrainer() throws IOException {
+    TrainingParameters indexingParameters = new TrainingParameters();
+    indexingParameters.put(AbstractTrainer.CUTOFF_PARAM, "5");
+
+    DataIndexer indexer = new TwoPassDataIndexer();
+    indexer.init(indexingParameters, new HashMap<>());
+    indexer.index(PrepAttachDataUtil.createTrainingStream());
+
+    MaxentModel expected = new NaiveBayesTrainer().trainModel(indexer);
+
+    assertSameDistributions(expected, TrainerFactory.getEventTrainer(createParameters(5, 3), null)
+        .train(PrepAttachDataUtil.createTrainingStream()));
+    assertSameDistributions(expected, TrainerFactory.getEventTrainer(createParameters(5, 3), null)
+        .train(indexer));
+  }
+
+  @Test
+  public void testResultIndependentOfThreads() throws IOException {
+    // more events than fit into a single chunk, with values to detect a different summation order
+    List<Event> events = createEvents(10000);
+
+    MaxentModel expected = TrainerFactory.getEventTrainer(createParameters(3, 1), null)
+        .train(ObjectStreamUtils.createObjectStream(events));
+
+    for (int threads = 2; threads <= 4; threads++) {
+      MaxentModel model = TrainerFactory.getEventTrainer(createParameters(3, threads), null)
+          .train(ObjectStreamUtils.createObjectStream(events));
+      Assert.assertEquals(expected, model);
+    }
+  }
+
+  @Test
+  public void testCountTable() {
+    ParallelNaiveBayesTrainer.CountTable table = new ParallelNaiveBayesTrainer.CountTable();
+
+    // enough predicates to resize the table a few times
+    for (int i = 0; i < 5000; i++) {
+      table.add("p=" + (i % 2500), i % 3, 0.5);
+    }
+
+    Assert.assertEquals(2500, table.size());
+
+    table.forEach((predicate, occurrences, outcomeCounts) -> {
+      Assert.assertEquals(2, occurrences);
+      double sum = 0;
+      for (double count : outcomeCounts) {
+        sum += count;
+      }
+      Assert.assertEquals(1d, sum, 0d);
+    });
+  }
+}
@@ -96,6 +96,23 @@ public class PerceptronPrepAttachTest {
     PrepAttachDataUtil.testModel(model, 0.7791532557563754);
   }
 
+  @Test
+  public void testParallelPerceptronOnPrepAttachData() throws IOException {
+
+    TrainingParameters trainParams = new TrainingParameters();
+    trainParams.put(AbstractTrainer.ALGORITHM_PARAM, PerceptronTrainer.PERCEPTRON_VALUE);
+    trainParams.put(AbstractTrainer.CUTOFF_PARAM, Integer.toString(1));
+    trainParams.put(TrainingParameters.THREADS_PARAM, Integer.toString(4));
+
+    EventTrainer trainer = TrainerFactory.getEventTrainer(trainParams, null);
+    AbstractModel modelA = (AbstractModel) trainer.train(PrepAttachDataUtil.createTrainingStream());
+    PrepAttachDataUtil.testModel(modelA, 0.786085664768507);
+
+    // the result depends on the number of threads but not on the thread scheduling
+    AbstractModel modelB = (AbstractModel) trainer.train(PrepAttachDataUtil.createTrainingStream());
+    Assert.assertEquals(modelA, modelB);
+  }
+
   @Test
   public void testModelSerialization() throws IOException {
 
@@ -18,15 +18,24 @@
 package opennlp.tools.namefind;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import opennlp.tools.ml.BeamSearch;
+import opennlp.tools.ml.model.MaxentModel;
 import opennlp.tools.ml.model.SequenceClassificationModel;
 import opennlp.tools.util.MockInputStreamFactory;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.Sequence;
 import opennlp.tools.util.Span;
 import opennlp.tools.util.TrainingParameters;
 
@@ -111,6 +120,146 @@ public class NameFinderMETest {
     Assert.assertEquals(new Span(4, 6, DEFAULT), names[1]);
   }
 
+  @Test
+  public void testHashedContexts() throws Exception {
+
+    InputStream in = getClass().getClassLoader().getResourceAsStream(
+        "opennlp/tools/namefind/AnnotatedSentences.txt");
+
+    ObjectStream<NameSample> sampleStream =
+        new NameSampleDataStream(
+            new PlainTextByLineStream(new MockInputStreamFactory(in), "ISO-8859-1"));
+
+    TrainingParameters params = new TrainingParameters();
+    params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(70));
+    params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(1));
+
+    TokenNameFinderModel nameFinderModel = NameFinderME.train("en", null, sampleStream,
+        params, TokenNameFinderFactory.create(null, null, Collections.emptyMap(), new BioCodec()));
+
+    MaxentModel maxent = nameFinderModel.getArtifact("nameFinder.model");
+    Assert.assertTrue(maxent.supportsHashedPredicates());
+
+    // the beam search without a cache evaluates the hashed contexts, the cached one the strings
+    BeamSearch<String> hashed = new BeamSearch<>(3, maxent);
+    BeamSearch<String> strings = new BeamSearch<>(3, maxent, 100);
+    NameContextGenerator contextGenerator = nameFinderModel.getFactory().createContextGenerator();
+    BioCodec codec = new BioCodec();
+
+    sampleStream.reset();
+    NameSample sample;
+    while ((sample = sampleStream.read()) != null) {
+      Sequence[] expected = strings.bestSequences(3, sample.getSentence(), null,
+          contextGenerator, codec.createSequenceValidator());
+      Sequence[] actual = hashed.bestSequences(3, sample.getSentence(), null,
+          contextGenerator, codec.createSequenceValidator());
+
+      Assert.assertEquals(expected.length, actual.length);
+      for (int i = 0; i < expected.length; i++) {
+        Assert.assertEquals(expected[i].getOutcomes(), actual[i].getOutcomes());
+        Assert.assertArrayEquals(expected[i].getProbs(), actual[i].getProbs(), 1e-10);
+      }
+    }
+  }
+
+  @Test
+  public void testContextGeneratorOverride() throws Exception {
+
+    InputStream in = getClass().getClassLoader().getResourceAsStream(
+        "opennlp/tools/namefind/AnnotatedSentences.txt");
+
+    ObjectStream<NameSample> sampleStream =
+        new NameSampleDataStream(
+            new PlainTextByLineStream(new MockInputStreamFactory(in), "ISO-8859-1"));
+
+    TrainingParameters params = new TrainingParameters();
+    params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(70));
+    params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(1));
+
+    TokenNameFinderModel nameFinderModel = NameFinderME.train("en", null, sampleStream,
+        params, TokenNameFinderFactory.create(null, null, Collections.emptyMap(), new BioCodec()));
+
+    AtomicInteger contexts = new AtomicInteger();
+    List<String[]> updates = new ArrayList<>();
+    NameContextGenerator countingGenerator = new DefaultNameContextGenerator() {
+      @Override
+      public String[] getContext(int index, String[] tokens, String[] preds,
+          Object[] additionalContext) {
+        contexts.incrementAndGet();
+        return super.getContext(index, tokens, preds, additionalContext);
+      }
+
+      @Override
+      public void updateAdaptiveData(String[] tokens, String[] outcomes) {
+        updates.add(tokens);
+        super.updateAdaptiveData(tokens, outcomes);
+      }
+    };
+
+    NameFinderME nameFinder = new NameFinderME(nameFinderModel) {
+      @Override
+      protected NameContextGenerator getContextGenerator() {
+        return countingGenerator;
+      }
+    };
+
+    String[] sentence = {"Hi", "Mike", ",", "it's", "Stefanie", "Schmidt", "."};
+    nameFinder.find(sentence);
+
+    Assert.assertTrue(contexts.get() >= sentence.length);
+    Assert.assertEquals(1, updates.size());
+    Assert.assertSame(sentence, updates.get(0));
+  }
+
+  @Test
+  public void testConcurrentNameFinding() throws Exception {
+
+    InputStream in = getClass().getClassLoader().getResourceAsStream(
+        "opennlp/tools/namefind/AnnotatedSentences.txt");
+
+    ObjectStream<NameSample> sampleStream =
+        new NameSampleDataStream(
+            new PlainTextByLineStream(new MockInputStreamFactory(in), "ISO-8859-1"));
+
+    TrainingParameters params = new TrainingParameters();
+    params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(70));
+    params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(1));
+
+    TokenNameFinderModel nameFinderModel = NameFinderME.train("en", null, sampleStream,
+        params, TokenNameFinderFactory.create(null, null, Collections.emptyMap(), new BioCodec()));
+
+    NameFinderME nameFinder = new NameFinderME(nameFinderModel);
+
+    String[][] document = new String[][] {
+        {"Alisa", "appreciated", "the", "hint", "and", "enjoyed", "a", "delicious",
+            "traditional", "meal."},
+        {"Hi", "Mike", ",", "it's", "Stefanie", "Schmidt", "."}};
+
+    Span[][] expected = nameFinder.find(document);
+    nameFinder.clearAdaptiveData();
+
+    // every thread processes whole documents with its own adaptive data
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            Assert.assertArrayEquals(expected, nameFinder.find(document));
+            nameFinder.clearAdaptiveData();
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
   /**
    * Train NamefinderME using AnnotatedSentencesWithTypes.txt with "person"
    * nameType and try the model in a sample text.
@@ -57,6 +57,27 @@ public class ParseTest {
     Assert.assertTrue(p2.equals(p1));
   }
 
+  @Test
+  public void testChangesOfCloneAreIndependent() {
+    Parse p1 = Parse.parseParse(PARSE_STRING).getChildren()[0];
+    Parse p2 = (Parse) p1.clone();
+
+    // changing the clone does not change the original
+    p2.setChild(0, "label");
+    p2.remove(p2.getChildCount() - 1);
+    Assert.assertEquals(5, p1.getChildCount());
+    Assert.assertNull(p1.getChildren()[0].getLabel());
+    Assert.assertEquals(4, p2.getChildCount());
+    Assert.assertEquals("label", p2.getChildren()[0].getLabel());
+
+    // and changing the original does not change the clone
+    Parse p3 = (Parse) p1.clone();
+    p1.remove(0);
+    Assert.assertEquals(4, p1.getChildCount());
+    Assert.assertEquals(5, p3.getChildCount());
+    Assert.assertEquals("S", p3.getChildren()[0].getType());
+  }
+
   @Test
   public void testGetText() {
     Parse p = Parse.parseParse(PARSE_STRING);
@@ -23,9 +23,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 
+import opennlp.tools.cmdline.parser.ParserTool;
 import opennlp.tools.formats.ResourceAsStreamFactory;
 import opennlp.tools.parser.lang.en.HeadRules;
 import opennlp.tools.util.InputStreamFactory;
@@ -80,4 +83,45 @@ public class ParserTestUtil {
 
     return resetableSampleStream;
   }
+
+  /**
+   * Parses the sentences of the test training data with and without an executor
+   * and asserts that the parser returns the same parses in both cases.
+   */
+  public static void assertSameParsesWithExecutor(ParserModel model) throws IOException {
+    AbstractBottomUpParser parser = (AbstractBottomUpParser) ParserFactory.create(model, 5, 0.95);
+    AbstractBottomUpParser concurrentParser =
+        (AbstractBottomUpParser) ParserFactory.create(model, 5, 0.95);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      concurrentParser.setExecutor(executor);
+
+      ObjectStream<Parse> samples = openTestTrainingData();
+      Parse sample;
+      while ((sample = samples.read()) != null) {
+        StringBuilder sentence = new StringBuilder();
+        for (Parse token : sample.getTagNodes()) {
+          sentence.append(token.getCoveredText()).append(' ');
+        }
+
+        Parse[] expected = ParserTool.parseLine(sentence.toString().trim(), parser, 3);
+        Parse[] parses = ParserTool.parseLine(sentence.toString().trim(), concurrentParser, 3);
+
+        Assert.assertEquals(expected.length, parses.length);
+        for (int i = 0; i < expected.length; i++) {
+          Assert.assertEquals(expected[i].getProb(), parses[i].getProb(), 0d);
+
+          StringBuffer expectedParse = new StringBuffer();
+          expected[i].show(expectedParse);
+          StringBuffer parse = new StringBuffer();
+          parses[i].show(parse);
+          Assert.assertEquals(expectedParse.toString(), parse.toString());
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
 }
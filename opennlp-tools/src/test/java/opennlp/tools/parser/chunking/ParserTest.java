@@ -65,4 +65,12 @@ public class ParserTest {
 
     // TODO: compare both models
   }
+
+  @Test
+  public void testParseWithExecutor() throws Exception {
+    ParserModel model = Parser.train("en", ParserTestUtil.openTestTrainingData(),
+        ParserTestUtil.createTestHeadRules(), TrainingParameters.defaultParams());
+
+    ParserTestUtil.assertSameParsesWithExecutor(model);
+  }
 }
@@ -62,4 +62,12 @@ public class ParserTest {
 
     // TODO: compare both models
   }
+
+  @Test
+  public void testParseWithExecutor() throws Exception {
+    ParserModel model = Parser.train("en", ParserTestUtil.openTestTrainingData(),
+        ParserTestUtil.createTestHeadRules(), 100, 0);
+
+    ParserTestUtil.assertSameParsesWithExecutor(model);
+  }
 }
@@ -19,6 +19,12 @@ package opennlp.tools.postag;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -80,6 +86,101 @@ public class POSTaggerMETest {
     Assert.assertEquals(".", tags[5]);
   }
 
+  @Test
+  public void testBatchTagging() throws IOException {
+    POSModel posModel = trainPOSModel(ModelType.MAXENT);
+
+    POSTaggerME tagger = new POSTaggerME(posModel);
+
+    String[][] sentences = new String[][] {
+        {"The", "driver", "got", "badly", "injured", "."},
+        {"He", "was", "taken", "to", "the", "hospital", "."},
+        {},
+        {"The", "driver", "was", "taken", "."}};
+
+    String[][] expected = new String[sentences.length][];
+    for (int i = 0; i < sentences.length; i++) {
+      expected[i] = tagger.tag(sentences[i]);
+    }
+
+    Assert.assertArrayEquals(expected, tagger.tag(sentences));
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Assert.assertArrayEquals(expected, tagger.tag(sentences, executor));
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConcurrentTagging() throws Exception {
+    POSModel posModel = trainPOSModel(ModelType.MAXENT);
+
+    POSTaggerME tagger = new POSTaggerME(posModel);
+
+    String[][] sentences = new String[][] {
+        {"The", "driver", "got", "badly", "injured", "."},
+        {"He", "was", "taken", "to", "the", "hospital", "."},
+        {"The", "driver", "was", "taken", "."}};
+
+    String[][] expectedTags = new String[sentences.length][];
+    double[][] expectedProbs = new double[sentences.length][];
+    for (int i = 0; i < sentences.length; i++) {
+      expectedTags[i] = tagger.tag(sentences[i]);
+      expectedProbs[i] = tagger.probs();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 500; i++) {
+            int si = i % sentences.length;
+            Assert.assertArrayEquals(expectedTags[si], tagger.tag(sentences[si]));
+            Assert.assertArrayEquals(expectedProbs[si], tagger.probs(), 0d);
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testContextGeneratorOverride() throws IOException {
+    POSModel posModel = trainPOSModel(ModelType.MAXENT);
+
+    AtomicInteger contexts = new AtomicInteger();
+    POSContextGenerator contextGenerator = new DefaultPOSContextGenerator(null) {
+      @Override
+      public String[] getContext(int index, String[] sequence, String[] priorDecisions,
+          Object[] additionalContext) {
+        contexts.incrementAndGet();
+        return super.getContext(index, sequence, priorDecisions, additionalContext);
+      }
+    };
+
+    POSTaggerME tagger = new POSTaggerME(posModel) {
+      @Override
+      protected POSContextGenerator getContextGenerator() {
+        return contextGenerator;
+      }
+    };
+
+    String[] tags = tagger.tag(new String[] {"The", "driver", "got", "badly", "injured", "."});
+
+    Assert.assertEquals(6, tags.length);
+    Assert.assertTrue(contexts.get() >= tags.length);
+  }
+
   @Test
   public void testBuildNGramDictionary() throws IOException {
     ObjectStream<POSSample> samples = createSampleStream();
@@ -20,6 +20,11 @@ package opennlp.tools.sentdetect;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -132,4 +137,100 @@ public class SentenceDetectorMETest {
     Assert.assertEquals(new Span(16, 56), pos[1]);
 
   }
+
+  @Test
+  public void testConcurrentSentenceDetection() throws Exception {
+
+    InputStreamFactory in = new ResourceAsStreamFactory(getClass(),
+        "/opennlp/tools/sentdetect/Sentences.txt");
+
+    TrainingParameters mlParams = new TrainingParameters();
+    mlParams.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(100));
+    mlParams.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(0));
+
+    SentenceModel sentdetectModel = SentenceDetectorME.train(
+        "en", new SentenceSampleStream(new PlainTextByLineStream(in,
+            StandardCharsets.UTF_8)), true, null, mlParams);
+
+    SentenceDetectorME sentDetect = new SentenceDetectorME(sentdetectModel);
+
+    String[] documents = new String[] {
+        "This is a test. There are many tests, this is the second.",
+        "This is a \"test\". He said \"There are many tests, this is the second.\"",
+        "This is a test."};
+
+    Span[][] expectedSpans = new Span[documents.length][];
+    double[][] expectedProbs = new double[documents.length][];
+    for (int i = 0; i < documents.length; i++) {
+      expectedSpans[i] = sentDetect.sentPosDetect(documents[i]);
+      expectedProbs[i] = sentDetect.getSentenceProbabilities();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            int di = i % documents.length;
+            Assert.assertArrayEquals(expectedSpans[di], sentDetect.sentPosDetect(documents[di]));
+            Assert.assertArrayEquals(expectedProbs[di], sentDetect.getSentenceProbabilities(), 0d);
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testBatchSentenceDetection() throws IOException {
+
+    InputStreamFactory in = new ResourceAsStreamFactory(getClass(),
+        "/opennlp/tools/sentdetect/Sentences.txt");
+
+    TrainingParameters mlParams = new TrainingParameters();
+    mlParams.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(100));
+    mlParams.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(0));
+
+    SentenceModel sentdetectModel = SentenceDetectorME.train(
+        "en", new SentenceSampleStream(new PlainTextByLineStream(in,
+            StandardCharsets.UTF_8)), true, null, mlParams);
+
+    SentenceDetectorME sentDetect = new SentenceDetectorME(sentdetectModel);
+
+    // the documents repeat contexts, which are only evaluated once per batch
+    String[] documents = new String[] {
+        "This is a test. There are many tests, this is the second.",
+        "",
+        "This is a test. There are many tests, this is the second.",
+        "This is a \"test\". He said \"There are many tests, this is the second.\"",
+        "This is a test."};
+
+    Span[][] expected = new Span[documents.length][];
+    for (int i = 0; i < documents.length; i++) {
+      expected[i] = sentDetect.sentPosDetect(documents[i]);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (Span[][] sentences : new Span[][][] {sentDetect.sentPosDetect(documents),
+          sentDetect.sentPosDetect(documents, executor)}) {
+        Assert.assertArrayEquals(expected, sentences);
+        for (int i = 0; i < documents.length; i++) {
+          for (int si = 0; si < expected[i].length; si++) {
+            Assert.assertEquals(expected[i][si].getProb(), sentences[i][si].getProb(), 0d);
+          }
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -18,10 +18,17 @@
 package opennlp.tools.tokenize;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import opennlp.tools.util.Span;
+
 /**
  * Tests for the {@link TokenizerME} class.
  *
@@ -65,4 +72,75 @@ public class TokenizerMETest {
     Assert.assertEquals("through", tokens[7]);
     Assert.assertEquals("!", tokens[8]);
   }
+
+  @Test
+  public void testBatchTokenization() throws IOException {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    TokenizerME tokenizer = new TokenizerME(model);
+
+    String[] documents = new String[] {
+        "Sounds like it's not properly thought through!",
+        "",
+        "test, test.",
+        "He said it's fine."};
+
+    Span[][] expected = new Span[documents.length][];
+    for (int i = 0; i < documents.length; i++) {
+      expected[i] = tokenizer.tokenizePos(documents[i]);
+    }
+    double[] expectedProbs = tokenizer.getTokenProbabilities();
+
+    // the splits of the repeated tokens are reused with their probabilities
+    Assert.assertArrayEquals(expected, tokenizer.tokenizePos(documents));
+    Assert.assertArrayEquals(expectedProbs, tokenizer.getTokenProbabilities(), 0d);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Assert.assertArrayEquals(expected, tokenizer.tokenizePos(documents, executor));
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConcurrentTokenization() throws Exception {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    TokenizerME tokenizer = new TokenizerME(model);
+
+    String[] documents = new String[] {
+        "Sounds like it's not properly thought through!",
+        "test, test.",
+        "He said it's fine."};
+
+    Span[][] expectedTokens = new Span[documents.length][];
+    double[][] expectedProbs = new double[documents.length][];
+    for (int i = 0; i < documents.length; i++) {
+      expectedTokens[i] = tokenizer.tokenizePos(documents[i]);
+      expectedProbs[i] = tokenizer.getTokenProbabilities();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            int di = i % documents.length;
+            Assert.assertArrayEquals(expectedTokens[di], tokenizer.tokenizePos(documents[di]));
+            Assert.assertArrayEquals(expectedProbs[di], tokenizer.getTokenProbabilities(), 0d);
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -20,7 +20,18 @@ package opennlp.tools.tokenize;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -49,4 +60,178 @@ public class TokenizerModelTest {
 
     // TODO: check that both maxent models are equal
   }
+
+  private static byte[] serialize(TokenizerModel model) throws IOException {
+    ByteArrayOutputStream arrayOut = new ByteArrayOutputStream();
+    model.serialize(arrayOut);
+    return arrayOut.toByteArray();
+  }
+
+  private static List<String> getEntryNames(byte[] model) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(model))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        names.add(entry.getName());
+      }
+    }
+    return names;
+  }
+
+  private static void copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[1024];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+  }
+
+  /**
+   * Rewrites a model package with the manifest as the last entry.
+   */
+  private static byte[] moveManifestToEnd(byte[] model) throws IOException {
+    ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+    ByteArrayOutputStream arrayOut = new ByteArrayOutputStream();
+
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(model));
+         ZipOutputStream out = new ZipOutputStream(arrayOut)) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if ("manifest.properties".equals(entry.getName())) {
+          copy(zip, manifest);
+        }
+        else {
+          out.putNextEntry(new ZipEntry(entry.getName()));
+          copy(zip, out);
+          out.closeEntry();
+        }
+      }
+
+      out.putNextEntry(new ZipEntry("manifest.properties"));
+      copy(new ByteArrayInputStream(manifest.toByteArray()), out);
+      out.closeEntry();
+    }
+
+    return arrayOut.toByteArray();
+  }
+
+  /**
+   * Appends an entry to a model package, which is not used by the tokenizer.
+   */
+  private static byte[] addUnusedEntry(byte[] model) throws IOException {
+    ByteArrayOutputStream arrayOut = new ByteArrayOutputStream();
+
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(model));
+         ZipOutputStream out = new ZipOutputStream(arrayOut)) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        out.putNextEntry(new ZipEntry(entry.getName()));
+        copy(zip, out);
+        out.closeEntry();
+      }
+
+      out.putNextEntry(new ZipEntry("unused.properties"));
+      out.write("key=value\n".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+
+    return arrayOut.toByteArray();
+  }
+
+  private static void assertSameTokenization(TokenizerModel expected, TokenizerModel actual) {
+    String text = "Sounds like it's not properly thought through!";
+    Assert.assertArrayEquals(new TokenizerME(expected).tokenize(text),
+        new TokenizerME(actual).tokenize(text));
+  }
+
+  @Test
+  public void testManifestIsWrittenFirst() throws IOException {
+    byte[] model = serialize(TokenizerTestUtil.createSimpleMaxentTokenModel());
+    Assert.assertEquals("manifest.properties", getEntryNames(model).get(0));
+  }
+
+  @Test
+  public void testLoadModelWithManifestAtTheEnd() throws IOException {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    byte[] reordered = moveManifestToEnd(serialize(model));
+    List<String> names = getEntryNames(reordered);
+    Assert.assertEquals("manifest.properties", names.get(names.size() - 1));
+
+    TokenizerModel loaded = new TokenizerModel(new ByteArrayInputStream(reordered));
+    assertSameTokenization(model, loaded);
+  }
+
+  @Test
+  public void testLoadModelFromPath() throws IOException {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    Path file = Files.createTempFile("tokenizer", ".bin");
+    try {
+      try (OutputStream out = Files.newOutputStream(file)) {
+        model.serialize(out);
+      }
+
+      TokenizerModel loaded = new TokenizerModel(file);
+      assertSameTokenization(model, loaded);
+
+      // a model loaded from a file can be serialized again
+      assertSameTokenization(model, new TokenizerModel(new ByteArrayInputStream(serialize(loaded))));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testModelFileIsClosedAfterLoading() throws IOException {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    Path file = Files.createTempFile("tokenizer", ".bin");
+    try {
+      Files.write(file, addUnusedEntry(serialize(model)));
+
+      TokenizerModel loaded = new TokenizerModel(file);
+
+      // all artifacts are loaded, the model does not read the file anymore
+      Files.write(file, new byte[0]);
+
+      assertSameTokenization(model, loaded);
+      Assert.assertNotNull(loaded.getArtifact("unused.properties"));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testLoadModelLazily() throws IOException {
+    TokenizerModel model = TokenizerTestUtil.createMaxentTokenModel();
+
+    Path file = Files.createTempFile("tokenizer", ".bin");
+    try {
+      Files.write(file, addUnusedEntry(serialize(model)));
+
+      TokenizerModel loaded = new TokenizerModel(file, true);
+      assertSameTokenization(model, loaded);
+      Assert.assertNotNull(loaded.getArtifact("unused.properties"));
+
+      TokenizerModel closed = new TokenizerModel(file, true);
+      closed.close();
+
+      // the validated artifacts are loaded during construction
+      assertSameTokenization(model, closed);
+
+      try {
+        closed.getArtifact("unused.properties");
+        Assert.fail("The artifact can not be loaded after the model is closed");
+      }
+      catch (IllegalStateException e) {
+        // expected
+      }
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.util.featuregen;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.model.FeatureHashBuffer;
+import opennlp.tools.namefind.DefaultNameContextGenerator;
+
+/**
+ * Tests that the hashes of the features equal the hashes of the feature strings.
+ */
+public class FeatureHashesTest {
+
+  private static final String[] TOKENS = new String[] {"Mr.", "Smith", "paid", "$", "1,200",
+      "to", "ACME-Corp", "in", "2016", "."};
+
+  private static long[] hash(List<String> features) {
+    FeatureHashBuffer expected = new FeatureHashBuffer();
+    for (String feature : features) {
+      expected.add(feature);
+    }
+    return expected.toArray();
+  }
+
+  private static void assertSameFeatures(AdaptiveFeatureGenerator generator) {
+    String[] previousOutcomes = new String[TOKENS.length];
+    FeatureHashBuffer features = new FeatureHashBuffer();
+
+    for (int index = 0; index < TOKENS.length; index++) {
+      List<String> expected = new ArrayList<>();
+      generator.createFeatures(expected, TOKENS, index, previousOutcomes);
+
+      features.clear();
+      generator.createFeatureHashes(features, TOKENS, index, previousOutcomes);
+
+      Assert.assertArrayEquals(expected.toString(), hash(expected), features.toArray());
+      previousOutcomes[index] = "other";
+    }
+  }
+
+  @Test
+  public void testTokenFeatures() {
+    assertSameFeatures(new TokenFeatureGenerator());
+    assertSameFeatures(new TokenFeatureGenerator(false));
+  }
+
+  @Test
+  public void testTokenClassFeatures() {
+    assertSameFeatures(new TokenClassFeatureGenerator());
+    assertSameFeatures(new TokenClassFeatureGenerator(true));
+  }
+
+  @Test
+  public void testPrefixAndSuffixFeatures() {
+    assertSameFeatures(new PrefixFeatureGenerator());
+    assertSameFeatures(new SuffixFeatureGenerator(2));
+  }
+
+  @Test
+  public void testBrownTokenFeatures() throws IOException {
+    BrownCluster cluster = new BrownCluster(new ByteArrayInputStream(
+        "Smith\t0110\nACME-Corp\t1\n".getBytes(StandardCharsets.UTF_8)));
+    assertSameFeatures(new BrownTokenFeatureGenerator(cluster));
+  }
+
+  @Test
+  public void testDefaultFeatureHashes() {
+    // the character n-grams are hashed by the default implementation
+    assertSameFeatures(new CharacterNgramFeatureGenerator());
+  }
+
+  @Test
+  public void testWindowFeatures() {
+    assertSameFeatures(new WindowFeatureGenerator(new AggregatedFeatureGenerator(
+        new TokenFeatureGenerator(), new TokenClassFeatureGenerator(true)), 2, 2));
+  }
+
+  @Test
+  public void testCachedFeatures() {
+    CachedFeatureGenerator cached = new CachedFeatureGenerator(new TokenClassFeatureGenerator(true));
+
+    // the window evaluates the cached generator with different prefixes for the same token
+    AdaptiveFeatureGenerator generator = new AggregatedFeatureGenerator(cached,
+        new WindowFeatureGenerator(cached, 2, 2));
+
+    assertSameFeatures(generator);
+    assertSameFeatures(generator);
+    Assert.assertTrue(cached.getNumberOfCacheHits() > 0);
+  }
+
+  @Test
+  public void testCachedOutcomeDependentFeatures() {
+    CachedFeatureGenerator cached = new CachedFeatureGenerator(new AdaptiveFeatureGenerator() {
+      public void createFeatures(List<String> features, String[] tokens, int index,
+          String[] previousOutcomes) {
+        features.add(tokens[index] + "/" + previousOutcomes[index]);
+      }
+    });
+
+    // the window requests the cached features of a token with other outcomes and prefixes
+    assertSameFeatures(new AggregatedFeatureGenerator(cached,
+        new WindowFeatureGenerator(cached, 2, 2)));
+  }
+
+  @Test
+  public void testNameContextHashes() {
+    DefaultNameContextGenerator contextGenerator = new DefaultNameContextGenerator(
+        new WindowFeatureGenerator(new TokenFeatureGenerator(), 2, 2),
+        new WindowFeatureGenerator(new TokenClassFeatureGenerator(true), 2, 2),
+        new OutcomePriorFeatureGenerator(), new PreviousMapFeatureGenerator());
+
+    String[] preds = new String[TOKENS.length];
+    FeatureHashBuffer features = new FeatureHashBuffer();
+
+    for (int index = 0; index < TOKENS.length; index++) {
+      List<String> expected = new ArrayList<>();
+      for (String feature : contextGenerator.getContext(index, TOKENS, preds, null)) {
+        expected.add(feature);
+      }
+
+      features.clear();
+      Assert.assertTrue(contextGenerator.getContextHashes(features, index, TOKENS, preds, null));
+
+      Assert.assertArrayEquals(hash(expected), features.toArray());
+      preds[index] = index % 3 == 0 ? "person-start" : "other";
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.util.featuregen;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
+public class FusedFeatureGeneratorTest {
+
+  private static final String[][] SENTENCES = new String[][] {
+      {"Pierre", "Vinken", ",", "61", "years", "old", ",", "will", "join", "the", "board", "."},
+      {"Mr.", "Vinken", "is", "chairman", "of", "Elsevier", "N.V.", "."},
+      {"Vinken"},
+      {},
+      {"He", "joined", "Elsevier", "in", "1986", "."}
+  };
+
+  private static final String[] OUTCOMES = new String[] {"other", "NN", "person-start"};
+
+  private static AdaptiveFeatureGenerator create(String resource) throws IOException {
+    try (InputStream in = FusedFeatureGeneratorTest.class.getResourceAsStream(resource)) {
+      return GeneratorFactory.create(in, null);
+    }
+  }
+
+  private static AdaptiveFeatureGenerator createFromString(String descriptor) throws IOException {
+    return GeneratorFactory.create(new ByteArrayInputStream(
+        descriptor.getBytes(StandardCharsets.UTF_8)), null);
+  }
+
+  /**
+   * Creates a tree whose windows contain a generator which uses the previous outcomes.
+   */
+  private static AdaptiveFeatureGenerator createOutcomeDependent() {
+    AdaptiveFeatureGenerator outcomeGenerator = new AdaptiveFeatureGenerator() {
+      public void createFeatures(List<String> features, String[] tokens, int index,
+          String[] previousOutcomes) {
+        features.add(tokens[index] + "/" + String.join(",", previousOutcomes));
+      }
+    };
+
+    return new AggregatedFeatureGenerator(
+        new WindowFeatureGenerator(outcomeGenerator, 2, 2),
+        new WindowFeatureGenerator(new AggregatedFeatureGenerator(
+            new TokenFeatureGenerator(), new CachedFeatureGenerator(outcomeGenerator)), 1, 1),
+        new CachedFeatureGenerator(new WindowFeatureGenerator(outcomeGenerator, 1, 1),
+            new WindowFeatureGenerator(new TokenFeatureGenerator(), 1, 1)),
+        new WindowFeatureGenerator(new TokenClassFeatureGenerator(true), 1, 1));
+  }
+
+  private static String[] fill(int length, String outcome) {
+    String[] outcomes = new String[length];
+    Arrays.fill(outcomes, outcome);
+    return outcomes;
+  }
+
+  /**
+   * Creates the previous outcomes of a token like a beam search, one for every
+   * previous token, which differ between the tokens and the sequences.
+   */
+  private static String[] previousOutcomes(int index, int sequence) {
+    String[] outcomes = new String[index];
+    for (int i = 0; i < outcomes.length; i++) {
+      outcomes[i] = OUTCOMES[(i + sequence) % OUTCOMES.length];
+    }
+    return outcomes;
+  }
+
+  /**
+   * Generates the features of the sentences like a beam search, which evaluates every
+   * token with different previous outcomes, and compares them.
+   */
+  private static void assertSameFeatures(AdaptiveFeatureGenerator expected,
+      AdaptiveFeatureGenerator generator) {
+    FeatureHashBuffer expectedHashes = new FeatureHashBuffer();
+    FeatureHashBuffer hashes = new FeatureHashBuffer();
+
+    for (String[] sentence : SENTENCES) {
+      for (int index = 0; index < sentence.length; index++) {
+        for (int sequence = 0; sequence < OUTCOMES.length; sequence++) {
+          String[] previousOutcomes = previousOutcomes(index, sequence);
+
+          List<String> expectedFeatures = new ArrayList<>();
+          expected.createFeatures(expectedFeatures, sentence, index, previousOutcomes);
+          List<String> features = new ArrayList<>();
+          generator.createFeatures(features, sentence, index, previousOutcomes);
+          Assert.assertEquals(expectedFeatures, features);
+
+          expectedHashes.clear();
+          expected.createFeatureHashes(expectedHashes, sentence, index, previousOutcomes);
+          hashes.clear();
+          generator.createFeatureHashes(hashes, sentence, index, previousOutcomes);
+          Assert.assertArrayEquals(expectedHashes.toArray(), hashes.toArray());
+        }
+      }
+
+      String[] outcomes = fill(sentence.length, "other");
+      if (sentence.length > 1) {
+        outcomes[1] = "person-start";
+      }
+      expected.updateAdaptiveData(sentence, outcomes);
+      generator.updateAdaptiveData(sentence, outcomes);
+    }
+  }
+
+  @Test
+  public void testNameFinderFeatures() throws IOException {
+    String resource = "/opennlp/tools/namefind/ner-default-features.xml";
+    assertSameFeatures(create(resource), new FusedFeatureGenerator(create(resource)));
+  }
+
+  @Test
+  public void testPOSTaggerFeatures() throws IOException {
+    // the pos tagger features depend on the previous outcomes and are cached
+    String resource = "/opennlp/tools/postag/pos-default-features.xml";
+    assertSameFeatures(create(resource), new FusedFeatureGenerator(create(resource)));
+  }
+
+  @Test
+  public void testOutcomeDependentWindows() {
+    assertSameFeatures(createOutcomeDependent(), new FusedFeatureGenerator(createOutcomeDependent()));
+  }
+
+  @Test
+  public void testNestedWindows() throws IOException {
+    String descriptor = "<generators>"
+        + "<window prevLength=\"1\" nextLength=\"1\">"
+        + "<generators>"
+        + "<window prevLength=\"2\" nextLength=\"1\"><tokenclass wordAndClass=\"true\"/></window>"
+        + "<cache><generators><prefix/><suffix/></generators></cache>"
+        + "</generators>"
+        + "</window>"
+        + "<window prevLength=\"0\" nextLength=\"3\"><tokenclass wordAndClass=\"true\"/></window>"
+        + "<prefix/>"
+        + "<definition/>"
+        + "</generators>";
+
+    FusedFeatureGenerator generator = new FusedFeatureGenerator(createFromString(descriptor));
+    assertSameFeatures(createFromString(descriptor), generator);
+
+    // the equal token class, prefix and suffix generators are only computed once
+    Assert.assertTrue(generator.toString().endsWith(": leaves=4 terms=24"));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package opennlp.tools.util.featuregen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import opennlp.tools.ml.model.FeatureHashBuffer;
+
+public class SentenceFeatureTableTest {
+
+  /**
+   * Counts how often the features of a token are created.
+   */
+  private static class CountingFeatureGenerator implements AdaptiveFeatureGenerator {
+
+    private int count;
+
+    public void createFeatures(List<String> features, String[] tokens, int index,
+        String[] previousOutcomes) {
+      count++;
+      features.add("w=" + tokens[index]);
+      features.add("len=" + tokens[index].length());
+    }
+  }
+
+  private static final String[] TOKENS = new String[] {"a", "bb", "ccc", "dddd", "eeeee"};
+
+  @Test
+  public void testFeatures() {
+    SentenceFeatureTable table = new SentenceFeatureTable(new CountingFeatureGenerator());
+    table.update(TOKENS, null);
+
+    Assert.assertEquals(2, table.getNumFeatures(0));
+    Assert.assertEquals("w=ccc", table.getFeature(2, 0));
+    Assert.assertEquals("len=5", table.getFeature(4, 1));
+
+    List<String> features = new ArrayList<>();
+    table.addFeatures(features, 1, null);
+    table.addFeatures(features, 3, "p1");
+    Assert.assertEquals(Arrays.asList("w=bb", "len=2", "p1w=dddd", "p1len=4"), features);
+
+    FeatureHashBuffer hashes = new FeatureHashBuffer();
+    table.addFeatureHashes(hashes, 3, FeatureHashBuffer.append(hashes.getPrefix(), "p1"));
+    Assert.assertArrayEquals(new long[] {FeatureHashBuffer.hash("p1w=dddd"),
+        FeatureHashBuffer.hash("p1len=4")}, hashes.toArray());
+  }
+
+  @Test
+  public void testFeaturesCreatedOncePerSentence() {
+    CountingFeatureGenerator generator = new CountingFeatureGenerator();
+    SentenceFeatureTable table = new SentenceFeatureTable(generator);
+
+    for (int i = 0; i < TOKENS.length; i++) {
+      table.update(TOKENS, null);
+    }
+    Assert.assertEquals(TOKENS.length, generator.count);
+
+    // a different sentence and clearing the table create the features again
+    table.update(TOKENS.clone(), null);
+    Assert.assertEquals(2 * TOKENS.length, generator.count);
+
+    table.clear();
+    table.update(TOKENS, null);
+    Assert.assertEquals(3 * TOKENS.length, generator.count);
+  }
+
+  @Test
+  public void testNameFeatures() {
+    String[] tokens = new String[] {"the", "Dog", "ran", "2"};
+
+    List<String> features = new ArrayList<>();
+    new BigramNameFeatureGenerator().createFeatures(features, tokens, 1, null);
+    Assert.assertEquals(Arrays.asList("pw,w=the,Dog", "pwc,wc=lc,ic", "w,nw=Dog,ran", "wc,nc=ic,lc"),
+        features);
+
+    features.clear();
+    new TrigramNameFeatureGenerator().createFeatures(features, tokens, 2, null);
+    Assert.assertEquals(Arrays.asList("ppw,pw,w=the,Dog,ran", "ppwc,pwc,wc=lc,ic,lc"), features);
+  }
+
+  @Test
+  public void testOutcomeIndependentGenerators() {
+    Assert.assertTrue(SentenceFeatureTable.isOutcomeIndependent(new TokenFeatureGenerator()));
+    Assert.assertTrue(SentenceFeatureTable.isOutcomeIndependent(new AggregatedFeatureGenerator(
+        new TokenClassFeatureGenerator(), new CachedFeatureGenerator(
+        new WindowFeatureGenerator(new PrefixFeatureGenerator(), 2, 2)))));
+
+    // the generators might use the previous outcomes
+    Assert.assertFalse(SentenceFeatureTable.isOutcomeIndependent(new PosTaggerFeatureGenerator()));
+    Assert.assertFalse(SentenceFeatureTable.isOutcomeIndependent(new CountingFeatureGenerator()));
+    Assert.assertFalse(SentenceFeatureTable.isOutcomeIndependent(new TokenFeatureGenerator() {
+    }));
+    Assert.assertFalse(SentenceFeatureTable.isOutcomeIndependent(new AggregatedFeatureGenerator(
+        new TokenFeatureGenerator(), new CachedFeatureGenerator(new PosTaggerFeatureGenerator()))));
+  }
+}
@@ -34,6 +34,17 @@ public class WindowFeatureGeneratorTest {
 
   private List<String> features;
 
+  /**
+   * Creates a feature which depends on the number of previous outcomes.
+   */
+  static class OutcomeFeatureGenerator implements AdaptiveFeatureGenerator {
+
+    public void createFeatures(List<String> features, String[] tokens, int index,
+        String[] previousOutcomes) {
+      features.add(tokens[index] + "/" + previousOutcomes.length);
+    }
+  }
+
   @Before
   public void setUp() throws Exception {
     features = new ArrayList<>();
@@ -116,4 +127,31 @@ public class WindowFeatureGeneratorTest {
     Assert.assertTrue(features.contains(WindowFeatureGenerator.NEXT_PREFIX + "2" +
         testSentence[testTokenIndex + 2]));
   }
+
+  /**
+   * Tests that a generator whose features depend on the previous outcomes
+   * gets the previous outcomes of every request.
+   */
+  @Test
+  public void testOutcomeDependentFeatures() {
+    AdaptiveFeatureGenerator windowFeatureGenerator = new WindowFeatureGenerator(
+        new OutcomeFeatureGenerator(), 2, 2);
+
+    // like in a beam search the same tokens are passed with a growing number of outcomes
+    for (int index = 0; index < testSentence.length; index++) {
+      String[] previousOutcomes = new String[index];
+      features.clear();
+      windowFeatureGenerator.createFeatures(features, testSentence, index, previousOutcomes);
+
+      Assert.assertTrue(features.contains(testSentence[index] + "/" + index));
+      if (index > 0) {
+        Assert.assertTrue(features.contains(WindowFeatureGenerator.PREV_PREFIX + "1" +
+            testSentence[index - 1] + "/" + index));
+      }
+      if (index + 1 < testSentence.length) {
+        Assert.assertTrue(features.contains(WindowFeatureGenerator.NEXT_PREFIX + "1" +
+            testSentence[index + 1] + "/" + index));
+      }
+    }
+  }
 }